@@ -0,0 +1,331 @@
+//******************************************************************************
+//                           ConfigSnapshot.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opensilex.nosql.mongodb.MongoDBConfig;
+import org.opensilex.sparql.SPARQLConfig;
+import org.opensilex.sparql.rdf4j.RDF4JConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable snapshot of the web service configuration.
+ * All the old properties files values are resolved once, when the snapshot is
+ * created, from the OpenSILEX configuration. The values read on each request
+ * are also parsed once and available as plain fields.
+ * A snapshot is never modified: a configuration reload creates a new snapshot
+ * which replaces the current one (see {@link PropertiesFileManager}).
+ */
+public class ConfigSnapshot {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(ConfigSnapshot.class);
+
+    private final static AtomicLong VERSIONS = new AtomicLong();
+
+    /**
+     * Properties of each old properties file.
+     * @example {service={pageSizeMax=2097152, ...}, sesame_rdf_config={...}}
+     */
+    private final Map<String, Map<String, String>> properties;
+
+    private final long version;
+    private final String publicURI;
+    private final String storageBasePath;
+    private final String baseURI;
+    private final String infrastructure;
+    private final int pageSizeMax;
+    private final int sessionTime;
+    private final int waitingFileTime;
+    private final boolean logDataQuery;
+    private final long dataQueryLogRetentionDays;
+    private final int requestRateLimit;
+    private final int concurrentRequestLimit;
+    private final String requestLimitServices;
+    private final Set<String> requestLimitTrustedProxies;
+    private final int tokenCacheSize;
+    private final int slowQueryThreshold;
+    private final boolean labelIndex;
+    private final int labelIndexRefreshPeriod;
+
+    public ConfigSnapshot(
+            PhisWsConfig phisConfig,
+            RDF4JConfig rdf4jConfig,
+            SPARQLConfig sparqlConfig,
+            MongoDBConfig mongoConfig,
+            String storageBasePath,
+            String publicURI) {
+        this.version = VERSIONS.incrementAndGet();
+        this.publicURI = publicURI;
+        this.storageBasePath = storageBasePath;
+
+        Map<String, Map<String, String>> files = new HashMap<>();
+        files.put("service", getServiceProperties(phisConfig, storageBasePath));
+        files.put("phis_sql_config", getPgSQLProperties(phisConfig.postgreSQL()));
+        files.put("sesame_rdf_config", getRDF4JProperties(phisConfig, rdf4jConfig, sparqlConfig));
+        files.put("mongodb_nosql_config", getMongoProperties(phisConfig, mongoConfig));
+        files.put("data_analysis_config", getDataAnalysisProperties(phisConfig));
+        this.properties = Collections.unmodifiableMap(files);
+
+        this.baseURI = sparqlConfig.baseURI();
+        this.infrastructure = phisConfig.infrastructure();
+        this.pageSizeMax = parseInt("pageSizeMax", phisConfig.pageSizeMax(), 2097152);
+        this.sessionTime = parseInt("sessionTime", phisConfig.sessionTime(), 12000);
+        this.waitingFileTime = parseInt("waitingFileTime", phisConfig.waitingFileTime(), 30);
+        this.logDataQuery = phisConfig.logDataQuery();
+        this.dataQueryLogRetentionDays = parseInt("dataQueryLogRetentionDays", phisConfig.dataQueryLogRetentionDays(), 0);
+        this.requestRateLimit = parseInt("requestRateLimit", phisConfig.requestRateLimit(), 0);
+        this.concurrentRequestLimit = parseInt("concurrentRequestLimit", phisConfig.concurrentRequestLimit(), 0);
+        this.requestLimitServices = phisConfig.requestLimitServices();
+        this.requestLimitTrustedProxies = parseList(phisConfig.requestLimitTrustedProxies());
+        this.tokenCacheSize = parseInt("tokenCacheSize", phisConfig.tokenCacheSize(), 1000);
+        this.slowQueryThreshold = parseInt("slowQueryThreshold", phisConfig.slowQueryThreshold(), 1000);
+        this.labelIndex = phisConfig.labelIndex();
+        this.labelIndexRefreshPeriod = parseInt("labelIndexRefreshPeriod", phisConfig.labelIndexRefreshPeriod(), 60);
+    }
+
+    /**
+     * @param fileName old properties file name
+     * @param prop property name
+     * @return null | property value
+     */
+    public String getProperty(String fileName, String prop) {
+        Map<String, String> fileProperties = properties.get(fileName);
+        return fileProperties == null ? null : fileProperties.get(prop);
+    }
+
+    private static Map<String, String> getServiceProperties(PhisWsConfig phisConfig, String storageBasePath) {
+        Map<String, String> props = new HashMap<>();
+        props.put("sessionTime", phisConfig.sessionTime());
+        props.put("waitingFileTime", phisConfig.waitingFileTime());
+        props.put("uploadFileServerDirectory", storageBasePath);
+        props.put("defaultLanguage", "en");
+        props.put("gnpisPublicKeyFileName", phisConfig.gnpisPublicKeyFileName());
+        props.put("phisPublicKeyFileName", phisConfig.phisPublicKeyFileName());
+        props.put("pageSizeMax", phisConfig.pageSizeMax());
+        props.put("requestRateLimit", phisConfig.requestRateLimit());
+        props.put("concurrentRequestLimit", phisConfig.concurrentRequestLimit());
+        props.put("requestLimitServices", phisConfig.requestLimitServices());
+        props.put("requestLimitTrustedProxies", phisConfig.requestLimitTrustedProxies());
+        props.put("tokenCacheSize", phisConfig.tokenCacheSize());
+        props.put("slowQueryThreshold", phisConfig.slowQueryThreshold());
+        props.put("labelIndex", Boolean.toString(phisConfig.labelIndex()));
+        props.put("labelIndexRefreshPeriod", phisConfig.labelIndexRefreshPeriod());
+        return Collections.unmodifiableMap(props);
+    }
+
+    private static Map<String, String> getDataAnalysisProperties(PhisWsConfig phisConfig) {
+        Map<String, String> props = new HashMap<>();
+        props.put("opencpu.host", phisConfig.opencpuHost());
+        props.put("opencpu.timeout", phisConfig.opencpuTimeout());
+        props.put("opencpu.maxConcurrentCalls", phisConfig.opencpuMaxConcurrentCalls());
+        props.put("opencpu.cacheSize", phisConfig.opencpuCacheSize());
+        props.put("opencpu.cacheTime", phisConfig.opencpuCacheTime());
+        props.put("shinyproxy.run", Boolean.toString(phisConfig.shinyproxyRun()));
+        props.put("shinyproxy.port", phisConfig.shinyproxyPort());
+        props.put("shinyproxy.configFilePath", phisConfig.shinyproxyConfigFilePath());
+        return Collections.unmodifiableMap(props);
+    }
+
+    private static Map<String, String> getPgSQLProperties(PhisPostgreSQLConfig pgConfig) {
+        Map<String, String> props = new HashMap<>();
+        props.put("driver", pgConfig.driver());
+        props.put("url", "jdbc:postgresql://" + pgConfig.host()
+                + ":" + pgConfig.port()
+                + "/" + pgConfig.database());
+        props.put("username", pgConfig.username());
+        props.put("password", pgConfig.password());
+        props.put("testWhileIdle", "" + pgConfig.testWhileIdle());
+        props.put("testOnBorrow", "" + pgConfig.testOnBorrow());
+        props.put("testOnReturn", "" + pgConfig.testOnReturn());
+        props.put("validationQuery", pgConfig.validationQuery());
+        props.put("validationInterval", "" + pgConfig.validationInterval());
+        props.put("timeBetweenEvictionRunsMillis", "" + pgConfig.timeBetweenEvictionRunsMillis());
+        props.put("maxActive", "" + pgConfig.maxActive());
+        props.put("minIdle", "" + pgConfig.minIdle());
+        props.put("maxIdle", "" + pgConfig.maxIdle());
+        props.put("maxWait", "" + pgConfig.maxWait());
+        props.put("initialSize", "" + pgConfig.initialSize());
+        props.put("removeAbandoned", "" + pgConfig.removeAbandoned());
+        props.put("removeAbandonedTimeout", "" + pgConfig.removeAbandonedTimeout());
+        props.put("logAbandoned", "" + pgConfig.logAbandoned());
+        props.put("jmxEnabled", "" + pgConfig.jmxEnabled());
+        props.put("maxAge", "" + pgConfig.maxAge());
+        props.put("jdbcInterceptors", pgConfig.jdbcInterceptors());
+        return Collections.unmodifiableMap(props);
+    }
+
+    private static Map<String, String> getRDF4JProperties(PhisWsConfig phisConfig, RDF4JConfig rdf4jConfig, SPARQLConfig sparqlConfig) {
+        Map<String, String> props = new HashMap<>();
+        props.put("sesameServer", rdf4jConfig.serverURI());
+        props.put("repositoryID", rdf4jConfig.repository());
+        props.put("infrastructure", phisConfig.infrastructure());
+        props.put("baseURI", sparqlConfig.baseURI());
+        props.put("vocabularyContext", phisConfig.vocabulary());
+        return Collections.unmodifiableMap(props);
+    }
+
+    private static Map<String, String> getMongoProperties(PhisWsConfig phisConfig, MongoDBConfig mongoConfig) {
+        Map<String, String> props = new HashMap<>();
+        props.put("host", mongoConfig.host());
+        props.put("port", "" + mongoConfig.port());
+        props.put("user", mongoConfig.username());
+        props.put("password", mongoConfig.password());
+        props.put("authdb", mongoConfig.authDB());
+        props.put("db", mongoConfig.database());
+        props.put("documents", phisConfig.documentsCollection());
+        props.put("provenance", phisConfig.provenanceCollection());
+        props.put("data", phisConfig.dataCollection());
+        props.put("images", phisConfig.imagesCollection());
+        props.put("logDataQuery", Boolean.toString(phisConfig.logDataQuery()));
+        props.put("dataQueryLogRetentionDays", phisConfig.dataQueryLogRetentionDays());
+        return Collections.unmodifiableMap(props);
+    }
+
+    private static int parseInt(String prop, String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException | NullPointerException ex) {
+            LOGGER.warn("Can't parse " + prop + " property, default value is " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param value values separated by commas
+     * @return the non empty values
+     */
+    private static Set<String> parseList(String value) {
+        Set<String> values = new HashSet<>();
+        if (value != null) {
+            for (String item : value.split(",")) {
+                if (!item.trim().isEmpty()) {
+                    values.add(item.trim());
+                }
+            }
+        }
+        return Collections.unmodifiableSet(values);
+    }
+
+    /**
+     * @return the version of the snapshot, incremented by each reload
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getPublicURI() {
+        return publicURI;
+    }
+
+    public String getStorageBasePath() {
+        return storageBasePath;
+    }
+
+    public String getBaseURI() {
+        return baseURI;
+    }
+
+    public String getInfrastructure() {
+        return infrastructure;
+    }
+
+    /**
+     * @return the maximum page size of the requests
+     */
+    public int getPageSizeMax() {
+        return pageSizeMax;
+    }
+
+    /**
+     * @return the session time, in seconds
+     */
+    public int getSessionTime() {
+        return sessionTime;
+    }
+
+    /**
+     * @return the time to wait for an uploaded file, in seconds
+     */
+    public int getWaitingFileTime() {
+        return waitingFileTime;
+    }
+
+    public boolean isLogDataQuery() {
+        return logDataQuery;
+    }
+
+    /**
+     * @return the days the data queries logs are kept, 0 to keep them
+     */
+    public long getDataQueryLogRetentionDays() {
+        return dataQueryLogRetentionDays;
+    }
+
+    /**
+     * @return the default requests per minute of a client on a service
+     */
+    public int getRequestRateLimit() {
+        return requestRateLimit;
+    }
+
+    /**
+     * @return the default simultaneous requests of a client on a service
+     */
+    public int getConcurrentRequestLimit() {
+        return concurrentRequestLimit;
+    }
+
+    public String getRequestLimitServices() {
+        return requestLimitServices;
+    }
+
+    /**
+     * @return the addresses of the reverse proxies whose X-Forwarded-For
+     * header is trusted to identify the limited clients
+     */
+    public Set<String> getRequestLimitTrustedProxies() {
+        return requestLimitTrustedProxies;
+    }
+
+    /**
+     * @return the maximum number of verified tokens kept in cache
+     */
+    public int getTokenCacheSize() {
+        return tokenCacheSize;
+    }
+
+    /**
+     * @return the duration above which the queries are logged, in
+     * milliseconds, 0 to disable the log
+     */
+    public int getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    /**
+     * @return true if the labels are searched in the label index, read at
+     * startup
+     */
+    public boolean isLabelIndex() {
+        return labelIndex;
+    }
+
+    /**
+     * @return the minutes between two refreshes of the label index, 0 to only
+     * refresh it at startup
+     */
+    public int getLabelIndexRefreshPeriod() {
+        return labelIndexRefreshPeriod;
+    }
+}
@@ -63,6 +63,18 @@ public interface PhisWsConfig extends ModuleConfig {
     )
     String imagesCollection();
 
+    @ConfigDescription(
+            value = "Log the data search queries",
+            defaultBoolean = false
+    )
+    boolean logDataQuery();
+
+    @ConfigDescription(
+            value = "Number of days the data search query logs are kept, 0 to keep them forever",
+            defaultString = "0"
+    )
+    String dataQueryLogRetentionDays();
+
     @ConfigDescription(
             value = "Session time",
             defaultString = "12000"
@@ -81,4 +93,100 @@ public interface PhisWsConfig extends ModuleConfig {
     )
     String pageSizeMax();
 
+    @ConfigDescription(
+            value = "Maximum number of requests per minute of a client on a service, 0 for no limit",
+            defaultString = "0"
+    )
+    String requestRateLimit();
+
+    @ConfigDescription(
+            value = "Maximum number of simultaneous requests of a client on a service, 0 for no limit",
+            defaultString = "0"
+    )
+    String concurrentRequestLimit();
+
+    @ConfigDescription(
+            value = "Requests limits of given services or services classes: Service.method=requestsPerMinute/concurrentRequests,Service=...",
+            defaultString = ""
+    )
+    String requestLimitServices();
+
+    @ConfigDescription(
+            value = "Addresses of the trusted reverse proxies, whose X-Forwarded-For header gives the address of the limited clients",
+            defaultString = ""
+    )
+    String requestLimitTrustedProxies();
+
+    @ConfigDescription(
+            value = "Maximum number of verified tokens kept in cache, 0 to disable the cache",
+            defaultString = "1000"
+    )
+    String tokenCacheSize();
+
+    @ConfigDescription(
+            value = "Duration in milliseconds above which the triplestore and MongoDB queries are logged, 0 to disable the log",
+            defaultString = "1000"
+    )
+    String slowQueryThreshold();
+
+    @ConfigDescription(
+            value = "Search the labels in the embedded label index instead of the triplestore",
+            defaultBoolean = false
+    )
+    boolean labelIndex();
+
+    @ConfigDescription(
+            value = "Minutes between two refreshes of the label index from the triplestore, 0 to only refresh it at startup",
+            defaultString = "60"
+    )
+    String labelIndexRefreshPeriod();
+
+    @ConfigDescription(
+            value = "OpenCPU server address",
+            defaultString = "http://localhost:8004"
+    )
+    String opencpuHost();
+
+    @ConfigDescription(
+            value = "OpenCPU calls timeout in seconds",
+            defaultString = "60"
+    )
+    String opencpuTimeout();
+
+    @ConfigDescription(
+            value = "Maximum number of simultaneous OpenCPU calls",
+            defaultString = "4"
+    )
+    String opencpuMaxConcurrentCalls();
+
+    @ConfigDescription(
+            value = "Maximum number of OpenCPU results kept in cache, 0 to disable the cache",
+            defaultString = "0"
+    )
+    String opencpuCacheSize();
+
+    @ConfigDescription(
+            value = "Time to keep an OpenCPU result in cache, in seconds",
+            defaultString = "600"
+    )
+    String opencpuCacheTime();
+
+    @ConfigDescription(
+            value = "Start ShinyProxy with the web service",
+            defaultBoolean = false
+    )
+    boolean shinyproxyRun();
+
+    @ConfigDescription(
+            value = "ShinyProxy published port",
+            defaultString = "8080"
+    )
+    String shinyproxyPort();
+
+    @ConfigDescription(
+            value = "ShinyProxy configuration and docker files directory",
+            defaultString = "/tmp/opensilex/shinyproxy"
+    )
+    String shinyproxyConfigFilePath();
+
 }
@@ -32,6 +32,8 @@ import static org.opensilex.core.CoreModule.TOKEN_USER_GROUP_URIS;
  */
 public class PhisWsModule extends OpenSilexModule implements APIExtension {
 
+    private final static String CONFIG_ID = "phisws";
+
     @Override
     public Class<? extends ModuleConfig> getConfigClass() {
         return PhisWsConfig.class;
@@ -39,21 +41,32 @@ public class PhisWsModule extends OpenSilexModule implements APIExtension {
 
     @Override
     public String getConfigId() {
-        return "phisws";
+        return CONFIG_ID;
     }
 
     @Override
     public void startup() {
+        reloadConfiguration();
+    }
+
+    /**
+     * Reads the configuration and replaces the current configuration
+     * snapshot, at startup and on reload. The connections and pools created
+     * from the previous configuration (databases, OpenCPU) are kept until the next restart.
+     * @return the new configuration
+     */
+    public static ConfigSnapshot reloadConfiguration() {
         OpenSilex app = OpenSilex.getInstance();
 
         PropertiesFileManager.setOpensilexConfigs(
-                getConfig(PhisWsConfig.class),
+                app.loadConfigPath(CONFIG_ID, PhisWsConfig.class),
                 app.loadConfigPath("ontologies.sparql.rdf4j", RDF4JConfig.class),
                 app.loadConfigPath("ontologies", SPARQLConfig.class),
                 app.loadConfigPath("big-data.nosql.mongodb", MongoDBConfig.class),
                 app.loadConfigPath("file-system.storageBasePath", String.class),
                 app.loadConfigPath("server.publicURI", String.class)
         );
+        return PropertiesFileManager.getConfig();
     }
 
     @Override
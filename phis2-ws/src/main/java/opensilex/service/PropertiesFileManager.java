@@ -7,7 +7,7 @@
 // Creation date: august 2016
 // Contact:arnaud.charleroy@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr,
 //         morgane.vidal@inra.fr
-// Last modification date:  January, 2017
+// Last modification date:  October, 2020
 // Subject: Read properties file
 //***********************************************************************************************
 package opensilex.service;
@@ -46,11 +46,11 @@ import org.yaml.snakeyaml.Yaml;
 public class PropertiesFileManager {
 
     final static Logger LOGGER = LoggerFactory.getLogger(PropertiesFileManager.class.getName());
-    private static RDF4JConfig rdf4jConfig;
-    private static SPARQLConfig sparqlConfig;
-    private static MongoDBConfig mongoConfig;
-    private static String storageBasePath;
-    private static String publicURI;
+
+    /**
+     * Current configuration, replaced as a whole on each reload.
+     */
+    private static volatile ConfigSnapshot config;
 
     /**
      * Lit le fichier de configuration et retourne un objet Proprietes
@@ -171,23 +171,17 @@ public class PropertiesFileManager {
     }
 
     /**
-     * Phis postGreSQL configuration
-     */
-    private static PhisPostgreSQLConfig pgConfig;
-    
-    /**
-     * Phis service configuration
-     */
-    private static PhisWsConfig phisConfig;
-    
-    /**
-     * Setter for all configuration needed by phis
+     * Setter for all configuration needed by phis.
+     * Creates a new configuration snapshot and replaces the current one, so
+     * readers either see the previous configuration or the new one, never a
+     * mix of both.
      * 
-     * @param pgConfig PostGreSQL config
      * @param phisConfig Phis service configuration
-     * @param coreConfig Application core config
-     * @param mongoConfig MongoDB configuration
      * @param rdf4jConfig RDF4J configuration
+     * @param sparqlConfig SPARQL configuration
+     * @param mongoConfig MongoDB configuration
+     * @param storageBasePath files storage directory
+     * @param publicURI public URI of the web service
      */
     public static void setOpensilexConfigs(
         PhisWsConfig phisConfig,
@@ -197,233 +191,36 @@ public class PropertiesFileManager {
         String storageBasePath,
         String publicURI
     ) {
-        PropertiesFileManager.phisConfig = phisConfig;
-        PropertiesFileManager.rdf4jConfig = rdf4jConfig;
-        PropertiesFileManager.sparqlConfig = sparqlConfig;
-        PropertiesFileManager.mongoConfig = mongoConfig;
-        PropertiesFileManager.pgConfig = phisConfig.postgreSQL();
-        PropertiesFileManager.storageBasePath = storageBasePath;
-        PropertiesFileManager.publicURI = publicURI;
+        ConfigSnapshot newConfig = new ConfigSnapshot(phisConfig, rdf4jConfig, sparqlConfig, mongoConfig, storageBasePath, publicURI);
+        PropertiesFileManager.config = newConfig;
+        LOGGER.info("Configuration version " + newConfig.getVersion() + " loaded");
+    }
+
+    /**
+     * Gets the current configuration. Hot paths should read its typed fields
+     * rather than calling {@link #getConfigFileProperty(String, String)}.
+     * @return the current configuration snapshot
+     */
+    public static ConfigSnapshot getConfig() {
+        return config;
     }
     
     /**
      * This method used to read configuration from file
      * It as been updated to use new YAML config system in modularity
-     * So now this method map old properties to new ones
+     * So now this method map old properties to new ones, resolved once in
+     * the current configuration snapshot
      *
      * @param fileName CoreConfig section
      * @param prop property name
      * @return null | property value
      */
     public static String getConfigFileProperty(String fileName, String prop) {
-        String value = null;
-        
-        switch (fileName) {
-            case "service":
-                value = getServiceProperty(prop);
-                break;
-                
-            case "phis_sql_config":
-                value = getPgSQLProperty(prop);
-                break;
-                
-            case "sesame_rdf_config":
-                value = getRDF4JProperty(prop);
-                break;
-                
-            case "mongodb_nosql_config":
-                value = getMongoProperty(prop);
-                break;                
-                
-            default:
-                break;
-        }
-        
-        return value;
-    }
-
-    /**
-     * Map old properties which where con
-     * @param prop
-     * @return 
-     */
-    private static String getServiceProperty(String prop) {
-        String value = null;
-        
-        switch (prop) {
-            case "sessionTime":
-                value = phisConfig.sessionTime();
-                break;
-            case "waitingFileTime":
-                value = phisConfig.waitingFileTime();
-                break;                
-            case "uploadFileServerDirectory":
-                value = storageBasePath;
-                break;
-            case "defaultLanguage":
-                value = "en";
-                break;
-            case "gnpisPublicKeyFileName":
-                value = phisConfig.gnpisPublicKeyFileName();
-                break;   
-            case "phisPublicKeyFileName":
-                value = phisConfig.phisPublicKeyFileName();
-                break;   
-            case "pageSizeMax":
-                value = phisConfig.pageSizeMax();
-                break;  
-            default:
-                break;
-        }
-        
-        return value;
+        return config.getProperty(fileName, prop);
     }
 
     public static String getPublicURI() {
-        return publicURI;
-    }
-    
-    private static String getPgSQLProperty(String prop) {
-         String value = null;
-        
-        switch (prop) {
-            case "driver":
-                value = pgConfig.driver();
-                break;                 
-            case "url":
-                value = "jdbc:postgresql://" + pgConfig.host() 
-                        + ":" + pgConfig.port() 
-                        + "/" + pgConfig.database();
-                break;
-            case "username":
-                value = pgConfig.username();
-                break;                
-            case "password":
-                value = pgConfig.password();
-                break;
-            case "testWhileIdle":
-                value = "" + pgConfig.testWhileIdle();
-                break;
-            case "testOnBorrow":
-                value = "" + pgConfig.testOnBorrow();
-                break;
-            case "testOnReturn":
-                value = "" + pgConfig.testOnReturn();
-                break;                
-            case "validationQuery":
-                value = pgConfig.validationQuery();
-                break;
-            case "validationInterval":
-                value = "" + pgConfig.validationInterval();
-                break;
-            case "timeBetweenEvictionRunsMillis":
-                value = "" + pgConfig.timeBetweenEvictionRunsMillis();
-                break;
-            case "maxActive":
-                value = "" + pgConfig.maxActive();
-                break;
-            case "minIdle":
-                value = "" + pgConfig.minIdle();
-                break;
-            case "maxIdle":
-                value = "" + pgConfig.maxIdle();
-                break;
-            case "maxWait":
-                value = "" + pgConfig.maxWait();
-                break;
-            case "initialSize":
-                value = "" + pgConfig.initialSize();
-                break;
-            case "removeAbandoned":
-                value = "" + pgConfig.removeAbandoned();
-                break;
-            case "removeAbandonedTimeout":
-                value = "" + pgConfig.removeAbandonedTimeout();
-                break;
-            case "logAbandoned":
-                value = "" + pgConfig.logAbandoned();
-                break;
-            case "jmxEnabled":
-                value = "" + pgConfig.jmxEnabled();
-                break;
-            case "maxAge":
-                value = "" + pgConfig.maxAge();
-                break;
-            case "jdbcInterceptors":
-                value = pgConfig.jdbcInterceptors();
-                break;
-            default:
-                break;
-        }
-        
-        return value;
-    }
-
-    private static String getRDF4JProperty(String prop) {
-        String value = null;
-        
-        switch (prop) {
-            case "sesameServer":
-                value = rdf4jConfig.serverURI();
-                break;
-            case "repositoryID":
-                value = rdf4jConfig.repository();
-                break;                
-            case "infrastructure":
-                value = phisConfig.infrastructure();
-                break;
-            case "baseURI":
-                value = sparqlConfig.baseURI();
-                break;
-            case "vocabularyContext":
-                value = phisConfig.vocabulary();
-                break;
-            default:
-                break;
-        }
-        
-        return value;
-    }
-
-    private static String getMongoProperty(String prop) {
-         String value = null;
-        
-        switch (prop) {
-            case "host":
-                value = mongoConfig.host();
-                break;
-            case "port":
-                value = "" + mongoConfig.port();
-                break;
-            case "user":
-                value = mongoConfig.username();
-                break;
-            case "password":
-                value = mongoConfig.password();
-                break;
-            case "authdb":
-                value = mongoConfig.authDB();
-                break;
-            case "db":
-                value = mongoConfig.database();
-                break;                     
-            case "documents":
-                value = phisConfig.documentsCollection();
-                break;
-            case "provenance":
-                value = phisConfig.provenanceCollection();
-                break;
-            case "data":
-                value = phisConfig.dataCollection();
-                break;
-            case "images":
-                value = phisConfig.imagesCollection();
-                break;
-            default:
-                break;
-        }
-        
-        return value;
+        return config.getPublicURI();
     }
     
     /**
@@ -436,11 +233,11 @@ public class PropertiesFileManager {
     public static String getSQLConnectionUrl(String fileName) {
         try {
             final StringBuilder strBuilder = new StringBuilder();
-            strBuilder.append(getPgSQLProperty("url"))
+            strBuilder.append(getConfigFileProperty("phis_sql_config", "url"))
                     .append("?")
-                    .append("user=").append(getPgSQLProperty("username"))
+                    .append("user=").append(getConfigFileProperty("phis_sql_config", "username"))
                     .append("&")
-                    .append("password=").append(getPgSQLProperty("password"));
+                    .append("password=").append(getConfigFileProperty("phis_sql_config", "password"));
             return strBuilder.toString();
         } catch (Exception ex) {
             LOGGER.error(ex.getMessage(), ex);
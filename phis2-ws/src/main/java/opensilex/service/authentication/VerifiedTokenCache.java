@@ -0,0 +1,239 @@
+//******************************************************************************
+//                           VerifiedTokenCache.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.authentication;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import opensilex.service.PropertiesFileManager;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of the verified tokens, so the clients sending many requests
+ * with the same token (e.g. sensors gateways) only pay the signature
+ * verification once in the filters of this web service (request limits, data
+ * queries log, revoked tokens). The authentication of the protected services,
+ * done by the OpenSILEX core filter, still verifies the signature of each
+ * request.
+ * The tokens are kept by their SHA-256 hash, never in clear, until their
+ * expiration date. The least recently used tokens are removed when the cache
+ * is full. A revoked token is removed from the cache and rejected until its
+ * expiration date. Only verified tokens can be revoked and the revoked tokens
+ * are bounded, so the revocations can not be used to fill the memory.
+ * The revocations are only kept in the memory of the instance: a revoked token
+ * is still accepted by the other instances of the web service, and again after
+ * a restart.
+ * @example
+ * URI userURI = VerifiedTokenCache.getInstance().getUserURI(token, authentication::decodeTokenUserURI);
+ */
+public class VerifiedTokenCache {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    /**
+     * Cache time of the tokens without expiration date, in milliseconds.
+     */
+    private final static long DEFAULT_CACHE_TIME = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Maximum number of revoked tokens kept until their expiration date.
+     */
+    final static int MAX_REVOKED_TOKENS = 10000;
+
+    /**
+     * Full verification of a token.
+     */
+    @FunctionalInterface
+    public interface TokenVerifier {
+
+        /**
+         * @param token
+         * @return the URI of the token user
+         * @throws Exception if the token is not valid
+         */
+        URI verify(String token) throws Exception;
+    }
+
+    /**
+     * Thrown when a revoked token is used.
+     */
+    public static class RevokedTokenException extends Exception {
+
+        public RevokedTokenException() {
+            super("Revoked token");
+        }
+    }
+
+    /**
+     * Claims of a verified token.
+     */
+    private static class VerifiedToken {
+
+        private final URI userURI;
+        private final long expirationTime;
+
+        VerifiedToken(URI userURI, long expirationTime) {
+            this.userURI = userURI;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    private static class InstanceHolder {
+
+        private final static VerifiedTokenCache INSTANCE = new VerifiedTokenCache(
+                PropertiesFileManager.getConfig().getTokenCacheSize());
+    }
+
+    /**
+     * @return the cache of the web service
+     */
+    public static VerifiedTokenCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    private final int maxSize;
+    private final Map<String, VerifiedToken> verifiedTokens;
+    /**
+     * Expiration time of each revoked token, by token hash.
+     */
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxSize maximum number of tokens in cache, 0 to disable the cache
+     */
+    public VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.verifiedTokens = Collections.synchronizedMap(new LinkedHashMap<String, VerifiedToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > VerifiedTokenCache.this.maxSize;
+            }
+        });
+    }
+
+    /**
+     * Gets the user of a token, verified by the given verifier if the token
+     * is not in cache.
+     * @param token
+     * @param verifier
+     * @return the URI of the token user
+     * @throws RevokedTokenException if the token has been revoked
+     * @throws Exception if the token is not valid
+     */
+    public URI getUserURI(String token, TokenVerifier verifier) throws Exception {
+        return getUserURI(token, verifier, System.currentTimeMillis());
+    }
+
+    URI getUserURI(String token, TokenVerifier verifier, long now) throws Exception {
+        String tokenHash = hash(token);
+        if (isRevoked(tokenHash, now)) {
+            throw new RevokedTokenException();
+        }
+
+        VerifiedToken verifiedToken = verifiedTokens.get(tokenHash);
+        if (verifiedToken != null) {
+            if (verifiedToken.expirationTime > now) {
+                return verifiedToken.userURI;
+            }
+            verifiedTokens.remove(tokenHash);
+        }
+
+        URI userURI = verifier.verify(token);
+        long expirationTime = getExpirationTime(token, now);
+        // The token may have been revoked during its verification
+        if (maxSize > 0 && expirationTime > now && !revokedTokens.containsKey(tokenHash)) {
+            verifiedTokens.put(tokenHash, new VerifiedToken(userURI, expirationTime));
+        }
+        return userURI;
+    }
+
+    /**
+     * Revokes a token: it is removed from the cache and rejected until its
+     * expiration date. Only the valid tokens are revoked, for at most the
+     * lifetime of the tokens given by the web service.
+     * @param token
+     * @param verifier
+     * @param maxLifetime lifetime of the tokens, in milliseconds
+     * @throws Exception if the token is not valid
+     */
+    public void revoke(String token, TokenVerifier verifier, long maxLifetime) throws Exception {
+        revoke(token, verifier, maxLifetime, System.currentTimeMillis());
+    }
+
+    void revoke(String token, TokenVerifier verifier, long maxLifetime, long now) throws Exception {
+        verifier.verify(token);
+        String tokenHash = hash(token);
+        revokedTokens.put(tokenHash, Math.min(getExpirationTime(token, now), now + maxLifetime));
+        verifiedTokens.remove(tokenHash);
+        // Revocations are rare, the expired ones are removed at this time
+        revokedTokens.values().removeIf(expirationTime -> expirationTime <= now);
+        while (revokedTokens.size() > MAX_REVOKED_TOKENS) {
+            // The tokens expiring first are the ones which can be used the shortest time
+            revokedTokens.entrySet().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .ifPresent(eldest -> revokedTokens.remove(eldest.getKey()));
+        }
+    }
+
+    /**
+     * @return the number of revoked tokens
+     */
+    int revokedSize() {
+        return revokedTokens.size();
+    }
+
+    /**
+     * @param token
+     * @return true if the token has been revoked
+     */
+    public boolean isRevoked(String token) {
+        return !revokedTokens.isEmpty() && isRevoked(hash(token), System.currentTimeMillis());
+    }
+
+    private boolean isRevoked(String tokenHash, long now) {
+        Long expirationTime = revokedTokens.get(tokenHash);
+        return expirationTime != null && expirationTime > now;
+    }
+
+    /**
+     * @return the number of tokens in cache
+     */
+    public int size() {
+        return verifiedTokens.size();
+    }
+
+    private static String hash(String token) {
+        return DigestUtils.sha256Hex(token);
+    }
+
+    /**
+     * Reads the expiration date of a token, without verifying it.
+     * @param token
+     * @param now
+     * @return the expiration time of the token, in milliseconds
+     */
+    private static long getExpirationTime(String token, long now) {
+        try {
+            Date expiresAt = JWT.decode(token).getExpiresAt();
+            if (expiresAt != null) {
+                return expiresAt.getTime();
+            }
+        } catch (JWTDecodeException ex) {
+            LOGGER.debug("Can't read the token expiration date: " + ex.getMessage());
+        }
+        return now + DEFAULT_CACHE_TIME;
+    }
+}
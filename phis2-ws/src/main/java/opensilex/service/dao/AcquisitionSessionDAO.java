@@ -8,25 +8,27 @@
 package opensilex.service.dao;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
+import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import opensilex.service.dao.manager.Rdf4jDAO;
-import opensilex.service.model.User;
 import opensilex.service.ontology.Oeso;
+import opensilex.service.ontology.Rdf;
+import opensilex.service.ontology.Rdfs;
 import opensilex.service.resource.dto.acquisitionSession.MetadataFileUAVDTO;
 import opensilex.service.resource.dto.acquisitionSession.MetadataFilePhenomobileDTO;
 import opensilex.service.resource.dto.acquisitionSession.MetadataFileDTO;
-import opensilex.service.model.Experiment;
-import opensilex.service.model.RadiometricTarget;
-import opensilex.service.model.Sensor;
-import opensilex.service.model.Vector;
+import opensilex.service.utils.ModificationCounter;
+import opensilex.service.utils.sparql.SPARQLQueryTemplate;
 import org.opensilex.sparql.service.SPARQLService;
 
 /**
@@ -46,162 +48,238 @@ public class AcquisitionSessionDAO extends Rdf4jDAO<MetadataFileDTO> {
      */
     public String vectorRdfType;
 
+    // SPARQL variables names of the metadata file queries
+    private final static String VECTOR_RDF_TYPE = "vectorRdfType";
+    private final static String DEVICES = "devices";
+
+    // Devices listed in the metadata file
+    private final static String CAMERAS = "cameras";
+    private final static String VECTORS = "vectors";
+    private final static String RADIOMETRIC_TARGETS = "radiometricTargets";
+
+    /**
+     * Numbers of cameras, of vectors of the ?vectorRdfType type and of
+     * radiometric targets, the number of rows being the highest.
+     * @example
+     * SELECT ?devices (COUNT(DISTINCT ?uri) AS ?count) WHERE {
+     *   { ?rdfType rdfs:subClassOf* oeso:Camera . ?uri rdf:type ?rdfType . ?uri rdfs:label ?label 
+     *     BIND("cameras" AS ?devices) }
+     *   UNION
+     *   { ?rdfType rdfs:subClassOf* <http://www.opensilex.org/vocabulary/oeso#UAV> . ?uri rdf:type ?rdfType . ?uri rdfs:label ?label 
+     *     BIND("vectors" AS ?devices) }
+     *   UNION
+     *   { ?uri rdf:type oeso:RadiometricTarget . ?uri rdfs:label ?label 
+     *     BIND("radiometricTargets" AS ?devices) }
+     * }
+     * GROUP BY ?devices
+     */
+    private final static SPARQLQueryTemplate COUNT_UAV_METADATA_QUERY = new SPARQLQueryTemplate(
+            "SELECT ?" + DEVICES + " (COUNT(DISTINCT ?" + URI + ") AS ?" + COUNT_ELEMENT_QUERY + ") WHERE {\n"
+            + "  {\n"
+            + devicesPattern("<" + Oeso.CONCEPT_CAMERA.toString() + ">")
+            + "    BIND(\"" + CAMERAS + "\" AS ?" + DEVICES + ")\n"
+            + "  } UNION {\n"
+            + devicesPattern("?" + VECTOR_RDF_TYPE)
+            + "    BIND(\"" + VECTORS + "\" AS ?" + DEVICES + ")\n"
+            + "  } UNION {\n"
+            + radiometricTargetsPattern()
+            + "    BIND(\"" + RADIOMETRIC_TARGETS + "\" AS ?" + DEVICES + ")\n"
+            + "  }\n"
+            + "}\n"
+            + "GROUP BY ?" + DEVICES);
+
+    /**
+     * Cameras (URI, type, label), by descending label.
+     */
+    private final static SPARQLQueryTemplate CAMERAS_QUERY = new SPARQLQueryTemplate(
+            "SELECT DISTINCT ?" + URI + " ?" + RDF_TYPE + " ?" + LABEL + " WHERE {\n"
+            + devicesPattern("<" + Oeso.CONCEPT_CAMERA.toString() + ">")
+            + "}\n"
+            + "ORDER BY DESC(?" + LABEL + ")");
+
+    /**
+     * Vectors of the ?vectorRdfType type (URI, type, label), by descending
+     * label.
+     */
+    private final static SPARQLQueryTemplate VECTORS_QUERY = new SPARQLQueryTemplate(
+            "SELECT DISTINCT ?" + URI + " ?" + RDF_TYPE + " ?" + LABEL + " WHERE {\n"
+            + devicesPattern("?" + VECTOR_RDF_TYPE)
+            + "}\n"
+            + "ORDER BY DESC(?" + LABEL + ")");
+
+    /**
+     * Radiometric targets (URI, label), by descending label.
+     */
+    private final static SPARQLQueryTemplate RADIOMETRIC_TARGETS_QUERY = new SPARQLQueryTemplate(
+            "SELECT DISTINCT ?" + URI + " ?" + LABEL + " WHERE {\n"
+            + radiometricTargetsPattern()
+            + "}\n"
+            + "ORDER BY DESC(?" + LABEL + ")");
+
+    // Generated pages of the metadata files, by vector type and page.
+    private final static ConcurrentHashMap<String, MetadataFilePage> METADATA_FILE_PAGES = new ConcurrentHashMap<>();
+
+    // Maximum number of cached pages, the cache is cleared beyond.
+    private final static int MAX_CACHED_PAGES = 100;
+
     public AcquisitionSessionDAO(SPARQLService sparql) {
         super(sparql);
     }
+
+    /**
+     * @param rdfType the devices type
+     * @return the pattern of the devices (?uri, ?rdfType, ?label) of a type
+     */
+    private static String devicesPattern(String rdfType) {
+        return "    ?" + RDF_TYPE + " <" + Rdfs.RELATION_SUBCLASS_OF.toString() + ">* " + rdfType + " .\n"
+                + "    ?" + URI + " <" + Rdf.RELATION_TYPE.toString() + "> ?" + RDF_TYPE + " .\n"
+                + "    ?" + URI + " <" + Rdfs.RELATION_LABEL.toString() + "> ?" + LABEL + " .\n";
+    }
+
+    /**
+     * @return the pattern of the radiometric targets (?uri, ?label)
+     */
+    private static String radiometricTargetsPattern() {
+        return "    ?" + URI + " <" + Rdf.RELATION_TYPE.toString() + "> <" + Oeso.CONCEPT_RADIOMETRIC_TARGET.toString() + "> .\n"
+                + "    ?" + URI + " <" + Rdfs.RELATION_LABEL.toString() + "> ?" + LABEL + " .\n";
+    }
     
     /**
      * Counts the number of rows of the metadata file.
      * @return The number of rows
      */
     public Integer countFileMetadataRows() throws RepositoryException, MalformedQueryException, QueryEvaluationException {
-        UriDAO uriDao = new UriDAO(sparql);
-        //size of the higher list to generate all the FileMetadataDTO
-        ArrayList<Integer> sizes = new ArrayList<>();
-        
-        //if the vector is an uav or a field robot, it has specific file metadata
-        if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_FIELD_ROBOT.toString())
-                || uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_UAV.toString())) {
-            //Common metadata
-            //3. platform
-            sizes.add(1);
-            
-            //UAV
-            if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_UAV.toString())) {
-                //3. get the number of cameras
-                SensorDAO sensorDAO = new SensorDAO(sparql);
-                sizes.add(sensorDAO.countCameras());
-
-                //4. get the number of vectors
-                VectorDAO vectorDAO = new VectorDAO(sparql);
-                vectorDAO.rdfType = Oeso.CONCEPT_UAV.toString();
-                sizes.add(vectorDAO.countUAVs());
-
-                //5. get the number of radiometric targets
-                RadiometricTargetDAO radiometricTargetDAO = new RadiometricTargetDAO(sparql);
-                sizes.add(radiometricTargetDAO.count());
+        MetadataFilePage metadataFilePage = getMetadataFilePage();
+        return metadataFilePage == null ? 0 : metadataFilePage.rowsCount;
+    }
+
+    /**
+     * Gets the page of the metadata file of the vector type, from the cache if
+     * the devices did not change since it was generated.
+     * @return the page of the metadata file
+     *         null if no metadata for the given vector type
+     */
+    private MetadataFilePage getMetadataFilePage() {
+        String key = vectorRdfType + "|" + getPage() + "|" + getPageSize();
+        long version = ModificationCounter.getVersion(ModificationCounter.Scope.DEVICES);
+        MetadataFilePage metadataFilePage = METADATA_FILE_PAGES.get(key);
+        if (metadataFilePage == null || metadataFilePage.version != version) {
+            // Read the version before the data, a concurrent write makes the page outdated
+            metadataFilePage = generateMetadataFilePage(version);
+            if (METADATA_FILE_PAGES.size() >= MAX_CACHED_PAGES) {
+                METADATA_FILE_PAGES.clear();
             }
+            METADATA_FILE_PAGES.put(key, metadataFilePage);
         }
-        
-        return Collections.max(sizes);
+        return metadataFilePage.vectorType ? metadataFilePage : null;
     }
-    
+
     /**
-     * Gets all the required information to generate the hidden PHIS part of the excel file for 4P.
-     * The content of the metadata depends of the acquisition session vector type.
-     * @see AcquisitionSessionDAO#allPaginateFileMetadata() 
-     * @return the content of the metadata required.
+     * Generates a page of the hidden PHIS part of the excel file for 4P.
+     * The content of the metadata depends of the acquisition session vector
+     * type. The rows are filled from the results of the queries of the
+     * cameras, vectors and radiometric targets as they are read.
+     * @param version the version of the devices data
+     * @return the page of the metadata file
      */
-    private ArrayList<MetadataFileDTO> getFileMetadata() {
-        ArrayList<MetadataFileDTO> fileMetadataList = new ArrayList<>();
+    private MetadataFilePage generateMetadataFilePage(long version) {
+        MetadataFilePage metadataFilePage = new MetadataFilePage(version);
         UriDAO uriDao = new UriDAO(sparql);
-        //size of the higher list to generate all the FileMetadataDTO
-        ArrayList<Integer> sizes = new ArrayList<>();
-        
-        //Lists of metadata per concept
-        ArrayList<Experiment> experiments = new ArrayList<>();
-        ArrayList<String> installations = new ArrayList<>();
-        ArrayList<User> users = new ArrayList<>();
-        ArrayList<Sensor> sensors = new ArrayList<>();
-        ArrayList<Vector> vectors = new ArrayList<>();
-        ArrayList<RadiometricTarget> radiometricTargets = new ArrayList<>();
-        
-        //if the vector is an uav or a field robot, it has specific file metadata
-        if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_FIELD_ROBOT.toString())
-                || uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_UAV.toString())) {
-            //Common metadata
-            //3. platform
-            installations.add(Oeso.PLATFORM_URI.toString());
-            
-            //Metadata for the uav
-            if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_UAV.toString())) {
-                //3. get the camera list
-                SensorDAO sensorDAO = new SensorDAO(sparql);
-                sensorDAO.setPage(page);
-                sensorDAO.setPageSize(pageSize);
-                sensors = sensorDAO.getCameras();
-                sizes.add(sensors.size());
-
-                //4. get the vectors list
-                VectorDAO vectorDAO = new VectorDAO(sparql);
-                vectorDAO.setPage(page);
-                vectorDAO.setPageSize(pageSize);
-                vectors = vectorDAO.getUAVs();
-                sizes.add(vectors.size());
-
-                // 5. get the radiometric targets
-                RadiometricTargetDAO radiometricTargetDAO = new RadiometricTargetDAO(sparql);
-                radiometricTargetDAO.setPage(page);
-                radiometricTargetDAO.setPageSize(pageSize);
-                radiometricTargets = radiometricTargetDAO.allPaginate();
-                sizes.add(radiometricTargets.size());
-            }
+        metadataFilePage.vectorType = uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_VECTOR.toString());
+        if (!metadataFilePage.vectorType) {
+            return metadataFilePage;
         }
-        
-        // generates the file metadata list
-        int maxListSize = Collections.max(sizes);
-        // field robot metadata
-        if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_FIELD_ROBOT.toString())) {
-            for (int i = 0; i < maxListSize; i++) {
-                MetadataFilePhenomobileDTO fileMetadata = new MetadataFilePhenomobileDTO();
-                
-                if (experiments.size() > i) {
-                    fileMetadata.setGroupPlotUri(experiments.get(i).getUri());
-                    fileMetadata.setGroupPlotAlias(experiments.get(i).getAlias());
-                    fileMetadata.setGroupPlotSpecies(experiments.get(i).getCropSpecies());
-                    fileMetadata.setGroupPlotType(Oeso.CONCEPT_EXPERIMENT.toString());
-                }
 
-                if (users.size() > i) {
-                    fileMetadata.setPilot(users.get(i).getEmail());
+        if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_UAV.toString())) {
+            TupleQuery countQuery = prepareRDF4JTupleQuery(COUNT_UAV_METADATA_QUERY);
+            countQuery.setBinding(VECTOR_RDF_TYPE, SPARQLQueryTemplate.uri(vectorRdfType));
+            //3. platform, on the first row
+            metadataFilePage.rowsCount = 1;
+            try (TupleQueryResult result = countQuery.evaluate()) {
+                while (result.hasNext()) {
+                    BindingSet bindingSet = result.next();
+                    metadataFilePage.rowsCount = Math.max(metadataFilePage.rowsCount,
+                            Integer.parseInt(bindingSet.getValue(COUNT_ELEMENT_QUERY).stringValue()));
                 }
-                
-                fileMetadataList.add(fileMetadata);
             }
-        } else if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_UAV.toString())) {
-            // UAV metadata
-            for (int i = 0; i < maxListSize; i++) {
-                MetadataFileUAVDTO fileMetadata = new MetadataFileUAVDTO();
-                
-                if (installations.size() > i) {
-                    fileMetadata.setInstallation(Oeso.PLATFORM_URI.toString());
-                }
-                
-                if (experiments.size() > i) {
-                    fileMetadata.setGroupPlotUri(experiments.get(i).getUri());
-                    fileMetadata.setGroupPlotAlias(experiments.get(i).getAlias());
-                    fileMetadata.setGroupPlotSpecies(experiments.get(i).getCropSpecies());
-                    fileMetadata.setGroupPlotType(Oeso.CONCEPT_EXPERIMENT.toString());
-                }
 
-                if (users.size() > i) {
-                    fileMetadata.setPilot(users.get(i).getEmail());
-                }
+            ArrayList<MetadataFileUAVDTO> rows = new ArrayList<>();
+            if (getPage() == 0) {
+                getRow(rows, 0).setInstallation(Oeso.PLATFORM_URI.toString());
+            }
 
-                if (sensors.size() > i) {
-                    fileMetadata.setCameraUri(sensors.get(i).getUri());
-                    fileMetadata.setCameraAlias(sensors.get(i).getLabel());
-                    fileMetadata.setCameraType(sensors.get(i).getRdfType());
+            //3. the cameras
+            int i = 0;
+            try (TupleQueryResult result = preparePageQuery(CAMERAS_QUERY).evaluate()) {
+                while (result.hasNext()) {
+                    BindingSet bindingSet = result.next();
+                    MetadataFileUAVDTO row = getRow(rows, i++);
+                    row.setCameraUri(bindingSet.getValue(URI).stringValue());
+                    row.setCameraAlias(bindingSet.getValue(LABEL).stringValue());
+                    row.setCameraType(bindingSet.getValue(RDF_TYPE).stringValue());
                 }
-                
-                if (vectors.size() > i) {
-                    fileMetadata.setVectorUri(vectors.get(i).getUri());
-                    fileMetadata.setVectorAlias(vectors.get(i).getLabel());
-                    fileMetadata.setVectorType(vectors.get(i).getRdfType());
+            }
+
+            //4. the vectors of the acquisition session type
+            i = 0;
+            TupleQuery vectorsQuery = preparePageQuery(VECTORS_QUERY);
+            vectorsQuery.setBinding(VECTOR_RDF_TYPE, SPARQLQueryTemplate.uri(vectorRdfType));
+            try (TupleQueryResult result = vectorsQuery.evaluate()) {
+                while (result.hasNext()) {
+                    BindingSet bindingSet = result.next();
+                    MetadataFileUAVDTO row = getRow(rows, i++);
+                    row.setVectorUri(bindingSet.getValue(URI).stringValue());
+                    row.setVectorAlias(bindingSet.getValue(LABEL).stringValue());
+                    row.setVectorType(bindingSet.getValue(RDF_TYPE).stringValue());
                 }
-                
-                if (radiometricTargets.size() > i) {
-                    fileMetadata.setRadiometricTargetUri(radiometricTargets.get(i).getUri());
-                    fileMetadata.setRadiometricTargetAlias(radiometricTargets.get(i).getLabel());
+            }
+
+            //5. the radiometric targets
+            i = 0;
+            try (TupleQueryResult result = preparePageQuery(RADIOMETRIC_TARGETS_QUERY).evaluate()) {
+                while (result.hasNext()) {
+                    BindingSet bindingSet = result.next();
+                    MetadataFileUAVDTO row = getRow(rows, i++);
+                    row.setRadiometricTargetUri(bindingSet.getValue(URI).stringValue());
+                    row.setRadiometricTargetAlias(bindingSet.getValue(LABEL).stringValue());
                 }
-                
-                fileMetadataList.add(fileMetadata);
+            }
+            metadataFilePage.rows.addAll(rows);
+        } else if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_FIELD_ROBOT.toString())) {
+            //3. platform, the only row of the field robots
+            metadataFilePage.rowsCount = 1;
+            if (getPage() == 0) {
+                MetadataFilePhenomobileDTO row = new MetadataFilePhenomobileDTO();
+                row.setInstallation(Oeso.PLATFORM_URI.toString());
+                metadataFilePage.rows.add(row);
             }
         }
-        
-        return fileMetadataList;
+
+        return metadataFilePage;
     }
-    
+
+    /**
+     * Prepares the query of a page of devices.
+     * @param template
+     * @return the query
+     */
+    private TupleQuery preparePageQuery(SPARQLQueryTemplate template) {
+        return prepareRDF4JTupleQuery(template.page(getPageSize(), getPage() * getPageSize()));
+    }
+
+    /**
+     * Gets a row of the metadata file page, adding the missing rows.
+     * @param rows
+     * @param index
+     * @return the row
+     */
+    private static MetadataFileUAVDTO getRow(ArrayList<MetadataFileUAVDTO> rows, int index) {
+        while (rows.size() <= index) {
+            rows.add(new MetadataFileUAVDTO());
+        }
+        return rows.get(index);
+    }
+
     /**
      * Gets all the required information to generate the hidden PHIS part of the excel file for 4P.
      * The content of the metadata depends of the acquisition session vector type.
@@ -209,12 +287,34 @@ public class AcquisitionSessionDAO extends Rdf4jDAO<MetadataFileDTO> {
      *         null if no metadata for the given vector type
      */
     public ArrayList<MetadataFileDTO> allPaginateFileMetadata() {
-        // Check if the rdf type is a subclass of vector
-        UriDAO uriDao = new UriDAO(sparql);
-        if (uriDao.isSubClassOf(vectorRdfType, Oeso.CONCEPT_VECTOR.toString())) {
-            return getFileMetadata();
-        } else {
-            return null;
+        MetadataFilePage metadataFilePage = getMetadataFilePage();
+        return metadataFilePage == null ? null : new ArrayList<>(metadataFilePage.rows);
+    }
+
+    /**
+     * Clears the cached metadata files.
+     */
+    public static void clearMetadataFilesCache() {
+        METADATA_FILE_PAGES.clear();
+    }
+
+    /**
+     * A generated page of a metadata file.
+     */
+    private static class MetadataFilePage {
+
+        // Version of the devices data of the page
+        private final long version;
+
+        // False if the type is not a vector type
+        private boolean vectorType;
+
+        private int rowsCount = 0;
+
+        private final List<MetadataFileDTO> rows = new ArrayList<>();
+
+        private MetadataFilePage(long version) {
+            this.version = version;
         }
     }
 
@@ -54,6 +54,7 @@ import opensilex.service.ontology.Contexts;
 import opensilex.service.ontology.Oa;
 import opensilex.service.ontology.Oeso;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
+import opensilex.service.utils.sparql.SPARQLQueryTemplate;
 import opensilex.service.utils.JsonConverter;
 import opensilex.service.utils.UriGenerator;
 import opensilex.service.utils.date.Dates;
@@ -83,108 +84,149 @@ public class AnnotationDAO extends Rdf4jDAO<Annotation> {
     public static final String TARGETS = "targets";
     public static final String MOTIVATED_BY = "motivatedBy";
 
+    // constants used for the SPARQL names of the search parameters
+    private static final String SEARCHED_TARGET = "searchedTarget";
+    private static final String BODY_VALUE_PATTERN = "bodyValuePattern";
+
+    /**
+     * Patterns of the search and count queries. The ?uri, ?creator,
+     * ?motivatedBy and ?searchedTarget parameters are bound when provided, as
+     * well as the regular expression ?bodyValuePattern.
+     */
+    private static final String SEARCH_PATTERN = ""
+            + "  ?" + URI + " <" + DCTerms.created.getURI() + "> ?" + CREATED + " .\n"
+            + "  ?" + URI + " <" + DCTerms.creator.getURI() + "> ?" + CREATOR + " .\n"
+            + "  ?" + URI + " <" + Oa.RELATION_MOTIVATED_BY.toString() + "> ?" + MOTIVATED_BY + " .\n"
+            + "  ?" + URI + " <" + Oa.RELATION_HAS_TARGET.toString() + "> ?" + TARGET + " .\n"
+            + "  ?" + URI + " <" + Oa.RELATION_BODY_VALUE.toString() + "> ?" + BODY_VALUE + " .\n"
+            + "  FILTER (!BOUND(?" + BODY_VALUE_PATTERN + ") || REGEX(STR(?" + BODY_VALUE + "), ?" + BODY_VALUE_PATTERN + ", \"i\"))\n";
+    private static final String SEARCHED_TARGET_PATTERN = ""
+            + "  ?" + URI + " <" + Oa.RELATION_HAS_TARGET.toString() + "> ?" + SEARCHED_TARGET + " .\n";
+
+    /**
+     * Search queries, by ascending or descending creation date, with or
+     * without a target. It doesn't return body values.
+     * @example
+     * SELECT ?uri ?created ?creator ?motivatedBy (GROUP_CONCAT(DISTINCT ?target; SEPARATOR=",") AS ?targets)
+     * WHERE {
+     *   ?uri <http://purl.org/dc/terms/created> ?created .
+     *   ?uri <http://purl.org/dc/terms/creator> ?creator .
+     *   ?uri <http://www.w3.org/ns/oa#motivatedBy> ?motivatedBy .
+     *   ?uri <http://www.w3.org/ns/oa#hasTarget> ?target .
+     *   ?uri <http://www.w3.org/ns/oa#bodyValue> ?bodyValue .
+     *   FILTER (!BOUND(?bodyValuePattern) || REGEX(STR(?bodyValue), ?bodyValuePattern, "i"))
+     *   ?uri <http://www.w3.org/ns/oa#hasTarget> ?searchedTarget .
+     * }
+     * GROUP BY ?uri ?created ?creator ?motivatedBy
+     * ORDER BY ASC(?created)
+     * LIMIT 20
+     * OFFSET 0
+     */
+    private static final SPARQLQueryTemplate SEARCH_ASC_QUERY = new SPARQLQueryTemplate(searchQuery("", "ASC"));
+    private static final SPARQLQueryTemplate SEARCH_DESC_QUERY = new SPARQLQueryTemplate(searchQuery("", "DESC"));
+    private static final SPARQLQueryTemplate SEARCH_BY_TARGET_ASC_QUERY = new SPARQLQueryTemplate(searchQuery(SEARCHED_TARGET_PATTERN, "ASC"));
+    private static final SPARQLQueryTemplate SEARCH_BY_TARGET_DESC_QUERY = new SPARQLQueryTemplate(searchQuery(SEARCHED_TARGET_PATTERN, "DESC"));
+
+    /**
+     * Count queries of the search parameters, with or without a target.
+     * @example
+     * SELECT (COUNT(DISTINCT ?uri) AS ?count)
+     * WHERE {
+     *   ?uri <http://purl.org/dc/terms/created> ?created .
+     *   ?uri <http://purl.org/dc/terms/creator> ?creator .
+     *   ?uri <http://www.w3.org/ns/oa#motivatedBy> ?motivatedBy .
+     *   ?uri <http://www.w3.org/ns/oa#hasTarget> ?target .
+     *   ?uri <http://www.w3.org/ns/oa#bodyValue> ?bodyValue .
+     *   FILTER (!BOUND(?bodyValuePattern) || REGEX(STR(?bodyValue), ?bodyValuePattern, "i"))
+     * }
+     */
+    private static final SPARQLQueryTemplate COUNT_QUERY = new SPARQLQueryTemplate(countQuery(""));
+    private static final SPARQLQueryTemplate COUNT_BY_TARGET_QUERY = new SPARQLQueryTemplate(countQuery(SEARCHED_TARGET_PATTERN));
+
+    /**
+     * Query of the body values of annotations, given as values of ?uri.
+     * @example
+     * SELECT ?uri ?bodyValue WHERE {
+     *      ?uri <http://www.w3.org/ns/oa#bodyValue> ?bodyValue .
+     * }
+     * VALUES ?uri { <http://www.opensilex.org/andreas-dev/id/annotation/7dfcd6e1-bc6e-4553-85c7-295ab971f2fc> }
+     */
+    private static final SPARQLQueryTemplate BODY_VALUES_QUERY = new SPARQLQueryTemplate(
+            "SELECT ?" + URI + " ?" + BODY_VALUE + " WHERE {\n"
+            + "  ?" + URI + " <" + Oa.RELATION_BODY_VALUE.toString() + "> ?" + BODY_VALUE + " .\n"
+            + "}");
+
     public AnnotationDAO(SPARQLService sparql) {
         super(sparql);
     }
 
     /**
-     * Generates a query to search the body values of annotations.
-     * @param annotations
-     * @example
-     * SELECT  ?uri ?bodyValue WHERE {
-     *      ?uri  <http://www.w3.org/ns/oa#bodyValue>  ?bodyValue  .
-     *      FILTER (
-     *          (regex(str(?uri), "http://www.opensilex.org/andreas-dev/id/annotation/7dfcd6e1-bc6e-4553-85c7-295ab971f2fc")) 
-     *          || (regex(str(?uri), "http://www.opensilex.org/andreas-dev/id/annotation/0e92c41b-93df-4395-bc24-6e5373022be7"))
-     *      ) 
-     * }
-     * @return query generated with the searched parameter above
+     * @param targetPattern the pattern of the searched target, if any
+     * @param order ASC or DESC
+     * @return the text of a search query
      */
-    private SPARQLQueryBuilder prepareSearchQueryForBodyValues(List<Annotation> annotations) {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        
-        query.appendSelect(URI_SELECT_NAME_SPARQL);
-        query.appendSelect("?" + BODY_VALUE);
-        
-        annotations.forEach(annotation -> {
-            query.appendOrFilter("regex(str(" + URI_SELECT_NAME_SPARQL + ")" + ", \"" + annotation.getUri() + "\")");
-        });
-        query.appendTriplet(URI_SELECT_NAME_SPARQL, Oa.RELATION_BODY_VALUE.toString(), "?" + BODY_VALUE, null);
-        
-        LOGGER.debug(SPARQL_QUERY + query.toString());
-        return query;
+    private static String searchQuery(String targetPattern, String order) {
+        return "SELECT ?" + URI + " ?" + CREATED + " ?" + CREATOR + " ?" + MOTIVATED_BY
+                + " (GROUP_CONCAT(DISTINCT ?" + TARGET + "; SEPARATOR=\"" + SPARQLQueryBuilder.GROUP_CONCAT_SEPARATOR + "\") AS ?" + TARGETS + ")\n"
+                + "WHERE {\n"
+                + SEARCH_PATTERN
+                + targetPattern
+                + "}\n"
+                + "GROUP BY ?" + URI + " ?" + CREATED + " ?" + CREATOR + " ?" + MOTIVATED_BY + "\n"
+                + "ORDER BY " + order + "(?" + CREATED + ")";
     }
-    
+
+    /**
+     * @param targetPattern the pattern of the searched target, if any
+     * @return the text of a count query
+     */
+    private static String countQuery(String targetPattern) {
+        return "SELECT (COUNT(DISTINCT ?" + URI + ") AS ?" + COUNT_ELEMENT_QUERY + ")\n"
+                + "WHERE {\n"
+                + SEARCH_PATTERN
+                + targetPattern
+                + "}";
+    }
+
     /**
-     * Query generated with the searched parameters. 
-     * It doesn't return body values but it applies a body value filter if provided.
+     * Gets the search query of the given parameters.
+     * @param target
+     * @param dateSortAsc
+     * @return the search query
+     */
+    private static SPARQLQueryTemplate getSearchQuery(String target, boolean dateSortAsc) {
+        if (target != null) {
+            return dateSortAsc ? SEARCH_BY_TARGET_ASC_QUERY : SEARCH_BY_TARGET_DESC_QUERY;
+        }
+        return dateSortAsc ? SEARCH_ASC_QUERY : SEARCH_DESC_QUERY;
+    }
+
+    /**
+     * Binds the search parameters on a search or count query. A parameter
+     * which is not provided is left unbound.
+     * @param query
      * @param uri
      * @param creator
      * @param target
      * @param bodyValue
      * @param motivatedBy
-     * @param dateSortAsc
-     * @example
-     * SELECT DISTINCT ?uri 
-     * WHERE { 
-     *   ?uri <http://purl.org/dc/terms/creationDate> ?creationDate . 
-     *   ?uri <http://purl.org/dc/terms/creator> ?creator .
-     *   ?uri <http://www.w3.org/ns/oa#motivatedBy> ?motivatedBy . 
-     *   ?uri <http://www.w3.org/ns/oa#bodyValue> ?bodyValue . } 
-     * LIMIT 20
-     * @return query generated with the searched parameter above
      */
-    private SPARQLQueryBuilder prepareSearchQueryWithoutBodyValues(String uri, String creator, String target, String bodyValue, String motivatedBy, boolean dateSortAsc) {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-
-        String annotationUri;
+    private static void bindSearchParameters(TupleQuery query, String uri, String creator, String target, String bodyValue, String motivatedBy) {
         if (uri != null) {
-            annotationUri = "<" + uri + ">";
-        } else {
-            annotationUri = "?" + URI;
-            query.appendSelect(annotationUri);
-            query.appendGroupBy(annotationUri);
+            query.setBinding(URI, SPARQLQueryTemplate.uri(uri));
         }
-        
-        query.appendSelect("?" + CREATED);
-        query.appendGroupBy("?" + CREATED);
-        query.appendTriplet(annotationUri, DCTerms.created.getURI(), "?" + CREATED, null);
-
         if (creator != null) {
-            query.appendTriplet(annotationUri, DCTerms.creator.getURI(), creator, null);
-        } else {
-            query.appendSelect("?" + CREATOR);
-            query.appendGroupBy("?" + CREATOR);
-            query.appendTriplet(annotationUri, DCTerms.creator.getURI(), "?" + CREATOR, null);
+            query.setBinding(CREATOR, SPARQLQueryTemplate.uri(creator));
         }
-
         if (motivatedBy != null) {
-            query.appendTriplet(annotationUri, Oa.RELATION_MOTIVATED_BY.toString(), motivatedBy, null);
-        } else {
-            query.appendSelect("?" + MOTIVATED_BY);
-            query.appendGroupBy("?" + MOTIVATED_BY);
-            query.appendTriplet(annotationUri, Oa.RELATION_MOTIVATED_BY.toString(), "?" + MOTIVATED_BY, null);
+            query.setBinding(MOTIVATED_BY, SPARQLQueryTemplate.uri(motivatedBy));
         }
-
-        query.appendSelectConcat("?" + TARGET, SPARQLQueryBuilder.GROUP_CONCAT_SEPARATOR, "?" + TARGETS);
-        query.appendTriplet(annotationUri, Oa.RELATION_HAS_TARGET.toString(), "?" + TARGET, null);
         if (target != null) {
-            query.appendTriplet(annotationUri, Oa.RELATION_HAS_TARGET.toString(), target, null);
+            query.setBinding(SEARCHED_TARGET, SPARQLQueryTemplate.uri(target));
         }
-
-        query.appendTriplet(annotationUri, Oa.RELATION_BODY_VALUE.toString(), "?" + BODY_VALUE, null);
         if (bodyValue != null) {
-            query.appendFilter("regex(STR(?" + BODY_VALUE + "), '" + bodyValue + "', 'i')");
+            query.setBinding(BODY_VALUE_PATTERN, SPARQLQueryTemplate.literal(bodyValue));
         }
-        query.appendLimit(this.getPageSize());
-        query.appendOffset(this.getPage() * this.getPageSize()); 
-        if(dateSortAsc){
-            query.appendOrderBy("ASC(?" + CREATED + ")");
-        } else {
-             query.appendOrderBy("DESC(?" + CREATED + ")");
-        }
-        LOGGER.debug(SPARQL_QUERY + query.toString());
-        return query;
     }
 
     /**
@@ -199,15 +241,9 @@ public class AnnotationDAO extends Rdf4jDAO<Annotation> {
      */
     public Integer count(String searchUri, String searchCreator, String searchTarget, String searchBodyValue, String searchMotivatedBy, boolean dateSortAsc) 
             throws DAOPersistenceException, Exception {
-        SPARQLQueryBuilder prepareCount = prepareCount(
-                searchUri, 
-                searchCreator, 
-                searchTarget, 
-                searchBodyValue, 
-                searchMotivatedBy,
-                dateSortAsc);
         Integer count = 0;
-        TupleQuery tupleQuery = prepareRDF4JTupleQuery(prepareCount);
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(searchTarget != null ? COUNT_BY_TARGET_QUERY : COUNT_QUERY);
+        bindSearchParameters(tupleQuery, searchUri, searchCreator, searchTarget, searchBodyValue, searchMotivatedBy);
         try (TupleQueryResult result = tupleQuery.evaluate()){
             if (result.hasNext()) {
                 BindingSet bindingSet = result.next();
@@ -223,38 +259,6 @@ public class AnnotationDAO extends Rdf4jDAO<Annotation> {
         return count;
     }
 
-    /**
-     * Counts query generated by the searched parameters.
-     * @example
-     * SELECT (count(distinct ?uri) as ?count) 
-     * WHERE { 
-     *   ?uri <http://purl.org/dc/terms/creationDate> ?creationDate . 
-     *   ?uri <http://purl.org/dc/terms/creator>
-     *   <http://www.phenome-fppn.fr/diaphen/id/agent/arnaud_charleroy> . 
-     *   ?uri <http://www.w3.org/ns/oa#motivatedBy> <http://www.w3.org/ns/oa#commenting> . 
-     *   ?uri <http://www.w3.org/ns/oa#bodyValue> ?bodyValue . 
-     * FILTER (regex(STR(?bodyValue), 'Ustilago maydis infection', 'i') ) 
-     * }
-     * @return query generated with the searched parameters
-     */
-    private SPARQLQueryBuilder prepareCount(String searchUri, String searchCreator, String searchTarget, String searchBodyValue, String searchMotivatedBy, boolean dateSortAsc) {
-        SPARQLQueryBuilder query = prepareSearchQueryWithoutBodyValues(
-                searchUri, 
-                searchCreator, 
-                searchTarget, 
-                searchBodyValue, 
-                searchMotivatedBy,
-                dateSortAsc);
-        query.clearSelect();
-        query.clearLimit();
-        query.clearOffset();
-        query.clearGroupBy();
-        query.clearOrderBy();
-        query.appendSelect("(COUNT(DISTINCT ?" + URI + ") AS ?" + COUNT_ELEMENT_QUERY + ")");
-        LOGGER.debug(SPARQL_QUERY + " " + query.toString());
-        return query;
-    }
-    
     /**
      * Sets generated URIs to annotations.
      * @param annotations
@@ -394,22 +398,18 @@ public class AnnotationDAO extends Rdf4jDAO<Annotation> {
         setPageSize(pageSize);
 
         // retrieve URI list
-        SPARQLQueryBuilder query = prepareSearchQueryWithoutBodyValues(
-                uri, 
-                creator, 
-                target, 
-                bodyValue, 
-                motivatedBy,
-                dateSortAsc);
         ArrayList<Annotation> annotations = null;
         try {
-            TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+            TupleQuery tupleQuery = prepareRDF4JTupleQuery(getSearchQuery(target, dateSortAsc)
+                    .page(getPageSize(), getPage() * getPageSize()));
+            bindSearchParameters(tupleQuery, uri, creator, target, bodyValue, motivatedBy);
             
             // Retreive all information for each annotation
             try (TupleQueryResult result = tupleQuery.evaluate()) {
                 annotations = getAnnotationsWithoutBodyValuesFromResult(result, uri, creator, motivatedBy);
                 if(annotations.size() > 0) {
-                    TupleQuery tupleQueryProp = prepareRDF4JTupleQuery(prepareSearchQueryForBodyValues(annotations));
+                    TupleQuery tupleQueryProp = prepareRDF4JTupleQuery(BODY_VALUES_QUERY.values(URI,
+                            annotations.stream().map(Annotation::getUri).collect(Collectors.toList())));
                     try (TupleQueryResult resultProp = tupleQueryProp.evaluate()) {
                         setAnnotationsBodyValuesFromResult(resultProp, annotations);
                     }
@@ -9,27 +9,44 @@ package opensilex.service.dao;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Sorts;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import opensilex.service.PropertiesFileManager;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
 import opensilex.service.dao.exception.ResourceAccessDeniedException;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import opensilex.service.configuration.DateFormat;
 import opensilex.service.dao.manager.MongoDAO;
 import opensilex.service.model.Data;
 import opensilex.service.model.DataQueryLog;
+import opensilex.service.model.DataQueryLogStatistics;
 
 /**
  * DataQueryLogDAO DAO.
+ * The searches are served by indexes on the date and on the user and the
+ * remote address followed by the date. The date index can expire the old logs
+ * (see the dataQueryLogRetentionDays property).
+ * The usage statistics are computed by aggregation pipelines starting with
+ * the indexed filters.
  * @author Arnaud Chaleroy
  */
 public class DataQueryLogDAO extends MongoDAO<Data> {
@@ -41,9 +58,65 @@ public class DataQueryLogDAO extends MongoDAO<Data> {
     private final static String DB_FIELD_USER_URI = "user";
     private final static String DB_FIELD_USER_QUERY = "userQuery";
     private final static String DB_FIELD_QUERY_DATE = "date";
+    private final static String DB_FIELD_SERVICE = "service";
+    private final static String DB_FIELD_VARIABLES = "variables";
+    private final static String DB_FIELD_STATUS = "status";
+    private final static String DB_FIELD_RESULT_SIZE = "resultSize";
+    private final static String DB_FIELD_DURATION = "duration";
+    private final static String DB_FIELD_RESSOURCE_PATH = DB_FIELD_USER_QUERY + ".ressourcePath";
+    
+    // Statistics fields
+    private final static String STATISTICS_COUNT = "count";
+    private final static String STATISTICS_TOTAL_RESULT_SIZE = "totalResultSize";
+    private final static String STATISTICS_MAX_RESULT_SIZE = "maxResultSize";
+    private final static String STATISTICS_AVERAGE_DURATION = "averageDuration";
     
     private final static String DB_COLLECTION_QUERY_LOG = "data_access_query_log";
     
+    private final static String DB_INDEX_QUERY_DATE = "date_index";
+    //error code send by mongo when an index already exists with other options
+    private final static int INDEX_OPTIONS_CONFLICT_ERROR_CODE = 85;
+    
+    /**
+     * True once the indexes of the collection have been checked.
+     */
+    private final static AtomicBoolean INDEXES_CREATED = new AtomicBoolean(false);
+    
+    /**
+     * Groups of the usage statistics.
+     */
+    public enum GroupBy {
+        USER,
+        SERVICE,
+        VARIABLE,
+        DATE
+    }
+    
+    /**
+     * Periods of the usage statistics grouped by date.
+     */
+    public enum Interval {
+        HOUR("%Y-%m-%dT%H:00"),
+        DAY("%Y-%m-%d"),
+        MONTH("%Y-%m");
+        
+        private final String format;
+        
+        Interval(String format) {
+            this.format = format;
+        }
+    }
+    
+    /**
+     * Orders of the usage statistics.
+     */
+    public enum SortBy {
+        KEY,
+        COUNT,
+        TOTAL_RESULT_SIZE,
+        MAX_RESULT_SIZE
+    }
+    
     public String userUri;
     public String startDate;
     public String endDate;
@@ -53,6 +126,69 @@ public class DataQueryLogDAO extends MongoDAO<Data> {
     public DataQueryLogDAO() {
         super();
         this.collection = database.getCollection(DB_COLLECTION_QUERY_LOG);
+        if (INDEXES_CREATED.compareAndSet(false, true)) {
+            try {
+                createIndexes();
+            } catch (MongoException ex) {
+                LOGGER.error("Data access query log indexes creation error : " + ex.getMessage(), ex);
+                // Tried again by the next DAO
+                INDEXES_CREATED.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Creates the indexes used by the searches, if they don't exist:
+     * date (with the logs retention), user then date and remote address then
+     * date.
+     */
+    private void createIndexes() {
+        long retentionDays = getRetentionDays();
+        IndexOptions dateIndexOptions = new IndexOptions().name(DB_INDEX_QUERY_DATE).background(true);
+        if (retentionDays > 0) {
+            dateIndexOptions.expireAfter(retentionDays, TimeUnit.DAYS);
+        }
+        try {
+            this.collection.createIndex(Indexes.descending(DB_FIELD_QUERY_DATE), dateIndexOptions);
+        } catch (MongoCommandException ex) {
+            if (ex.getErrorCode() != INDEX_OPTIONS_CONFLICT_ERROR_CODE) {
+                throw ex;
+            }
+            updateRetention(retentionDays);
+        }
+        
+        IndexOptions indexOptions = new IndexOptions().background(true);
+        this.collection.createIndex(Indexes.compoundIndex(
+                Indexes.ascending(DB_FIELD_USER_URI), Indexes.descending(DB_FIELD_QUERY_DATE)), indexOptions);
+        this.collection.createIndex(Indexes.compoundIndex(
+                Indexes.ascending(DB_FIELD_USER_IP), Indexes.descending(DB_FIELD_QUERY_DATE)), indexOptions);
+        this.collection.createIndex(Indexes.compoundIndex(
+                Indexes.ascending(DB_FIELD_SERVICE), Indexes.descending(DB_FIELD_QUERY_DATE)), indexOptions);
+    }
+    
+    /**
+     * Updates the expiration of the existing date index, when the retention
+     * has been changed in the configuration.
+     * @param retentionDays 
+     */
+    private void updateRetention(long retentionDays) {
+        if (retentionDays > 0) {
+            Document collMod = new Document("collMod", DB_COLLECTION_QUERY_LOG)
+                    .append("index", new Document("name", DB_INDEX_QUERY_DATE)
+                            .append("expireAfterSeconds", TimeUnit.DAYS.toSeconds(retentionDays)));
+            database.runCommand(collMod);
+            LOGGER.info("Data access query logs retention set to " + retentionDays + " days");
+        } else {
+            LOGGER.warn("The data access query logs still expire: drop the " + DB_INDEX_QUERY_DATE 
+                    + " index of the " + DB_COLLECTION_QUERY_LOG + " collection to keep them");
+        }
+    }
+    
+    /**
+     * @return the number of days the logs are kept, 0 to keep them forever
+     */
+    private static long getRetentionDays() {
+        return PropertiesFileManager.getConfig().getDataQueryLogRetentionDays();
     }
     
     /**
@@ -64,14 +200,145 @@ public class DataQueryLogDAO extends MongoDAO<Data> {
      */
     public void insert(String userUri, String  remoteUserAdress, Date date , Map<String, Object> query){
         Document document = new Document();
-        document.append(DB_FIELD_USER_IP, this.remoteUserAdress);
-        document.append(DB_FIELD_USER_URI, this.user.getUri());
+        document.append(DB_FIELD_USER_IP, remoteUserAdress);
+        document.append(DB_FIELD_USER_URI, userUri);
         document.append(DB_FIELD_USER_QUERY, query);
         document.append(DB_FIELD_QUERY_DATE, date);
 
         this.collection.insertOne(document);
     }
     
+    /**
+     * Inserts the log of a query with its result.
+     * @param userUri
+     * @param remoteUserAdress
+     * @param date date of the query
+     * @param query get query map values to log
+     * @param service called service (class.method)
+     * @param variables searched variables
+     * @param status HTTP status of the response
+     * @param resultSize number of results returned, null if unknown
+     * @param duration duration of the query, in milliseconds
+     */
+    public void insert(String userUri, String remoteUserAdress, Date date, Map<String, Object> query, 
+            String service, List<String> variables, int status, Integer resultSize, long duration) {
+        Document document = new Document();
+        document.append(DB_FIELD_USER_IP, remoteUserAdress);
+        document.append(DB_FIELD_USER_URI, userUri);
+        document.append(DB_FIELD_USER_QUERY, query);
+        document.append(DB_FIELD_QUERY_DATE, date);
+        document.append(DB_FIELD_SERVICE, service);
+        document.append(DB_FIELD_VARIABLES, variables);
+        document.append(DB_FIELD_STATUS, status);
+        document.append(DB_FIELD_RESULT_SIZE, resultSize);
+        document.append(DB_FIELD_DURATION, duration);
+
+        this.collection.insertOne(document);
+    }
+    
+    /**
+     * Computes usage statistics on the queries logs.
+     * @param groupBy group of the statistics
+     * @param interval period of the statistics grouped by date
+     * @param userUri queries of this user only, if not null
+     * @param service queries of this service only, if not null
+     * @param startDate
+     * @param endDate
+     * @param sortBy order of the statistics, descending except for the key
+     * @param limit maximum number of statistics
+     * @return the statistics of each group
+     * @example
+     * [
+     *   { $match: { "date": { $gte: ISODate("2020-10-01T00:00:00+0200") } } },
+     *   { $unwind: "$variables" },
+     *   { $group: {
+     *       _id: "$variables",
+     *       count: { $sum: 1 },
+     *       totalResultSize: { $sum: "$resultSize" },
+     *       maxResultSize: { $max: "$resultSize" },
+     *       averageDuration: { $avg: "$duration" }
+     *   } },
+     *   { $sort: { count: -1 } },
+     *   { $limit: 20 }
+     * ]
+     */
+    public List<DataQueryLogStatistics> aggregate(GroupBy groupBy, Interval interval, String userUri, String service, 
+            String startDate, String endDate, SortBy sortBy, int limit) {
+        List<Bson> pipeline = new ArrayList<>();
+        
+        // Filters first, on the indexed fields
+        BasicDBObject query = prepareSearchQuery(userUri, startDate, endDate, null);
+        if (service != null) {
+            query.append(DB_FIELD_SERVICE, service);
+        }
+        if (!query.isEmpty()) {
+            pipeline.add(Aggregates.match(query));
+        }
+        
+        Object groupKey;
+        switch (groupBy) {
+            case USER:
+                groupKey = "$" + DB_FIELD_USER_URI;
+                break;
+            case SERVICE:
+                // The queries logged before the service field have their path
+                groupKey = new Document("$ifNull", Arrays.asList("$" + DB_FIELD_SERVICE, "$" + DB_FIELD_RESSOURCE_PATH));
+                break;
+            case VARIABLE:
+                pipeline.add(Aggregates.unwind("$" + DB_FIELD_VARIABLES));
+                groupKey = "$" + DB_FIELD_VARIABLES;
+                break;
+            default:
+                groupKey = new Document("$dateToString", new Document("format", interval.format)
+                        .append("date", "$" + DB_FIELD_QUERY_DATE));
+                break;
+        }
+        pipeline.add(Aggregates.group(groupKey,
+                Accumulators.sum(STATISTICS_COUNT, 1),
+                Accumulators.sum(STATISTICS_TOTAL_RESULT_SIZE, "$" + DB_FIELD_RESULT_SIZE),
+                Accumulators.max(STATISTICS_MAX_RESULT_SIZE, "$" + DB_FIELD_RESULT_SIZE),
+                Accumulators.avg(STATISTICS_AVERAGE_DURATION, "$" + DB_FIELD_DURATION)));
+        
+        switch (sortBy) {
+            case COUNT:
+                pipeline.add(Aggregates.sort(Sorts.descending(STATISTICS_COUNT)));
+                break;
+            case TOTAL_RESULT_SIZE:
+                pipeline.add(Aggregates.sort(Sorts.descending(STATISTICS_TOTAL_RESULT_SIZE)));
+                break;
+            case MAX_RESULT_SIZE:
+                pipeline.add(Aggregates.sort(Sorts.descending(STATISTICS_MAX_RESULT_SIZE)));
+                break;
+            default:
+                pipeline.add(Aggregates.sort(Sorts.ascending(DB_FIELD_ID)));
+                break;
+        }
+        pipeline.add(Aggregates.limit(limit));
+        
+        LOGGER.debug(getTraceabilityLogs() + " aggregation : " + pipeline.toString());
+        
+        List<DataQueryLogStatistics> statisticsList = new ArrayList<>();
+        try (MongoCursor<Document> groups = this.collection.aggregate(pipeline).allowDiskUse(true).iterator()) {
+            while (groups.hasNext()) {
+                Document group = groups.next();
+                
+                DataQueryLogStatistics statistics = new DataQueryLogStatistics();
+                Object key = group.get(DB_FIELD_ID);
+                statistics.setKey(key == null ? null : key.toString());
+                statistics.setCount(((Number) group.get(STATISTICS_COUNT)).longValue());
+                Number totalResultSize = (Number) group.get(STATISTICS_TOTAL_RESULT_SIZE);
+                statistics.setTotalResultSize(totalResultSize == null ? 0 : totalResultSize.longValue());
+                Number maxResultSize = (Number) group.get(STATISTICS_MAX_RESULT_SIZE);
+                statistics.setMaxResultSize(maxResultSize == null ? null : maxResultSize.intValue());
+                Number averageDuration = (Number) group.get(STATISTICS_AVERAGE_DURATION);
+                statistics.setAverageDuration(averageDuration == null ? null : averageDuration.doubleValue());
+                statisticsList.add(statistics);
+            }
+        }
+        
+        return statisticsList;
+    }
+    
     /**
      * Prepares and returns the AccessLog search useQuery with the given parameters.
      * @param userUri
@@ -141,6 +408,12 @@ public class DataQueryLogDAO extends MongoDAO<Data> {
         // Get the filter useQuery
         BasicDBObject query = prepareSearchQuery(userUri, startDate, endDate, remoteAddress);
         
+        // Without filter, the count is read from the collection metadata
+        // instead of scanning the whole collection
+        if (query.isEmpty()) {
+            return (int)this.collection.estimatedDocumentCount();
+        }
+        
         // Return the document count
         return (int)this.collection.countDocuments(query);
     }
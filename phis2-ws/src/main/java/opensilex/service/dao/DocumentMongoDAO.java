@@ -8,8 +8,10 @@
 package opensilex.service.dao;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.MongoException;
 import com.mongodb.gridfs.GridFSDBFile;
 import com.mongodb.gridfs.GridFSInputFile;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -26,7 +28,9 @@ import org.apache.commons.io.IOUtils;
 import opensilex.service.PropertiesFileManager;
 import opensilex.service.dao.manager.MongoDAO;
 import opensilex.service.documentation.StatusCodeMsg;
+import opensilex.service.utils.HashingInputStream;
 import opensilex.service.utils.POSTResultsReturn;
+import opensilex.service.utils.RangedResponseBuilder;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.model.Document;
 
@@ -42,23 +46,37 @@ public class DocumentMongoDAO extends MongoDAO<Document> {
     }
     
     /**
-     * Inserts a file.
+     * Inserts a file. The content is written to GridFS while its checksum is
+     * computed: if it doesn't match the expected checksum, the stored file is
+     * removed.
      * @param fileUri
-     * @param file
+     * @param fileName
+     * @param content
+     * @param expectedChecksum MD5 of the file given by the client
      * @return POSTResultsReturn
      */
-    public POSTResultsReturn insertFile(String fileUri, File file) {
+    public POSTResultsReturn insertFile(String fileUri, String fileName, InputStream content, String expectedChecksum) {
         POSTResultsReturn result = null;
         List<Status> insertStatusList = new ArrayList<>();
-        try {
-            GridFSInputFile in = gridFS.createFile(file);
+        try (HashingInputStream hashingContent = new HashingInputStream(content)) {
+            GridFSInputFile in = gridFS.createFile(hashingContent, fileName, true);
             in.put("uri", fileUri);
             in.save();
-            result = new POSTResultsReturn(true, true, true);
-            insertStatusList.add(new Status("File saved", StatusCodeMsg.INFO, "File saved in mongodb"));
+            
+            if (hashingContent.getSize() == 0 || !hashingContent.matches(expectedChecksum)) {
+                gridFS.remove(new BasicDBObject("_id", in.getId()));
+                result = new POSTResultsReturn(false, null, false);
+                if (hashingContent.getSize() == 0) {
+                    insertStatusList.add(new Status(StatusCodeMsg.FILE_ERROR, StatusCodeMsg.ERR, "File Size : 0 octets"));
+                } else {
+                    insertStatusList.add(new Status(StatusCodeMsg.MD5_ERROR, StatusCodeMsg.ERR, "Checksum MD5 doesn't match. Corrupted File."));
+                }
+            } else {
+                result = new POSTResultsReturn(true, true, true);
+                insertStatusList.add(new Status("File saved", StatusCodeMsg.INFO, "File saved in mongodb"));
+            }
             result.statusList = insertStatusList;
-            file.delete();
-        } catch (IOException ex) {
+        } catch (IOException | MongoException ex) {
             result = new POSTResultsReturn(false, false, false);
             insertStatusList.add(new Status("File exception", StatusCodeMsg.ERR, "Error while loading the file"));
             result.statusList = insertStatusList;
@@ -68,18 +86,59 @@ public class DocumentMongoDAO extends MongoDAO<Document> {
     }
     
     /**
-     * Gets a document.
+     * Removes the file of a document, e.g. if its metadata couldn't be saved.
+     * @param fileUri
+     */
+    public void deleteFile(String fileUri) {
+        gridFS.remove(new BasicDBObject("uri", fileUri));
+    }
+    
+    /**
+     * Finds the GridFS file of a document, to stream its content without
+     * copying it on the local disk.
+     * @param documentURI
+     * @return the GridFS file or null if not found
+     */
+    public GridFSDBFile findDocumentFile(String documentURI) {
+        return gridFS.findOne(new BasicDBObject("uri", documentURI));
+    }
+
+    /**
+     * Gets a content writer for a GridFS file. Only the chunks of the
+     * requested part are read from MongoDB.
+     * @param gridFSFile
+     * @return the writer
+     */
+    public static RangedResponseBuilder.ContentWriter gridFSWriter(GridFSDBFile gridFSFile) {
+        return (long offset, long count, OutputStream output) -> {
+            try (InputStream input = gridFSFile.getInputStream()) {
+                long toSkip = offset;
+                while (toSkip > 0) {
+                    long skipped = input.skip(toSkip);
+                    if (skipped <= 0) {
+                        throw new EOFException("Offset " + offset + " beyond the end of " + gridFSFile.getFilename());
+                    }
+                    toSkip -= skipped;
+                }
+                IOUtils.copyLarge(input, output, 0, count);
+            }
+        };
+    }
+
+    /**
+     * Gets a document copy in the local upload directory.
+     * Downloads should use {@link #findDocumentFile(java.lang.String)} to
+     * stream the document instead.
      * @param documentURI
      * @return the document or null if not found
      */
     public File getDocument(String documentURI) {
-        GridFSDBFile out = (GridFSDBFile) gridFS.findOne(new BasicDBObject("uri", documentURI));
-        InputStream is = out.getInputStream();
+        GridFSDBFile out = findDocumentFile(documentURI);
         
         File file = new File(PropertiesFileManager.getConfigFileProperty("service", "uploadFileServerDirectory") + "/" + out.get("filename"));
         
-        try {
-            OutputStream outputStream = new FileOutputStream(file);
+        try (InputStream is = out.getInputStream();
+                OutputStream outputStream = new FileOutputStream(file)) {
             IOUtils.copy(is, outputStream);
         } catch (FileNotFoundException ex) {
             Logger.getLogger(DocumentMongoDAO.class.getName()).log(Level.SEVERE, null, ex);
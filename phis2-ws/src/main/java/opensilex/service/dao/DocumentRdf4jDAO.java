@@ -8,7 +8,7 @@
 //******************************************************************************
 package opensilex.service.dao;
 
-import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -161,12 +161,15 @@ public class DocumentRdf4jDAO extends Rdf4jDAO<Document> {
     /**
      * Save the document in mongodb
      *
-     * @param filePath the file path of the document to save in mongodb
+     * @param fileURI
+     * @param content the content of the document to save in mongodb
+     * @param checksum the expected MD5 of the content
      * @return true document saved in mongodb false an error occurred
      */
-    private POSTResultsReturn saveFileInMongoDB(String fileURI, File file) {
+    private POSTResultsReturn saveFileInMongoDB(String fileURI, InputStream content, String checksum) {
         DocumentMongoDAO documentDaoMongo = new DocumentMongoDAO();
-        return documentDaoMongo.insertFile(fileURI, file);
+        String fileName = fileURI.substring(fileURI.lastIndexOf("/") + 1);
+        return documentDaoMongo.insertFile(fileURI, fileName, content, checksum);
     }
 
     /**
@@ -282,12 +285,14 @@ public class DocumentRdf4jDAO extends Rdf4jDAO<Document> {
 
     /**
      * Insert document's metadata in the triplestore and the file in mongo
+     * The file content is read once, while it is saved: the metadata list is
+     * expected to contain a single document.
      *
      * @param documentsMetadata
-     * @param file
+     * @param content the uploaded file content
      * @return the insert result, with each error or information
      */
-    public POSTResultsReturn insert(List<DocumentMetadataDTO> documentsMetadata, File file) {
+    public POSTResultsReturn insert(List<DocumentMetadataDTO> documentsMetadata, InputStream content) {
         List<Status> insertStatus = new ArrayList<>(); // returned status, Failed or Info
         List<String> createdResourcesURIs = new ArrayList<>();
 
@@ -307,8 +312,13 @@ public class DocumentRdf4jDAO extends Rdf4jDAO<Document> {
             final String documentName = generateDocumentsURI();
 
             annotObject.setUri(documentName);
-            POSTResultsReturn saveFileResult = saveFileInMongoDB(documentName, file);
+            POSTResultsReturn saveFileResult = saveFileInMongoDB(documentName, content, annotObject.getChecksum());
             insertStatus.addAll(saveFileResult.statusList);
+            if (!saveFileResult.getResultState()) {
+                // Corrupted file or storage error, nothing has been saved
+                saveFileResult.statusList = insertStatus;
+                return saveFileResult;
+            }
 
             //Document has been save
             if (saveFileResult.getResultState()) {
@@ -332,6 +342,8 @@ public class DocumentRdf4jDAO extends Rdf4jDAO<Document> {
                 } catch (MalformedQueryException e) {
                     LOGGER.error(e.getMessage(), e);
                     AnnotationInsert = false;
+                    // Don't keep a file without metadata
+                    new DocumentMongoDAO().deleteFile(documentName);
                     insertStatus.add(new Status(StatusCodeMsg.QUERY_ERROR, StatusCodeMsg.ERR, StatusCodeMsg.MALFORMED_CREATE_QUERY + " : " + e.getMessage()));
                 }
 
@@ -8,8 +8,11 @@
 package opensilex.service.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
 import org.apache.jena.arq.querybuilder.UpdateBuilder;
@@ -25,7 +28,6 @@ import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.query.Update;
-import org.eclipse.rdf4j.query.UpdateExecutionException;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -153,131 +155,142 @@ public class ExperimentRdf4jDAO extends Rdf4jDAO<Experiment> {
     }
     
     /**
-     * Updates the list of variables linked to the given experiment.
-     * /!\ Prerequisite : the information must have been checked before.
-     * @see ExperimentSQLDAO#checkAndUpdateLinkedVariables(java.lang.String, java.util.List) 
+     * Prepares the query updating the links between an experiment and other
+     * resources: only the removed and added links are written, in a single
+     * update. The removed links are deleted from every graph, the added links
+     * are inserted in the experiment graph.
      * @param experimentUri
-     * @param variables
-     * @return The update result.
+     * @param relation the link relation
+     * @param experimentIsSubject true if the experiment is the subject of the
+     *                            links (measures), false if it is the object
+     *                            (participatesIn)
+     * @param removedLinks URIs of the resources no longer linked
+     * @param addedLinks URIs of the newly linked resources
+     * @example
+     * DELETE {
+     *      <http://www.opensilex.fr/platform/OSL2018-1> <http://www.opensilex.org/vocabulary/oeso#measures> <http://www.opensilex.fr/id/variables/v001> .
+     * }
+     * INSERT {
+     *      GRAPH <http://www.opensilex.fr/platform/OSL2018-1> {
+     *          <http://www.opensilex.fr/platform/OSL2018-1> <http://www.opensilex.org/vocabulary/oeso#measures> <http://www.opensilex.fr/id/variables/v002> .
+     *      }
+     * }
+     * WHERE {}
+     * @return the query
      */
-    public POSTResultsReturn updateLinkedVariables(String experimentUri, List<String> variables) {
-        POSTResultsReturn result;
-        List<Status> updateStatus = new ArrayList<>();
-        
-        boolean update = true;
+    private UpdateRequest prepareUpdateLinksQuery(String experimentUri, Property relation, boolean experimentIsSubject, 
+            Collection<String> removedLinks, Collection<String> addedLinks) {
+        UpdateBuilder updateBuilder = new UpdateBuilder();
+        Node graph = NodeFactory.createURI(experimentUri);
+        Resource experiment = ResourceFactory.createResource(experimentUri);
 
-        //1. Delete old object properties
-        HashMap<String, String> actualLinkedVariables = getVariables(experimentUri);
-        List<String> oldLinkedVariables = new ArrayList<>();
-        actualLinkedVariables.entrySet().forEach((oldVariable) -> {
-            oldLinkedVariables.add(oldVariable.getKey());
-        });
-        
-        if (deleteObjectProperties(experimentUri, Oeso.RELATION_MEASURES.toString(), oldLinkedVariables)) {
-            //2. Add new object properties
-            if (addObjectProperties(experimentUri, Oeso.RELATION_MEASURES.toString(), variables, experimentUri)) {
-                updateStatus.add(new Status(StatusCodeMsg.RESOURCES_UPDATED, StatusCodeMsg.INFO, "The experiment " + experimentUri + " has now " + variables.size() + " linked variables"));
+        for (String removedLink : removedLinks) {
+            Resource linkedResource = ResourceFactory.createResource(removedLink);
+            if (experimentIsSubject) {
+                updateBuilder.addDelete(experiment, relation, linkedResource);
             } else {
-                update = false;
-                updateStatus.add(new Status(StatusCodeMsg.QUERY_ERROR, StatusCodeMsg.ERR, "An error occurred during the update."));
+                updateBuilder.addDelete(linkedResource, relation, experiment);
             }
-        } else {
-            update = false;
-            updateStatus.add(new Status(StatusCodeMsg.QUERY_ERROR, StatusCodeMsg.ERR, "An error occurred during the update."));
         }
-        
-        result = new POSTResultsReturn(update, update, update);
-        result.statusList = updateStatus;
-        result.createdResources.add(experimentUri); 
-        return result;
+        for (String addedLink : addedLinks) {
+            Resource linkedResource = ResourceFactory.createResource(addedLink);
+            if (experimentIsSubject) {
+                updateBuilder.addInsert(graph, experiment, relation, linkedResource);
+            } else {
+                updateBuilder.addInsert(graph, linkedResource, relation, experiment);
+            }
+        }
+
+        UpdateRequest query = updateBuilder.buildRequest();
+        LOGGER.debug(SPARQL_QUERY + query.toString());
+
+        return query;
     }
-    
+
     /**
-     * Adds a participatesIn relations between a list of sensors and an experiment.
-     * @param sensors
+     * Updates the links between an experiment and other resources. The new
+     * links are compared to the actual ones and only the differences are
+     * written, in one transaction: the links are never missing during the
+     * update.
      * @param experimentUri
-     * @example
-     * INSERT DATA {
-     *      GRAPH <http://www.opensilex.fr/platform/OSL2018-1> { 
-     *          <http://www.opensilex.fr/platform/2018/s18533>  <http://www.opensilex.fr/vocabulary/2017#participatesIn>  <http://www.opensilex.fr/platform/OSL2018-1> . 
-     * }}
-     * @return true if the insertion has been done.
-     *         false if an error occurred (see the error logs to get more details).
+     * @param relation the link relation
+     * @param experimentIsSubject true if the experiment is the subject of the links
+     * @param actualLinks URIs of the actually linked resources
+     * @param links URIs of the resources which must be linked
+     * @param linkedResourcesName name of the linked resources, for the messages
+     * @return The update result, with the added and removed links.
      */
-    private boolean linkSensorsToExperiment(List<String> sensors, String experimentUri) {
-        //Add links to sensors if needed
-        if (!sensors.isEmpty()) {
-            UpdateBuilder updateBuilder = new UpdateBuilder();
-            Node graph = NodeFactory.createURI(experimentUri);
-            Resource experiment = ResourceFactory.createResource(experimentUri);
-            Property participatesIn = ResourceFactory.createProperty(Oeso.RELATION_PARTICIPATES_IN.toString());
-
-            sensors.forEach((sensor) -> {
-                Resource sensorUri = ResourceFactory.createResource(sensor);
-
-                updateBuilder.addInsert(graph, sensorUri, participatesIn, experiment);
-            });
+    private POSTResultsReturn updateLinks(String experimentUri, Property relation, boolean experimentIsSubject, 
+            Set<String> actualLinks, List<String> links, String linkedResourcesName) {
+        List<Status> updateStatus = new ArrayList<>();
 
-            UpdateRequest updateRequest = updateBuilder.buildRequest();
-            LOGGER.debug(SPARQL_QUERY + updateRequest.toString());
+        Set<String> addedLinks = new LinkedHashSet<>(links);
+        addedLinks.removeAll(actualLinks);
+        Set<String> removedLinks = new LinkedHashSet<>(actualLinks);
+        removedLinks.removeAll(links);
 
-            //Insert the properties in the triplestore
-            Update prepareUpdate = prepareRDF4JUpdateQuery(updateRequest);
+        boolean update = true;
+        if (!addedLinks.isEmpty() || !removedLinks.isEmpty()) {
+            UpdateRequest query = prepareUpdateLinksQuery(experimentUri, relation, experimentIsSubject, removedLinks, addedLinks);
             try {
-                prepareUpdate.execute();
-            } catch (UpdateExecutionException ex) {
-                LOGGER.error("Add object properties error : " + ex.getMessage());
-                return false;
+                sparql.startTransaction();
+                prepareRDF4JUpdateQuery(query).execute();
+                sparql.commitTransaction();
+            } catch (Exception ex) {
+                LOGGER.error("Update " + linkedResourcesName + " of experiment " + experimentUri + " error : " + ex.getMessage(), ex);
+                try {
+                    sparql.rollbackTransaction();
+                } catch (Exception rollbackException) {
+                    LOGGER.error("Rollback error : " + rollbackException.getMessage(), rollbackException);
+                }
+                update = false;
+                updateStatus.add(new Status(StatusCodeMsg.QUERY_ERROR, StatusCodeMsg.ERR, "An error occurred during the update."));
             }
         }
-        
-        return true;
-    }
-    
-    /**
-     * Deletes the participatesIn relations between the given sensors and the given experiment.
-     * @param subjectUri
-     * @param predicateUri
-     * @param objectPropertiesUris
-     * @example
-     * DELETE WHERE { 
-     *  <http://www.opensilex.fr/platform/2018/s18533> <http://www.opensilex.fr/vocabulary/2017#participatesIn> <http://www.opensilex.fr/platform/OSL2018-1> .  
-     * }
-     * @return true if the relations have been deleted
-     *         false if the delete has not been done.
-     */
-    private boolean deleteLinksSensorsExperiment(List<String> sensors, String experimentUri) {
-        //1. Generates delete query (if needed)
-        if (!sensors.isEmpty()) {
-            UpdateBuilder deleteBuilder = new UpdateBuilder();
-            Node graph = NodeFactory.createURI(experimentUri);
-            Resource experiment = ResourceFactory.createResource(experimentUri);
-            Property participatesIn = ResourceFactory.createProperty(Oeso.RELATION_PARTICIPATES_IN.toString());
 
-            for (String sensor : sensors) {
-                Resource sensorRes = ResourceFactory.createResource(sensor);
-                deleteBuilder.addDelete(graph, sensorRes, participatesIn, experiment);
+        if (update) {
+            int linksNumber = actualLinks.size() + addedLinks.size() - removedLinks.size();
+            updateStatus.add(new Status(StatusCodeMsg.RESOURCES_UPDATED, StatusCodeMsg.INFO, 
+                    "The experiment " + experimentUri + " has now " + linksNumber + " linked " + linkedResourcesName 
+                            + " (" + addedLinks.size() + " added, " + removedLinks.size() + " removed)"));
+            if (!addedLinks.isEmpty()) {
+                updateStatus.add(new Status(StatusCodeMsg.RESOURCES_UPDATED, StatusCodeMsg.INFO, 
+                        "Added " + linkedResourcesName + " : " + String.join(", ", addedLinks)));
             }
-
-            UpdateRequest delete = deleteBuilder.buildRequest();
-
-            LOGGER.debug("delete : " + delete.toString());
-
-            //2. Delete data in the triplestore
-            Update prepareDelete = prepareRDF4JUpdateQuery(delete);
-            try {
-                prepareDelete.execute();
-            } catch (UpdateExecutionException ex) {
-                LOGGER.error("Delete object properties error : " + ex.getMessage());
-                return false;
+            if (!removedLinks.isEmpty()) {
+                updateStatus.add(new Status(StatusCodeMsg.RESOURCES_UPDATED, StatusCodeMsg.INFO, 
+                        "Removed " + linkedResourcesName + " : " + String.join(", ", removedLinks)));
             }
         }
-        
-        return true;
+
+        POSTResultsReturn result = new POSTResultsReturn(update, update, update);
+        result.statusList = updateStatus;
+        result.createdResources.add(experimentUri);
+        return result;
     }
-    
+
+    /**
+     * Updates the list of variables linked to the given experiment.
+     * Only the added and removed variables are written.
+     * /!\ Prerequisite : the information must have been checked before.
+     * @see ExperimentSQLDAO#checkAndUpdateLinkedVariables(java.lang.String, java.util.List) 
+     * @param experimentUri
+     * @param variables
+     * @return The update result.
+     */
+    public POSTResultsReturn updateLinkedVariables(String experimentUri, List<String> variables) {
+        return updateLinks(
+                experimentUri, 
+                ResourceFactory.createProperty(Oeso.RELATION_MEASURES.toString()), 
+                true, 
+                getVariables(experimentUri).keySet(), 
+                variables, 
+                "variables");
+    }
+
     /**
      * Updates the list of sensors linked to the given experiment.
+     * Only the added and removed sensors are written.
      * /!\ Prerequisite : the information must have been checked before.
      * @see ExperimentSQLDAO#checkAndUpdateLinkedSensors(java.lang.String, java.util.List)
      * @param experimentUri
@@ -285,35 +298,13 @@ public class ExperimentRdf4jDAO extends Rdf4jDAO<Experiment> {
      * @return The update result.
      */
     public POSTResultsReturn updateLinkedSensors(String experimentUri, List<String> sensors) {
-        POSTResultsReturn result;
-        List<Status> updateStatus = new ArrayList<>();
-        
-        boolean update = true;
-
-        //1. Delete old object properties
-        HashMap<String, String> actualLinkedSensors = getSensors(experimentUri);
-        List<String> oldLinkedSensors = new ArrayList<>();
-        actualLinkedSensors.entrySet().forEach((oldSensor) -> {
-            oldLinkedSensors.add(oldSensor.getKey());
-        });
-        
-        if (deleteLinksSensorsExperiment(oldLinkedSensors, experimentUri)) {
-            //2. Add new object properties
-            if (linkSensorsToExperiment(sensors, experimentUri)) {
-                updateStatus.add(new Status(StatusCodeMsg.RESOURCES_UPDATED, StatusCodeMsg.INFO, "The experiment " + experimentUri + " has now " + sensors.size() + " linked sensors."));
-            } else {
-                update = false;
-                updateStatus.add(new Status(StatusCodeMsg.QUERY_ERROR, StatusCodeMsg.ERR, "An error occurred during the update."));
-            }
-        } else {
-            update = false;
-            updateStatus.add(new Status(StatusCodeMsg.QUERY_ERROR, StatusCodeMsg.ERR, "An error occurred during the update."));
-        }
-        
-        result = new POSTResultsReturn(update, update, update);
-        result.statusList = updateStatus;
-        result.createdResources.add(experimentUri); 
-        return result; 
+        return updateLinks(
+                experimentUri, 
+                ResourceFactory.createProperty(Oeso.RELATION_PARTICIPATES_IN.toString()), 
+                false, 
+                getSensors(experimentUri).keySet(), 
+                sensors, 
+                "sensors");
     }
     
     /**
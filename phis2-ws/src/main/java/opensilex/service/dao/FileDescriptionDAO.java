@@ -246,7 +246,8 @@ public class FileDescriptionDAO extends MongoDAO<FileDescription> {
     
     /**
      * Checks and inserts data file and its metadata.
-     * @param fileDescription
+     * @param fileDescription its checksum, computed while the file was
+     * received, is stored to give a strong ETag on download
      * @param file
      * @return true if file and its metadata are saved
      *         false in case of errors
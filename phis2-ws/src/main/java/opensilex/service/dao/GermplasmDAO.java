@@ -9,9 +9,12 @@ package opensilex.service.dao;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
+import java.util.Set;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
 import opensilex.service.dao.exception.ResourceAccessDeniedException;
@@ -24,6 +27,7 @@ import opensilex.service.ontology.Oeso;
 import opensilex.service.ontology.Rdf;
 import opensilex.service.ontology.Rdfs;
 import opensilex.service.resource.dto.germplasm.GermplasmDTO;
+import opensilex.service.utils.BulkCreationProgress;
 import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.utils.UriGenerator;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
@@ -42,6 +46,7 @@ import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.expr.Expr;
 import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.util.FmtUtils;
 import org.apache.jena.update.UpdateRequest;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
@@ -67,26 +72,46 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
     public String uri;
 
     private final String GENUS = "genus";
-    private final String GENUS_LABEL = "genusLabel";
     private final String SPECIES = "species";
-    private final String SPECIES_LABEL = "speciesLabel";
     private final String VARIETY = "variety";
-    private final String VARIETY_LABEL = "varietyLabel";
     private final String ACCESSION = "accession";
-    private final String ACCESSION_LABEL = "accessionLabel";
-    private final String LOT = "lot";
-    private final String LOT_LABEL = "lotLabel";
     private final String INSTITUTE_CODE = "instituteCode";
     private final String INSTITUTE_NAME = "instituteName";
     private final String RELATION = "relation";
     private final String PROPERTY = "property";
     private final String PROPERTY_TYPE = "propertyType";
-    private final String GERMPLASM_LABEL = "germplasmLabel";
     private final String GERMPLASM_TYPE = "germplasmType";
-    private final String GERMPLASM = "germplasm";
+
+    private final String CONCEPT = "concept";
+    private final String LOWER_LABEL = "lowerLabel";
 
     private static final String MAX_ID = "maxID";
 
+    /**
+     * Number of germplasm inserted by each update query of an insertion.
+     */
+    private final static int INSERTION_CHUNK_SIZE = 1000;
+
+    /**
+     * Germplasm concepts: the germplasm types are subclasses of one of them.
+     */
+    private final static List<String> GERMPLASM_CONCEPTS = Arrays.asList(
+            Oeso.CONCEPT_GERMPLASM.toString(),
+            Oeso.CONCEPT_GENUS.toString(),
+            Oeso.CONCEPT_SPECIES.toString(),
+            Oeso.CONCEPT_VARIETY.toString(),
+            Oeso.CONCEPT_ACCESSION.toString(),
+            Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString());
+
+    /**
+     * Relations between a germplasm and the germplasm it comes from.
+     */
+    private final static List<String> LINEAGE_RELATIONS = Arrays.asList(
+            Oeso.RELATION_FROM_ACCESSION.toString(),
+            Oeso.RELATION_FROM_VARIETY.toString(),
+            Oeso.RELATION_FROM_SPECIES.toString(),
+            Oeso.RELATION_FROM_GENUS.toString());
+
     public GermplasmDAO(SPARQLService sparql) {
         super(sparql);
     }
@@ -138,7 +163,8 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
     }
 
     /**
-     * Checks the given accessions' metadata.
+     * Checks the given accessions' metadata. The types, the labels and the 
+     * linked germplasm of the whole list are checked with a few queries.
      *
      * @param germplasms
      * @return the result with the list of the errors founded (empty if no error
@@ -150,134 +176,132 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
         List<Status> checkStatusList = new ArrayList<>();
         boolean dataOk = true;
 
-        //Caches
-        List<String> propertyUriCache = new ArrayList<>();
-        List<String> germplasmTypesCache = new ArrayList<>();
-        List<String> fromGenusCache = new ArrayList<>();
-        List<String> fromSpeciesCache = new ArrayList<>();
-        List<String> fromVarietyCache = new ArrayList<>();
-        List<String> fromAccessionCache = new ArrayList<>();
+        //1. get the types, the existing labels and the existing linked germplasm of all the germplasm
+        Set<String> rdfTypes = new HashSet<>();
+        Set<String> linkedGermplasmUris = new HashSet<>();
+        Set<String> relations = new HashSet<>();
+        for (Germplasm germplasm : germplasms) {
+            rdfTypes.add(germplasm.getRdfType());
+            for (Property property : germplasm.getProperties()) {
+                if (LINEAGE_RELATIONS.contains(property.getRelation())) {
+                    linkedGermplasmUris.add(property.getValue());
+                } else {
+                    relations.add(property.getRelation());
+                }
+            }
+        }
+
+        Map<String, String> germplasmConcepts;
+        Set<String> existingLabels;
+        Set<String> existingGermplasmUris;
+        Set<String> existingRelations = new HashSet<>();
+        try {
+            germplasmConcepts = findGermplasmConcepts(rdfTypes);
+            existingLabels = findExistingLabels(germplasms);
+            existingGermplasmUris = findExistingGermplasmUris(linkedGermplasmUris);
+            for (String relation : relations) {
+                if (existUri(relation)) {
+                    existingRelations.add(relation);
+                }
+            }
+        } catch (Exception ex) {
+            LOGGER.error("Error while checking germplasm", ex);
+            check = new POSTResultsReturn(false, null, false);
+            check.statusList.add(new Status(StatusCodeMsg.ERR, StatusCodeMsg.ERR, ex.getMessage()));
+            return check;
+        }
 
         //2. check data
+        Set<String> givenLabels = new HashSet<>();
         for (Germplasm germplasm : germplasms) {
-            try {
-                //2.1 Check type (subclass of Germplasm)
-                UriDAO uriDao = new UriDAO(sparql);
-                if (!germplasmTypesCache.contains(germplasm.getRdfType())) {
-                    if (!uriDao.isSubClassOf(germplasm.getRdfType(), Oeso.CONCEPT_GERMPLASM.toString())) {
-                        dataOk = false;
-                        checkStatusList.add(new Status(
-                                StatusCodeMsg.DATA_ERROR,
-                                StatusCodeMsg.ERR,
-                                "Bad germplasm type given. Must be sublass of Germplasm concept (variety, accession, seedLot)"));
-                    } else {
-                        germplasmTypesCache.add(germplasm.getRdfType());
-                    }
-                }
+            //2.1 Check type (subclass of Germplasm)
+            String germplasmConcept = germplasmConcepts.get(germplasm.getRdfType());
+            if (germplasmConcept == null) {
+                dataOk = false;
+                checkStatusList.add(new Status(
+                        StatusCodeMsg.DATA_ERROR,
+                        StatusCodeMsg.ERR,
+                        "Bad germplasm type given. Must be sublass of Germplasm concept (variety, accession, seedLot)"));
+            }
 
-                //2.2 Check the label
-                Map<String, List<String>> germplasmUrisAndLabels = this.findUriAndLabelsByLabelAndRdfType(germplasm.getLabel(), germplasm.getRdfType());
-                if (!germplasmUrisAndLabels.isEmpty()) {
+            //2.2 Check the label, unique for the type in the triplestore and in the given list
+            if (germplasm.getLabel() != null) {
+                String labelKey = getLabelKey(germplasm.getLabel(), germplasm.getRdfType());
+                if (existingLabels.contains(labelKey)) {
                     dataOk = false;
                     checkStatusList.add(new Status(
                             StatusCodeMsg.DATA_ERROR,
                             StatusCodeMsg.ERR,
                             "The label already exists"));
+                } else if (!givenLabels.add(labelKey)) {
+                    dataOk = false;
+                    checkStatusList.add(new Status(
+                            StatusCodeMsg.DATA_ERROR,
+                            StatusCodeMsg.ERR,
+                            "The label " + germplasm.getLabel() + " is given several times"));
                 }
+            }
 
-                //2.3 Check properties
-                boolean missingLink = true;
-
-                for (Property property : germplasm.getProperties()) {
-                    //Check link to others germplasm instances                           
-                    if (property.getRelation().equals(Oeso.RELATION_FROM_ACCESSION.toString())) {
-                        if (!fromAccessionCache.contains(property.getValue())) {
-                            if (uriDao.isSubClassOf(germplasm.getRdfType(), Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString())) {
-                                if (!existUriInGraph(property.getValue(), Contexts.GERMPLASM.toString())) {
-                                    dataOk = false;
-                                    checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the accession URI doesn't exist"));
-                                } else {
-                                    missingLink = false;
-                                    fromAccessionCache.add(property.getValue());
-                                }
-                            } else {
-                                dataOk = false;
-                                checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the relation fromAccession can't have this type of germplasm"));
-                            }
-                        } else {
-                            missingLink = false;
-                        }
-
-                    } else if (property.getRelation().equals(Oeso.RELATION_FROM_VARIETY.toString())) {
-                        if (!fromVarietyCache.contains(property.getValue())) {
-                            if (uriDao.isSubClassOf(germplasm.getRdfType(), Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString()) | germplasm.getRdfType().equals(Oeso.CONCEPT_ACCESSION.toString())) {
-                                if (!existUriInGraph(property.getValue(), Contexts.GERMPLASM.toString())) {
-                                    dataOk = false;
-                                    checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the variety URI doesn't exist"));
-                                } else {
-                                    missingLink = false;
-                                    fromVarietyCache.add(property.getValue());
-                                }
-                            } else {
-                                dataOk = false;
-                                checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the relation fromVariety can't have this type of germplasm"));
-                            }
-                        } else {
-                            missingLink = false;
-                        }
-
-                    } else if (property.getRelation().equals(Oeso.RELATION_FROM_SPECIES.toString())) {
-                        if (!fromSpeciesCache.contains(property.getValue())) {
-                            if (uriDao.isSubClassOf(germplasm.getRdfType(), Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString()) | germplasm.getRdfType().equals(Oeso.CONCEPT_ACCESSION.toString()) | germplasm.getRdfType().equals(Oeso.CONCEPT_VARIETY.toString())) {
-                                if (!existUriInGraph(property.getValue(), Contexts.GERMPLASM.toString())) {
-                                    dataOk = false;
-                                    checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the species URI doesn't exist"));
-                                } else {
-                                    missingLink = false;
-                                    fromSpeciesCache.add(property.getValue());
-                                }
-                            } else {
-                                dataOk = false;
-                                checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the relation fromSpecies can't have this type of germplasm"));
-                            }
-                        } else {
-                            missingLink = false;
-                        }
-
-                    } else if (property.getRelation().equals(Oeso.RELATION_FROM_GENUS.toString())) {
-                        if (!fromGenusCache.contains(property.getValue())) {
-                            if (germplasm.getRdfType().equals(Oeso.CONCEPT_SPECIES.toString())) {
-                                if (!existUriInGraph(property.getValue(), Contexts.GERMPLASM.toString())) {
-                                    dataOk = false;
-                                    checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the genus URI doesn't exist"));
-                                } else {
-                                    fromGenusCache.add(property.getValue());
-                                }
-                            } else {
-                                dataOk = false;
-                                checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the relation fromGenus must link a species and a genus"));
-                            }
-                        }
+            //2.3 Check properties
+            boolean missingLink = true;
+            boolean isPlantMaterialLot = Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString().equals(germplasmConcept);
+            boolean isAccession = Oeso.CONCEPT_ACCESSION.toString().equals(germplasmConcept);
+            boolean isVariety = Oeso.CONCEPT_VARIETY.toString().equals(germplasmConcept);
+            boolean isSpecies = Oeso.CONCEPT_SPECIES.toString().equals(germplasmConcept);
+
+            for (Property property : germplasm.getProperties()) {
+                //Check link to others germplasm instances                           
+                if (property.getRelation().equals(Oeso.RELATION_FROM_ACCESSION.toString())) {
+                    if (!isPlantMaterialLot) {
+                        dataOk = false;
+                        checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the relation fromAccession can't have this type of germplasm"));
+                    } else if (!existingGermplasmUris.contains(property.getValue())) {
+                        dataOk = false;
+                        checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the accession URI doesn't exist"));
+                    } else {
+                        missingLink = false;
+                    }
 
+                } else if (property.getRelation().equals(Oeso.RELATION_FROM_VARIETY.toString())) {
+                    if (!isPlantMaterialLot && !isAccession) {
+                        dataOk = false;
+                        checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the relation fromVariety can't have this type of germplasm"));
+                    } else if (!existingGermplasmUris.contains(property.getValue())) {
+                        dataOk = false;
+                        checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the variety URI doesn't exist"));
                     } else {
-                        //Check if property exists in the ontology Vocabulary --> see how to check rdfs
-                        if (!propertyUriCache.contains(property.getRelation())) {
-                            if (existUri(property.getRelation()) == false) {
-                                dataOk = false;
-                                checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the property relation " + property.getRelation() + " doesn't exist in the ontology"));
-                            } else {
-                                propertyUriCache.add(property.getRelation());
-                            }
-                        }
+                        missingLink = false;
                     }
 
-                }
-                if (missingLink && !germplasm.getRdfType().equals(Oeso.CONCEPT_GENUS.toString()) && !germplasm.getRdfType().equals(Oeso.CONCEPT_SPECIES.toString())) {
+                } else if (property.getRelation().equals(Oeso.RELATION_FROM_SPECIES.toString())) {
+                    if (!isPlantMaterialLot && !isAccession && !isVariety) {
+                        dataOk = false;
+                        checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the relation fromSpecies can't have this type of germplasm"));
+                    } else if (!existingGermplasmUris.contains(property.getValue())) {
+                        dataOk = false;
+                        checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the species URI doesn't exist"));
+                    } else {
+                        missingLink = false;
+                    }
+
+                } else if (property.getRelation().equals(Oeso.RELATION_FROM_GENUS.toString())) {
+                    if (!isSpecies) {
+                        dataOk = false;
+                        checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the relation fromGenus must link a species and a genus"));
+                    } else if (!existingGermplasmUris.contains(property.getValue())) {
+                        dataOk = false;
+                        checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the genus URI doesn't exist"));
+                    }
+
+                } else if (!existingRelations.contains(property.getRelation())) {
+                    //Check if property exists in the ontology Vocabulary --> see how to check rdfs
                     dataOk = false;
-                    checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "a relation to another germplasm type is required (at least the species)"));
+                    checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "the property relation " + property.getRelation() + " doesn't exist in the ontology"));
                 }
-            } catch (Exception ex) {
-                java.util.logging.Logger.getLogger(GermplasmDAO.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            if (missingLink && !germplasm.getRdfType().equals(Oeso.CONCEPT_GENUS.toString()) && !germplasm.getRdfType().equals(Oeso.CONCEPT_SPECIES.toString())) {
+                dataOk = false;
+                checkStatusList.add(new Status(StatusCodeMsg.WRONG_VALUE, StatusCodeMsg.ERR, "a relation to another germplasm type is required (at least the species)"));
             }
         }
 
@@ -287,7 +311,149 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
     }
 
     /**
-     * Inserts the given accession in the triplestore.
+     * Gets the germplasm concept of each given type: genus, species, variety,
+     * accession, plant material lot or germplasm for the other subclasses.
+     * @param rdfTypes
+     * @return the concept of each type. The types which are not subclasses of
+     * germplasm are not in the result.
+     * @example
+     * SELECT ?rdfType ?concept WHERE {
+     *   VALUES ?rdfType { <http://www.opensilex.org/vocabulary/oeso#SeedLot> }
+     *   VALUES ?concept { <http://www.opensilex.org/vocabulary/oeso#Germplasm> ... }
+     *   ?rdfType rdfs:subClassOf* ?concept
+     * }
+     */
+    private Map<String, String> findGermplasmConcepts(Collection<String> rdfTypes) {
+        Map<String, String> germplasmConcepts = new HashMap<>();
+        StringBuilder query = new StringBuilder("SELECT ?" + RDF_TYPE + " ?" + CONCEPT + " WHERE {\n");
+        query.append(getValuesClause(RDF_TYPE, rdfTypes, true));
+        query.append(getValuesClause(CONCEPT, GERMPLASM_CONCEPTS, true));
+        query.append("  ?" + RDF_TYPE + " <" + Rdfs.RELATION_SUBCLASS_OF.toString() + ">* ?" + CONCEPT + " .\n}");
+        LOGGER.debug(SPARQL_QUERY + query.toString());
+
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        try (TupleQueryResult result = tupleQuery.evaluate()) {
+            while (result.hasNext()) {
+                BindingSet bindingSet = result.next();
+                String rdfType = bindingSet.getValue(RDF_TYPE).stringValue();
+                String concept = bindingSet.getValue(CONCEPT).stringValue();
+                // Germplasm is only kept if the type has no more specific concept
+                if (!Oeso.CONCEPT_GERMPLASM.toString().equals(concept) || !germplasmConcepts.containsKey(rdfType)) {
+                    germplasmConcepts.put(rdfType, concept);
+                }
+            }
+        }
+        return germplasmConcepts;
+    }
+
+    /**
+     * Gets the labels of the given germplasm which already exist for their
+     * type (or a subtype), case insensitive.
+     * @param germplasms
+     * @return the existing labels keys
+     * @see #getLabelKey(java.lang.String, java.lang.String)
+     * @example
+     * SELECT DISTINCT ?lowerLabel ?rdfType WHERE {
+     *   ?uri rdfs:label ?label .
+     *   BIND(lcase(str(?label)) AS ?lowerLabel)
+     *   ?uri rdf:type ?type .
+     *   ?type rdfs:subClassOf* ?rdfType .
+     * } VALUES (?lowerLabel ?rdfType) { ("b73_inra" <http://www.opensilex.org/vocabulary/oeso#Accession>) }
+     */
+    private Set<String> findExistingLabels(List<Germplasm> germplasms) {
+        Set<String> existingLabels = new HashSet<>();
+        StringBuilder values = new StringBuilder();
+        for (Germplasm germplasm : germplasms) {
+            if (germplasm.getLabel() != null) {
+                values.append(" (")
+                        .append(FmtUtils.stringForNode(NodeFactory.createLiteral(germplasm.getLabel().toLowerCase())))
+                        .append(" <").append(germplasm.getRdfType()).append(">)");
+            }
+        }
+        if (values.length() == 0) {
+            return existingLabels;
+        }
+
+        String query = "SELECT DISTINCT ?" + LOWER_LABEL + " ?" + RDF_TYPE + " WHERE {\n"
+                + "  ?" + URI + " <" + Rdfs.RELATION_LABEL.toString() + "> ?" + LABEL + " .\n"
+                + "  BIND(lcase(str(?" + LABEL + ")) AS ?" + LOWER_LABEL + ")\n"
+                + "  ?" + URI + " <" + Rdf.RELATION_TYPE.toString() + "> ?" + GERMPLASM_TYPE + " .\n"
+                + "  ?" + GERMPLASM_TYPE + " <" + Rdfs.RELATION_SUBCLASS_OF.toString() + ">* ?" + RDF_TYPE + " .\n"
+                + "} VALUES (?" + LOWER_LABEL + " ?" + RDF_TYPE + ") {" + values.toString() + " }";
+        LOGGER.debug(SPARQL_QUERY + query);
+
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        try (TupleQueryResult result = tupleQuery.evaluate()) {
+            while (result.hasNext()) {
+                BindingSet bindingSet = result.next();
+                existingLabels.add(getLabelKey(
+                        bindingSet.getValue(LOWER_LABEL).stringValue(), 
+                        bindingSet.getValue(RDF_TYPE).stringValue()));
+            }
+        }
+        return existingLabels;
+    }
+
+    /**
+     * Gets the given germplasm URIs which exist in the germplasm graph.
+     * @param uris
+     * @return the existing URIs
+     * @example
+     * SELECT DISTINCT ?uri FROM <http://www.phenome-fppn.fr/platform/set/germplasm> WHERE {
+     *   VALUES ?uri { <http://www.phenome-fppn.fr/platform/id/species/maize> }
+     *   ?uri ?p ?o .
+     * }
+     */
+    private Set<String> findExistingGermplasmUris(Collection<String> uris) {
+        Set<String> existingUris = new HashSet<>();
+        if (uris.isEmpty()) {
+            return existingUris;
+        }
+        String query = "SELECT DISTINCT ?" + URI + " FROM <" + Contexts.GERMPLASM.toString() + "> WHERE {\n"
+                + getValuesClause(URI, uris, true)
+                + "  ?" + URI + " ?p ?o .\n}";
+        LOGGER.debug(SPARQL_QUERY + query);
+
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        try (TupleQueryResult result = tupleQuery.evaluate()) {
+            while (result.hasNext()) {
+                existingUris.add(result.next().getValue(URI).stringValue());
+            }
+        }
+        return existingUris;
+    }
+
+    /**
+     * @param variable
+     * @param values
+     * @param uris true if the values are URIs, false for literals
+     * @return the VALUES clause of the given values
+     */
+    private static String getValuesClause(String variable, Collection<String> values, boolean uris) {
+        StringBuilder clause = new StringBuilder("  VALUES ?" + variable + " {");
+        for (String value : values) {
+            if (uris) {
+                clause.append(" <").append(value).append(">");
+            } else {
+                clause.append(" ").append(FmtUtils.stringForNode(NodeFactory.createLiteral(value)));
+            }
+        }
+        return clause.append(" }\n").toString();
+    }
+
+    /**
+     * @param label
+     * @param rdfType
+     * @return the key of a label for a type, case insensitive
+     */
+    private static String getLabelKey(String label, String rdfType) {
+        return label.toLowerCase() + "\n" + rdfType;
+    }
+
+    /**
+     * Inserts the given accession in the triplestore. The germplasm are
+     * inserted by chunks of {@link #INSERTION_CHUNK_SIZE} in a single
+     * transaction: if any chunk fails, none of the germplasm is inserted.
      *
      * @param germplasms
      * @return the insertion result, with the errors list or the uri of the
@@ -298,29 +464,49 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
         List<String> createdResourcesUri = new ArrayList<>();
 
         POSTResultsReturn results;
-        boolean resultState = false;
-        boolean annotationInsert = true;
 
+        //1. Generate the URIs, from the labels
+        Set<String> rdfTypes = new HashSet<>();
+        germplasms.forEach(germplasm -> rdfTypes.add(germplasm.getRdfType()));
+        Map<String, String> germplasmConcepts = findGermplasmConcepts(rdfTypes);
         for (Germplasm germplasm : germplasms) {
             if (germplasm.getUri() == null) {
-                germplasm.setUri(UriGenerator.generateNewInstanceUri(sparql, germplasm.getRdfType(), null, germplasm.getLabel()));
+                String germplasmConcept = germplasmConcepts.get(germplasm.getRdfType());
+                germplasm.setUri(UriGenerator.generateGermplasmUri(germplasmConcept, germplasm.getLabel()));
             }
-
-            UpdateRequest query = prepareInsertQuery(germplasm);
-            Update prepareUpdate = prepareRDF4JUpdateQuery(query);
-            prepareUpdate.execute();
-
             createdResourcesUri.add(germplasm.getUri());
         }
 
-        if (annotationInsert) {
-            resultState = true;
+        //2. Insert the germplasm by chunks
+        BulkCreationProgress progress = BulkCreationProgress.start("germplasm", user != null ? user.getEmail() : null, germplasms.size());
+        try {
+            sparql.startTransaction();
+            for (int chunkStart = 0; chunkStart < germplasms.size(); chunkStart += INSERTION_CHUNK_SIZE) {
+                UpdateBuilder spql = new UpdateBuilder();
+                List<Germplasm> chunk = germplasms.subList(chunkStart, Math.min(germplasms.size(), chunkStart + INSERTION_CHUNK_SIZE));
+                chunk.forEach(germplasm -> addInsertToUpdateBuilder(spql, germplasm));
+
+                UpdateRequest query = spql.buildRequest();
+                LOGGER.debug(getTraceabilityLogs() + " query : " + query.toString());
+                Update prepareUpdate = prepareRDF4JUpdateQuery(query);
+                prepareUpdate.execute();
+
+                int created = progress.created(chunk.size());
+                LOGGER.info(getTraceabilityLogs() + created + "/" + germplasms.size() + " germplasm created");
+            }
+            sparql.commitTransaction();
+        } catch (Exception ex) {
+            sparql.rollbackTransaction();
+            throw ex;
+        } finally {
+            progress.end();
         }
+        updateLabelIndex(createdResourcesUri);
 
-        results = new POSTResultsReturn(resultState, annotationInsert, true);
+        results = new POSTResultsReturn(true, true, true);
         results.statusList = insertStatus;
         results.setCreatedResources(createdResourcesUri);
-        if (resultState && !createdResourcesUri.isEmpty()) {
+        if (!createdResourcesUri.isEmpty()) {
             results.createdResources = createdResourcesUri;
             results.statusList.add(new Status(StatusCodeMsg.RESOURCES_CREATED, StatusCodeMsg.INFO, createdResourcesUri.size() + " new germplasm created"));
         }
@@ -329,7 +515,7 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
     }
 
     /**
-     * Generates an insert query for accession list.
+     * Adds the insertion of a germplasm to an insert query.
      *
      * @example INSERT DATA { GRAPH
      * <http://www.phenome-fppn.fr/platform/germplasm> {
@@ -347,13 +533,10 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
      * <http://www.phenome-fppn.fr/platform/id/germplasm/g001>
      *  <http://www.opensilex.org/vocabulary/oeso#hasAccessionNumber> "B73_INRA"
      * . } }
-     * @param accession
-     * @return the query
+     * @param spql the update builder of the query
+     * @param germplasm
      */
-    private UpdateRequest prepareInsertQuery(Germplasm germplasm) {
-
-        UpdateBuilder spql = new UpdateBuilder();
-
+    private void addInsertToUpdateBuilder(UpdateBuilder spql, Germplasm germplasm) {
         Node graph = NodeFactory.createURI(Contexts.GERMPLASM.toString());
 
         Resource uri = ResourceFactory.createResource(germplasm.getUri());
@@ -385,11 +568,6 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
 
             }
         }
-
-        UpdateRequest query = spql.buildRequest();
-
-        LOGGER.debug(getTraceabilityLogs() + " query : " + query.toString());
-        return query;
     }
 
     /**
@@ -508,7 +686,7 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
 
         } else {
             query.appendTriplet("?" + URI, Rdfs.RELATION_LABEL.toString(), "?" + LABEL, null);
-            query.appendAndFilter("REGEX ( str(?" + LABEL + "),\".*" + label + ".*\",\"i\")");
+            appendLabelFilter(query, LABEL, label, GERMPLASM_CONCEPTS.toArray(new String[0]));
             if (language != null) {
                 query.appendAndFilter("LANG(?" + LABEL + ") = \"\" || LANGMATCHES(LANG(?" + LABEL + "), \"" + language + "\")");
             }
@@ -646,14 +824,28 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
         try (TupleQueryResult result = tupleQuery.evaluate()) {
             while (result.hasNext()) {
                 BindingSet bindingSet = result.next();
-                Germplasm germplasm = getGermplasmFromBindingSet(bindingSet);
-                germplasm.setProperties(findGerplasmProperties(germplasm.getUri()));
-                germplasmList.add(germplasm);
+                germplasmList.add(getGermplasmFromBindingSet(bindingSet));
             }
         }
+
+        //Get the properties of all the germplasm of the page at once
+        setGermplasmProperties(germplasmList);
         return germplasmList;
     }
 
+    /**
+     * Sets the properties of the given germplasm, found with a single query.
+     * @param germplasmList
+     */
+    private void setGermplasmProperties(List<Germplasm> germplasmList) {
+        Set<String> uris = new HashSet<>();
+        germplasmList.forEach(germplasm -> uris.add(germplasm.getUri()));
+        Map<String, ArrayList<Property>> propertiesByGermplasm = findGermplasmProperties(uris);
+        for (Germplasm germplasm : germplasmList) {
+            germplasm.setProperties(propertiesByGermplasm.getOrDefault(germplasm.getUri(), new ArrayList<>()));
+        }
+    }
+
     /**
      * Gets a accession from a given binding set. Assume that the following
      * attributes exist : uri, accessionName, accessionNumber, species, variety
@@ -777,16 +969,34 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
      * @return the list of properties
      */
     public ArrayList<Property> findGerplasmProperties(String uri) {
-        SPARQLQueryBuilder queryProperties = prepareSearchGermplasmProperties(uri);
+        return findGermplasmProperties(Arrays.asList(uri)).getOrDefault(uri, new ArrayList<>());
+    }
+
+    /**
+     * Gets the properties of the given germplasm, with a single query.
+     *
+     * @param uris
+     * @return the list of properties, by germplasm URI. The germplasm without
+     * property are not in the result.
+     */
+    public Map<String, ArrayList<Property>> findGermplasmProperties(Collection<String> uris) {
+        Map<String, ArrayList<Property>> propertiesByGermplasm = new HashMap<>();
+        if (uris.isEmpty()) {
+            return propertiesByGermplasm;
+        }
+
+        SPARQLQueryBuilder queryProperties = prepareSearchGermplasmProperties(uris);
         TupleQuery tupleQuery = prepareRDF4JTupleQuery(queryProperties);
-        List<String> foundedProperties = new ArrayList<>();
-        ArrayList<Property> properties = new ArrayList<>();
+        Map<String, Set<String>> foundedProperties = new HashMap<>();
 
         try (TupleQueryResult result = tupleQuery.evaluate()) {
             while (result.hasNext()) {
                 BindingSet bindingSet = result.next();
+                String germplasmUri = bindingSet.getValue(URI).stringValue();
 
-                if (!foundedProperties.contains(bindingSet.getValue(PROPERTY).stringValue())) {
+                // A property with several types is only returned once
+                if (foundedProperties.computeIfAbsent(germplasmUri, uri -> new HashSet<>())
+                        .add(bindingSet.getValue(PROPERTY).stringValue())) {
                     Property property = new Property();
 
                     property.setRelation(bindingSet.getValue(RELATION).stringValue());
@@ -795,12 +1005,11 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
                         property.setRdfType(bindingSet.getValue(PROPERTY_TYPE).stringValue());
                     }
 
-                    properties.add(property);
-                    foundedProperties.add(bindingSet.getValue(PROPERTY).stringValue());
+                    propertiesByGermplasm.computeIfAbsent(germplasmUri, uri -> new ArrayList<>()).add(property);
                 }
             }
         }
-        return properties;
+        return propertiesByGermplasm;
     }
 
     /**
@@ -825,252 +1034,162 @@ public class GermplasmDAO extends Rdf4jDAO<Germplasm> {
         return query;
     }
 
-    public GermplasmDTO getGermplasmDTO(Germplasm germplasm, String language) {
-        GermplasmDTO germplasmDTO = new GermplasmDTO();
-        SPARQLQueryBuilder query = prepareSearchAllInformationGermplasm(germplasm, language);
-        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
-        try (TupleQueryResult result = tupleQuery.evaluate()) {
-            if (result.hasNext()) {
-                BindingSet bindingSet = result.next();
-                germplasmDTO = getGermplasmDTOFromBindingSet(bindingSet);
-            }
-        }
-        germplasmDTO.setRdfType(germplasm.getRdfType());
-        germplasmDTO.setUri(germplasm.getUri());
-        germplasmDTO.setLabel(germplasm.getLabel());
+    /**
+     * Generates the query to get the list of properties of several germplasm.
+     *
+     * @param uris
+     * @return the query
+     * @example SELECT ?uri ?relation ?property ?propertyType WHERE {
+     * VALUES ?uri { <http://www.phenome-fppn.fr/platform/id/accession/b73_inra> }
+     * ?uri ?relation ?property .
+     * OPTIONAL {?property <http://www.w3.org/1999/02/22-rdf-syntax-ns#type>
+     * ?propertyType } }
+     */
+    private SPARQLQueryBuilder prepareSearchGermplasmProperties(Collection<String> uris) {
+        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
+        query.appendSelect(" ?" + URI + " ?" + RELATION + " ?" + PROPERTY + " ?" + PROPERTY_TYPE);
+        query.appendToBody(getValuesClause(URI, uris, true));
+        query.appendTriplet("?" + URI, "?" + RELATION, "?" + PROPERTY, null);
+        query.appendOptional("?" + PROPERTY + " <" + Rdf.RELATION_TYPE.toString() + "> ?" + PROPERTY_TYPE);
 
-        return germplasmDTO;
+        LOGGER.debug(SPARQL_QUERY + query.toString());
 
+        return query;
     }
 
-    public SPARQLQueryBuilder prepareSearchAllInformationGermplasm(Germplasm germplasm, String language) {
-        String germplasmURI = germplasm.getUri();
-        String germplasmType = germplasm.getRdfType();
-
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendDistinct(Boolean.TRUE);
-
-        query.appendSelect(" ?" + LOT_LABEL + " ?" + ACCESSION_LABEL + " ?" + VARIETY_LABEL + " ?" + SPECIES_LABEL + " ?" + GENUS_LABEL);
-        query.appendFrom("<" + Contexts.GERMPLASM.toString() + ">");
+    public GermplasmDTO getGermplasmDTO(Germplasm germplasm, String language) {
+        return getGermplasmDTOs(Arrays.asList(germplasm), language).get(0);
+    }
 
-        String germplasmTypeName = GENUS;
-        String germplasmLabel = GENUS_LABEL;
-        if (germplasmType.equals(Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString())) {
-            germplasmTypeName = LOT;
-            germplasmLabel = LOT_LABEL;
-        } else if (germplasmType.equals(Oeso.CONCEPT_ACCESSION.toString())) {
-            germplasmTypeName = ACCESSION;
-            germplasmLabel = ACCESSION_LABEL;
-        } else if (germplasmType.equals(Oeso.CONCEPT_VARIETY.toString())) {
-            germplasmTypeName = VARIETY;
-            germplasmLabel = VARIETY_LABEL;
-        } else if (germplasmType.equals(Oeso.CONCEPT_SPECIES.toString())) {
-            germplasmTypeName = SPECIES;
-            germplasmLabel = SPECIES_LABEL;
+    /**
+     * Gets the DTOs of the given germplasm, with the labels of their lineage
+     * (genus, species, variety, accession) found with a single query.
+     * @param germplasmList
+     * @param language the language of the species labels, null for any
+     * @return the DTOs, in the order of the given germplasm
+     */
+    public ArrayList<GermplasmDTO> getGermplasmDTOs(List<Germplasm> germplasmList, String language) {
+        Map<String, GermplasmDTO> dtoByUri = new HashMap<>();
+        ArrayList<GermplasmDTO> germplasmDTOs = new ArrayList<>();
+        for (Germplasm germplasm : germplasmList) {
+            GermplasmDTO germplasmDTO = new GermplasmDTO();
+            germplasmDTO.setRdfType(germplasm.getRdfType());
+            germplasmDTO.setUri(germplasm.getUri());
+            germplasmDTO.setLabel(germplasm.getLabel());
+            setLineageLabel(germplasmDTO, getOwnLineageRelation(germplasm.getRdfType()), germplasm.getLabel());
+            dtoByUri.put(germplasm.getUri(), germplasmDTO);
+            germplasmDTOs.add(germplasmDTO);
         }
-
-        query.appendToBody("?" + germplasmTypeName + " <" + Rdf.RELATION_TYPE.toString() + "> " + "<" + germplasm.getRdfType() + "> . ");
-        query.appendToBody("?" + germplasmTypeName + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + germplasmLabel + " . ");
-        if (germplasmType.equals(Oeso.CONCEPT_SPECIES.toString()) && language != null) {
-            query.appendAndFilter("LANG(?" + SPECIES_LABEL + ") = \"\" || LANGMATCHES(LANG(?" + SPECIES_LABEL + "), \"" + language + "\")");
+        if (dtoByUri.isEmpty()) {
+            return germplasmDTOs;
         }
 
-        if (!germplasmType.equals(Oeso.CONCEPT_GENUS.toString())) {
-            query.beginBodyOptional();
-            query.appendToBody("?" + germplasmTypeName + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-            query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-            query.endBodyOptional();
-
-            if (!germplasmType.equals(Oeso.CONCEPT_SPECIES.toString())) {
-                query.beginBodyOptional();
-                query.appendToBody("?" + germplasmTypeName + " <" + Oeso.RELATION_FROM_SPECIES.toString() + "> " + "?" + SPECIES + " . ");
-                query.appendToBody("?" + SPECIES + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + SPECIES_LABEL + " . ");
-                query.appendAndFilter("LANG(?" + SPECIES_LABEL + ") = \"\" || LANGMATCHES(LANG(?" + SPECIES_LABEL + "), \"" + language + "\")");
-                query.beginBodyOptional();
-                query.appendToBody("?" + SPECIES + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-                query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-                query.endBodyOptional();
-                query.endBodyOptional();
-
-                if (!germplasmType.equals(Oeso.CONCEPT_VARIETY.toString())) {
-                    query.beginBodyOptional();
-                    query.appendToBody("?" + germplasmTypeName + " <" + Oeso.RELATION_FROM_VARIETY.toString() + "> " + "?" + VARIETY + " . ");
-                    query.appendToBody("?" + VARIETY + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + VARIETY_LABEL + " . ");
-                    query.beginBodyOptional();
-                    query.appendToBody("?" + VARIETY + " <" + Oeso.RELATION_FROM_SPECIES.toString() + "> " + "?" + SPECIES + " . ");
-                    query.appendToBody("?" + SPECIES + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + SPECIES_LABEL + " . ");
-                    query.beginBodyOptional();
-                    query.appendToBody("?" + SPECIES + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-                    query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-                    query.endBodyOptional();
-                    query.endBodyOptional();
-                    query.endBodyOptional();
-
-                    if (!germplasmType.equals(Oeso.CONCEPT_ACCESSION.toString())) {
-                        query.beginBodyOptional();
-                        query.appendToBody("?" + germplasmTypeName + " <" + Oeso.RELATION_FROM_ACCESSION.toString() + "> " + "?" + ACCESSION + " . ");
-                        query.appendToBody("?" + ACCESSION + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + ACCESSION_LABEL + " . ");
-                        query.beginBodyOptional();
-                        query.appendToBody("?" + ACCESSION + " <" + Oeso.RELATION_FROM_VARIETY.toString() + "> " + "?" + VARIETY + " . ");
-                        query.appendToBody("?" + VARIETY + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + VARIETY_LABEL + " . ");
-                        query.beginBodyOptional();
-                        query.appendToBody("?" + VARIETY + " <" + Oeso.RELATION_FROM_SPECIES.toString() + "> " + "?" + SPECIES + " . ");
-                        query.appendToBody("?" + SPECIES + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + SPECIES_LABEL + " . ");
-                        query.beginBodyOptional();
-                        query.appendToBody("?" + SPECIES + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-                        query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-                        query.endBodyOptional();
-                        query.endBodyOptional();
-                        query.endBodyOptional();
-                        query.endBodyOptional();
-                    }
-                }
-
+        String query = prepareSearchLineageLabels(dtoByUri.keySet(), language);
+        LOGGER.debug(SPARQL_QUERY + query);
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        try (TupleQueryResult result = tupleQuery.evaluate()) {
+            while (result.hasNext()) {
+                BindingSet bindingSet = result.next();
+                setLineageLabel(dtoByUri.get(bindingSet.getValue(URI).stringValue()),
+                        bindingSet.getValue(RELATION).stringValue(),
+                        bindingSet.getValue(LABEL).stringValue());
             }
-
         }
-        query.appendAndFilter("REGEX ( str(?" + germplasmTypeName + "),\".*" + germplasmURI + ".*\",\"i\")");
-
-        LOGGER.debug(query.toString());
-
-        return query;
+        return germplasmDTOs;
     }
 
     /**
-     * Gets a germplasmDTO from a given binding set. Assume that the following
-     * attributes exist : uri, accessionName, accessionNumber, species, variety
-     *
-     * @param bindingSet a bindingSet from a search query
-     * @param uri
-     * @param accessionName
-     * @param accessionNumber
-     * @param species
-     * @param variety
-     * @return a accession with data extracted from the given bindingSet
+     * Generates the query of the labels of the germplasm the given germplasm
+     * come from, directly or through other germplasm, by lineage relation.
+     * @param uris
+     * @param language the language of the species labels, null for any
+     * @return the query
+     * @example
+     * SELECT DISTINCT ?uri ?relation ?label FROM <http://www.phenome-fppn.fr/set/germplasm> WHERE {
+     *   VALUES ?uri { <http://www.phenome-fppn.fr/platform/id/accession/b73_inra> }
+     *   VALUES ?relation { oeso:fromAccession oeso:fromVariety oeso:fromSpecies oeso:fromGenus }
+     *   ?uri (oeso:fromAccession|oeso:fromVariety|oeso:fromSpecies|oeso:fromGenus)* ?child .
+     *   ?child ?relation ?ancestor .
+     *   ?ancestor rdfs:label ?label .
+     *   FILTER (?relation != oeso:fromSpecies || LANG(?label) = "" || LANGMATCHES(LANG(?label), "en"))
+     * }
      */
-    private GermplasmDTO getGermplasmDTOFromBindingSet(BindingSet bindingSet) {
-        GermplasmDTO germplasmDTO = new GermplasmDTO();
-
-        if (bindingSet.getValue(URI) != null) {
-            germplasmDTO.setUri(bindingSet.getValue(URI).stringValue());
+    private String prepareSearchLineageLabels(Collection<String> uris, String language) {
+        StringBuilder lineagePath = new StringBuilder();
+        for (String relation : LINEAGE_RELATIONS) {
+            lineagePath.append(lineagePath.length() == 0 ? "(" : "|").append("<").append(relation).append(">");
         }
-        if (bindingSet.getValue(GENUS_LABEL) != null) {
-            germplasmDTO.setGenus(bindingSet.getValue(GENUS_LABEL).stringValue());
+        lineagePath.append(")*");
+
+        StringBuilder query = new StringBuilder("SELECT DISTINCT ?" + URI + " ?" + RELATION + " ?" + LABEL
+                + " FROM <" + Contexts.GERMPLASM.toString() + "> WHERE {\n");
+        query.append(getValuesClause(URI, uris, true));
+        query.append(getValuesClause(RELATION, LINEAGE_RELATIONS, true));
+        query.append("  ?" + URI + " " + lineagePath + " ?child .\n");
+        query.append("  ?child ?" + RELATION + " ?ancestor .\n");
+        query.append("  ?ancestor <" + Rdfs.RELATION_LABEL.toString() + "> ?" + LABEL + " .\n");
+        if (language != null) {
+            query.append("  FILTER (?" + RELATION + " != <" + Oeso.RELATION_FROM_SPECIES.toString() + ">"
+                    + " || LANG(?" + LABEL + ") = \"\""
+                    + " || LANGMATCHES(LANG(?" + LABEL + "), " + FmtUtils.stringForNode(NodeFactory.createLiteral(language)) + "))\n");
         }
-        if (bindingSet.getValue(SPECIES_LABEL) != null) {
-            germplasmDTO.setSpecies(bindingSet.getValue(SPECIES_LABEL).stringValue());
-        }
-        if (bindingSet.getValue(VARIETY_LABEL) != null) {
-            germplasmDTO.setVariety(bindingSet.getValue(VARIETY_LABEL).stringValue());
-        }
-        if (bindingSet.getValue(ACCESSION_LABEL) != null) {
-            germplasmDTO.setAccession(bindingSet.getValue(ACCESSION_LABEL).stringValue());
+        return query.append("}").toString();
+    }
+
+    /**
+     * @param rdfType
+     * @return the lineage relation of the germplasm of the given type, the
+     * genus one for the other types
+     */
+    private static String getOwnLineageRelation(String rdfType) {
+        if (Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString().equals(rdfType)) {
+            return Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString();
+        } else if (Oeso.CONCEPT_ACCESSION.toString().equals(rdfType)) {
+            return Oeso.RELATION_FROM_ACCESSION.toString();
+        } else if (Oeso.CONCEPT_VARIETY.toString().equals(rdfType)) {
+            return Oeso.RELATION_FROM_VARIETY.toString();
+        } else if (Oeso.CONCEPT_SPECIES.toString().equals(rdfType)) {
+            return Oeso.RELATION_FROM_SPECIES.toString();
         }
-        if (bindingSet.getValue(LOT_LABEL) != null) {
-            germplasmDTO.setPlantMaterialLot(bindingSet.getValue(LOT_LABEL).stringValue());
+        return Oeso.RELATION_FROM_GENUS.toString();
+    }
+
+    /**
+     * Sets the label of a germplasm of the lineage, if not already set.
+     * @param germplasmDTO
+     * @param relation the lineage relation, or the lot concept for the lot
+     * label
+     * @param label
+     */
+    private static void setLineageLabel(GermplasmDTO germplasmDTO, String relation, String label) {
+        if (Oeso.RELATION_FROM_GENUS.toString().equals(relation) && germplasmDTO.getGenus() == null) {
+            germplasmDTO.setGenus(label);
+        } else if (Oeso.RELATION_FROM_SPECIES.toString().equals(relation) && germplasmDTO.getSpecies() == null) {
+            germplasmDTO.setSpecies(label);
+        } else if (Oeso.RELATION_FROM_VARIETY.toString().equals(relation) && germplasmDTO.getVariety() == null) {
+            germplasmDTO.setVariety(label);
+        } else if (Oeso.RELATION_FROM_ACCESSION.toString().equals(relation) && germplasmDTO.getAccession() == null) {
+            germplasmDTO.setAccession(label);
+        } else if (Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString().equals(relation) && germplasmDTO.getPlantMaterialLot() == null) {
+            germplasmDTO.setPlantMaterialLot(label);
         }
-        return germplasmDTO;
     }
 
     /**
-     * Search all the germplasm corresponding to the search params given.
+     * Search all the germplasm corresponding to the search params given, with
+     * their properties. The page is selected first, then the properties of
+     * all the germplasm of the page are found with a single query.
      *
      * @param page
      * @param pageSize
      * @param uri
      * @param label
      * @param germplasmType
+     * @param language
      * @return the list of the accession.
      */
     public ArrayList<Germplasm> findWithAllInformation(int page, int pageSize, String uri, String label, String germplasmType, String language) {
-        SPARQLQueryBuilder query = prepareSearchQueryWithAllInformation();
-        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
-        ArrayList<Germplasm> germplasmList = new ArrayList<>();
-
-        try (TupleQueryResult result = tupleQuery.evaluate()) {
-            while (result.hasNext()) {
-                BindingSet bindingSet = result.next();
-                Germplasm germplasm = getGermplasmFromBindingSet(bindingSet);
-                germplasm.setProperties(findGerplasmProperties(germplasm.getUri()));
-                germplasmList.add(germplasm);
-            }
-        }
-        return germplasmList;
-    }
-
-    private SPARQLQueryBuilder prepareSearchQueryWithAllInformation() {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendSelect("?" + GERMPLASM + "?" + GERMPLASM_TYPE
-                + GERMPLASM_LABEL + GENUS + GENUS_LABEL + SPECIES + SPECIES_LABEL
-                + VARIETY + VARIETY_LABEL + ACCESSION + ACCESSION_LABEL);
-
-        query.appendFrom("<" + Contexts.GERMPLASM + ">");
-
-        query.beginBodyOptional();
-
-        query.appendToBody("?" + URI + " <" + Oeso.RELATION_HAS_GERMPLASM.toString() + "> " + "?" + GERMPLASM + " . ");
-        query.appendToBody("?" + GERMPLASM + " <" + Rdf.RELATION_TYPE.toString() + "> " + "?" + GERMPLASM_TYPE + " . ");
-        query.appendToBody("?" + GERMPLASM + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GERMPLASM_LABEL + " . ");
-
-        //1. case when the germplasm is a species 
-        query.beginBodyOptional();
-        query.appendToBody("?" + GERMPLASM + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-        query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-        query.endBodyOptional();
-
-        //2. case when the germplasm is a variety or an accession or a lot linked to the species and so you get the species and possibly the genus
-        query.beginBodyOptional();
-        query.appendToBody("?" + GERMPLASM + " <" + Oeso.RELATION_FROM_SPECIES.toString() + "> " + "?" + SPECIES + " . ");
-        query.appendToBody("?" + SPECIES + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + SPECIES_LABEL + " . ");
-        query.beginBodyOptional();
-        query.appendToBody("?" + SPECIES + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-        query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-        query.endBodyOptional();
-        query.endBodyOptional();
-
-        //3. case when the germplasm is an accession or a lot linked to the variety (so you get the variety, the species and possibly the genus)
-        query.beginBodyOptional();
-        query.appendToBody("?" + GERMPLASM + " <" + Oeso.RELATION_FROM_VARIETY.toString() + "> " + "?" + VARIETY + " . ");
-        query.appendToBody("?" + VARIETY + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + VARIETY_LABEL + " . ");
-        query.appendToBody("?" + VARIETY + " <" + Oeso.RELATION_FROM_SPECIES.toString() + "> " + "?" + SPECIES + " . ");
-        query.appendToBody("?" + SPECIES + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + SPECIES_LABEL + " . ");
-        query.beginBodyOptional();
-        query.appendToBody("?" + SPECIES + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-        query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-        query.endBodyOptional();
-        query.endBodyOptional();
-
-        //4. case when the germplasm is a lot linked to the accession            
-        query.appendToBody("?" + GERMPLASM + " <" + Oeso.RELATION_FROM_ACCESSION.toString() + "> " + "?" + ACCESSION + " . ");
-        query.appendToBody("?" + ACCESSION + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + ACCESSION_LABEL + " . ");
-
-        //4.a. the accession is linked to a variety (so you get the variety and the species. and the genus eventually)
-        query.beginBodyOptional();
-        query.appendToBody("?" + ACCESSION + " <" + Oeso.RELATION_FROM_VARIETY.toString() + "> " + "?" + VARIETY + " . ");
-        query.appendToBody("?" + VARIETY + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + VARIETY_LABEL + " . ");
-        query.appendToBody("?" + VARIETY + " <" + Oeso.RELATION_FROM_SPECIES.toString() + "> " + "?" + SPECIES + " . ");
-        query.appendToBody("?" + SPECIES + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + SPECIES_LABEL + " . ");
-        query.beginBodyOptional();
-        query.appendToBody("?" + SPECIES + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-        query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-        query.endBodyOptional();
-        query.endBodyOptional();
-
-        //4.b. the accession is linked to a species (you only get the species and the genus eventually)
-        query.beginBodyOptional();
-        query.appendToBody("?" + ACCESSION + " <" + Oeso.RELATION_FROM_SPECIES.toString() + "> " + "?" + SPECIES + " . ");
-        query.appendToBody("?" + SPECIES + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + SPECIES_LABEL + " . ");
-        query.beginBodyOptional();
-        query.appendToBody("?" + SPECIES + " <" + Oeso.RELATION_FROM_GENUS.toString() + "> " + "?" + GENUS + " . ");
-        query.appendToBody("?" + GENUS + " <" + Rdfs.RELATION_LABEL.toString() + "> " + "?" + GENUS_LABEL + " . ");
-        query.endBodyOptional();
-        query.endBodyOptional();
-
-        query.endBodyOptional();
-
-        LOGGER.debug(query.toString());
-
-        return query;
+        return find(page, pageSize, uri, label, germplasmType, language, null, null, null, null);
     }
 
     public String getPropertyValueLabel(Germplasm germplasm) {
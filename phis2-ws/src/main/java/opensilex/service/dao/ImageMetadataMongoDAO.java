@@ -10,21 +10,28 @@ package opensilex.service.dao;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
-import java.sql.Timestamp;
+import com.mongodb.client.model.IndexOptions;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.time.Year;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
+import java.util.regex.Pattern;
 import javax.ws.rs.core.Response;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
 import org.bson.Document;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import opensilex.service.PropertiesFileManager;
@@ -52,6 +59,15 @@ public class ImageMetadataMongoDAO extends MongoDAO<ImageMetadata> {
 
     public ImageMetadataMongoDAO(SPARQLService sparql) {
         this.sparql = sparql;
+        if (URI_INDEX_CREATED.compareAndSet(false, true)) {
+            try {
+                // Mongo won't create index if it already exists
+                imagesCollection.createIndex(new BasicDBObject(DB_FIELDS_IMAGE_URI, 1), new IndexOptions().unique(true));
+            } catch (MongoException ex) {
+                // Not tried again: the duplicated URIs of the previous versions would make it fail each time
+                LOGGER.error("Images metadata unique URI index creation error : " + ex.getMessage(), ex);
+            }
+        }
     }
     
     final static Logger LOGGER = LoggerFactory.getLogger(ImageMetadataMongoDAO.class);
@@ -93,6 +109,15 @@ public class ImageMetadataMongoDAO extends MongoDAO<ImageMetadata> {
     final static String DB_FIELDS_SHOOTING_CONFIGURATION = "shootingConfiguration";
         //Represents the mongodb documents label for the storage
     final static String DB_FIELDS_STORAGE = "storage";
+    
+    //Code of the images in their URIs
+    private final static String URI_CODE_IMAGE = "i";
+    //Prefix of the images sequences names, followed by the year
+    private final static String IMAGES_SEQUENCE_PREFIX = "images-";
+    //Parser of the shooting dates, thread safe unlike SimpleDateFormat
+    private final static DateTimeFormatter SHOOTING_DATE_FORMATTER = DateTimeFormat.forPattern(DateFormats.YMDHMSZ_FORMAT);
+    //True once the unique index on the images URIs has been checked
+    private final static AtomicBoolean URI_INDEX_CREATED = new AtomicBoolean(false);
 
     
     /**
@@ -258,14 +283,16 @@ public class ImageMetadataMongoDAO extends MongoDAO<ImageMetadata> {
     }
     
     /**
-     * Prepares the query of getting the number of images by year.
-     * @return query to get the number of images by year. 
+     * Prepares the query of getting the images of a year.
+     * The regular expression is anchored, so the index on the image URI is used.
+     * @param year
+     * @return query to get the images of the year. 
      *         Query example : 
-     *         {uri: {$regex: "http://www.phenome-fppn.fr/diaphen/2017*"}}    
+     *         {uri: {$regex: "^\\Qhttp://www.phenome-fppn.fr/diaphen/2017/i17\\E"}}    
      */
-    private Document prepareGetLastId() {        
+    private Document prepareGetLastId(String year) {        
           Document regQuery = new Document();
-          String regex = Contexts.PLATFORM.toString() + Year.now().toString() + "*";
+          String regex = "^" + Pattern.quote(Contexts.PLATFORM.toString() + year + "/" + URI_CODE_IMAGE + year.substring(2, 4));
           regQuery.append("$regex", regex);
           
           Document findQuery = new Document();
@@ -277,92 +304,153 @@ public class ImageMetadataMongoDAO extends MongoDAO<ImageMetadata> {
     }
     
     /**
-     * Gets the number of images in the database for the current year.
-     * @return the number of images in the database for the current year.
+     * Gets the number of the last image inserted in the database for a year.
+     * Only used to initialize the images sequence of the year.
+     * @param year
+     * @return the number of the last image of the year, 0 if there is none.
      */
-    public long getImagesCountOfCurrentYear() {
-        Document query = prepareGetLastId();
+    private long getLastImageNumberOfYear(String year) {
+        Document query = prepareGetLastId(year);
         
-        FindIterable<Document> cursor = imagesCollection
+        Document lastImage = imagesCollection
                 .find(query)
+                .projection(new Document(DB_FIELDS_IMAGE_URI, 1))
                 .sort(new BasicDBObject(DB_FIELDS_IMAGE_URI, -1))
-                .limit(1);
+                .limit(1)
+                .first();
         
-        String lastUri = "";
-        MongoCursor<Document> imagesMetadataCursor = cursor.iterator();
-        while (imagesMetadataCursor.hasNext()) {
-            Document imageMetadataDocument = imagesMetadataCursor.next();
-            lastUri = imageMetadataDocument.getString(DB_FIELDS_IMAGE_URI);
-        }
-        if (lastUri.equals("")) {
+        if (lastImage == null) {
             return 0;
         } else {
-            String[] splitString = lastUri.split("/i" + Year.now().toString().substring(2, 4));
+            String lastUri = lastImage.getString(DB_FIELDS_IMAGE_URI);
+            String[] splitString = lastUri.split("/" + URI_CODE_IMAGE + year.substring(2, 4));
+
+            return Long.parseLong(splitString[splitString.length - 1]);
+        }
+    }
+    
+    /**
+     * Reserves the numbers of new images of a year. The numbers are taken from
+     * the images sequence of the year, so concurrent requests never get the
+     * same numbers and the images collection is not read each time.
+     * @param year
+     * @param count number of images
+     * @return the first reserved number. The reserved numbers are
+     * [first, first + count - 1].
+     */
+    public long reserveImageNumbers(String year, int count) {
+        return new SequenceMongoDAO().reserve(
+                IMAGES_SEQUENCE_PREFIX + year, 
+                count, 
+                () -> getLastImageNumberOfYear(year));
+    }
+    
+    /**
+     * Creates the image document to insert.
+     * @param imageMetadata
+     * @return the document
+     */
+    private Document imageMetadataToDocument(ImageMetadata imageMetadata) {
+        Document metadata = new Document();
+        metadata.append(DB_FIELDS_IMAGE_URI, imageMetadata.getUri());
+        metadata.append(DB_FIELDS_RDF_TYPE, imageMetadata.getRdfType());
 
-            return Integer.parseInt(splitString[splitString.length - 1]);
+        //Concerned Items
+        ArrayList<Document> concernedItemsToSave = new ArrayList<>();
+        for (ConcernedItem concernedItem : imageMetadata.getConcernedItems()) {
+            Document concernedItemDocument = new Document();
+            concernedItemDocument.append(DB_FIELDS_CONCERNED_ITEM_URI, concernedItem.getUri());
+            concernedItemDocument.append(DB_FIELDS_RDF_TYPE, concernedItem.getRdfType());
+            concernedItemsToSave.add(concernedItemDocument);
         }
+        metadata.append(DB_FIELDS_CONCERNED_ITEMS, concernedItemsToSave);
+
+        // Configuration
+        Document configuration = new Document();
+        Date dateImage = SHOOTING_DATE_FORMATTER.parseDateTime(imageMetadata.getConfiguration().getDate()).toDate();
+        configuration.append(ShootingConfigurationDAO.DB_FIELDS_DATE, dateImage);
+        configuration.append(ShootingConfigurationDAO.DB_FIELDS_TIMESTAMP, System.currentTimeMillis());
+        configuration.append(ShootingConfigurationDAO.DB_FIELDS_SENSOR_POSITION, imageMetadata.getConfiguration().getPosition());
+        configuration.append(ShootingConfigurationDAO.DB_FIELDS_SENSOR, imageMetadata.getConfiguration().getSensor());
+        metadata.append(DB_FIELDS_SHOOTING_CONFIGURATION, configuration);
+
+        // FileInformations (Storage)
+        Document storage = new Document();
+        storage.append(FileInformationDAO.DB_FIELDS_EXTENSION, imageMetadata.getFileInformations().getExtension());
+        storage.append(FileInformationDAO.DB_FIELDS_MD5SUM, imageMetadata.getFileInformations().getChecksum());
+        storage.append(FileInformationDAO.DB_FIELDS_SERVER_FILE_PATH, imageMetadata.getFileInformations().getServerFilePath());
+        metadata.append(DB_FIELDS_STORAGE, storage);
+        
+        return metadata;
     }
     
     /**
      * Inserts the images metadata in MongoDB.
+     * All the documents are inserted with a single bulk insert in a 
+     * transaction: either all the images metadata are inserted or none.
+     * The multiple images upload service inserts the metadata of all its
+     * images at once.
      * @param imagesMetadata
      * @return the result of the insert
-     * @throws ParseException 
+     * @throws ParseException if a shooting date is not valid
      */
-    @SuppressWarnings("empty-statement")
     public POSTResultsReturn insert(List<ImageMetadata> imagesMetadata) throws ParseException {
         List<Status> insertStatus = new ArrayList<>();
         POSTResultsReturn result;
         List<String> createdResourcesUris = new ArrayList<>();
         
-       //SILEX:todo
-       // transactions
-       //\SILEX:todo
-       SimpleDateFormat df = new SimpleDateFormat(DateFormats.YMDHMSZ_FORMAT);
-       for (ImageMetadata imageMetadata : imagesMetadata) {
-           Document metadata = new Document();
-           metadata.append(DB_FIELDS_IMAGE_URI, imageMetadata.getUri());
-           metadata.append(DB_FIELDS_RDF_TYPE, imageMetadata.getRdfType());
-           
-           //Concerned Items
-           ArrayList<Document> concernedItemsToSave = new ArrayList<>();
-           for (ConcernedItem concernedItem : imageMetadata.getConcernedItems()) {
-               Document concernedItemDocument = new Document();
-               concernedItemDocument.append(DB_FIELDS_CONCERNED_ITEM_URI, concernedItem.getUri());
-               concernedItemDocument.append(DB_FIELDS_RDF_TYPE, concernedItem.getRdfType());
-               concernedItemsToSave.add(concernedItemDocument);
-           }
-           metadata.append(DB_FIELDS_CONCERNED_ITEMS, concernedItemsToSave);
-           
-           // Configuration
-           Document configuration = new Document();
-           Date dateImage = df.parse(imageMetadata.getConfiguration().getDate());
-           configuration.append(ShootingConfigurationDAO.DB_FIELDS_DATE, dateImage);
-           Timestamp timestamp = new Timestamp(new Date().getTime());
-           configuration.append(ShootingConfigurationDAO.DB_FIELDS_TIMESTAMP, timestamp.getTime());
-           configuration.append(ShootingConfigurationDAO.DB_FIELDS_SENSOR_POSITION, imageMetadata.getConfiguration().getPosition());
-           configuration.append(ShootingConfigurationDAO.DB_FIELDS_SENSOR, imageMetadata.getConfiguration().getSensor());
-           metadata.append(DB_FIELDS_SHOOTING_CONFIGURATION, configuration);
-           
-           // FileInformations (Storage)
-           Document storage = new Document();
-           storage.append(FileInformationDAO.DB_FIELDS_EXTENSION, imageMetadata.getFileInformations().getExtension());
-           storage.append(FileInformationDAO.DB_FIELDS_MD5SUM, imageMetadata.getFileInformations().getChecksum());
-           storage.append(FileInformationDAO.DB_FIELDS_SERVER_FILE_PATH, imageMetadata.getFileInformations().getServerFilePath());
-           metadata.append(DB_FIELDS_STORAGE, storage);
-           
-           LOGGER.debug("MongoDB insert : " + metadata.toJson());
-           imagesCollection.insertOne(metadata);
-           createdResourcesUris.add(imageMetadata.getUri());
-       }
-       
-       insertStatus.add(new Status(StatusCodeMsg.RESOURCES_CREATED, StatusCodeMsg.INFO, StatusCodeMsg.DATA_INSERTED));;
-       result = new POSTResultsReturn(Boolean.TRUE, Boolean.TRUE, Boolean.TRUE);
-       result.setHttpStatus(Response.Status.CREATED);
-       result.statusList = insertStatus;
-       result.createdResources = createdResourcesUris;
-       
-       return result;
+        // 1. Prepare all the documents before starting the transaction
+        List<Document> metadataDocuments = new ArrayList<>();
+        for (ImageMetadata imageMetadata : imagesMetadata) {
+            try {
+                metadataDocuments.add(imageMetadataToDocument(imageMetadata));
+            } catch (IllegalArgumentException ex) {
+                throw new ParseException("Wrong shooting date given : " + imageMetadata.getConfiguration().getDate(), 0);
+            }
+            createdResourcesUris.add(imageMetadata.getUri());
+        }
+        
+        if (metadataDocuments.isEmpty()) {
+            result = new POSTResultsReturn(Boolean.TRUE, Boolean.TRUE, Boolean.TRUE);
+            result.statusList = insertStatus;
+            return result;
+        }
+        
+        // 2. Insert the documents
+        MongoClient client = MongoDAO.getMongoClient();
+        try (ClientSession session = client.startSession()) {
+            session.startTransaction();
+            try {
+                LOGGER.debug("MongoDB insert of " + metadataDocuments.size() + " images metadata");
+                imagesCollection.insertMany(session, metadataDocuments);
+                session.commitTransaction();
+                
+                insertStatus.add(new Status(StatusCodeMsg.RESOURCES_CREATED, StatusCodeMsg.INFO, StatusCodeMsg.DATA_INSERTED));
+                result = new POSTResultsReturn(Boolean.TRUE, Boolean.TRUE, Boolean.TRUE);
+                result.setHttpStatus(Response.Status.CREATED);
+                result.createdResources = createdResourcesUris;
+            } catch (MongoException ex) {
+                session.abortTransaction();
+                
+                // Add status according to the error type (duplication or unexpected)
+                if (ex.getCode() == MongoDAO.DUPLICATE_KEY_ERROR_CODE
+                        || (ex instanceof MongoBulkWriteException 
+                            && ((MongoBulkWriteException) ex).getWriteErrors().stream()
+                                .anyMatch(error -> error.getCode() == MongoDAO.DUPLICATE_KEY_ERROR_CODE))) {
+                    insertStatus.add(new Status(StatusCodeMsg.ALREADY_EXISTING_DATA, StatusCodeMsg.ERR, ex.getMessage()));
+                    result = new POSTResultsReturn(Boolean.FALSE, Boolean.TRUE, Boolean.FALSE);
+                    result.setHttpStatus(Response.Status.CONFLICT);
+                } else {
+                    insertStatus.add(new Status(StatusCodeMsg.UNEXPECTED_ERROR, StatusCodeMsg.ERR, 
+                            StatusCodeMsg.DATA_REJECTED + " - " + ex.getMessage()));
+                    result = new POSTResultsReturn(Boolean.FALSE, Boolean.TRUE, Boolean.FALSE);
+                    result.setHttpStatus(Response.Status.INTERNAL_SERVER_ERROR);
+                }
+            }
+        }
+        
+        result.statusList = insertStatus;
+        return result;
     }
 
     @Override
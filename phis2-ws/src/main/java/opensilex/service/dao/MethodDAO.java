@@ -48,6 +48,7 @@ import opensilex.service.utils.sparql.SPARQLQueryBuilder;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.model.Method;
 import opensilex.service.model.OntologyReference;
+import opensilex.service.utils.ModificationCounter;
 import static org.apache.jena.arq.querybuilder.AbstractQueryBuilder.makeVar;
 import org.apache.jena.arq.querybuilder.ExprFactory;
 import org.apache.jena.arq.querybuilder.SelectBuilder;
@@ -333,7 +334,9 @@ public class MethodDAO extends Rdf4jDAO<Method> {
     public POSTResultsReturn checkAndInsert(List<MethodDTO> methodsDTO) {
         POSTResultsReturn checkResult = check(methodsDTO);
         if (checkResult.getDataState()) {
-            return insert(methodsDTO);
+            POSTResultsReturn writeResult = insert(methodsDTO);
+            ModificationCounter.increment(ModificationCounter.Scope.VARIABLES);
+            return writeResult;
         } else { // the data is incorrect
             return checkResult;
         }
@@ -518,7 +521,9 @@ public class MethodDAO extends Rdf4jDAO<Method> {
     public POSTResultsReturn checkAndUpdate(List<MethodDTO> methodsDTO) {
         POSTResultsReturn checkResult = check(methodsDTO);
         if (checkResult.getDataState()) {
-            return updateAndReturnPOSTResultsReturn(methodsDTO);
+            POSTResultsReturn writeResult = updateAndReturnPOSTResultsReturn(methodsDTO);
+            ModificationCounter.increment(ModificationCounter.Scope.VARIABLES);
+            return writeResult;
         } else { // unvalid data
             return checkResult;
         }
@@ -8,9 +8,14 @@
 package opensilex.service.dao;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
 import opensilex.service.dao.exception.DAODataErrorException;
@@ -40,9 +45,11 @@ import opensilex.service.ontology.Rdf;
 import opensilex.service.ontology.Rdfs;
 import opensilex.service.ontology.Skos;
 import opensilex.service.ontology.Oeso;
+import opensilex.service.ontology.Xsd;
 import opensilex.service.resource.dto.rdfResourceDefinition.PropertyPostDTO;
 import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
+import opensilex.service.utils.sparql.SPARQLQueryTemplate;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.model.Cardinality;
 import opensilex.service.model.RdfResourceDefinition;
@@ -78,19 +85,16 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
     private String relation;
     
     // Domain label used to query Triplestore.
-    private final String DOMAIN = "domain";
+    private final static String DOMAIN = "domain";
     
     // Range label used to query Triplestore.
-    private final String RANGE = "range";
+    private final static String RANGE = "range";
     
     // Cardinality between a property and a concept, used to query the Triplestore.
-    private final String CARDINALITY = "cardinality";
+    private final static String CARDINALITY = "cardinality";
     
     // Restriction between a property and a concept, used to query the Triplestore.
-    private final String RESTRICTION = "restriction";
-    
-    // Blank node, used to query the Triplestore.
-    private final String BLANCK_NODE = "_:x";
+    private final static String RESTRICTION = "restriction";
     
     // A property used to query the Triplestore.
     protected final String PROPERTY = "property";
@@ -98,8 +102,14 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
     // Count result used to query the Triplestore (count properties).
     private final String COUNT = "count";
     
+    // Object of the counted properties, used to query the Triplestore.
+    private final String OBJECT = "object";
+    
+    // Cardinalities of the relations, by concept.
+    private final static ConcurrentHashMap<String, HashMap<String, ArrayList<Cardinality>>> CARDINALITIES_BY_CONCEPT = new ConcurrentHashMap<>();
+    
     // Relation, used to query the Triplestore (cardinalities).
-    protected final String RELATION = "relation";
+    protected final static String RELATION = "relation";
     
     protected final String PROPERTY_TYPE = "propertyType";
     protected final String RELATION_LABEL = "relationLabel";    
@@ -109,6 +119,89 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
     protected final String PROPERTY_PREF_LABEL = "propertyPrefLabel";    
     protected final String PROPERTY_TYPE_PREF_LABEL = "propertyTypePrefLabel";   
 
+    // Concept of the cardinalities, used to query the Triplestore.
+    private final static String CONCEPT = "concept";
+
+    // Path from a relation to each class of its domain or range, union classes included.
+    private final static String UNION_OF_PATH = "/(<" + Owl.RELATION_UNION_OF.toString() + ">"
+            + "/<" + Rdf.RELATION_REST.toString() + ">*/<" + Rdf.RELATION_FIRST.toString() + ">)*";
+
+    // Restrictions giving a cardinality, on ?restrictionNode.
+    private final static String CARDINALITY_RESTRICTION = ""
+            + "  ?restrictionNode <" + Rdf.RELATION_TYPE.toString() + "> <" + Owl.CONCEPT_RESTRICTION.toString() + "> .\n"
+            + "  ?restrictionNode <" + Owl.RELATION_ON_PROPERTY.toString() + "> ?" + RELATION + " .\n"
+            + "  ?restrictionNode ?" + RESTRICTION + " ?_" + CARDINALITY + " .\n"
+            + "  BIND(<" + Xsd.NAMESPACE.toString() + "integer>(?_" + CARDINALITY + ") AS ?" + CARDINALITY + ")\n"
+            + "  FILTER (?" + RESTRICTION + " IN ("
+            + "<" + Owl.RELATION_CARDINALITY.toString() + ">, "
+            + "<" + Owl.RELATION_MIN_CARDINALITY.toString() + ">, "
+            + "<" + Owl.RELATION_MAX_CARDINALITY.toString() + ">, "
+            + "<" + Owl.RELATION_QUALIFIED_CARDINALITY.toString() + ">))\n";
+
+    /**
+     * Domain of ?relation.
+     * @example
+     * SELECT ?domain
+     * WHERE {
+     *      <http://www.opensilex.org/vocabulary/oeso#wavelength> rdfs:domain ?domain
+     * }
+     */
+    private final static SPARQLQueryTemplate GET_DOMAIN_QUERY = new SPARQLQueryTemplate(
+            "SELECT ?" + DOMAIN + " WHERE {\n"
+            + "  ?" + RELATION + " <" + Rdfs.RELATION_DOMAIN.toString() + ">" + UNION_OF_PATH + " ?" + DOMAIN + "\n"
+            + "}");
+
+    /**
+     * Range of ?relation.
+     * @example
+     * SELECT ?range
+     * WHERE {
+     *      <http://www.opensilex.org/vocabulary/oeso#wavelength> rdfs:range ?range
+     * }
+     */
+    private final static SPARQLQueryTemplate GET_RANGE_QUERY = new SPARQLQueryTemplate(
+            "SELECT ?" + RANGE + " WHERE {\n"
+            + "  ?" + RELATION + " <" + Rdfs.RELATION_RANGE.toString() + ">" + UNION_OF_PATH + " ?" + RANGE + "\n"
+            + "}");
+
+    /**
+     * Cardinalities of ?relation for each concept.
+     * @example
+     * SELECT ?rdfType ?cardinality ?restriction
+     * WHERE {
+     *      ?rdfType rdfs:subClassOf ?restrictionNode .
+     *      ?restrictionNode rdf:type owl:Restriction .
+     *      ?restrictionNode owl:onProperty <http://www.opensilex.org/vocabulary/oeso#wavelength> .
+     *      ?restrictionNode ?restriction ?_cardinality .
+     *      BIND(xsd:integer(?_cardinality) AS ?cardinality)
+     *      FILTER (?restriction IN (owl:cardinality, owl:minCardinality, owl:maxCardinality, owl:qualifiedCardinality))
+     * }
+     */
+    private final static SPARQLQueryTemplate GET_CARDINALITIES_QUERY = new SPARQLQueryTemplate(
+            "SELECT ?" + RDF_TYPE + " ?" + CARDINALITY + " ?" + RESTRICTION + " WHERE {\n"
+            + "  ?" + RDF_TYPE + " <" + Rdfs.RELATION_SUBCLASS_OF.toString() + "> ?restrictionNode .\n"
+            + CARDINALITY_RESTRICTION
+            + "}");
+
+    /**
+     * Cardinalities of each relation of ?concept.
+     * @example
+     * SELECT ?relation ?cardinality ?restriction
+     * WHERE {
+     *      <http://www.opensilex.org/vocabulary/oeso#TIRCamera> rdfs:subClassOf ?restrictionNode .
+     *      ?restrictionNode rdf:type owl:Restriction .
+     *      ?restrictionNode owl:onProperty ?relation .
+     *      ?restrictionNode ?restriction ?_cardinality .
+     *      BIND(xsd:integer(?_cardinality) AS ?cardinality)
+     *      FILTER (?restriction IN (owl:cardinality, owl:minCardinality, owl:maxCardinality, owl:qualifiedCardinality))
+     * }
+     */
+    private final static SPARQLQueryTemplate GET_CARDINALITIES_BY_CONCEPT_QUERY = new SPARQLQueryTemplate(
+            "SELECT ?" + RELATION + " ?" + CARDINALITY + " ?" + RESTRICTION + " WHERE {\n"
+            + "  ?" + CONCEPT + " <" + Rdfs.RELATION_SUBCLASS_OF.toString() + "> ?restrictionNode .\n"
+            + CARDINALITY_RESTRICTION
+            + "}");
+
     public PropertyDAO(SPARQLService sparql) {
         super(sparql);
     }
@@ -147,53 +240,6 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
         return query;
     }
     
-    /**
-     * Prepares the SPARQL query to get the domain of a relation.
-     * @return the built query
-     * @example
-     * SELECT ?domain
-     * WHERE {
-     *      <http://www.opensilex.org/vocabulary/oeso#wavelength> rdfs:domain ?domain
-     * }
-     */
-    private SPARQLQueryBuilder prepareGetDomainQuery(String relationUri) {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendSelect("?" + DOMAIN);
-        query.appendTriplet(
-                relationUri, 
-                "<" + Rdfs.RELATION_DOMAIN.toString() + "> /( <" + Owl.RELATION_UNION_OF.toString() + "> "
-                    + "/ <" + Rdf.RELATION_REST.toString() + ">*/ <" + Rdf.RELATION_FIRST.toString() + ">)*" ,
-                "?" + DOMAIN, null);
-        
-        LOGGER.debug(SPARQL_QUERY + " " + query.toString());
-        
-        return query;
-    }
-    
-    /**
-     * Prepares the SPARQL query to get the domain of a relation.
-     * @return the built query
-     * @example
-     * SELECT ?domain
-     * WHERE {
-     *      <http://www.opensilex.org/vocabulary/oeso#wavelength> rdfs:domain ?domain
-     * }
-     */
-    private SPARQLQueryBuilder prepareGetRangeQuery(String relationUri) {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendSelect("?" + RANGE);
-        query.appendTriplet(
-                relationUri, 
-                "<" + Rdfs.RELATION_RANGE.toString() + "> /( <" + Owl.RELATION_UNION_OF.toString() + "> "
-                    + "/ <" + Rdf.RELATION_REST.toString() + ">*/ <" + Rdf.RELATION_FIRST.toString() + ">)*" , 
-                "?" + RANGE, 
-                null);
-        
-        LOGGER.debug(SPARQL_QUERY + " " + query.toString());
-        
-        return query;
-    }
-    
     /**
      * Gets in the Triplestore the domain of the property if it exists.
      * @param relationUri
@@ -201,10 +247,10 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
      * @throws opensilex.service.dao.exception.DAOPersistenceException
      */
     public ArrayList<String> getPropertyDomain(String relationUri) throws DAOPersistenceException {
-        SPARQLQueryBuilder query = prepareGetDomainQuery(relationUri);
         ArrayList<String> propertyDomains = new ArrayList<>();
         
-        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(GET_DOMAIN_QUERY);
+        tupleQuery.setBinding(RELATION, SPARQLQueryTemplate.uri(relationUri));
         try (TupleQueryResult result = tupleQuery.evaluate()) {
             while (result.hasNext()) {
                 BindingSet bindingSet = result.next();
@@ -224,10 +270,10 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
      * @throws opensilex.service.dao.exception.DAOPersistenceException
      */
     public ArrayList<String> getPropertyRange(String relationUri) throws DAOPersistenceException {
-        SPARQLQueryBuilder query = prepareGetRangeQuery(relationUri);
         ArrayList<String> propertyRangeList = new ArrayList<>();
         
-        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(GET_RANGE_QUERY);
+        tupleQuery.setBinding(RELATION, SPARQLQueryTemplate.uri(relationUri));
         try (TupleQueryResult result = tupleQuery.evaluate()) {
             while (result.hasNext()) {
                 BindingSet bindingSet = result.next();
@@ -301,69 +347,6 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
         return isRdfTypeCompatible;
     }
    
-    /**
-     * Generates a query to get the cardinalities of a relation for a given type.
-     * @param rdfType
-     * @return 
-     */
-    private SPARQLQueryBuilder prepareGetCardinality(String relationUri) {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendSelect("?" + RDF_TYPE + " ?" + CARDINALITY + " ?" + RESTRICTION);
-        
-        query.appendTriplet(BLANCK_NODE, Rdf.RELATION_TYPE.toString(), Owl.CONCEPT_RESTRICTION.toString(), null);
-        query.appendTriplet(BLANCK_NODE, Owl.RELATION_ON_PROPERTY.toString(), relationUri, null);
-        query.appendTriplet(BLANCK_NODE, "?" + RESTRICTION, "?_" + CARDINALITY, null);
-        query.appendTriplet("?" + RDF_TYPE, Rdfs.RELATION_SUBCLASS_OF.toString(), "_:x", null);
-        
-        query.appendFilter("?" + RESTRICTION + " IN (" 
-                                    + "<" + Owl.RELATION_CARDINALITY.toString() + ">, " 
-                                    + "<" + Owl.RELATION_MIN_CARDINALITY.toString() + ">, " 
-                                    + "<" + Owl.RELATION_MAX_CARDINALITY.toString() + ">, "
-                                    + "<" + Owl.RELATION_QUALIFIED_CARDINALITY.toString() + ">)");
-        query.appendToBody("bind( xsd:integer(?_" + CARDINALITY + ") as ?" + CARDINALITY + ")");
-        
-        LOGGER.debug(SPARQL_QUERY + query.toString());
-        return query;
-    }
-    
-    /**
-     * Generates a query to get the cardinalities required for each property for a given concept.
-     * @param concept
-     * @return the query
-     * @example 
-     * SELECT ?relation ?cardinality ?restriction 
-     * WHERE {
-     *      _:x  rdf:type  owl:Restriction  . 
-     *      _:x  owl:onProperty  ?relation  . 
-     *      _:x  ?restriction  ?_cardinality  . 
-     *      <http://www.opensilex.org/vocabulary/oeso#TIRCamera>  rdfs:subClassOf  _:x  . 
-     *      bind( xsd:integer(?_cardinality) as ?cardinality) .
-     *      FILTER ( ?restriction IN (<http://www.w3.org/2002/07/owl#cardinality>, 
-     *                                <http://www.w3.org/2002/07/owl#minCardinality>, 
-     *                                <http://www.w3.org/2002/07/owl#maxCardinality>, 
-     *                                <http://www.w3.org/2002/07/owl#qualifiedCardinality>) ) 
-     * }
-     */
-    private SPARQLQueryBuilder prepareGetPropertiesCardinalitiesByConcept(String concept) {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendSelect("?" + RELATION + " ?" + CARDINALITY + " ?" + RESTRICTION);
-        
-        query.appendTriplet(BLANCK_NODE, Rdf.RELATION_TYPE.toString(), Owl.CONCEPT_RESTRICTION.toString(), null);
-        query.appendTriplet(BLANCK_NODE, Owl.RELATION_ON_PROPERTY.toString(), "?" + RELATION, null);
-        query.appendTriplet(BLANCK_NODE, "?" + RESTRICTION, "?_" + CARDINALITY, null);
-        query.appendTriplet(concept, Rdfs.RELATION_SUBCLASS_OF.toString(), "_:x", null);
-        
-        query.appendFilter("?" + RESTRICTION + " IN (" 
-                                    + "<" + Owl.RELATION_CARDINALITY.toString() + ">, " 
-                                    + "<" + Owl.RELATION_MIN_CARDINALITY.toString() + ">, " 
-                                    + "<" + Owl.RELATION_MAX_CARDINALITY.toString() + ">, "
-                                    + "<" + Owl.RELATION_QUALIFIED_CARDINALITY.toString() + ">)");
-        query.appendToBody("bind( xsd:integer(?_" + CARDINALITY + ") as ?" + CARDINALITY + ")");
-        
-        LOGGER.debug(SPARQL_QUERY + query.toString());
-        return query;
-    }
-    
     /**
      * Gets the cardinalities of a relation for each concerned concept.
      * @return the list of the cardinalities found in the Triplestore
@@ -374,10 +357,10 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
      * "owl:maxCardinality" : 5
      */
     public HashMap<String, Cardinality> getCardinalities(String relationUri) {
-        SPARQLQueryBuilder query = prepareGetCardinality(relationUri);
         HashMap<String, Cardinality> cardinalities = new HashMap<>();
         
-        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(GET_CARDINALITIES_QUERY);
+        tupleQuery.setBinding(RELATION, SPARQLQueryTemplate.uri(relationUri));
         try (TupleQueryResult result = tupleQuery.evaluate()) {
             while (result.hasNext()) {
                 BindingSet bindingSet = result.next();
@@ -400,6 +383,8 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
     
     /**
      * Gets the cardinalities of each relations for a concept.
+     * The cardinalities are read once for each concept, then kept in cache
+     * until {@link #clearCardinalitiesCache()}.
      * @param concept
      * @return the list of the cardinalities found in the Triplestore
      * @example of content: 
@@ -408,10 +393,33 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
      * "vocabulary:wavelength" : ["owl:minCardinality" : 1, "owl:maxCardinality" : 6]
      */
     public HashMap<String, ArrayList<Cardinality>> getCardinalitiesForConcept(String concept) {
-       SPARQLQueryBuilder query = prepareGetPropertiesCardinalitiesByConcept(concept);
+        HashMap<String, ArrayList<Cardinality>> cardinalities = CARDINALITIES_BY_CONCEPT.get(concept);
+        if (cardinalities == null) {
+            cardinalities = findCardinalitiesForConcept(concept);
+            CARDINALITIES_BY_CONCEPT.putIfAbsent(concept, cardinalities);
+        }
+        return new HashMap<>(cardinalities);
+    }
+
+    /**
+     * Clears the cached cardinalities of the concepts, e.g. after an ontology
+     * update.
+     */
+    public static void clearCardinalitiesCache() {
+        CARDINALITIES_BY_CONCEPT.clear();
+    }
+
+    /**
+     * Reads the cardinalities of each relations for a concept in the Triplestore.
+     * @param concept
+     * @return the list of the cardinalities found in the Triplestore
+     * @see #getCardinalitiesForConcept(java.lang.String)
+     */
+    private HashMap<String, ArrayList<Cardinality>> findCardinalitiesForConcept(String concept) {
         HashMap<String, ArrayList<Cardinality>> cardinalities = new HashMap<>();
         
-        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(GET_CARDINALITIES_BY_CONCEPT_QUERY);
+        tupleQuery.setBinding(CONCEPT, SPARQLQueryTemplate.uri(concept));
         try (TupleQueryResult result = tupleQuery.evaluate()) {
             while (result.hasNext()) {
                 BindingSet bindingSet = result.next();
@@ -440,28 +448,72 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
     }
     
     /**
-     * Generates a query to get the number of the property "relation" for the given object URI.
-     * @param objectUri
+     * Generates a query to get the number of values of each given relation,
+     * for each given object URI.
+     * @param objectsUris
+     * @param relationsUris
      * @return the query
      * @example
-     * SELECT DISTINCT (count(distinct ?property) as ?count) 
+     * SELECT ?object ?relation (count(distinct ?property) as ?count) 
      * WHERE {
-     *  <http://www.phenome-fppn.fr/diaphen/2018/s18523>  <http://www.opensilex.org/vocabulary/oeso#hasLens>  ?property. 
+     *  VALUES ?object { <http://www.phenome-fppn.fr/diaphen/2018/s18523> <http://www.phenome-fppn.fr/diaphen/2018/s18524> } 
+     *  VALUES ?relation { <http://www.opensilex.org/vocabulary/oeso#hasLens> <http://www.opensilex.org/vocabulary/oeso#wavelength> } 
+     *  ?object ?relation ?property . 
      * }
+     * GROUP BY ?object ?relation
      */
-    private SPARQLQueryBuilder prepareGetProperties(String objectUri, String relationUri) {
+    private SPARQLQueryBuilder prepareCountProperties(Collection<String> objectsUris, Collection<String> relationsUris) {
         SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendDistinct(Boolean.TRUE);
+        query.appendSelect("?" + OBJECT + " ?" + RELATION + " (count(distinct ?" + PROPERTY + ") as ?" + COUNT + ")");
         
-        query.appendSelect("(count(distinct ?" + PROPERTY + ") as ?" + COUNT + ")");
+        StringBuilder objectsValues = new StringBuilder("VALUES ?" + OBJECT + " {");
+        objectsUris.forEach(objectUri -> objectsValues.append(" <").append(objectUri).append(">"));
+        query.appendToBody(objectsValues.append(" } ").toString());
+        StringBuilder relationsValues = new StringBuilder("VALUES ?" + RELATION + " {");
+        relationsUris.forEach(relationUri -> relationsValues.append(" <").append(relationUri).append(">"));
+        query.appendToBody(relationsValues.append(" } ").toString());
         
-        query.appendTriplet("<" + objectUri + ">", "<" + relationUri + ">", "?" + PROPERTY, null);
+        query.appendTriplet("?" + OBJECT, "?" + RELATION, "?" + PROPERTY, null);
+        query.appendGroupBy("?" + OBJECT + " ?" + RELATION);
         
         LOGGER.debug(SPARQL_QUERY + " " + query.toString());
         
         return query;
     }
     
+    /**
+     * Gets the number of values of each given relation for each given object, 
+     * with a single query.
+     * @param objectsUris
+     * @param relationsUris
+     * @return the number of values by relation, by object. The relations 
+     * without value are not in the result.
+     * @example
+     * {
+     *  "http://www.phenome-fppn.fr/diaphen/2018/s18523": {
+     *      "http://www.opensilex.org/vocabulary/oeso#wavelength": 2
+     *  }
+     * }
+     */
+    public HashMap<String, HashMap<String, Integer>> countProperties(Collection<String> objectsUris, Collection<String> relationsUris) {
+        HashMap<String, HashMap<String, Integer>> numbersOfValues = new HashMap<>();
+        if (objectsUris.isEmpty() || relationsUris.isEmpty()) {
+            return numbersOfValues;
+        }
+        
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(prepareCountProperties(objectsUris, relationsUris));
+        try (TupleQueryResult result = tupleQuery.evaluate()) {
+            while (result.hasNext()) {
+                BindingSet bindingSet = result.next();
+                numbersOfValues
+                        .computeIfAbsent(bindingSet.getValue(OBJECT).stringValue(), objectUri -> new HashMap<>())
+                        .put(bindingSet.getValue(RELATION).stringValue(), Integer.parseInt(bindingSet.getValue(COUNT).stringValue()));
+            }
+        }
+        
+        return numbersOfValues;
+    }
+    
     /**
      * Sorts the given properties by relation.
      * @param properties
@@ -529,7 +581,7 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
                             checkStatus.add(new Status(
                                     StatusCodeMsg.DATA_ERROR, 
                                     StatusCodeMsg.ERR, 
-                                    StatusCodeMsg.BAD_CARDINALITY + " " + "too many " + relation));
+                                    StatusCodeMsg.BAD_CARDINALITY + " " + "too many " + entry.getKey()));
                         }
                     } else if (cardinality.getRdfType().equals(Owl.RELATION_QUALIFIED_CARDINALITY.toString())) {
                         if (!numberOfRelations.containsKey(entry.getKey())) { //missing property
@@ -606,54 +658,73 @@ public class PropertyDAO extends Rdf4jDAO<Property> {
     /**
      * Checks the cardinalities of properties for a given object URI.
      * @param properties
-     * @param objectUri
+     * @param objectUri null if the object does not exist yet
      * @param objectRdfType
      * @return 
      */
     public POSTResultsReturn checkCardinalities(ArrayList<PropertyPostDTO> properties, String objectUri, String objectRdfType) {        
-        POSTResultsReturn check;
-        //list of the returned results
-        List<Status> checkStatus = new ArrayList<>();
-        boolean dataOk = true;
-        HashMap<String, ArrayList<PropertyPostDTO>> propertiesByRelation = orderPropertiesByRelation(properties);
+        HashMap<String, Integer> existingValues = new HashMap<>();
+        if (objectUri != null) {
+            HashMap<String, ArrayList<PropertyPostDTO>> propertiesByRelation = orderPropertiesByRelation(properties);
+            existingValues = countProperties(Arrays.asList(objectUri), propertiesByRelation.keySet())
+                    .getOrDefault(objectUri, existingValues);
+        }
         
-        HashMap<String, ArrayList<Cardinality>> cardinalities = getCardinalitiesForConcept(objectRdfType);
-        HashMap<String, Integer> numberOfRelations = new HashMap<>();
+        return checkCardinalities(properties, existingValues, getCardinalitiesForConcept(objectRdfType));
+    }
+    
+    /**
+     * Checks the cardinalities of properties for several existing objects. The 
+     * existing values of all the objects are counted with a single query.
+     * @param propertiesByObject new properties, by object URI
+     * @param rdfTypesByObject type, by object URI
+     * @return the result with the list of the founded errors (empty if no errors)
+     */
+    public POSTResultsReturn checkCardinalities(Map<String, ArrayList<PropertyPostDTO>> propertiesByObject, Map<String, String> rdfTypesByObject) {
+        Set<String> relations = new HashSet<>();
+        propertiesByObject.values().forEach(properties -> 
+                properties.forEach(property -> relations.add(property.getRelation())));
+        HashMap<String, HashMap<String, Integer>> existingValuesByObject = countProperties(propertiesByObject.keySet(), relations);
         
-        for (Map.Entry<String, ArrayList<PropertyPostDTO>> pair : propertiesByRelation.entrySet()) {
-            //1. get the number of values already existing for the property
-            //SILEX:refactor
-            //some database calls must be avoided 
-            //(e.g if there is a few wavelength associated, one call is necessary)
-            //\SILEX:refactor
-            int numberValues = 0;
-            if (objectUri != null) {
-                SPARQLQueryBuilder query = prepareGetProperties(objectUri, relation);
-                TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
-                try (TupleQueryResult result = tupleQuery.evaluate()) {
-                    BindingSet bindingSet = result.next();
-                    numberValues = Integer.parseInt(bindingSet.getValue(COUNT).stringValue());
-                }
+        boolean dataOk = true;
+        List<Status> checkStatus = new ArrayList<>();
+        for (Map.Entry<String, ArrayList<PropertyPostDTO>> objectProperties : propertiesByObject.entrySet()) {
+            POSTResultsReturn objectCheck = checkCardinalities(
+                    objectProperties.getValue(), 
+                    existingValuesByObject.getOrDefault(objectProperties.getKey(), new HashMap<>()), 
+                    getCardinalitiesForConcept(rdfTypesByObject.get(objectProperties.getKey())));
+            if (!objectCheck.getDataState()) {
+                dataOk = false;
+                checkStatus.addAll(objectCheck.getStatusList());
             }
-            
-            //2. get the total number of values for the property if the new properties are inserted
-            int nbProp = numberValues + pair.getValue().size();
-            numberOfRelations.put(pair.getKey(), nbProp);
         }
         
-        // check all the cardinalities 
-        POSTResultsReturn checkPropertyCardinality = checkPropertyCardinality(numberOfRelations, cardinalities);
-        if (!checkPropertyCardinality.getDataState()) {
-            dataOk = false;
-            checkStatus.addAll(checkPropertyCardinality.getStatusList());
-        }
-        
-        check = new POSTResultsReturn(dataOk, null, dataOk);
+        POSTResultsReturn check = new POSTResultsReturn(dataOk, null, dataOk);
         check.statusList = checkStatus;
-        
         return check;
     }
     
+    /**
+     * Checks the cardinalities of properties, given the number of values 
+     * already existing for each relation.
+     * @param properties
+     * @param existingValues number of existing values, by relation
+     * @param cardinalities expected cardinalities, by relation
+     * @return 
+     */
+    private POSTResultsReturn checkCardinalities(ArrayList<PropertyPostDTO> properties, 
+            HashMap<String, Integer> existingValues, 
+            HashMap<String, ArrayList<Cardinality>> cardinalities) {
+        //get the total number of values for each property if the new properties are inserted
+        HashMap<String, Integer> numberOfRelations = new HashMap<>();
+        for (Map.Entry<String, ArrayList<PropertyPostDTO>> pair : orderPropertiesByRelation(properties).entrySet()) {
+            int numberValues = existingValues.getOrDefault(pair.getKey(), 0);
+            numberOfRelations.put(pair.getKey(), numberValues + pair.getValue().size());
+        }
+        
+        return checkPropertyCardinality(numberOfRelations, cardinalities);
+    }
+    
     /**
      * Prepares the query to get the list of properties and their 
      * relations to the given URI with labels (skos:prefered and rdfs:label). 
@@ -7,6 +7,28 @@
 //******************************************************************************
 package opensilex.service.dao;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
@@ -14,37 +36,376 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import opensilex.service.PropertiesFileManager;
+import org.glassfish.jersey.client.ClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * RDAO
- * Interact with an OpenCPUServer 
+ * Interact with an OpenCPUServer
+ * The calls are executed asynchronously by a bounded pool shared by all the
+ * requests, with a single HTTP client. When the cache is enabled, the results
+ * of the successful calls are kept in cache for the same package, function and
+ * parameters, and identical simultaneous calls are only sent once.
+ * A call which has not ended after the timeout, waiting time included, fails
+ * and is withdrawn from the pool.
  * @author Arnaud Charleroy <arnaud.charleroy@inra.fr>
  */
 public class RDAO {
-    static {
-        OPENCPU_HOST = PropertiesFileManager.getConfigFileProperty("data_analysis_config", "opencpu.host");
+
+    final static Logger LOGGER = LoggerFactory.getLogger(RDAO.class);
+
+    private final static String PROPS_FILE_NAME = "data_analysis_config";
+
+    /**
+     * Maximum number of calls waiting for a free slot. Next calls are rejected.
+     */
+    final static int MAX_WAITING_CALLS = 100;
+
+    /**
+     * Result of an R function call.
+     */
+    public static class RFunctionResult {
+
+        private final int status;
+        private final String body;
+
+        public RFunctionResult(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        /**
+         * @return the HTTP status returned by OpenCPU
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the json result or the error message returned by OpenCPU
+         */
+        public String getBody() {
+            return body;
+        }
+
+        public boolean isSuccessful() {
+            return status == Response.Status.CREATED.getStatusCode();
+        }
+    }
+
+    /**
+     * Cached result with its expiration time.
+     */
+    private static class CachedResult {
+
+        private final RFunctionResult result;
+        private final long expirationTime;
+
+        CachedResult(RFunctionResult result, long expirationTime) {
+            this.result = result;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    /**
+     * Components shared by all the RDAO instances, initialized at the first
+     * use from the configuration.
+     */
+    private static class SharedInstanceHolder {
+
+        private final static RDAO SHARED_INSTANCE = new RDAO(
+                PropertiesFileManager.getConfigFileProperty(PROPS_FILE_NAME, "opencpu.host"),
+                getIntProperty("opencpu.timeout", 60),
+                getIntProperty("opencpu.maxConcurrentCalls", 4),
+                getIntProperty("opencpu.cacheSize", 0),
+                getIntProperty("opencpu.cacheTime", 600));
     }
+
     /**
      * OpenCPU server address
      */
-    private final static String OPENCPU_HOST;
-    
+    private final String opencpuHost;
+
+    private final Client client;
+    private final ThreadPoolExecutor executor;
+    /**
+     * Cancels the calls not ended after the timeout.
+     */
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+    private final int timeout;
+    private final int cacheSize;
+    private final long cacheTime;
+    private final Map<String, CachedResult> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<RFunctionResult>> runningCalls;
+    /**
+     * True if the components are the shared ones, which must not be closed.
+     */
+    private final boolean sharedComponents;
+
+    /**
+     * Uses the shared client, pool and cache, configured from the data
+     * analysis configuration.
+     */
     public RDAO() {
+        this(SharedInstanceHolder.SHARED_INSTANCE);
+    }
+
+    private RDAO(RDAO sharedInstance) {
+        this.opencpuHost = sharedInstance.opencpuHost;
+        this.client = sharedInstance.client;
+        this.executor = sharedInstance.executor;
+        this.timeoutScheduler = sharedInstance.timeoutScheduler;
+        this.timeout = sharedInstance.timeout;
+        this.cacheSize = sharedInstance.cacheSize;
+        this.cacheTime = sharedInstance.cacheTime;
+        this.cache = sharedInstance.cache;
+        this.runningCalls = sharedInstance.runningCalls;
+        this.sharedComponents = true;
+    }
+
+    /**
+     * Creates a RDAO with its own client, pool and cache.
+     * @param opencpuHost OpenCPU server address
+     * @param timeout connection, read and whole call timeout in seconds
+     * @param maxConcurrentCalls maximum number of simultaneous calls
+     * @param cacheSize maximum number of results in cache, 0 to disable the cache
+     * @param cacheTime time to keep a result in cache, in seconds
+     */
+    public RDAO(String opencpuHost, int timeout, int maxConcurrentCalls, int cacheSize, int cacheTime) {
+        this.opencpuHost = opencpuHost;
+        this.timeout = timeout;
+        this.cacheSize = cacheSize;
+        this.cacheTime = TimeUnit.SECONDS.toMillis(cacheTime);
+        this.runningCalls = new ConcurrentHashMap<>();
+        this.sharedComponents = false;
+
+        int timeoutMillis = (int) TimeUnit.SECONDS.toMillis(timeout);
+        this.client = ClientBuilder.newClient()
+                .property(ClientProperties.CONNECT_TIMEOUT, timeoutMillis)
+                .property(ClientProperties.READ_TIMEOUT, timeoutMillis);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                maxConcurrentCalls, maxConcurrentCalls,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_WAITING_CALLS),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "opencpu-call-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.timeoutScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "opencpu-call-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeoutScheduler.setRemoveOnCancelPolicy(true);
+
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > RDAO.this.cacheSize;
+            }
+        });
+    }
+
+    /**
+     * @return the calls timeout in seconds
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Call a statistical function from R with OpenCPU and retrieve json data result
+     * The call is executed asynchronously. If the maximum number of waiting
+     * calls is reached, the returned future fails with a
+     * {@link RejectedExecutionException}. If the call has not ended after the
+     * timeout, the returned future fails with a {@link TimeoutException}.
+     * @param packageName name of the R package
+     * @param functionName name of the function
+     * @param parameters list of the function parameters
+     * @return the future result
+     */
+    public CompletableFuture<RFunctionResult> opencpuRFunctionCall(String packageName, String functionName, String parameters) {
+        if (cacheSize <= 0) {
+            return submitCall(packageName, functionName, parameters);
+        }
+
+        String cacheKey = getCacheKey(packageName, functionName, parameters);
+        CachedResult cachedResult = cache.get(cacheKey);
+        if (cachedResult != null) {
+            if (cachedResult.expirationTime > System.currentTimeMillis()) {
+                return CompletableFuture.completedFuture(cachedResult.result);
+            }
+            cache.remove(cacheKey);
+        }
+
+        // Identical simultaneous calls share the same execution
+        CompletableFuture<RFunctionResult> call = runningCalls.computeIfAbsent(cacheKey, key ->
+                submitCall(packageName, functionName, parameters));
+        call.whenComplete((result, error) -> {
+            // Runs once the call has ended: an identical call arriving between
+            // the end of the call and the removal below still gets the ended
+            // call, and one arriving after the removal gets the cached result,
+            // or sends a new call if the result has not been cached
+            if (result != null && result.isSuccessful()) {
+                cache.put(cacheKey, new CachedResult(result, System.currentTimeMillis() + cacheTime));
+            }
+            runningCalls.remove(cacheKey, call);
+        });
+        return call;
+    }
+
+    /**
+     * @param error the failure of a call
+     * @return true if the call has been rejected because too many calls are
+     * waiting
+     */
+    public static boolean isRejected(Throwable error) {
+        // The dependent stages of a call fail with a CompletionException
+        if (error instanceof CompletionException || error instanceof ExecutionException) {
+            error = error.getCause();
+        }
+        return error instanceof RejectedExecutionException;
+    }
+
+    /**
+     * @param error the failure of a call
+     * @return true if the call has not ended after the timeout
+     */
+    public static boolean isTimedOut(Throwable error) {
+        if (error instanceof CompletionException || error instanceof ExecutionException) {
+            error = error.getCause();
+        }
+        return error instanceof TimeoutException;
     }
-    
+
     /**
-     * Call a statistical function from R with OpenCPU and retrieve json data result 
+     * Submits a call to the pool. The call not ended after the timeout is
+     * removed from the waiting queue, or interrupted if running, so it doesn't
+     * keep its slot.
+     * @param packageName
+     * @param functionName
+     * @param parameters
+     * @return the future result
+     */
+    private CompletableFuture<RFunctionResult> submitCall(String packageName, String functionName, String parameters) {
+        CompletableFuture<RFunctionResult> call = new CompletableFuture<>();
+        Future<?> execution;
+        try {
+            execution = executor.submit(() -> {
+                try {
+                    call.complete(opencpuRFunctionProxyCall(packageName, functionName, parameters));
+                } catch (RuntimeException ex) {
+                    call.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("Too many OpenCPU calls waiting, call of " + packageName + "::" + functionName + " rejected");
+            call.completeExceptionally(ex);
+            return call;
+        }
+
+        ScheduledFuture<?> timeoutTask = timeoutScheduler.schedule(() -> {
+            if (call.completeExceptionally(new TimeoutException("No result from "
+                    + packageName + "::" + functionName + " after " + timeout + " seconds"))) {
+                execution.cancel(true);
+                executor.purge();
+            }
+        }, timeout, TimeUnit.SECONDS);
+        call.whenComplete((result, error) -> timeoutTask.cancel(false));
+        return call;
+    }
+
+    /**
+     * Call a statistical function from R with OpenCPU and retrieve json data
+     * result, in the calling thread.
      * @param packageName name of the R package
      * @param functionName name of the function
      * @param parameters list of the function parameters
-     * @return json object
+     * @return the result
      */
-    public Response opencpuRFunctionProxyCall(String packageName, String functionName, String parameters){
-        Client client = ClientBuilder.newClient();
-        WebTarget webTarget = client.target(OPENCPU_HOST);
+    private RFunctionResult opencpuRFunctionProxyCall(String packageName, String functionName, String parameters) {
+        WebTarget webTarget = client.target(opencpuHost);
         WebTarget opencpuCallWebTarget = webTarget.path("/ocpu/library/" + packageName + "/R/" + functionName + "/json")
                 .queryParam("auto_unbox", "TRUE");
-        return  opencpuCallWebTarget.request(MediaType.APPLICATION_JSON).post(Entity.json(parameters));
+        Response response = opencpuCallWebTarget.request(MediaType.APPLICATION_JSON).post(Entity.json(parameters));
+        try {
+            return new RFunctionResult(response.getStatus(), response.readEntity(String.class));
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Gets the cache key of a call. The json parameters are canonicalised
+     * (objects keys sorted, no spaces), so equivalent parameters share the
+     * same cache entry.
+     * @param packageName
+     * @param functionName
+     * @param parameters
+     * @return the cache key
+     * @example stats/median/{"na.rm":true,"x":[1,2,3]}
+     */
+    static String getCacheKey(String packageName, String functionName, String parameters) {
+        String canonicalParameters;
+        if (parameters == null) {
+            canonicalParameters = "";
+        } else {
+            try {
+                canonicalParameters = canonicalize(new JsonParser().parse(parameters)).toString();
+            } catch (JsonSyntaxException ex) {
+                canonicalParameters = parameters.trim();
+            }
+        }
+        return packageName + "/" + functionName + "/" + canonicalParameters;
+    }
+
+    /**
+     * @param element
+     * @return a copy of the json element with sorted objects keys
+     */
+    private static JsonElement canonicalize(JsonElement element) {
+        if (element.isJsonObject()) {
+            TreeMap<String, JsonElement> sortedMembers = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                sortedMembers.put(member.getKey(), canonicalize(member.getValue()));
+            }
+            JsonObject sortedObject = new JsonObject();
+            sortedMembers.forEach(sortedObject::add);
+            return sortedObject;
+        } else if (element.isJsonArray()) {
+            JsonArray array = new JsonArray();
+            for (JsonElement arrayElement : element.getAsJsonArray()) {
+                array.add(canonicalize(arrayElement));
+            }
+            return array;
+        }
+        return element;
+    }
+
+    /**
+     * Releases the client and the pool of a RDAO created with its own
+     * components.
+     */
+    public void close() {
+        if (!sharedComponents) {
+            executor.shutdown();
+            timeoutScheduler.shutdownNow();
+            client.close();
+        }
+    }
+
+    private static int getIntProperty(String prop, int defaultValue) {
+        try {
+            return Integer.parseInt(PropertiesFileManager.getConfigFileProperty(PROPS_FILE_NAME, prop));
+        } catch (NumberFormatException ex) {
+            LOGGER.info("Can't parse " + prop + " property, default value is " + defaultValue);
+            return defaultValue;
+        }
     }
-    
 }
@@ -36,6 +36,7 @@ import opensilex.service.ontology.Contexts;
 import opensilex.service.ontology.Rdf;
 import opensilex.service.ontology.Rdfs;
 import opensilex.service.ontology.Oeso;
+import opensilex.service.utils.ModificationCounter;
 import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.utils.UriGenerator;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
@@ -347,7 +348,9 @@ public class RadiometricTargetDAO extends Rdf4jDAO<RadiometricTarget> {
     public POSTResultsReturn checkAndInsert(List<RadiometricTarget> radiometricTargets) throws DAOPersistenceException {
         POSTResultsReturn checkResult = check(radiometricTargets);
         if (checkResult.getDataState()) {
-            return insert(radiometricTargets);
+            POSTResultsReturn writeResult = insert(radiometricTargets);
+            ModificationCounter.increment(ModificationCounter.Scope.DEVICES);
+            return writeResult;
         } else { //errors found in data
             return checkResult;
         }
@@ -554,7 +557,9 @@ public class RadiometricTargetDAO extends Rdf4jDAO<RadiometricTarget> {
     public POSTResultsReturn checkAndUpdate(List<RadiometricTarget> radiometricTargets) throws DAOPersistenceException {
         POSTResultsReturn checkResult = check(radiometricTargets);
         if (checkResult.getDataState()) {
-            return updateAndReturnPOSTResultsReturn(radiometricTargets);
+            POSTResultsReturn writeResult = updateAndReturnPOSTResultsReturn(radiometricTargets);
+            ModificationCounter.increment(ModificationCounter.Scope.DEVICES);
+            return writeResult;
         } else { //errors found in data
             return checkResult;
         }
@@ -7,37 +7,160 @@ package opensilex.service.dao;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOptions;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import opensilex.service.dao.manager.MongoDAO;
 import opensilex.service.model.ScientificObject;
 import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonType;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- *
+ * Scientific objects geometries storage.
+ * The geometries are stored as GeoJSON objects, with a 2dsphere index, so the
+ * scientific objects can be searched by their position: objects intersecting
+ * a geometry (e.g. a drone image footprint), objects within a polygon, or
+ * objects near a point.
  * @author vmigot
  */
 public class ScientificObjectMongoDAO {
 
+    final static Logger LOGGER = LoggerFactory.getLogger(ScientificObjectMongoDAO.class);
+
     private final static String SO_COLLECTION = "scientificObjects";
     private final static String URI_FIELD = "uri";
     private final static String GEOMETRY_FIELD = "geometry";
     private final static String RDF_TYPE_FIELD = "rdfType";
     private final static String GRAPH_FIELD = "graph";
-    
+    private final static String DISTANCE_FIELD = "distance";
+    private final static String COUNT_FIELD = "count";
+
+    // True once the geometries conversion and the indexes creation have been started
+    private final static AtomicBoolean COLLECTION_PREPARED = new AtomicBoolean(false);
+    // True while the geometries are converted and the indexes created
+    private static volatile boolean collectionBeingPrepared = false;
+
+    /**
+     * Delay before a new geometry search while the collection is being
+     * prepared, in seconds.
+     */
+    public final static int PREPARATION_RETRY_AFTER = 60;
+
+    /**
+     * Spatial relations between the scientific objects geometries and a
+     * searched geometry.
+     */
+    public enum SpatialRelation {
+        /**
+         * Objects intersecting the geometry.
+         */
+        INTERSECTS,
+        /**
+         * Objects within the geometry, which must be a polygon.
+         */
+        WITHIN,
+        /**
+         * Objects near the geometry (its centroid if it is not a point),
+         * sorted by distance.
+         */
+        NEAR
+    }
+
     private MongoDatabase db;
-    
+    private MongoCollection<Document> collection;
+
     public ScientificObjectMongoDAO() {
         db = MongoDAO.getStaticDataBase();
+        collection = db.getCollection(SO_COLLECTION);
+        prepareCollectionInBackground();
+    }
+
+    /**
+     * Converts the previous geometries and creates the indexes in background,
+     * once: at the start of the web service, or at the creation of the first
+     * DAO if it comes first. An error is logged and not retried, e.g. an
+     * invalid geometry of a previous version would make it fail each time.
+     */
+    public static void prepareCollectionInBackground() {
+        if (COLLECTION_PREPARED.compareAndSet(false, true)) {
+            collectionBeingPrepared = true;
+            Thread thread = new Thread(() -> {
+                try {
+                    prepareCollection(MongoDAO.getStaticDataBase().getCollection(SO_COLLECTION));
+                } catch (Exception ex) {
+                    LOGGER.error("Scientific objects geometries indexes creation error : " + ex.getMessage(), ex);
+                } finally {
+                    collectionBeingPrepared = false;
+                }
+            }, "scientific-objects-indexes");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * @return true while the geometries are converted and the indexes
+     * created: the geometry searches would miss the geometries not converted
+     * yet, and the NEAR searches need the 2dsphere index
+     */
+    public static boolean isCollectionBeingPrepared() {
+        return collectionBeingPrepared;
+    }
+
+    /**
+     * Creates the indexes if they don't exist: geometry (2dsphere), URI and
+     * experiment then type. The geometries stored as GeoJSON strings by the
+     * previous versions are converted to GeoJSON objects first, as the
+     * 2dsphere index only accepts objects.
+     * @param collection
+     */
+    private static void prepareCollection(MongoCollection<Document> collection) {
+        convertStringGeometries(collection);
+        collection.createIndex(Indexes.geo2dsphere(GEOMETRY_FIELD), new IndexOptions().background(true));
+        collection.createIndex(Indexes.ascending(URI_FIELD), new IndexOptions().background(true));
+        collection.createIndex(Indexes.ascending(GRAPH_FIELD, RDF_TYPE_FIELD), new IndexOptions().background(true));
     }
-    
+
+    /**
+     * Converts the geometries stored as GeoJSON strings to GeoJSON objects.
+     * @param collection
+     */
+    private static void convertStringGeometries(MongoCollection<Document> collection) {
+        int converted = 0;
+        try (MongoCursor<Document> cursor = collection.find(Filters.type(GEOMETRY_FIELD, BsonType.STRING)).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                Document geometry = Document.parse(document.getString(GEOMETRY_FIELD));
+                geometry.remove("crs");
+                collection.updateOne(Filters.eq("_id", document.get("_id")), new Document("$set", new Document(GEOMETRY_FIELD, geometry)));
+                converted++;
+            }
+        }
+        if (converted > 0) {
+            LOGGER.info(converted + " scientific objects geometries converted to GeoJSON objects");
+        }
+    }
+
     public void checkAndInsertListAO(ArrayList<ScientificObject> scientificObjects) throws ParseException {
         ArrayList<Document> documents = new ArrayList<>();
         for (ScientificObject so : scientificObjects) {
@@ -50,52 +173,225 @@ public class ScientificObjectMongoDAO {
             document.append(RDF_TYPE_FIELD, so.getRdfType());
             document.append(GRAPH_FIELD, so.getExperiment());
             document.append(GEOMETRY_FIELD, convertWktToGeoJson(so.getGeometry()));
-            
+
             documents.add(document);
         };
 
         if(! documents.isEmpty()){
-            db.getCollection(SO_COLLECTION).insertMany(documents);
+            collection.insertMany(documents);
+        }
+    }
+
+    /**
+     * Deletes the geometries of the given scientific objects.
+     * @param scientificObjectsUris
+     */
+    public void deleteGeometries(Collection<String> scientificObjectsUris) {
+        if (!scientificObjectsUris.isEmpty()) {
+            collection.deleteMany(Filters.in(URI_FIELD, scientificObjectsUris));
         }
     }
 
     /**
      * Return a map of geometry indexed by Scientific Object URI
      * @param scientificObjectsUris
-     * @return 
+     * @return the GeoJSON geometries
      */
     public HashMap<String, String> getGeometries(ArrayList<String> scientificObjectsUris) {
-        FindIterable<Document> soGeom = db.getCollection(SO_COLLECTION).find(new Document(URI_FIELD, new BasicDBObject("$in", scientificObjectsUris)));
+        FindIterable<Document> soGeom = collection.find(new Document(URI_FIELD, new BasicDBObject("$in", scientificObjectsUris)));
         HashMap<String, String> geometries = new HashMap<>();
-        MongoCursor<Document> soIterator = soGeom.iterator();
-        while (soIterator.hasNext()) {
-            Document doc = soIterator.next();
-            geometries.put(doc.get(URI_FIELD).toString(), doc.get(GEOMETRY_FIELD).toString());
+        try (MongoCursor<Document> soIterator = soGeom.iterator()) {
+            while (soIterator.hasNext()) {
+                Document doc = soIterator.next();
+                geometries.put(doc.get(URI_FIELD).toString(), getGeoJson(doc));
+            }
         }
-        
+
         return geometries;
     }
 
     public boolean existInDB(ScientificObject scientificObjectToSearchInDB) {
-        long count = db.getCollection(SO_COLLECTION).countDocuments(new Document(URI_FIELD, scientificObjectToSearchInDB.getUri()));
+        long count = collection.countDocuments(new Document(URI_FIELD, scientificObjectToSearchInDB.getUri()));
         return (count > 0);
     }
 
+    /**
+     * Replaces the geometry of a scientific object.
+     * @param uri
+     * @param wkt
+     * @param rdfType
+     * @param experiment
+     * @throws ParseException if the WKT geometry is malformed
+     */
     public void updateOneGeometry(String uri, String wkt, String rdfType, String experiment) throws ParseException {
         Document document = new Document();
         document.append(URI_FIELD, uri);
         document.append(RDF_TYPE_FIELD, rdfType);
         document.append(GRAPH_FIELD, experiment);
         document.append(GEOMETRY_FIELD, convertWktToGeoJson(wkt));
-        
-        db.getCollection(SO_COLLECTION).insertOne(document);
+
+        collection.replaceOne(Filters.eq(URI_FIELD, uri), document, new ReplaceOptions().upsert(true));
+    }
+
+    /**
+     * Searches the scientific objects by their geometry.
+     * @param relation spatial relation between the objects and the geometry
+     * @param wkt searched geometry
+     * @param maxDistance maximum distance in meters, only for NEAR, null for no limit
+     * @param experiment experiment of the objects, null for all
+     * @param rdfType type of the objects, null for all
+     * @param page
+     * @param pageSize
+     * @return the page of scientific objects, with their URI, type,
+     * experiment and GeoJSON geometry
+     * @throws ParseException if the WKT geometry is malformed
+     * @throws IllegalArgumentException if the geometry can't be used with the relation
+     */
+    public ArrayList<ScientificObject> searchByGeometry(SpatialRelation relation, String wkt, Double maxDistance,
+            String experiment, String rdfType, int page, int pageSize) throws ParseException {
+        Geometry geometry = readGeometry(relation, wkt);
+        MongoCursor<Document> cursor;
+        if (relation == SpatialRelation.NEAR) {
+            List<Bson> pipeline = new ArrayList<>(prepareNearPipeline(geometry, maxDistance, experiment, rdfType));
+            pipeline.add(new Document("$skip", page * pageSize));
+            pipeline.add(new Document("$limit", pageSize));
+            LOGGER.debug("Scientific objects near search : " + pipeline.toString());
+            cursor = collection.aggregate(pipeline).batchSize(pageSize).iterator();
+        } else {
+            Bson filter = prepareSpatialFilter(relation, geometry, experiment, rdfType);
+            LOGGER.debug("Scientific objects spatial search : " + filter.toString());
+            cursor = collection.find(filter)
+                    .sort(Indexes.ascending(URI_FIELD))
+                    .skip(page * pageSize)
+                    .limit(pageSize)
+                    .batchSize(pageSize)
+                    .iterator();
+        }
+
+        ArrayList<ScientificObject> scientificObjects = new ArrayList<>();
+        try {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                ScientificObject scientificObject = new ScientificObject();
+                scientificObject.setUri(document.getString(URI_FIELD));
+                scientificObject.setRdfType(document.getString(RDF_TYPE_FIELD));
+                scientificObject.setExperiment(document.getString(GRAPH_FIELD));
+                scientificObject.setGeometry(getGeoJson(document));
+                scientificObjects.add(scientificObject);
+            }
+        } finally {
+            cursor.close();
+        }
+        return scientificObjects;
+    }
+
+    /**
+     * Counts the scientific objects found by
+     * {@link #searchByGeometry(SpatialRelation, String, Double, String, String, int, int)}.
+     * @param relation
+     * @param wkt
+     * @param maxDistance
+     * @param experiment
+     * @param rdfType
+     * @return the number of scientific objects
+     * @throws ParseException if the WKT geometry is malformed
+     */
+    public long countByGeometry(SpatialRelation relation, String wkt, Double maxDistance, String experiment, String rdfType) throws ParseException {
+        Geometry geometry = readGeometry(relation, wkt);
+        if (relation == SpatialRelation.NEAR) {
+            // $nearSphere can't be counted, the $geoNear stage can
+            List<Bson> pipeline = new ArrayList<>(prepareNearPipeline(geometry, maxDistance, experiment, rdfType));
+            pipeline.add(new Document("$count", COUNT_FIELD));
+            Document result = collection.aggregate(pipeline).first();
+            return result == null ? 0 : ((Number) result.get(COUNT_FIELD)).longValue();
+        }
+        return collection.countDocuments(prepareSpatialFilter(relation, geometry, experiment, rdfType));
+    }
+
+    private static Geometry readGeometry(SpatialRelation relation, String wkt) throws ParseException {
+        Geometry geometry = new WKTReader().read(wkt);
+        if (relation == SpatialRelation.WITHIN && !(geometry instanceof Polygon || geometry instanceof MultiPolygon)) {
+            throw new IllegalArgumentException("A polygon is expected to search the objects within a geometry");
+        }
+        if (relation == SpatialRelation.NEAR && !"Point".equals(geometry.getGeometryType())) {
+            geometry = geometry.getCentroid();
+        }
+        return geometry;
+    }
+
+    private static Bson prepareSpatialFilter(SpatialRelation relation, Geometry geometry, String experiment, String rdfType) {
+        List<Bson> filters = prepareObjectsFilters(experiment, rdfType);
+        Document geoJson = toGeoJson(geometry);
+        if (relation == SpatialRelation.WITHIN) {
+            filters.add(Filters.geoWithin(GEOMETRY_FIELD, geoJson));
+        } else {
+            filters.add(Filters.geoIntersects(GEOMETRY_FIELD, geoJson));
+        }
+        return Filters.and(filters);
+    }
+
+    /**
+     * Prepares the $geoNear stage, which must be the first stage of the
+     * pipeline.
+     * @param point
+     * @param maxDistance
+     * @param experiment
+     * @param rdfType
+     * @return the pipeline
+     */
+    private static List<Bson> prepareNearPipeline(Geometry point, Double maxDistance, String experiment, String rdfType) {
+        List<Bson> filters = prepareObjectsFilters(experiment, rdfType);
+        Document geoNear = new Document("near", toGeoJson(point))
+                .append("distanceField", DISTANCE_FIELD)
+                .append("spherical", true);
+        if (maxDistance != null) {
+            geoNear.append("maxDistance", maxDistance);
+        }
+        if (!filters.isEmpty()) {
+            geoNear.append("query", Filters.and(filters));
+        }
+        return Arrays.asList(new Document("$geoNear", geoNear));
+    }
+
+    private static List<Bson> prepareObjectsFilters(String experiment, String rdfType) {
+        List<Bson> filters = new ArrayList<>();
+        if (experiment != null) {
+            filters.add(Filters.eq(GRAPH_FIELD, experiment));
+        }
+        if (rdfType != null) {
+            filters.add(Filters.eq(RDF_TYPE_FIELD, rdfType));
+        }
+        return filters;
     }
-    
-    private static String convertWktToGeoJson(String wkt) throws ParseException {
+
+    /**
+     * @param document scientific object document
+     * @return the GeoJSON geometry of the document
+     */
+    private static String getGeoJson(Document document) {
+        Object geometry = document.get(GEOMETRY_FIELD);
+        if (geometry instanceof Document) {
+            return ((Document) geometry).toJson();
+        }
+        return geometry == null ? null : geometry.toString();
+    }
+
+    /**
+     * Converts a WKT geometry to a GeoJSON document.
+     * @param wkt
+     * @return the GeoJSON document
+     * @throws ParseException
+     */
+    static Document convertWktToGeoJson(String wkt) throws ParseException {
         WKTReader reader = new WKTReader();
         Geometry parsedGeometry = reader.read(wkt);
+        return toGeoJson(parsedGeometry);
+    }
+
+    private static Document toGeoJson(Geometry geometry) {
         GeoJsonWriter writer = new GeoJsonWriter();
-        return writer.write(parsedGeometry);
+        // MongoDB only accepts the default coordinates reference system
+        writer.setEncodeCRS(false);
+        return Document.parse(writer.write(geometry));
     }
-    
 }
@@ -13,11 +13,15 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
 import org.apache.jena.arq.querybuilder.UpdateBuilder;
@@ -49,6 +53,7 @@ import opensilex.service.ontology.Oeso;
 import opensilex.service.resource.dto.LayerDTO;
 import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.utils.ResourcesUtils;
+import opensilex.service.utils.BulkCreationProgress;
 import opensilex.service.utils.UriGenerator;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
 import opensilex.service.view.brapi.Status;
@@ -82,6 +87,14 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
 
     final static Logger LOGGER = LoggerFactory.getLogger(ScientificObjectRdf4jDAO.class);
 
+    private final static String SCIENTIFIC_OBJECTS_SEQUENCE_PREFIX = "scientificObjects-";
+
+    /**
+     * Number of scientific objects inserted by each update query of a
+     * creation, to stay under the triplestore update limits.
+     */
+    private final static int CREATION_CHUNK_SIZE = 500;
+
     //The following attributes are used to search scientific objects in the triplestore
     private final String EXPERIMENT = "experiment";
     private final String ALIAS = "alias";
@@ -571,6 +584,92 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
         return properties;
     }
 
+    /**
+     * Gets the properties of the given scientific objects of an experiment,
+     * in one query.
+     *
+     * @param uris
+     * @param experiment graph of the objects, may be null
+     * @return the properties by scientific object URI
+     * @example SELECT ?uri ?relation ?property ?propertyType WHERE { VALUES ?uri {
+     * <http://www.opensilex.org/opensilex/2019/o19000115> }
+     * ?uri ?relation ?property .
+     * OPTIONAL {?property <http://www.w3.org/1999/02/22-rdf-syntax-ns#type>
+     * ?propertyType } }
+     */
+    public HashMap<String, ArrayList<Property>> findScientificObjectsProperties(Collection<String> uris, String experiment) {
+        HashMap<String, ArrayList<Property>> propertiesByUri = new HashMap<>();
+        if (uris.isEmpty()) {
+            return propertiesByUri;
+        }
+        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
+        query.appendGraph(experiment);
+        query.appendSelect("?" + URI + " ?" + RELATION + " ?" + PROPERTY + " ?" + PROPERTY_TYPE);
+        StringBuilder values = new StringBuilder("VALUES ?" + URI + " {");
+        for (String uri : uris) {
+            values.append(" <").append(uri).append(">");
+        }
+        query.appendToBody(values.append(" } ").toString());
+        query.appendTriplet("?" + URI, "?" + RELATION, "?" + PROPERTY, null);
+        query.appendOptional("?" + PROPERTY + " <" + Rdf.RELATION_TYPE.toString() + "> ?" + PROPERTY_TYPE);
+        LOGGER.debug(SPARQL_QUERY + query.toString());
+
+        // Each property value is kept once by object, as by findScientificObjectProperties
+        HashMap<String, Set<String>> foundProperties = new HashMap<>();
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(query);
+        try (TupleQueryResult result = tupleQuery.evaluate()) {
+            while (result.hasNext()) {
+                BindingSet bindingSet = result.next();
+                String uri = bindingSet.getValue(URI).stringValue();
+                String value = bindingSet.getValue(PROPERTY).stringValue();
+                if (foundProperties.computeIfAbsent(uri, key -> new HashSet<>()).add(value)) {
+                    Property property = new Property();
+                    property.setRelation(bindingSet.getValue(RELATION).stringValue());
+                    property.setValue(value);
+                    if (bindingSet.getValue(PROPERTY_TYPE) != null) {
+                        property.setRdfType(bindingSet.getValue(PROPERTY_TYPE).stringValue());
+                    }
+                    propertiesByUri.computeIfAbsent(uri, key -> new ArrayList<>()).add(property);
+                }
+            }
+        }
+        return propertiesByUri;
+    }
+
+    /**
+     * Gets the labels of the given scientific objects, in one query.
+     *
+     * @param uris
+     * @return the labels by scientific object URI
+     * @example SELECT ?uri ?alias WHERE { VALUES ?uri {
+     * <http://www.opensilex.org/opensilex/2019/o19000115> }
+     * ?uri <http://www.w3.org/2000/01/rdf-schema#label> ?alias . }
+     */
+    public HashMap<String, String> findLabels(Collection<String> uris) {
+        HashMap<String, String> labels = new HashMap<>();
+        if (uris.isEmpty()) {
+            return labels;
+        }
+        SPARQLQueryBuilder sparqlQuery = new SPARQLQueryBuilder();
+        sparqlQuery.appendSelect("?" + URI + " ?" + ALIAS);
+        StringBuilder values = new StringBuilder("VALUES ?" + URI + " {");
+        for (String uri : uris) {
+            values.append(" <").append(uri).append(">");
+        }
+        sparqlQuery.appendToBody(values.append(" } ").toString());
+        sparqlQuery.appendTriplet("?" + URI, Rdfs.RELATION_LABEL.toString(), "?" + ALIAS, null);
+        LOGGER.debug(SPARQL_QUERY + sparqlQuery.toString());
+
+        TupleQuery tupleQuery = prepareRDF4JTupleQuery(sparqlQuery);
+        try (TupleQueryResult result = tupleQuery.evaluate()) {
+            while (result.hasNext()) {
+                BindingSet bindingSet = result.next();
+                labels.put(bindingSet.getValue(URI).stringValue(), bindingSet.getValue(ALIAS).stringValue());
+            }
+        }
+        return labels;
+    }
+
     /**
      * Find scientific objects by the given list of search params
      *
@@ -690,7 +789,7 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
             sparqlQuery.endBodyOptional();
         } else if (alias != null) {
             sparqlQuery.appendTriplet("?" + URI, Rdfs.RELATION_LABEL.toString(), "?" + ALIAS, null);
-            sparqlQuery.appendAndFilter("REGEX ( str(?" + ALIAS + "),\".*" + alias + ".*\",\"i\")");
+            appendLabelFilter(sparqlQuery, ALIAS, alias, rdfType != null ? rdfType : Oeso.CONCEPT_SCIENTIFIC_OBJECT.toString());
         }
 
         //Experiment filter
@@ -756,7 +855,7 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
             Integer year = Calendar.getInstance().get(Calendar.YEAR);
             //If the scientific object has no year, it is the current year.
             if (scientificObject.getYear() != null) {
-                year = Integer.getInteger(scientificObject.getYear());
+                year = Integer.valueOf(scientificObject.getYear());
             }
             ArrayList<ScientificObject> newScientificObjectList;
             //If no scientific object for the year have already been founded, add a new year in the map.
@@ -777,9 +876,7 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
      * Generates uris for the given scientific objects, per year.
      *
      * @param scientificObjecstSortedByYear
-     * @return the list of the scientific objects with their uris. SILEX:warning
-     * There are risks of collision due to insertion time for the generated
-     * URIs. \SILEX:warning
+     * @return the list of the scientific objects with their uris.
      */
     private ArrayList<ScientificObject> generateUrisByYear(HashMap<Integer, ArrayList<ScientificObject>> scientificObjecstSortedByYear) throws Exception {
         ArrayList<ScientificObject> scientificObjects = new ArrayList<>();
@@ -797,26 +894,83 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
         return scientificObjects;
     }
 
+    /**
+     * Reserves the ids of new scientific objects of a year. The ids are taken
+     * from the scientific objects sequence of the year, so concurrent requests
+     * never get the same ids.
+     * @param year
+     * @param count number of scientific objects
+     * @return the first reserved id. The reserved ids are
+     * [first, first + count - 1].
+     */
+    public long reserveScientificObjectIds(String year, int count) {
+        return new SequenceMongoDAO().reserve(
+                SCIENTIFIC_OBJECTS_SEQUENCE_PREFIX + year,
+                count,
+                () -> getLastScientificObjectIdFromYear(year));
+    }
+
+    /**
+     * Creates the given scientific objects. The objects are inserted by chunks
+     * of {@link #CREATION_CHUNK_SIZE} in a single transaction: if any chunk
+     * fails, none of the scientific objects is created.
+     * The progress of the creation is registered in {@link BulkCreationProgress}.
+     * @param scientificObjects
+     * @return the created scientific objects, with their URIs
+     * @throws Exception
+     */
     @Override
     public List<ScientificObject> create(List<ScientificObject> scientificObjects) throws Exception {
+        //1. Generate Uris For all the scientific objects, reserved at once for each year
+        ArrayList<ScientificObject> scientificObjectsReadyToInsert = generateUrisByYear(sortByYear(scientificObjects));
+        int total = scientificObjectsReadyToInsert.size();
 
-        boolean resultState = false; // To know if the data are ok and have been inserted.
-        boolean annotationInsert = true; // True if the insertion have been done.
+        BulkCreationProgress progress = BulkCreationProgress.start("scientific objects", user != null ? user.getEmail() : null, total);
+        ScientificObjectMongoDAO scientificObjectMongoDAO = new ScientificObjectMongoDAO();
+        try {
+            sparql.startTransaction();
+            for (int chunkStart = 0; chunkStart < total; chunkStart += CREATION_CHUNK_SIZE) {
+                List<ScientificObject> chunk = scientificObjectsReadyToInsert.subList(chunkStart, Math.min(total, chunkStart + CREATION_CHUNK_SIZE));
 
-        //1. Generate Uris For all the scientific objects
-        //SILEX:warning
-        //See the SILEX:warning about collisions of generateUrisByYear(scientificObjecstSortedByYear).
-        //\SILEX:warning
-        ArrayList<ScientificObject> scientificObjectsReadyToInsert = generateUrisByYear(sortByYear(scientificObjects));
+                //2. Register in triplestore
+                Update prepareUpdate = prepareRDF4JUpdateQuery(prepareInsertQuery(chunk));
+                LOGGER.debug(getTraceabilityLogs() + SPARQL_QUERY + prepareUpdate.toString());
+                prepareUpdate.execute();
 
-        final Iterator<ScientificObject> iteratorScientificObjects = scientificObjectsReadyToInsert.iterator();
+                //3. Insert the geometries in mongodb
+                scientificObjectMongoDAO.checkAndInsertListAO(new ArrayList<>(chunk));
 
-        //2. Register in triplestore
-        UpdateBuilder spql = new UpdateBuilder();
+                int created = progress.created(chunk.size());
+                LOGGER.info(getTraceabilityLogs() + created + "/" + total + " scientific objects created");
+            }
+            sparql.commitTransaction();
+        } catch (Exception ex) {
+            sparql.rollbackTransaction();
+            // The geometries are not in the triplestore transaction
+            ArrayList<String> uris = new ArrayList<>();
+            scientificObjectsReadyToInsert.forEach(scientificObject -> uris.add(scientificObject.getUri()));
+            scientificObjectMongoDAO.deleteGeometries(uris);
+            throw ex;
+        } finally {
+            progress.end();
+        }
 
-        while (iteratorScientificObjects.hasNext() && annotationInsert) {
-            ScientificObject scientificObject = iteratorScientificObjects.next();
+        ArrayList<String> createdUris = new ArrayList<>();
+        scientificObjectsReadyToInsert.forEach(scientificObject -> createdUris.add(scientificObject.getUri()));
+        updateLabelIndex(createdUris);
 
+        return scientificObjectsReadyToInsert;
+    }
+
+    /**
+     * Generates the insert query of the given scientific objects.
+     * @param scientificObjects scientific objects with their URIs
+     * @return the query
+     */
+    private UpdateRequest prepareInsertQuery(List<ScientificObject> scientificObjects) {
+        UpdateBuilder spql = new UpdateBuilder();
+
+        for (ScientificObject scientificObject : scientificObjects) {
             Resource scientificObjectUri = ResourceFactory.createResource(scientificObject.getUri());
             Node scientificObjectType = NodeFactory.createURI(scientificObject.getRdfType());
 
@@ -836,28 +990,18 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
 
             for (Property property : scientificObject.getProperties()) {
                 if (property.getRdfType() != null && !property.getRdfType().equals("")) {//Typed properties
+                    String propertyURI;
                     if (property.getRdfType().equals(Oeso.CONCEPT_VARIETY.toString())) {
-
-                        String propertyURI;
-                        try {
-                            propertyURI = UriGenerator.generateNewInstanceUri(sparql, Oeso.CONCEPT_VARIETY.toString(), null, property.getValue());
-                            Node propertyNode = NodeFactory.createURI(propertyURI);
-                            Node propertyType = NodeFactory.createURI(property.getRdfType());
-                            org.apache.jena.rdf.model.Property propertyRelation = ResourceFactory.createProperty(property.getRelation());
-
-                            spql.addInsert(graph, propertyNode, RDF.type, propertyType);
-                            spql.addInsert(graph, scientificObjectUri, propertyRelation, propertyNode);
-                        } catch (Exception ex) { //In the variety case, no exception should be raised
-                            annotationInsert = false;
-                        }
+                        propertyURI = UriGenerator.generateVarietyUri(property.getValue());
                     } else {
-                        Node propertyNode = NodeFactory.createURI(property.getValue());
-                        Node propertyType = NodeFactory.createURI(property.getRdfType());
-                        org.apache.jena.rdf.model.Property propertyRelation = ResourceFactory.createProperty(property.getRelation());
-
-                        spql.addInsert(graph, propertyNode, RDF.type, propertyType);
-                        spql.addInsert(graph, scientificObjectUri, propertyRelation, propertyNode);
+                        propertyURI = property.getValue();
                     }
+                    Node propertyNode = NodeFactory.createURI(propertyURI);
+                    Node propertyType = NodeFactory.createURI(property.getRdfType());
+                    org.apache.jena.rdf.model.Property propertyRelation = ResourceFactory.createProperty(property.getRelation());
+
+                    spql.addInsert(graph, propertyNode, RDF.type, propertyType);
+                    spql.addInsert(graph, scientificObjectUri, propertyRelation, propertyNode);
                 } else if (Oeso.RELATION_IS_PART_OF.toString().equals(property.getRelation())) {
                     continue; // Oeso:isPartOf relation will be handled just after
                 } else {
@@ -877,23 +1021,7 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
             }
         }
 
-        Update prepareUpdate = prepareRDF4JUpdateQuery(spql.buildRequest());
-        LOGGER.debug(getTraceabilityLogs() + SPARQL_QUERY + prepareUpdate.toString());
-        prepareUpdate.execute();
-
-        if (annotationInsert) {
-            resultState = true;
-
-            //3. insert in postgresql
-            ScientificObjectMongoDAO scientificObjectDAO = new ScientificObjectMongoDAO();
-            scientificObjectDAO.checkAndInsertListAO(scientificObjectsReadyToInsert);
-        }
-
-        if (resultState) {
-            return scientificObjectsReadyToInsert;
-        } else {
-            return new ArrayList<>();
-        }
+        return spql.buildRequest();
     }
 
     /**
@@ -1145,6 +1273,7 @@ public class ScientificObjectRdf4jDAO extends Rdf4jDAO<ScientificObject> {
         } catch (MalformedQueryException e) { //an error occurred, rollback
             throw new MalformedQueryException(e.getMessage());
         }
+        updateLabelIndex(Collections.singletonList(scientificObject.getUri()));
 
         return scientificObject;
     }
@@ -42,6 +42,7 @@ import opensilex.service.ontology.Contexts;
 import opensilex.service.ontology.Rdf;
 import opensilex.service.ontology.Rdfs;
 import opensilex.service.ontology.Oeso;
+import opensilex.service.utils.ModificationCounter;
 import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.utils.UriGenerator;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
@@ -246,7 +247,7 @@ public class SensorDAO extends Rdf4jDAO<Sensor> {
             query.endBodyOptional();
         } else {
             query.appendTriplet("?" + URI, Rdfs.RELATION_LABEL.toString(), "?" + LABEL, null);
-            query.appendAndFilter("REGEX ( str(?" + LABEL + "),\".*" + label + ".*\",\"i\")");
+            appendLabelFilter(query, LABEL, label, Oeso.CONCEPT_SENSING_DEVICE.toString());
         }
         
         //Brand filter
@@ -676,6 +677,7 @@ public class SensorDAO extends Rdf4jDAO<Sensor> {
             
             createdResourcesUri.add(sensor.getUri());
         }
+        updateLabelIndex(createdResourcesUri);
         
         if (annotationInsert) {
             resultState = true;
@@ -701,7 +703,9 @@ public class SensorDAO extends Rdf4jDAO<Sensor> {
     public POSTResultsReturn checkAndInsert(List<Sensor> sensors) {
         POSTResultsReturn checkResult = check(sensors);
         if (checkResult.getDataState()) {
-            return insert(sensors);
+            POSTResultsReturn writeResult = insert(sensors);
+            ModificationCounter.increment(ModificationCounter.Scope.DEVICES);
+            return writeResult;
         } else { //errors founded in data
             return checkResult;
         }
@@ -813,6 +817,7 @@ public class SensorDAO extends Rdf4jDAO<Sensor> {
                 updateStatus.add(new Status(StatusCodeMsg.UNKNOWN_URI, StatusCodeMsg.ERR, "Unknown sensor " + sensor.getUri()));
             }
         }
+        updateLabelIndex(updatedResourcesUri);
         
         if (annotationUpdate) {
             resultState = true;
@@ -839,7 +844,9 @@ public class SensorDAO extends Rdf4jDAO<Sensor> {
     public POSTResultsReturn checkAndUpdate(List<Sensor> sensors) throws Exception {
         POSTResultsReturn checkResult = check(sensors);
         if (checkResult.getDataState()) {
-            return updateAndReturnPOSTResultsReturn(sensors);
+            POSTResultsReturn writeResult = updateAndReturnPOSTResultsReturn(sensors);
+            ModificationCounter.increment(ModificationCounter.Scope.DEVICES);
+            return writeResult;
         } else { //errors founded in data
             return checkResult;
         }
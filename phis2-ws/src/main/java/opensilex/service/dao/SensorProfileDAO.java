@@ -8,7 +8,9 @@
 package opensilex.service.dao;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
 import org.apache.jena.arq.querybuilder.UpdateBuilder;
@@ -90,6 +92,8 @@ public class SensorProfileDAO extends Rdf4jDAO<SensorProfile> {
         //1. check if the user is an administrator
         UriDAO uriDao = new UriDAO(sparql);
         PropertyDAO propertyDAO = new PropertyDAO(sparql);
+        Map<String, ArrayList<PropertyPostDTO>> propertiesBySensor = new HashMap<>();
+        Map<String, String> rdfTypesBySensor = new HashMap<>();
         for (SensorProfileDTO sensorProfile : sensorProfiles) {
             //2. check if the given uri exist and is a sensor and keep the rdfType
             uriDao.uri = sensorProfile.getUri();
@@ -134,19 +138,23 @@ public class SensorProfileDAO extends Rdf4jDAO<SensorProfile> {
                     }
                 }
 
-                //4. check the properties cardinalities
-                POSTResultsReturn propertyCheckResult = propertyDAO.checkCardinalities(sensorProfile.getProperties(), sensorProfile.getUri(), rdfType);
-
-                if (!propertyCheckResult.getDataState()) {
-                    validData = false;
-                    checkStatus.addAll(propertyCheckResult.statusList);
-                }
+                //4. the properties cardinalities are checked after, for all the sensor profiles
+                //   (with all the profiles of a sensor given several times)
+                propertiesBySensor.computeIfAbsent(sensorProfile.getUri(), uri -> new ArrayList<>())
+                        .addAll(sensorProfile.getProperties());
+                rdfTypesBySensor.put(sensorProfile.getUri(), rdfType);
             } else {
                 validData = false;
                 checkStatus.add(new Status(StatusCodeMsg.DATA_ERROR, StatusCodeMsg.ERR, StatusCodeMsg.UNKNOWN_URI + " or bad uri type " + sensorProfile.getUri()));
             }             
         }
         
+        //4. check the properties cardinalities
+        POSTResultsReturn propertyCheckResult = propertyDAO.checkCardinalities(propertiesBySensor, rdfTypesBySensor);
+        if (!propertyCheckResult.getDataState()) {
+            validData = false;
+            checkStatus.addAll(propertyCheckResult.statusList);
+        }
             
         sensorProfilesCheck = new POSTResultsReturn(validData, null, validData);
         sensorProfilesCheck.statusList = checkStatus;
@@ -0,0 +1,90 @@
+//******************************************************************************
+//                            SequenceMongoDAO.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.dao;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import java.util.function.LongSupplier;
+import opensilex.service.dao.manager.MongoDAO;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent sequences stored in MongoDB, used to generate identifiers.
+ * Values are reserved with an atomic increment, so concurrent requests (even
+ * on several web service instances) never get the same value.
+ * A sequence is initialized once from the existing data, the first time it is
+ * used.
+ * @example
+ * {
+ *   "_id": "images-2020",
+ *   "value": 1532
+ * }
+ */
+public class SequenceMongoDAO {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(SequenceMongoDAO.class);
+
+    private final static String SEQUENCES_COLLECTION = "sequences";
+    private final static String DB_FIELD_VALUE = "value";
+
+    private final MongoCollection<Document> sequencesCollection;
+
+    public SequenceMongoDAO() {
+        sequencesCollection = MongoDAO.getStaticDataBase().getCollection(SEQUENCES_COLLECTION);
+    }
+
+    /**
+     * Reserves consecutive values of a sequence.
+     * @param sequenceName
+     * @param count number of values to reserve
+     * @param initialValue gives the last value already used in the existing
+     * data. Only called if the sequence does not exist yet.
+     * @return the first reserved value. The reserved values are
+     * [first, first + count - 1].
+     */
+    public long reserve(String sequenceName, long count, LongSupplier initialValue) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one value must be reserved");
+        }
+
+        Document filter = new Document(MongoDAO.DB_FIELD_ID, sequenceName);
+        if (sequencesCollection.countDocuments(filter) == 0) {
+            // $max keeps the initialization idempotent if several requests
+            // initialize the sequence at the same time
+            long lastUsedValue = initialValue.getAsLong();
+            sequencesCollection.updateOne(filter,
+                    Updates.max(DB_FIELD_VALUE, lastUsedValue),
+                    new UpdateOptions().upsert(true));
+            LOGGER.info("Sequence " + sequenceName + " initialized at " + lastUsedValue);
+        }
+
+        Document sequence = sequencesCollection.findOneAndUpdate(
+                Filters.eq(MongoDAO.DB_FIELD_ID, sequenceName),
+                Updates.inc(DB_FIELD_VALUE, count),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+
+        return ((Number) sequence.get(DB_FIELD_VALUE)).longValue() - count + 1;
+    }
+
+    /**
+     * Reserves the next value of a sequence.
+     * @param sequenceName
+     * @param initialValue
+     * @return the reserved value
+     * @see #reserve(java.lang.String, long, java.util.function.LongSupplier)
+     */
+    public long next(String sequenceName, LongSupplier initialValue) {
+        return reserve(sequenceName, 1, initialValue);
+    }
+}
@@ -30,6 +30,7 @@ import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.utils.UriGenerator;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
 import opensilex.service.view.brapi.Status;
+import opensilex.service.utils.ModificationCounter;
 import static org.apache.jena.arq.querybuilder.AbstractQueryBuilder.makeVar;
 import org.apache.jena.arq.querybuilder.ExprFactory;
 import org.apache.jena.arq.querybuilder.SelectBuilder;
@@ -503,7 +504,9 @@ public class TraitDAO extends Rdf4jDAO<Trait> {
     public POSTResultsReturn checkAndInsert(List<TraitDTO> traitsDTO) {
         POSTResultsReturn checkResult = check(traitsDTO);
         if (checkResult.getDataState()) {
-            return insert(traitsDTO);
+            POSTResultsReturn writeResult = insert(traitsDTO);
+            ModificationCounter.increment(ModificationCounter.Scope.VARIABLES);
+            return writeResult;
         } else { //Les données ne sont pas bonnes
             return checkResult;
         }
@@ -518,7 +521,9 @@ public class TraitDAO extends Rdf4jDAO<Trait> {
     public POSTResultsReturn checkAndUpdate(List<TraitDTO> traitsDTO) {
         POSTResultsReturn checkResult = check(traitsDTO);
         if (checkResult.getDataState()) {
-            return updateAndReturnPOSTResultsReturn(traitsDTO);
+            POSTResultsReturn writeResult = updateAndReturnPOSTResultsReturn(traitsDTO);
+            ModificationCounter.increment(ModificationCounter.Scope.VARIABLES);
+            return writeResult;
         } else { //Les données ne sont pas bonnes
             return checkResult;
         }
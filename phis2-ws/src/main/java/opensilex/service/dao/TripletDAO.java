@@ -10,10 +10,12 @@ package opensilex.service.dao;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import opensilex.service.dao.exception.DAODataErrorAggregateException;
 import opensilex.service.dao.exception.DAOPersistenceException;
@@ -39,6 +41,7 @@ import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.utils.UriGenerator;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.model.Triplet;
+import opensilex.service.utils.ModificationCounter;
 import org.opensilex.sparql.service.SPARQLService;
 
 /**
@@ -360,12 +363,34 @@ public class TripletDAO extends Rdf4jDAO<Triplet> {
     public POSTResultsReturn checkAndInsert(ArrayList<ArrayList<TripletDTO>> triplets, String graphUri) {
         POSTResultsReturn checkResults = check(triplets);
         if (checkResults.getDataState()) { //valid data
-            return insert(triplets, graphUri);
+            POSTResultsReturn writeResult = insert(triplets, graphUri);
+            updateLabelIndex(getLabeledResources(triplets));
+            ModificationCounter.increment(ModificationCounter.Scope.ONTOLOGY, ModificationCounter.Scope.VARIABLES,
+                    ModificationCounter.Scope.DEVICES);
+            return writeResult;
         } else { //errors founded
             return checkResults; 
         }
     }
 
+    /**
+     * @param triplets
+     * @return the subjects of the triplets changing a label or a type, whose
+     * labels index entries must be updated
+     */
+    private static Set<String> getLabeledResources(ArrayList<ArrayList<TripletDTO>> triplets) {
+        Set<String> labeledResources = new HashSet<>();
+        for (ArrayList<TripletDTO> tripletsGroup : triplets) {
+            for (TripletDTO triplet : tripletsGroup) {
+                if ((triplet.getP().equals(Rdfs.RELATION_LABEL.toString()) || triplet.getP().equals(Rdf.RELATION_TYPE.toString()))
+                        && !triplet.getS().equals(REQUEST_GENERATION_URI_STRING)) {
+                    labeledResources.add(triplet.getS());
+                }
+            }
+        }
+        return labeledResources;
+    }
+
     @Override
     public List<Triplet> create(List<Triplet> objects) throws DAOPersistenceException, Exception {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
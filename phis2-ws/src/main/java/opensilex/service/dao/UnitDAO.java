@@ -48,6 +48,7 @@ import opensilex.service.utils.sparql.SPARQLQueryBuilder;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.model.OntologyReference;
 import opensilex.service.model.Unit;
+import opensilex.service.utils.ModificationCounter;
 import static org.apache.jena.arq.querybuilder.AbstractQueryBuilder.makeVar;
 import org.apache.jena.arq.querybuilder.ExprFactory;
 import org.apache.jena.arq.querybuilder.SelectBuilder;
@@ -331,7 +332,9 @@ public class UnitDAO extends Rdf4jDAO<Unit> {
     public POSTResultsReturn checkAndInsert(List<UnitDTO> unitsDTO) {
         POSTResultsReturn checkResult = check(unitsDTO);
         if (checkResult.getDataState()) {
-            return insert(unitsDTO);
+            POSTResultsReturn writeResult = insert(unitsDTO);
+            ModificationCounter.increment(ModificationCounter.Scope.VARIABLES);
+            return writeResult;
         } else {
             return checkResult;
         }
@@ -527,7 +530,9 @@ public class UnitDAO extends Rdf4jDAO<Unit> {
     public POSTResultsReturn checkAndUpdate(List<UnitDTO> unitsDTO) {
         POSTResultsReturn checkResult = check(unitsDTO);
         if (checkResult.getDataState()) {
-            return updateAndReturnPOSTResultsReturn(unitsDTO);
+            POSTResultsReturn writeResult = updateAndReturnPOSTResultsReturn(unitsDTO);
+            ModificationCounter.increment(ModificationCounter.Scope.VARIABLES);
+            return writeResult;
         } else { //Les données ne sont pas bonnes
             return checkResult;
         }
@@ -27,6 +27,7 @@ import opensilex.service.dao.manager.Rdf4jDAO;
 import opensilex.service.ontology.Rdf;
 import opensilex.service.ontology.Rdfs;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
+import opensilex.service.utils.sparql.SPARQLQueryTemplate;
 import opensilex.service.model.Ask;
 import opensilex.service.model.Uri;
 import org.opensilex.sparql.service.SPARQLService;
@@ -52,6 +53,26 @@ public class UriDAO extends Rdf4jDAO<Uri> {
     final static String TRIPLESTORE_FIELDS_INSTANCE = "instance";
     final static String TRIPLESTORE_FIELDS_SUBCLASS = "subclass";
 
+    /**
+     * Asks if ?subclass is a subclass of ?class.
+     * @example
+     * ASK {
+     *    <http://www.opensilex.org/vocabulary/oeso#HemisphericalCamera>  rdfs:subClassOf* <http://www.opensilex.org/vocabulary/oeso#SensingDevice> 
+     * }
+     */
+    private final static SPARQLQueryTemplate IS_SUBCLASS_OF_QUERY = new SPARQLQueryTemplate(
+            "ASK { ?" + TRIPLESTORE_FIELDS_SUBCLASS + " <" + Rdfs.RELATION_SUBCLASS_OF.toString() + ">* ?" + TRIPLESTORE_FIELDS_CLASS + " }");
+
+    /**
+     * Asks if ?instance is an instance of ?type.
+     * @example
+     * ASK { 
+     *  <http://www.w3.org/ns/oa#commenting>  rdf:type  <http://www.w3.org/ns/oa#Motivation>  .  
+     * }
+     */
+    private final static SPARQLQueryTemplate IS_INSTANCE_OF_QUERY = new SPARQLQueryTemplate(
+            "ASK { ?" + TRIPLESTORE_FIELDS_INSTANCE + " <" + Rdf.RELATION_TYPE.toString() + "> ?" + TRIPLESTORE_FIELDS_TYPE + " }");
+
     final static Logger LOGGER = LoggerFactory.getLogger(UriDAO.class);
     public Boolean deep;
 
@@ -497,70 +518,26 @@ public class UriDAO extends Rdf4jDAO<Uri> {
         return uris;
     }
 
-    /**
-     * Generates an ask query to know if the given rdfSubType is a subclass of
-     * rdfType.
-     * @param rdfSubType
-     * @param rdfType
-     * @return the query. 
-     * @example
-     * ASK {
-     *    <http://www.opensilex.org/vocabulary/oeso#HemisphericalCamera>  rdfs:subClassOf* <http://www.opensilex.org/vocabulary/oeso#SensingDevice> 
-     * }
-     */
-    private SPARQLQueryBuilder prepareIsSubclassOf(String rdfSubType, String rdfType) {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendDistinct(Boolean.TRUE);
-
-        query.appendTriplet("<" + rdfSubType + ">", "<" + Rdfs.RELATION_SUBCLASS_OF.toString() + ">*", "<" + rdfType + ">", null);
-
-        query.appendAsk(""); //any = anything
-        LOGGER.debug(query.toString());
-        return query;
-    }
-
-    /**
-     * Generates an ask query to know if the given instance URI is an instance
-     * of rdfType.
-     * @param instanceUri
-     * @param rdfType
-     * @return the query. 
-     * @example
-     * ASK { 
-     *  <http://www.w3.org/ns/oa#commenting>  rdf:type  <  http://www.w3.org/ns/oa#Motivation>  .  
-     * }
-     */
-    private SPARQLQueryBuilder prepareIsInstanceOf(String instanceUri, String rdfType) {
-        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-        query.appendDistinct(Boolean.TRUE);
-
-        String contextURI;
-
-        if (uri != null) {
-            contextURI = "<" + uri + ">";
-        } else {
-            contextURI = "?uri";
-
-        }
-        query.appendSelect(contextURI);
-        query.appendTriplet("<" + instanceUri + ">", Rdf.RELATION_TYPE.toString(), "<" + rdfType + ">", null);
-
-        query.appendAsk("");
-        LOGGER.debug(query.toString());
-        return query;
-    }
-
     /**
      * Checks if the given rdfSubType is a sub class of the given rdfType.
      * @param rdfSubType
      * @param rdfType
      * @return true if it is a subclass 
      *         false if not
+     * @see #IS_SUBCLASS_OF_QUERY
      */
     public boolean isSubClassOf(String rdfSubType, String rdfType) {
-        SPARQLQueryBuilder query = prepareIsSubclassOf(rdfSubType, rdfType);
-
-        BooleanQuery booleanQuery = prepareRDF4JBooleanQuery(query);
+        if (rdfSubType == null || rdfType == null) {
+            return false;
+        }
+        BooleanQuery booleanQuery = prepareRDF4JBooleanQuery(IS_SUBCLASS_OF_QUERY);
+        try {
+            booleanQuery.setBinding(TRIPLESTORE_FIELDS_SUBCLASS, SPARQLQueryTemplate.uri(rdfSubType));
+            booleanQuery.setBinding(TRIPLESTORE_FIELDS_CLASS, SPARQLQueryTemplate.uri(rdfType));
+        } catch (IllegalArgumentException e) {
+            // Not an absolute URI
+            return false;
+        }
         return booleanQuery.evaluate();
     }
 
@@ -570,6 +547,7 @@ public class UriDAO extends Rdf4jDAO<Uri> {
      * @param rdfType
      * @return true if it is a subclass 
      *         false if not
+     * @see #IS_INSTANCE_OF_QUERY
      */
     public boolean isInstanceOf(String instanceUri, String rdfType) {
         if (instanceUri == null) {
@@ -578,8 +556,14 @@ public class UriDAO extends Rdf4jDAO<Uri> {
         if (rdfType == null) {
             return false;
         }
-        SPARQLQueryBuilder query = prepareIsInstanceOf(instanceUri, rdfType);
-        BooleanQuery booleanQuery = prepareRDF4JBooleanQuery(query);
+        BooleanQuery booleanQuery = prepareRDF4JBooleanQuery(IS_INSTANCE_OF_QUERY);
+        try {
+            booleanQuery.setBinding(TRIPLESTORE_FIELDS_INSTANCE, SPARQLQueryTemplate.uri(instanceUri));
+            booleanQuery.setBinding(TRIPLESTORE_FIELDS_TYPE, SPARQLQueryTemplate.uri(rdfType));
+        } catch (IllegalArgumentException e) {
+            // Not an absolute URI
+            return false;
+        }
         return booleanQuery.evaluate();
     }
 
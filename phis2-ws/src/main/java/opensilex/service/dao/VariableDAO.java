@@ -56,6 +56,7 @@ import opensilex.service.model.OntologyReference;
 import opensilex.service.model.Trait;
 import opensilex.service.model.Unit;
 import opensilex.service.model.Variable;
+import opensilex.service.utils.ModificationCounter;
 import static org.apache.jena.arq.querybuilder.AbstractQueryBuilder.makeVar;
 import org.apache.jena.arq.querybuilder.ExprFactory;
 import org.apache.jena.arq.querybuilder.SelectBuilder;
@@ -461,7 +462,9 @@ public class VariableDAO extends Rdf4jDAO<Variable> {
     public POSTResultsReturn checkAndInsert(List<VariableDTO> variablesDTO) {
         POSTResultsReturn checkResult = check(variablesDTO);
         if (checkResult.getDataState()) {
-            return insert(variablesDTO);
+            POSTResultsReturn writeResult = insert(variablesDTO);
+            ModificationCounter.increment(ModificationCounter.Scope.VARIABLES);
+            return writeResult;
         } else { // incorrect data
             return checkResult;
         }
@@ -691,7 +694,9 @@ public class VariableDAO extends Rdf4jDAO<Variable> {
     public POSTResultsReturn checkAndUpdate(List<VariableDTO> variablesDTO) {
         POSTResultsReturn checkResult = check(variablesDTO);
         if (checkResult.getDataState()) {
-            return updateAndReturnPOSTResult(variablesDTO);
+            POSTResultsReturn writeResult = updateAndReturnPOSTResult(variablesDTO);
+            ModificationCounter.increment(ModificationCounter.Scope.VARIABLES);
+            return writeResult;
         } else { //Les données ne sont pas bonnes
             return checkResult;
         }
@@ -36,6 +36,7 @@ import opensilex.service.utils.sparql.SPARQLQueryBuilder;
 import opensilex.service.model.Vector;
 import opensilex.service.ontology.Contexts;
 import opensilex.service.resource.dto.VectorDTO;
+import opensilex.service.utils.ModificationCounter;
 import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.view.brapi.Status;
 import static org.apache.jena.arq.querybuilder.AbstractQueryBuilder.makeVar;
@@ -748,7 +749,9 @@ public class VectorDAO extends Rdf4jDAO<Vector> {
     public POSTResultsReturn checkAndInsert(List<VectorDTO> vectors) {
         POSTResultsReturn checkResult = check(vectors);
         if (checkResult.getDataState()) {
-            return insert(vectors);
+            POSTResultsReturn writeResult = insert(vectors);
+            ModificationCounter.increment(ModificationCounter.Scope.DEVICES);
+            return writeResult;
         } else { //errors founded in data
             return checkResult;
         }
@@ -765,7 +768,9 @@ public class VectorDAO extends Rdf4jDAO<Vector> {
     public POSTResultsReturn checkAndUpdate(List<VectorDTO> vectors) {
         POSTResultsReturn checkResult = check(vectors);
         if (checkResult.getDataState()) {
-            return updateAndReturnPOSTResultsReturn(vectors);
+            POSTResultsReturn writeResult = updateAndReturnPOSTResultsReturn(vectors);
+            ModificationCounter.increment(ModificationCounter.Scope.DEVICES);
+            return writeResult;
         } else { //errors founded in data
             return checkResult;
         }
@@ -0,0 +1,505 @@
+//******************************************************************************
+//                           LabelIndex.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.dao.manager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import opensilex.service.PropertiesFileManager;
+import opensilex.service.ontology.Rdf;
+import opensilex.service.ontology.Rdfs;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.opensilex.OpenSilex;
+import org.opensilex.sparql.rdf4j.RDF4JConnection;
+import org.opensilex.sparql.service.SPARQLService;
+import org.opensilex.sparql.service.SPARQLServiceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Full-text index of the labels of the triplestore resources, embedded in the
+ * web service: a Lucene index stored in the label-index directory of the
+ * storage base path.
+ * The label searches get from the index the URIs of the resources having a
+ * label matching the searched text, case insensitive, by prefix, by substring
+ * or with typing errors. The resources are then read from the triplestore
+ * with these URIs only, instead of filtering all the labels with a REGEX.
+ * The index is only used if the labelIndex configuration property is set,
+ * otherwise the labels are filtered with a REGEX in the triplestore.
+ * The DAOs update the index after each creation, update or deletion, from
+ * the labels stored in the triplestore. The index is local to each instance
+ * of the web service: the labels written while it is stopped, by another
+ * instance or by another application sharing the triplestore are only seen
+ * by the next refresh. The index is refreshed in background at each start,
+ * then every labelIndexRefreshPeriod minutes, and can be refreshed by the
+ * administrators. A refresh indexes all the labels of the triplestore again
+ * and removes the resources which no longer have a label, the previous
+ * entries remaining searchable meanwhile. The searches can't use the index
+ * until its first refresh after the start is complete.
+ */
+public class LabelIndex {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(LabelIndex.class);
+
+    /**
+     * Maximum number of resources returned by a search.
+     */
+    public final static int MAX_HITS = 10000;
+
+    private final static String INDEX_DIRECTORY = "label-index";
+
+    private final static String URI_FIELD = "uri";
+    // The types of the resource and their super classes
+    private final static String TYPE_FIELD = "type";
+    // The words of the labels
+    private final static String LABEL_FIELD = "label";
+    // The whole labels, in lower case
+    private final static String LABEL_KEYWORD_FIELD = "labelKeyword";
+    // The refresh which has indexed the resource
+    private final static String GENERATION_FIELD = "generation";
+
+    // Number of resources read from the triplestore by query
+    private final static int BATCH_SIZE = 500;
+
+    private static class InstanceHolder {
+
+        private final static LabelIndex INSTANCE = open();
+    }
+
+    /**
+     * @return the index of the web service, null if it is disabled or can't
+     * be opened
+     */
+    public static LabelIndex getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    private static LabelIndex open() {
+        if (!PropertiesFileManager.getConfig().isLabelIndex()) {
+            LOGGER.info("Label index disabled, the labels are searched in the triplestore");
+            return null;
+        }
+        Path indexPath = Paths.get(PropertiesFileManager.getConfig().getStorageBasePath(), INDEX_DIRECTORY);
+        try {
+            return new LabelIndex(FSDirectory.open(indexPath));
+        } catch (IOException ex) {
+            LOGGER.error("Label index can't be opened in " + indexPath + ", the labels are searched in the triplestore", ex);
+            return null;
+        }
+    }
+
+    private final Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    private final AtomicBoolean ready = new AtomicBoolean(false);
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    // Identifier of the running or last refresh
+    private volatile String generation = "0";
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "label-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Opens the index of the given directory, created if it doesn't exist.
+     * @param directory
+     * @throws IOException
+     */
+    LabelIndex(Directory directory) throws IOException {
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * @return true if the index has been completely built and can be searched
+     */
+    public boolean isReady() {
+        return ready.get();
+    }
+
+    /**
+     * @return true if the index is being refreshed
+     */
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * Searches the resources having a label matching the given text: the
+     * whole label starting with or containing the text, or each word of the
+     * text matching a word of the label, exactly, by prefix or with typing
+     * errors. The case is ignored.
+     * @param text
+     * @param rdfTypes types of the resources (or super classes of their
+     * types), null types are ignored. All the resources if empty
+     * @return the URIs of the resources, the most relevant first, or null if
+     * more than {@link #MAX_HITS} resources match
+     * @throws IOException
+     */
+    public List<String> search(String text, Collection<String> rdfTypes) throws IOException {
+        return search(text, rdfTypes, true);
+    }
+
+    /**
+     * Searches the resources having a label matching the given text, with or
+     * without the matches of the words of the text.
+     * @see #search(java.lang.String, java.util.Collection)
+     * @param text
+     * @param rdfTypes
+     * @param fuzzy false to only get the labels starting with or containing
+     * the text, as a REGEX would, e.g. to select the data of the resources
+     * @return the URIs of the resources, the most relevant first, or null if
+     * more than {@link #MAX_HITS} resources match
+     * @throws IOException
+     */
+    public List<String> search(String text, Collection<String> rdfTypes, boolean fuzzy) throws IOException {
+        Query query = createQuery(text, rdfTypes, fuzzy);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            ScoreDoc[] scoreDocs = searcher.search(query, MAX_HITS + 1).scoreDocs;
+            if (scoreDocs.length > MAX_HITS) {
+                return null;
+            }
+            List<String> uris = new ArrayList<>();
+            for (ScoreDoc scoreDoc : scoreDocs) {
+                uris.add(searcher.doc(scoreDoc.doc, Collections.singleton(URI_FIELD)).get(URI_FIELD));
+            }
+            return uris;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Creates the query of a search.
+     * @see #search(java.lang.String, java.util.Collection, boolean)
+     * @param text
+     * @param rdfTypes
+     * @param fuzzy
+     * @return the query
+     * @throws IOException
+     */
+    Query createQuery(String text, Collection<String> rdfTypes, boolean fuzzy) throws IOException {
+        String normalizedText = normalize(text);
+        BooleanQuery.Builder labelQuery = new BooleanQuery.Builder();
+        labelQuery.add(new BoostQuery(new PrefixQuery(new Term(LABEL_KEYWORD_FIELD, normalizedText)), 4), Occur.SHOULD);
+        labelQuery.add(new WildcardQuery(new Term(LABEL_KEYWORD_FIELD, "*" + escapeWildcards(normalizedText) + "*")), Occur.SHOULD);
+
+        List<String> words = fuzzy ? analyze(text) : Collections.emptyList();
+        if (!words.isEmpty()) {
+            BooleanQuery.Builder wordsQuery = new BooleanQuery.Builder();
+            for (String word : words) {
+                BooleanQuery.Builder wordQuery = new BooleanQuery.Builder();
+                wordQuery.add(new BoostQuery(new TermQuery(new Term(LABEL_FIELD, word)), 3), Occur.SHOULD);
+                wordQuery.add(new BoostQuery(new PrefixQuery(new Term(LABEL_FIELD, word)), 2), Occur.SHOULD);
+                int maxEdits = getMaxEdits(word);
+                if (maxEdits > 0) {
+                    wordQuery.add(new FuzzyQuery(new Term(LABEL_FIELD, word), maxEdits), Occur.SHOULD);
+                }
+                wordsQuery.add(wordQuery.build(), Occur.MUST);
+            }
+            labelQuery.add(wordsQuery.build(), Occur.SHOULD);
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(labelQuery.build(), Occur.MUST);
+        BooleanQuery.Builder typesQuery = new BooleanQuery.Builder();
+        boolean typesFilter = false;
+        for (String rdfType : rdfTypes) {
+            if (rdfType != null) {
+                typesQuery.add(new TermQuery(new Term(TYPE_FIELD, rdfType)), Occur.SHOULD);
+                typesFilter = true;
+            }
+        }
+        if (typesFilter) {
+            query.add(typesQuery.build(), Occur.FILTER);
+        }
+        return query.build();
+    }
+
+    /**
+     * @param word
+     * @return the number of typing errors accepted for the word: none for the
+     * short words, 1 up to 5 characters, 2 after
+     */
+    private static int getMaxEdits(String word) {
+        if (word.length() < 3) {
+            return 0;
+        } else if (word.length() < 6) {
+            return 1;
+        }
+        return 2;
+    }
+
+    private static String normalize(String label) {
+        return label.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String escapeWildcards(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (char character : text.toCharArray()) {
+            if (character == WildcardQuery.WILDCARD_STRING
+                    || character == WildcardQuery.WILDCARD_CHAR
+                    || character == WildcardQuery.WILDCARD_ESCAPE) {
+                escaped.append(WildcardQuery.WILDCARD_ESCAPE);
+            }
+            escaped.append(character);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * @param text
+     * @return the words of the text, as indexed
+     * @throws IOException
+     */
+    private List<String> analyze(String text) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream(LABEL_FIELD, text)) {
+            CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                words.add(term.toString());
+            }
+            tokenStream.end();
+        }
+        return words;
+    }
+
+    /**
+     * Updates the index entries of the given resources from their labels and
+     * types in the triplestore. The resources without label anymore are
+     * removed from the index.
+     * @param sparql
+     * @param uris
+     * @throws IOException
+     */
+    public void update(SPARQLService sparql, Collection<String> uris) throws IOException {
+        if (uris.isEmpty()) {
+            return;
+        }
+        List<String> batch = new ArrayList<>();
+        for (String uri : uris) {
+            batch.add(uri);
+            if (batch.size() == BATCH_SIZE) {
+                index(sparql, batch);
+                batch.clear();
+            }
+        }
+        index(sparql, batch);
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    /**
+     * Indexes the labels of the given resources.
+     * @param sparql
+     * @param uris
+     * @return the number of indexed resources
+     * @throws IOException
+     * @example
+     * SELECT ?uri ?label ?type WHERE {
+     *   VALUES ?uri { <http://www.opensilex.org/opensilex/2019/o19000115> }
+     *   ?uri rdfs:label ?label .
+     *   OPTIONAL { ?uri rdf:type/rdfs:subClassOf* ?type . }
+     * }
+     */
+    private int index(SPARQLService sparql, List<String> uris) throws IOException {
+        if (uris.isEmpty()) {
+            return 0;
+        }
+        StringBuilder query = new StringBuilder("SELECT ?" + URI_FIELD + " ?" + LABEL_FIELD + " ?" + TYPE_FIELD + " WHERE {\n");
+        query.append("  VALUES ?" + URI_FIELD + " {");
+        uris.forEach(uri -> query.append(" <").append(uri).append(">"));
+        query.append(" }\n");
+        query.append("  ?" + URI_FIELD + " <" + Rdfs.RELATION_LABEL.toString() + "> ?" + LABEL_FIELD + " .\n");
+        query.append("  OPTIONAL { ?" + URI_FIELD + " <" + Rdf.RELATION_TYPE.toString() + ">/<"
+                + Rdfs.RELATION_SUBCLASS_OF.toString() + ">* ?" + TYPE_FIELD + " . }\n}");
+
+        Map<String, Set<String>> labels = new HashMap<>();
+        Map<String, Set<String>> types = new HashMap<>();
+        try (TupleQueryResult result = prepareQuery(sparql, query.toString(), RDF4JConnection.TIMEOUT).evaluate()) {
+            while (result.hasNext()) {
+                BindingSet bindingSet = result.next();
+                String uri = bindingSet.getValue(URI_FIELD).stringValue();
+                labels.computeIfAbsent(uri, key -> new HashSet<>()).add(bindingSet.getValue(LABEL_FIELD).stringValue());
+                Set<String> uriTypes = types.computeIfAbsent(uri, key -> new HashSet<>());
+                if (bindingSet.getValue(TYPE_FIELD) != null) {
+                    uriTypes.add(bindingSet.getValue(TYPE_FIELD).stringValue());
+                }
+            }
+        }
+
+        for (String uri : uris) {
+            if (labels.containsKey(uri)) {
+                writer.updateDocument(new Term(URI_FIELD, uri), createDocument(uri, labels.get(uri), types.get(uri), generation));
+            } else {
+                writer.deleteDocuments(new Term(URI_FIELD, uri));
+            }
+        }
+        return labels.size();
+    }
+
+    private static Document createDocument(String uri, Set<String> labels, Set<String> types, String generation) {
+        Document document = new Document();
+        document.add(new StringField(URI_FIELD, uri, Field.Store.YES));
+        document.add(new StringField(GENERATION_FIELD, generation, Field.Store.NO));
+        for (String type : types) {
+            document.add(new StringField(TYPE_FIELD, type, Field.Store.NO));
+        }
+        for (String label : labels) {
+            document.add(new TextField(LABEL_FIELD, label, Field.Store.NO));
+            document.add(new StringField(LABEL_KEYWORD_FIELD, normalize(label), Field.Store.NO));
+        }
+        return document;
+    }
+
+    private static TupleQuery prepareQuery(SPARQLService sparql, String queryText, int maxExecutionTime) {
+        TupleQuery tupleQuery = sparql.getRepositoryConnection().prepareTupleQuery(QueryLanguage.SPARQL, queryText);
+        tupleQuery.setMaxExecutionTime(maxExecutionTime);
+        return QueryMetrics.timed(TupleQuery.class, tupleQuery, queryText);
+    }
+
+    /**
+     * Refreshes the index in background, from all the labels of the
+     * triplestore.
+     * @see #rebuild(org.opensilex.sparql.service.SPARQLService)
+     * @return false if the index is already being refreshed
+     */
+    public boolean requestRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.submit(() -> {
+            SPARQLServiceFactory factory = OpenSilex.getInstance().getServiceInstance(SPARQLService.DEFAULT_SPARQL_SERVICE, SPARQLServiceFactory.class);
+            SPARQLService sparql = factory.provide();
+            try {
+                rebuild(sparql);
+            } catch (Exception ex) {
+                LOGGER.error("Label index refresh error", ex);
+            } finally {
+                factory.dispose(sparql);
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Refreshes the index in background every given period.
+     * @param periodMinutes minutes between two refreshes
+     */
+    public void scheduleRebuilds(int periodMinutes) {
+        executor.scheduleWithFixedDelay(this::requestRebuild, periodMinutes, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Refreshes the index from all the labels of the triplestore: the labeled
+     * resources are indexed again, then the resources not seen by this
+     * refresh are removed. The current entries can be searched meanwhile.
+     * @param sparql
+     * @throws IOException
+     * @example
+     * SELECT DISTINCT ?uri WHERE {
+     *   ?uri rdfs:label ?label .
+     *   FILTER (isIRI(?uri))
+     * }
+     */
+    void rebuild(SPARQLService sparql) throws IOException {
+        long start = System.currentTimeMillis();
+        String refreshGeneration = Long.toString(start);
+        // The resources updated by the DAOs during the refresh are also kept
+        generation = refreshGeneration;
+
+        String query = "SELECT DISTINCT ?" + URI_FIELD + " WHERE {\n"
+                + "  ?" + URI_FIELD + " <" + Rdfs.RELATION_LABEL.toString() + "> ?" + LABEL_FIELD + " .\n"
+                + "  FILTER (isIRI(?" + URI_FIELD + "))\n}";
+        int indexed = 0;
+        List<String> batch = new ArrayList<>();
+        // No time limit: all the labeled resources are listed
+        try (TupleQueryResult result = prepareQuery(sparql, query, 0).evaluate()) {
+            while (result.hasNext()) {
+                batch.add(result.next().getValue(URI_FIELD).stringValue());
+                if (batch.size() == BATCH_SIZE) {
+                    indexed += index(sparql, batch);
+                    batch.clear();
+                }
+            }
+        }
+        indexed += index(sparql, batch);
+
+        writer.deleteDocuments(new BooleanQuery.Builder()
+                .add(new MatchAllDocsQuery(), Occur.MUST)
+                .add(new TermQuery(new Term(GENERATION_FIELD, refreshGeneration)), Occur.MUST_NOT)
+                .build());
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+        ready.set(true);
+        LOGGER.info("Label index refreshed: " + indexed + " resources in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Stops the refreshes and closes the index.
+     */
+    public void close() {
+        executor.shutdownNow();
+        try {
+            searcherManager.close();
+            writer.close();
+        } catch (IOException ex) {
+            LOGGER.error("Label index close error", ex);
+        }
+    }
+}
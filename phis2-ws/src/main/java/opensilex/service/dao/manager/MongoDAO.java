@@ -9,6 +9,7 @@ package opensilex.service.dao.manager;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
@@ -52,7 +53,10 @@ public abstract class MongoDAO<T> extends DAO<T> {
              url += "?authSource=" + authdb;
         }
         
-        MONGO_CLIENT = new MongoClient(new MongoClientURI(url));
+        // Every command is timed by the query metrics
+        MongoClientOptions.Builder options = MongoClientOptions.builder()
+                .addCommandListener(new QueryMetrics.MongoCommandListener());
+        MONGO_CLIENT = new MongoClient(new MongoClientURI(url, options));
     }
     private final static MongoClient MONGO_CLIENT;
     
@@ -0,0 +1,281 @@
+//******************************************************************************
+//                           QueryMetrics.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.dao.manager;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import opensilex.service.PropertiesFileManager;
+import org.bson.json.JsonWriterSettings;
+import org.eclipse.rdf4j.query.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durations of the triplestore and MongoDB queries, by store and by DAO
+ * method (e.g. "triplestore GermplasmDAO.find").
+ * The durations are kept in histograms with fixed buckets. The queries longer
+ * than the slowQueryThreshold configuration property are logged with their
+ * text and parameters.
+ * The triplestore queries are timed by the proxies returned by
+ * {@link #timed(java.lang.Class, org.eclipse.rdf4j.query.Operation, java.lang.String)}, the
+ * MongoDB commands by the {@link MongoCommandListener} of the MongoDB client.
+ */
+public class QueryMetrics {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(QueryMetrics.class);
+
+    public final static String TRIPLESTORE = "triplestore";
+    public final static String MONGODB = "mongodb";
+
+    /**
+     * Upper bounds of the histograms buckets, in milliseconds. The last bucket
+     * holds the longer queries.
+     */
+    public final static long[] BUCKETS_BOUNDS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    //Queries text longer than this are truncated in the slow queries log
+    private final static int MAX_LOGGED_QUERY_LENGTH = 4000;
+
+    private final static String DAO_PACKAGE = "opensilex.service.dao.";
+    private final static String MANAGER_PACKAGE = "opensilex.service.dao.manager.";
+    private final static String UNKNOWN_OPERATION = "unknown";
+
+    private final static Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private final static StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Records the duration of a query and logs it if it is slow.
+     * @param store {@link #TRIPLESTORE} or {@link #MONGODB}
+     * @param operation DAO class and method which sent the query
+     * @param durationNanos
+     * @param queryText gives the query text and parameters, only called for
+     * the slow queries
+     */
+    public static void record(String store, String operation, long durationNanos, Supplier<String> queryText) {
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        HISTOGRAMS.computeIfAbsent(store + " " + operation, key -> new Histogram(store, operation))
+                .add(durationMillis);
+
+        int slowQueryThreshold = PropertiesFileManager.getConfig().getSlowQueryThreshold();
+        if (slowQueryThreshold > 0 && durationMillis >= slowQueryThreshold) {
+            String text = queryText.get();
+            if (text.length() > MAX_LOGGED_QUERY_LENGTH) {
+                text = text.substring(0, MAX_LOGGED_QUERY_LENGTH) + "...";
+            }
+            LOGGER.warn("Slow " + store + " query (" + durationMillis + " ms) in " + operation + ": " + text);
+        }
+    }
+
+    /**
+     * @return the histograms of the queries durations, sorted by store and
+     * operation
+     */
+    public static ArrayList<Histogram> getHistograms() {
+        ArrayList<Histogram> histograms = new ArrayList<>(HISTOGRAMS.values());
+        histograms.sort((h1, h2) -> (h1.store + h1.operation).compareTo(h2.store + h2.operation));
+        return histograms;
+    }
+
+    /**
+     * Clears the histograms.
+     */
+    public static void reset() {
+        HISTOGRAMS.clear();
+    }
+
+    /**
+     * Finds the DAO method which sent the current query, i.e. the first DAO
+     * method of the current thread stack outside of the DAO managers.
+     * The stack frames are read lazily and the walk stops at this first DAO
+     * method.
+     * @return the class simple name and method, e.g. "GermplasmDAO.find"
+     */
+    static String getCallingOperation() {
+        return STACK_WALKER.walk(frames -> {
+            String firstServiceMethod = null;
+            Iterator<StackWalker.StackFrame> iterator = frames.iterator();
+            while (iterator.hasNext()) {
+                StackWalker.StackFrame frame = iterator.next();
+                String className = frame.getClassName();
+                if (className.startsWith(DAO_PACKAGE) && !className.startsWith(MANAGER_PACKAGE)) {
+                    return getOperation(frame);
+                } else if (firstServiceMethod == null
+                        && className.startsWith("opensilex.service.")
+                        && !className.startsWith(MANAGER_PACKAGE)) {
+                    firstServiceMethod = getOperation(frame);
+                }
+            }
+            return firstServiceMethod == null ? UNKNOWN_OPERATION : firstServiceMethod;
+        });
+    }
+
+    private static String getOperation(StackWalker.StackFrame frame) {
+        String className = frame.getClassName();
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        // Lambdas and inner classes are counted with their enclosing class
+        int innerClassIndex = simpleName.indexOf('$');
+        if (innerClassIndex > 0) {
+            simpleName = simpleName.substring(0, innerClassIndex);
+        }
+        return simpleName + "." + frame.getMethodName();
+    }
+
+    /**
+     * Returns a proxy of a triplestore query which records the duration of
+     * its evaluation, i.e. the time until its first results are available.
+     * @param <O> TupleQuery, BooleanQuery, Update...
+     * @param operationClass interface of the query
+     * @param query
+     * @param queryText
+     * @return the timed query
+     */
+    @SuppressWarnings("unchecked")
+    public static <O extends Operation> O timed(Class<O> operationClass, O query, String queryText) {
+        String operation = getCallingOperation();
+        InvocationHandler handler = (proxy, method, args) -> {
+            boolean timed = method.getName().equals("evaluate") || method.getName().equals("execute");
+            long start = System.nanoTime();
+            try {
+                return method.invoke(query, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            } finally {
+                if (timed) {
+                    record(TRIPLESTORE, operation, System.nanoTime() - start,
+                            () -> queryText + " bindings: " + query.getBindings());
+                }
+            }
+        };
+        return (O) Proxy.newProxyInstance(operationClass.getClassLoader(), new Class<?>[]{operationClass}, handler);
+    }
+
+    /**
+     * Records the duration of the MongoDB commands: find, aggregate, insert...
+     * The driver calls the listener in the thread which sent the command, so
+     * the calling DAO method can be found.
+     */
+    public static class MongoCommandListener implements CommandListener {
+
+        /**
+         * The command documents are only valid during the commandStarted
+         * call, their text is written then, truncated to the logged length.
+         */
+        private final static JsonWriterSettings COMMAND_TEXT_SETTINGS = JsonWriterSettings.builder()
+                .maxLength(MAX_LOGGED_QUERY_LENGTH + 1)
+                .build();
+
+        //Text of the commands being executed, by request id
+        private final Map<Integer, String> runningCommands = new ConcurrentHashMap<>();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            runningCommands.put(event.getRequestId(), event.getCommand().toJson(COMMAND_TEXT_SETTINGS));
+        }
+
+        @Override
+        public void commandSucceeded(CommandSucceededEvent event) {
+            String command = runningCommands.remove(event.getRequestId());
+            record(MONGODB, getCallingOperation(), event.getElapsedTime(TimeUnit.NANOSECONDS),
+                    () -> event.getCommandName() + " " + (command == null ? "" : command));
+        }
+
+        @Override
+        public void commandFailed(CommandFailedEvent event) {
+            String command = runningCommands.remove(event.getRequestId());
+            record(MONGODB, getCallingOperation(), event.getElapsedTime(TimeUnit.NANOSECONDS),
+                    () -> event.getCommandName() + " (failed) " + (command == null ? "" : command));
+        }
+    }
+
+    /**
+     * Durations histogram of the queries of a DAO method.
+     */
+    public static class Histogram {
+
+        private final String store;
+        private final String operation;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalDuration = new LongAdder();
+        private final LongAccumulator maxDuration = new LongAccumulator(Long::max, 0);
+        private final AtomicLongArray bucketsCounts = new AtomicLongArray(BUCKETS_BOUNDS.length + 1);
+
+        Histogram(String store, String operation) {
+            this.store = store;
+            this.operation = operation;
+        }
+
+        void add(long durationMillis) {
+            count.increment();
+            totalDuration.add(durationMillis);
+            maxDuration.accumulate(durationMillis);
+            int bucket = 0;
+            while (bucket < BUCKETS_BOUNDS.length && durationMillis > BUCKETS_BOUNDS[bucket]) {
+                bucket++;
+            }
+            bucketsCounts.incrementAndGet(bucket);
+        }
+
+        public String getStore() {
+            return store;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the total duration of the queries, in milliseconds
+         */
+        public long getTotalDuration() {
+            return totalDuration.sum();
+        }
+
+        /**
+         * @return the longest query duration, in milliseconds
+         */
+        public long getMaxDuration() {
+            return maxDuration.get();
+        }
+
+        /**
+         * @return the number of queries of each bucket. The bucket i holds the
+         * queries longer than BUCKETS_BOUNDS[i - 1] and shorter than or equal
+         * to BUCKETS_BOUNDS[i], the last one the queries longer than all the
+         * bounds.
+         */
+        public long[] getBucketsCounts() {
+            long[] counts = new long[bucketsCounts.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = bucketsCounts.get(i);
+            }
+            return counts;
+        }
+    }
+}
@@ -16,7 +16,9 @@ import opensilex.service.dao.exception.DAOPersistenceException;
 import opensilex.service.dao.exception.ResourceAccessDeniedException;
 import opensilex.service.ontology.Rdf;
 import opensilex.service.ontology.Rdfs;
+import opensilex.service.utils.ModificationCounter;
 import opensilex.service.utils.sparql.SPARQLQueryBuilder;
+import opensilex.service.utils.sparql.SPARQLQueryTemplate;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jena.arq.querybuilder.UpdateBuilder;
 import org.apache.jena.graph.Node;
@@ -40,7 +42,10 @@ import org.opensilex.sparql.service.SPARQLService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -79,8 +84,7 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
      * this case too (i.e when getting a list within a list) For the moment we
      * use only one page by taking the max value //\SILEX:todo
      */
-    protected int pageSizeMaxValue = Integer.parseInt(PropertiesFileManager
-            .getConfigFileProperty("service", "pageSizeMax"));
+    protected int pageSizeMaxValue = PropertiesFileManager.getConfig().getPageSizeMax();
 
     // used for logger
     protected static final String SPARQL_QUERY = "SPARQL query: ";
@@ -106,6 +110,33 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
     protected static final String SEE_ALSO = "subject";
     protected static final String SEE_ALSO_SELECT_NAME_SPARQL = "?" + SEE_ALSO;
 
+    /**
+     * Query of {@link #existUri(java.lang.String)}, ?r being the URI.
+     */
+    private static final SPARQLQueryTemplate EXIST_URI_QUERY = new SPARQLQueryTemplate(
+            "ASK {\n"
+            + "    { ?r ?p ?o }\n"
+            + "    UNION\n"
+            + "    { ?s ?r ?o }\n"
+            + "    UNION\n"
+            + "    { ?s ?p ?r }\n"
+            + "}");
+
+    /**
+     * Query of {@link #existUriInGraph(java.lang.String, java.lang.String)},
+     * ?r being the URI and ?g the graph.
+     */
+    private static final SPARQLQueryTemplate EXIST_URI_IN_GRAPH_QUERY = new SPARQLQueryTemplate(
+            "ASK {\n"
+            + "  GRAPH ?g {\n"
+            + "    { ?r ?p ?o }\n"
+            + "    UNION\n"
+            + "    { ?s ?r ?o }\n"
+            + "    UNION\n"
+            + "    { ?s ?p ?r }\n"
+            + "  }\n"
+            + "}");
+
     protected static final String DATETIMESTAMP_FORMAT_SPARQL = DateFormat.YMDTHMSZZ.toString();
 
     // Triplestore relations
@@ -205,9 +236,9 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
      * Check if a given URI exist in the triplestore.
      *
      * @param uri the uri to test
-     * @example ASK { VALUES (?r) {
-     * (<http://www.w3.org/2000/01/rdf-schema#Literal>) } { ?r ?p ?o } UNION {
-     * ?s ?r ?o } UNION { ?s ?p ?r } }
+     * @example ASK { { <http://www.w3.org/2000/01/rdf-schema#Literal> ?p ?o }
+     * UNION { ?s <http://www.w3.org/2000/01/rdf-schema#Literal> ?o } UNION {
+     * ?s ?p <http://www.w3.org/2000/01/rdf-schema#Literal> } }
      * @return true if the URI exist in the triplestore false if it does not
      * exist
      */
@@ -215,24 +246,17 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
         if (uri == null) {
             return false;
         }
+        //SILEX:warning
+        //Remember to add rdf, rdfs and owl ontologies in your triplestore
+        //\SILEX:warning
+        BooleanQuery booleanQuery = prepareRDF4JBooleanQuery(EXIST_URI_QUERY);
         try {
-            //SILEX:warning
-            //Remember to add rdf, rdfs and owl ontologies in your triplestore
-            //\SILEX:warning
-            SPARQLQueryBuilder query = new SPARQLQueryBuilder();
-            query.appendAsk("VALUES (?r) { (<" + uri + ">) }\n"
-                    + "    { ?r ?p ?o }\n"
-                    + "    UNION\n"
-                    + "    { ?s ?r ?o }\n"
-                    + "    UNION\n"
-                    + "    { ?s ?p ?r }\n");
-
-            LOGGER.debug(SPARQL_QUERY + query.toString());
-            BooleanQuery booleanQuery = prepareRDF4JBooleanQuery(query);
-            return booleanQuery.evaluate();
-        } catch (MalformedQueryException | QueryEvaluationException | RepositoryException e) {
-            throw (e);
+            booleanQuery.setBinding("r", SPARQLQueryTemplate.uri(uri));
+        } catch (IllegalArgumentException e) {
+            // Not an absolute URI
+            return false;
         }
+        return booleanQuery.evaluate();
     }
 
     /**
@@ -240,9 +264,10 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
      *
      * @param uri the uri to test
      * @param graph
-     * @example ASK FROM <http://www.mygraph.com> { VALUES (?r) {
-     * (<http://www.w3.org/2000/01/rdf-schema#Literal>) } { ?r ?p ?o } UNION {
-     * ?s ?r ?o } UNION { ?s ?p ?r } }
+     * @example ASK { GRAPH <http://www.mygraph.com> { {
+     * <http://www.w3.org/2000/01/rdf-schema#Literal> ?p ?o } UNION { ?s
+     * <http://www.w3.org/2000/01/rdf-schema#Literal> ?o } UNION { ?s ?p
+     * <http://www.w3.org/2000/01/rdf-schema#Literal> } } }
      * @return true if the uri exist in the graph false if it does not exist
      */
     public boolean existUriInGraph(String uri, String graph) {
@@ -253,20 +278,9 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
             return false;
         }
         try {
-            String query = "ASK \n"
-                    + "  FROM <" + graph + "> {\n"
-                    + "\n"
-                    + " VALUES (?r) { (<" + uri + ">) }\n"
-                    + " { ?r ?p ?o }\n"
-                    + " UNION\n"
-                    + " { ?s ?r ?o }\n"
-                    + " UNION\n"
-                    + " { ?s ?p ?r }\n"
-                    + "  \n"
-                    + "}";
-
-            LOGGER.debug(SPARQL_QUERY + query);
-            BooleanQuery booleanQuery = prepareRDF4JBooleanQuery(query);
+            BooleanQuery booleanQuery = prepareRDF4JBooleanQuery(EXIST_URI_IN_GRAPH_QUERY);
+            booleanQuery.setBinding("r", SPARQLQueryTemplate.uri(uri));
+            booleanQuery.setBinding("g", SPARQLQueryTemplate.uri(graph));
             return booleanQuery.evaluate();
         } catch (Exception e) {
             return false;
@@ -451,8 +465,10 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
      *
      * <http://www.opensilex.org/vocabulary/oeso#ScientificObject> . FILTER (
      * (REGEX ( str(?label),".*2.*","i")) ) }
+     * @see #appendLabelFilter(opensilex.service.utils.sparql.SPARQLQueryBuilder, java.lang.String, java.lang.String, boolean, java.lang.String...)
      * @param label
-     * @return the list of URIs and labels
+     * @return the list of URIs and labels, whose labels start with or contain
+     * the given label
      */
     public Map<String, List<String>> findUriAndLabelsByLabelAndRdfType(String label, String rdfType) {
         //1. Generate the query
@@ -460,7 +476,8 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
         query.appendSelect("?" + URI + " ?" + LABEL);
         query.appendDistinct(Boolean.TRUE);
         query.appendTriplet("?" + URI, Rdfs.RELATION_LABEL.toString(), "?" + LABEL, null);
-        query.appendAndFilter("REGEX ( str(?" + LABEL + "),\".*" + label + ".*\",\"i\")");
+        // Used to select data: the labels of other resources must not match
+        appendLabelFilter(query, LABEL, label, false, rdfType);
         query.appendTriplet("?" + URI, Rdf.RELATION_TYPE.toString(), "?" + RDF_TYPE, null);
         query.appendTriplet("?" + RDF_TYPE, "<" + Rdfs.RELATION_SUBCLASS_OF + ">*", rdfType, null);
         LOGGER.debug(query.toString());
@@ -487,6 +504,83 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
         return urisAndLabels;
     }
 
+    /**
+     * Appends a label filter to the query: the resources of the ?uri variable
+     * must have a label matching the given text. The matching resources are
+     * searched in the {@link LabelIndex} and given in a VALUES clause. The
+     * labels are filtered with a REGEX instead if the index is disabled, not
+     * built yet or if too many resources match.
+     * @param query
+     * @param labelVariable variable of the labels, bound by the query
+     * @param label searched text
+     * @param rdfTypes types of the searched resources, or their super classes
+     * @example VALUES ?uri { <http://www.opensilex.org/opensilex/2019/o19000060> }
+     * @example FILTER ( (REGEX ( str(?label),".*2.*","i")) )
+     */
+    protected void appendLabelFilter(SPARQLQueryBuilder query, String labelVariable, String label, String... rdfTypes) {
+        appendLabelFilter(query, labelVariable, label, true, rdfTypes);
+    }
+
+    /**
+     * Appends a label filter to the query, with or without the labels
+     * matching the words of the text with typing errors.
+     * @see #appendLabelFilter(opensilex.service.utils.sparql.SPARQLQueryBuilder, java.lang.String, java.lang.String, java.lang.String...)
+     * @param query
+     * @param labelVariable variable of the labels, bound by the query
+     * @param label searched text
+     * @param fuzzy false to only keep the labels starting with or containing
+     * the text, like the REGEX filter
+     * @param rdfTypes types of the searched resources, or their super classes
+     */
+    protected void appendLabelFilter(SPARQLQueryBuilder query, String labelVariable, String label, boolean fuzzy, String... rdfTypes) {
+        List<String> uris = searchLabelIndex(label, Arrays.asList(rdfTypes), fuzzy);
+        if (uris == null) {
+            query.appendAndFilter("REGEX ( str(?" + labelVariable + "),\".*" + label + ".*\",\"i\")");
+        } else {
+            StringBuilder values = new StringBuilder("VALUES ?" + URI + " {");
+            for (String uri : uris) {
+                values.append(" <").append(uri).append(">");
+            }
+            query.appendToBody(values.append(" } ").toString());
+        }
+    }
+
+    /**
+     * @param label
+     * @param rdfTypes
+     * @param fuzzy
+     * @return the URIs found in the label index, null if it can't be used
+     */
+    private static List<String> searchLabelIndex(String label, Collection<String> rdfTypes, boolean fuzzy) {
+        LabelIndex labelIndex = LabelIndex.getInstance();
+        if (labelIndex == null || !labelIndex.isReady() || StringUtils.isBlank(label)) {
+            return null;
+        }
+        try {
+            return labelIndex.search(label, rdfTypes, fuzzy);
+        } catch (IOException ex) {
+            LOGGER.error("Label index search error, the labels are searched in the triplestore", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Updates the labels of the given resources in the {@link LabelIndex},
+     * after their creation, update or deletion. An index error doesn't fail
+     * the operation, the index must then be rebuilt.
+     * @param uris
+     */
+    protected void updateLabelIndex(Collection<String> uris) {
+        LabelIndex labelIndex = LabelIndex.getInstance();
+        if (labelIndex != null) {
+            try {
+                labelIndex.update(sparql, uris);
+            } catch (IOException | RDF4JException ex) {
+                LOGGER.error("Label index update error, it must be rebuilt", ex);
+            }
+        }
+    }
+
     /**
      * Get the list of labels for a given uri.
      *
@@ -564,6 +658,9 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
             sparql.startTransaction();
             deleteAll(uris);
             sparql.commitTransaction();
+            updateLabelIndex(uris);
+            // Deleted URIs may be part of any cached catalogue
+            ModificationCounter.increment(ModificationCounter.Scope.values());
         } catch (RepositoryException | UpdateExecutionException e) {
             sparql.rollbackTransaction();
             returnedException = new DAOPersistenceException(e);
@@ -581,22 +678,40 @@ public abstract class Rdf4jDAO<T> extends DAO<T> {
         return sparql.getRepositoryConnection();
     }
 
+    /**
+     * Prepares a tuple query. Its evaluation is timed by {@link QueryMetrics}.
+     * @param query
+     * @return the query
+     */
     public TupleQuery prepareRDF4JTupleQuery(Object query) {
-        TupleQuery tupleQuery = getConnection().prepareTupleQuery(QueryLanguage.SPARQL, query.toString());
+        String queryText = query.toString();
+        TupleQuery tupleQuery = getConnection().prepareTupleQuery(QueryLanguage.SPARQL, queryText);
         tupleQuery.setMaxExecutionTime(RDF4JConnection.TIMEOUT);
-        return tupleQuery;
+        return QueryMetrics.timed(TupleQuery.class, tupleQuery, queryText);
     }
 
+    /**
+     * Prepares an update query. Its execution is timed by {@link QueryMetrics}.
+     * @param query
+     * @return the query
+     */
     public Update prepareRDF4JUpdateQuery(Object query) {
-        Update update = getConnection().prepareUpdate(QueryLanguage.SPARQL, query.toString());
+        String queryText = query.toString();
+        Update update = getConnection().prepareUpdate(QueryLanguage.SPARQL, queryText);
         update.setMaxExecutionTime(RDF4JConnection.TIMEOUT);
-        return update;
+        return QueryMetrics.timed(Update.class, update, queryText);
     }
 
+    /**
+     * Prepares a boolean query. Its evaluation is timed by {@link QueryMetrics}.
+     * @param query
+     * @return the query
+     */
     public BooleanQuery prepareRDF4JBooleanQuery(Object query) {
-        BooleanQuery booleanQuery = getConnection().prepareBooleanQuery(QueryLanguage.SPARQL, query.toString());
+        String queryText = query.toString();
+        BooleanQuery booleanQuery = getConnection().prepareBooleanQuery(QueryLanguage.SPARQL, queryText);
         booleanQuery.setMaxExecutionTime(RDF4JConnection.TIMEOUT);
-        return booleanQuery;
+        return QueryMetrics.timed(BooleanQuery.class, booleanQuery, queryText);
     }
 
     public RepositoryResult<Namespace> getNamespaces() {
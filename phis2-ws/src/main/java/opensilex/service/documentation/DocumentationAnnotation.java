@@ -160,6 +160,7 @@ public final class DocumentationAnnotation {
     public static final String EXAMPLE_SCIENTIFIC_OBJECT_POLYGON = "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))";
     public static final String EXAMPLE_SCIENTIFIC_OBJECT_URI = "http://www.opensilex.org/demo/2018/o18000076";
     public static final String EXAMPLE_SCIENTIFIC_OBJECT_TYPE = "http://www.opensilex.org/vocabulary/oeso#Plot";
+    public static final String EXAMPLE_SCIENTIFIC_OBJECT_GEOMETRY = "POLYGON((3.97 43.61, 3.98 43.61, 3.98 43.62, 3.97 43.62, 3.97 43.61))";
     public static final String EXAMPLE_SCIENTIFIC_OBJECT_ALIAS = "Plot01";
 
     public static final String EXAMPLE_IMAGE_TYPE = "http://www.opensilex.org/vocabulary/oeso#HemisphericalImage";
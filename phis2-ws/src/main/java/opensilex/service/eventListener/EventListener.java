@@ -7,10 +7,10 @@
 //******************************************************************************
 package opensilex.service.eventListener;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
 import opensilex.service.PropertiesFileManager;
-import opensilex.service.shinyProxy.ShinyProxyService;
+import opensilex.service.dao.ScientificObjectMongoDAO;
+import opensilex.service.dao.manager.LabelIndex;
+import opensilex.service.shinyProxy.ShinyProxyReloadWorker;
 import org.glassfish.jersey.server.monitoring.ApplicationEvent;
 import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
 import org.glassfish.jersey.server.monitoring.RequestEvent;
@@ -27,9 +27,13 @@ public class EventListener implements ApplicationEventListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventListener.class);
 
+    /**
+     * Maximum time to wait for a running ShinyProxy reload at shutdown, in seconds.
+     */
+    private static final long SHINYPROXY_SHUTDOWN_TIMEOUT = 30;
+
     @Override
     public void onEvent(ApplicationEvent applicationEvent) {
-        ShinyProxyService shinyProxyProcess = new ShinyProxyService();
         switch (applicationEvent.getType()) {
             case INITIALIZATION_START:
                 LOGGER.info("Initialization OpenSILEX WS started");
@@ -45,13 +49,17 @@ public class EventListener implements ApplicationEventListener {
                                 "shinyproxy.run"
                         ));
                 if (shinyproxyMustBeActived) {
-                    CompletableFuture<String> completableFuture
-                            = new CompletableFuture<>();
-                    Executors.newCachedThreadPool().submit(() -> {
-                        shinyProxyProcess.reload();
-                        completableFuture.complete("Shiny Proxy Complete");
-                        return null;
-                    });
+                    ShinyProxyReloadWorker.getInstance().requestReload();
+                }
+                ScientificObjectMongoDAO.prepareCollectionInBackground();
+                LabelIndex labelIndex = LabelIndex.getInstance();
+                if (labelIndex != null) {
+                    // The labels may have changed while the web service was stopped
+                    labelIndex.requestRebuild();
+                    int refreshPeriod = PropertiesFileManager.getConfig().getLabelIndexRefreshPeriod();
+                    if (refreshPeriod > 0) {
+                        labelIndex.scheduleRebuilds(refreshPeriod);
+                    }
                 }
                 break;
             case RELOAD_FINISHED:
@@ -59,7 +67,10 @@ public class EventListener implements ApplicationEventListener {
                 break;
             case DESTROY_FINISHED:
                 LOGGER.info("Destroying ShinyProxy Process completed");
-                shinyProxyProcess.stop();
+                ShinyProxyReloadWorker.getInstance().shutdown(SHINYPROXY_SHUTDOWN_TIMEOUT);
+                if (LabelIndex.getInstance() != null) {
+                    LabelIndex.getInstance().close();
+                }
                 LOGGER.info("Destroy OpenSILEX WS completed");
                 break;
         }
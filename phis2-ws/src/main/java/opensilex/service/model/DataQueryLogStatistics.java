@@ -0,0 +1,81 @@
+//******************************************************************************
+//                          DataQueryLogStatistics.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.model;
+
+/**
+ * Statistics of a group of data queries (the queries of a user, of a service,
+ * on a variable or during a period).
+ */
+public class DataQueryLogStatistics {
+
+    /**
+     * Group of the queries: user URI, service, variable URI or period.
+     * @example http://www.opensilex.org/demo/id/variable/v0000001
+     */
+    protected String key;
+
+    /**
+     * Number of queries.
+     */
+    protected long count;
+
+    /**
+     * Total number of results returned by the queries.
+     */
+    protected long totalResultSize;
+
+    /**
+     * Largest number of results returned by a query.
+     */
+    protected Integer maxResultSize;
+
+    /**
+     * Average duration of the queries, in milliseconds.
+     */
+    protected Double averageDuration;
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getTotalResultSize() {
+        return totalResultSize;
+    }
+
+    public void setTotalResultSize(long totalResultSize) {
+        this.totalResultSize = totalResultSize;
+    }
+
+    public Integer getMaxResultSize() {
+        return maxResultSize;
+    }
+
+    public void setMaxResultSize(Integer maxResultSize) {
+        this.maxResultSize = maxResultSize;
+    }
+
+    public Double getAverageDuration() {
+        return averageDuration;
+    }
+
+    public void setAverageDuration(Double averageDuration) {
+        this.averageDuration = averageDuration;
+    }
+}
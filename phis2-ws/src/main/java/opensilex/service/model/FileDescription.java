@@ -26,6 +26,7 @@ public class FileDescription {
     private List<ConcernedItem> concernedItems;
     private String provenanceUri;
     private Map<String, Object> metadata;
+    private String checksum;
     
     public String getUri() {
         return uri;
@@ -99,4 +100,16 @@ public class FileDescription {
     public void setWebPath(String webPath) {
         this.webPath = webPath;
     }
+
+    /**
+     * @return MD5 of the file content as a hexadecimal string, null for the
+     * files described before it was registered.
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
 }
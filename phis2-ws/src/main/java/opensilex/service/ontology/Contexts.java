@@ -7,6 +7,7 @@
 //******************************************************************************
 package opensilex.service.ontology;
 
+import opensilex.service.ConfigSnapshot;
 import opensilex.service.PropertiesFileManager;
 
 /**
@@ -55,8 +56,8 @@ public enum Contexts {
     PLATFORM {
         @Override
         public String toString() {
-            return PropertiesFileManager.getConfigFileProperty("sesame_rdf_config", "baseURI") 
-                    + PropertiesFileManager.getConfigFileProperty("sesame_rdf_config", "infrastructure") + "/";
+            ConfigSnapshot config = PropertiesFileManager.getConfig();
+            return config.getBaseURI() + config.getInfrastructure() + "/";
         }
     },
     //The context which contains all the declared projects
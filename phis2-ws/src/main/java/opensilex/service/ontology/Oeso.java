@@ -7,6 +7,7 @@
 //******************************************************************************
 package opensilex.service.ontology;
 
+import opensilex.service.ConfigSnapshot;
 import opensilex.service.PropertiesFileManager;
 
 /**
@@ -194,8 +195,8 @@ public enum Oeso {
     PLATFORM_URI {
         @Override
         public String toString() {
-            return PropertiesFileManager.getConfigFileProperty("sesame_rdf_config", "baseURI") 
-                    + PropertiesFileManager.getConfigFileProperty("sesame_rdf_config", "infrastructure");
+            ConfigSnapshot config = PropertiesFileManager.getConfig();
+            return config.getBaseURI() + config.getInfrastructure();
         }
     },
     
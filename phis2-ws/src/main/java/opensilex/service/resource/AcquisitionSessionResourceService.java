@@ -28,8 +28,10 @@ import opensilex.service.dao.AcquisitionSessionDAO;
 import opensilex.service.documentation.DocumentationAnnotation;
 import opensilex.service.resource.dto.acquisitionSession.MetadataFileDTO;
 import opensilex.service.resource.dto.acquisitionSession.MetadataFileUAVDTO;
+import opensilex.service.resource.request.filter.CacheValidated;
 import opensilex.service.resource.validation.interfaces.Required;
 import opensilex.service.resource.validation.interfaces.URL;
+import opensilex.service.utils.ModificationCounter;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.result.ResultForm;
 import org.opensilex.rest.authentication.ApiProtected;
@@ -128,6 +130,7 @@ public class AcquisitionSessionResourceService extends ResourceService {
      */
     @GET
     @Path("metadataFile")
+    @CacheValidated(ModificationCounter.Scope.DEVICES)
     @ApiOperation(value = "Get the metadata for the acquisition session file",
             notes = "Retrieve the metadata for the acquisition session file. Need URL encoded of the vector type of the acquisition session (uav or drone)")
     @ApiResponses(value = {
@@ -11,13 +11,31 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import java.util.ArrayList;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import opensilex.service.ConfigSnapshot;
+import opensilex.service.PhisWsModule;
+import opensilex.service.dao.AcquisitionSessionDAO;
+import opensilex.service.dao.PropertyDAO;
+import opensilex.service.dao.manager.LabelIndex;
+import opensilex.service.dao.manager.QueryMetrics;
 import opensilex.service.documentation.DocumentationAnnotation;
+import opensilex.service.documentation.StatusCodeMsg;
 import opensilex.service.resource.dto.ApiDescriptionDTO;
+import opensilex.service.resource.dto.QueryMetricsDTO;
+import opensilex.service.result.ResultForm;
+import opensilex.service.utils.ModificationCounter;
+import opensilex.service.view.brapi.Status;
+import opensilex.service.view.brapi.form.ResponseFormGET;
+import opensilex.service.view.brapi.form.ResponseFormPOST;
+import org.opensilex.rest.authentication.ApiProtected;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Api ressource service
@@ -27,6 +45,8 @@ import opensilex.service.resource.dto.ApiDescriptionDTO;
 @Path("/api")
 public class ApiResourceService extends ResourceService {
 
+    final static Logger LOGGER = LoggerFactory.getLogger(ApiResourceService.class);
+
     /**
      * Describe API state
      * @return list of API descritpions
@@ -49,4 +69,193 @@ public class ApiResourceService extends ResourceService {
         ApiDescriptionDTO apiDescription = new ApiDescriptionDTO();
         return Response.status(Response.Status.OK).entity(apiDescription).build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Reloads the web service configuration. The new configuration replaces
+     * the current one at once, for the next requests. The ontology
+     * cardinalities and the acquisition session metadata files kept in cache
+     * are also generated again, and the modification counters are incremented
+     * so that the clients don't keep the responses validated before the
+     * reload, for the data changed directly in the stores.
+     * Only available to the administrators.
+     * @return the new configuration version
+     * @example
+     * {
+     *   "metadata": {
+     *     "pagination": null,
+     *     "status": [
+     *       {
+     *         "message": "Configuration reloaded",
+     *         "exception": {
+     *           "type": "Info",
+     *           "href": null,
+     *           "details": "Configuration version 2"
+     *         }
+     *       }
+     *     ],
+     *     "datafiles": []
+     *   }
+     * }
+     */
+    @POST
+    @Path("configuration/reload")
+    @ApiOperation(value = "Reload the web service configuration",
+                  notes = "Only available to the administrators.")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Configuration reloaded", response = ResponseFormPOST.class),
+        @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 403, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_SEND_DATA)
+    })
+    @ApiProtected
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response reloadConfiguration() {
+        if (!Boolean.TRUE.equals(userSession.getOpenSilexUser().isAdmin())) {
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity(new ResponseFormPOST(new Status("Access denied", StatusCodeMsg.ERR,
+                            "Only administrators can reload the configuration")))
+                    .build();
+        }
+        try {
+            ConfigSnapshot config = PhisWsModule.reloadConfiguration();
+            PropertyDAO.clearCardinalitiesCache();
+            AcquisitionSessionDAO.clearMetadataFilesCache();
+            ModificationCounter.increment(ModificationCounter.Scope.values());
+            LOGGER.info("Configuration reloaded by " + userSession.getOpenSilexUser().getEmail());
+            return Response.status(Response.Status.OK)
+                    .entity(new ResponseFormPOST(new Status("Configuration reloaded", StatusCodeMsg.INFO,
+                            "Configuration version " + config.getVersion())))
+                    .build();
+        } catch (Exception ex) {
+            LOGGER.error("Configuration reload failed, current configuration kept", ex);
+            return getResponseWhenInternalError(ex);
+        }
+    }
+
+    /**
+     * Gets the durations histograms of the triplestore and MongoDB queries
+     * since the web service start, by DAO method. The buckets give the number
+     * of queries shorter than or equal to each duration, in milliseconds.
+     * Only available to the administrators.
+     * @return the histograms
+     * @example
+     * {
+     *   "metadata": {
+     *     "pagination": null,
+     *     "status": [],
+     *     "datafiles": []
+     *   },
+     *   "result": {
+     *     "data": [
+     *       {
+     *         "store": "triplestore",
+     *         "operation": "GermplasmDAO.find",
+     *         "count": 1542,
+     *         "totalDuration": 356990,
+     *         "maxDuration": 4210,
+     *         "buckets": {
+     *           "5": 0,
+     *           "10": 12,
+     *           ...
+     *           "10000": 1542,
+     *           "+Inf": 1542
+     *         }
+     *       }
+     *     ]
+     *   }
+     * }
+     */
+    @GET
+    @Path("metrics/queries")
+    @ApiOperation(value = "Get the durations histograms of the triplestore and MongoDB queries",
+                  notes = "Only available to the administrators.")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Retrieve queries metrics"),
+        @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 403, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_FETCH_DATA)
+    })
+    @ApiProtected
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getQueryMetrics() {
+        if (!Boolean.TRUE.equals(userSession.getOpenSilexUser().isAdmin())) {
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity(new ResponseFormGET(new Status("Access denied", StatusCodeMsg.ERR,
+                            "Only administrators can get the queries metrics")))
+                    .build();
+        }
+
+        ArrayList<QueryMetricsDTO> list = new ArrayList<>();
+        for (QueryMetrics.Histogram histogram : QueryMetrics.getHistograms()) {
+            list.add(new QueryMetricsDTO(histogram));
+        }
+        ResultForm<QueryMetricsDTO> getResponse = new ResultForm<>(0, 0, list, true);
+        if (list.isEmpty()) {
+            return noResultFound(getResponse, new ArrayList<>());
+        }
+        return Response.status(Response.Status.OK).entity(getResponse).build();
+    }
+
+    /**
+     * Refreshes the label index from all the labels of the triplestore, in
+     * background, e.g. after labels have been written directly in the
+     * triplestore. The current index entries are searched until the end of
+     * the refresh. Only available to the administrators.
+     * @return the rebuild status
+     * @example
+     * {
+     *   "metadata": {
+     *     "pagination": null,
+     *     "status": [
+     *       {
+     *         "message": "Label index rebuild started",
+     *         "exception": {
+     *           "type": "Info",
+     *           "href": null,
+     *           "details": "The current index entries are searched until the end of the refresh"
+     *         }
+     *       }
+     *     ],
+     *     "datafiles": []
+     *   }
+     * }
+     */
+    @POST
+    @Path("labelIndex/rebuild")
+    @ApiOperation(value = "Rebuild the label index",
+                  notes = "Only available to the administrators.")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Label index rebuild started", response = ResponseFormPOST.class),
+        @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 403, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 409, message = "Label index already being rebuilt"),
+        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_SEND_DATA)
+    })
+    @ApiProtected
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response rebuildLabelIndex() {
+        if (!Boolean.TRUE.equals(userSession.getOpenSilexUser().isAdmin())) {
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity(new ResponseFormPOST(new Status("Access denied", StatusCodeMsg.ERR,
+                            "Only administrators can rebuild the label index")))
+                    .build();
+        }
+        LabelIndex labelIndex = LabelIndex.getInstance();
+        if (labelIndex == null) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(new ResponseFormPOST(new Status("Label index unavailable", StatusCodeMsg.ERR,
+                            "The label index is disabled or can't be opened, see the web service logs")))
+                    .build();
+        }
+        if (!labelIndex.requestRebuild()) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(new ResponseFormPOST(new Status("Label index already being rebuilt", StatusCodeMsg.ERR, null)))
+                    .build();
+        }
+        LOGGER.info("Label index rebuild requested by " + userSession.getOpenSilexUser().getEmail());
+        return Response.status(Response.Status.OK)
+                .entity(new ResponseFormPOST(new Status("Label index rebuild started", StatusCodeMsg.INFO,
+                        "The current index entries are searched until the end of the refresh")))
+                .build();
+    }
+}
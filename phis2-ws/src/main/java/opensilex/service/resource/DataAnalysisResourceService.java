@@ -17,6 +17,7 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
@@ -26,6 +27,9 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import opensilex.service.configuration.DefaultBrapiPaginationValues;
@@ -37,11 +41,13 @@ import opensilex.service.model.ScientificAppDescription;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.result.ResultForm;
 import opensilex.service.resource.dto.ScientificAppDTO;
-import opensilex.service.shinyProxy.ShinyProxyService;
+import opensilex.service.shinyProxy.ShinyProxyReloadWorker;
 import opensilex.service.view.brapi.form.ResponseFormGET;
 import opensilex.service.view.brapi.form.ResponseFormPOST;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.sparql.service.SPARQLService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * DataAnalysis resource service.
@@ -52,6 +58,8 @@ import org.opensilex.sparql.service.SPARQLService;
 //@Path("/dataAnalysis")
 public class DataAnalysisResourceService extends ResourceService {
 
+    final static Logger LOGGER = LoggerFactory.getLogger(DataAnalysisResourceService.class);
+
     @Inject
     public DataAnalysisResourceService(SPARQLService sparql) {
         this.sparql = sparql;
@@ -61,11 +69,14 @@ public class DataAnalysisResourceService extends ResourceService {
 
     /**
      * Call R function via OpenCPU Server
+     * The request thread is released while the R function is running: the
+     * call is executed by the OpenCPU calls pool and the response is sent
+     * when it is done, or when the call timeout is over.
      *
+     * @param asyncResponse
      * @param packageName R package name
      * @param functionName function Name
      * @param jsonParameters function parameters in Json
-     * @return Response
      * @example
      */
     @POST
@@ -76,27 +87,62 @@ public class DataAnalysisResourceService extends ResourceService {
         @ApiResponse(code = 201, message = "Retrieve data from R call", response = JsonObject.class, responseContainer = "List"),
         @ApiResponse(code = 400, message = DocumentationAnnotation.BAD_USER_INFORMATION),
         @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
-        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_FETCH_DATA)
+        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_FETCH_DATA),
+        @ApiResponse(code = 503, message = "Too many R calls running"),
+        @ApiResponse(code = 504, message = "R call timeout")
     })
     @ApiProtected
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getRfunctionResults(
+    public void getRfunctionResults(
+            @Suspended final AsyncResponse asyncResponse,
             @ApiParam(required = true) @QueryParam("packageName") @DefaultValue("stats") @NotEmpty String packageName,
             @ApiParam(required = true) @QueryParam("functionName") @DefaultValue("rnorm") @NotEmpty String functionName,
             @QueryParam("jsonParameters") String jsonParameters) {
 
         RDAO rDao = new RDAO();
-        Response functionCallResponse = rDao.opencpuRFunctionProxyCall(packageName, functionName, jsonParameters);
 
+        ResponseFormPOST timeoutResponse = new ResponseFormPOST(new Status(StatusCodeMsg.ERR, StatusCodeMsg.TIMEOUT, 
+                "No result from " + packageName + "::" + functionName + " after " + rDao.getTimeout() + " seconds"));
+        asyncResponse.setTimeoutHandler(timedOutResponse -> 
+            timedOutResponse.resume(Response.status(Response.Status.GATEWAY_TIMEOUT).entity(timeoutResponse).build()));
+        asyncResponse.setTimeout(rDao.getTimeout(), TimeUnit.SECONDS);
+
+        rDao.opencpuRFunctionCall(packageName, functionName, jsonParameters)
+                .whenComplete((functionCallResult, error) -> {
+                    if (error == null) {
+                        asyncResponse.resume(getRfunctionResponse(functionCallResult));
+                    } else if (RDAO.isRejected(error)) {
+                        ResponseFormPOST noReponse = new ResponseFormPOST(new Status(StatusCodeMsg.ERR, StatusCodeMsg.REQUEST_ERROR, 
+                                "Too many R calls running, try again later"));
+                        asyncResponse.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, rDao.getTimeout())
+                                .entity(noReponse)
+                                .build());
+                    } else if (RDAO.isTimedOut(error)) {
+                        asyncResponse.resume(Response.status(Response.Status.GATEWAY_TIMEOUT).entity(timeoutResponse).build());
+                    } else {
+                        LOGGER.error(error.getMessage(), error);
+                        ResponseFormPOST noReponse = new ResponseFormPOST(new Status(StatusCodeMsg.ERR, StatusCodeMsg.UNEXPECTED_ERROR, 
+                                error.getMessage()));
+                        asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(noReponse).build());
+                    }
+                });
+    }
+
+    /**
+     * @param functionCallResult
+     * @return the response to send for a R function call result
+     */
+    private Response getRfunctionResponse(RDAO.RFunctionResult functionCallResult) {
         ResultForm<JsonElement> getResponse;
         ArrayList<JsonElement> resultValues = null;
 
         JsonElement jsonResult = null;
-        String stringResult = functionCallResponse.readEntity(String.class);
+        String stringResult = functionCallResult.getBody();
 
-        if (functionCallResponse.getStatus() != Response.Status.CREATED.getStatusCode()) {
+        if (!functionCallResult.isSuccessful()) {
             ResponseFormPOST noReponse = new ResponseFormPOST(new Status(StatusCodeMsg.ERR, StatusCodeMsg.BAD_DATA_FORMAT, stringResult));
-            return Response.status(functionCallResponse.getStatus()).entity(noReponse).build();
+            return Response.status(functionCallResult.getStatus()).entity(noReponse).build();
         } else {
             jsonResult = new JsonParser().parse(stringResult);
             resultValues = new ArrayList<>();
@@ -126,15 +172,15 @@ public class DataAnalysisResourceService extends ResourceService {
     @ApiProtected
     @Produces(MediaType.APPLICATION_JSON)
     public Response shinyProxyServerStatus() {
+        ShinyProxyReloadWorker.ReloadStatus reloadStatus = ShinyProxyReloadWorker.getInstance().getStatus();
         ResponseFormGET response;
         Response.Status responseCode;
-        if (ShinyProxyService.SHINYPROX_RUN_STATE) {
+        if (reloadStatus.getState() != ShinyProxyReloadWorker.State.IDLE) {
+            response = new ResponseFormGET(new Status(StatusCodeMsg.INFO, "Updating app", null));
+            responseCode = Response.Status.CREATED;
+        } else if (reloadStatus.isRunning()) {
             response = new ResponseFormGET(new Status(StatusCodeMsg.INFO, "Running", null));
             responseCode = Response.Status.OK;
-            if (ShinyProxyService.SHINYPROXY_UPDATE_APP_STATE) {
-                response = new ResponseFormGET(new Status(StatusCodeMsg.INFO, "Updating app", null));
-                responseCode = Response.Status.CREATED;
-            }
         } else {
             response = new ResponseFormGET(new Status(StatusCodeMsg.INFO, "Not Running", null));
             responseCode = Response.Status.SERVICE_UNAVAILABLE;
@@ -143,6 +189,52 @@ public class DataAnalysisResourceService extends ResourceService {
         return Response.status(responseCode).entity(response).build();
     }
 
+    /**
+     * Shiny Proxy reload status: current reload step, pending reload, number
+     * of reloads and error of the last reload.
+     *
+     * @return Response
+     * @example
+     * {
+     *   "metadata": {
+     *     "pagination": null,
+     *     "status": [],
+     *     "datafiles": []
+     *   },
+     *   "result": {
+     *     "data": [
+     *       {
+     *         "state": "IDLE",
+     *         "running": true,
+     *         "reloadPending": false,
+     *         "reloadRequests": 3,
+     *         "reloads": 2,
+     *         "lastReloadStart": "2020-10-12T10:31:12+0200",
+     *         "lastReloadEnd": "2020-10-12T10:32:40+0200",
+     *         "lastError": null
+     *       }
+     *     ]
+     *   }
+     * }
+     */
+    @GET
+    @Path("shinyServerReloadStatus")
+    @ApiOperation(value = "Get the Shiny Proxy reload status")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Reload status"),
+        @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_FETCH_DATA)
+    })
+    @ApiProtected
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response shinyProxyReloadStatus() {
+        ArrayList<ShinyProxyReloadWorker.ReloadStatus> reloadStatus = new ArrayList<>();
+        reloadStatus.add(ShinyProxyReloadWorker.getInstance().getStatus());
+        return Response.status(Response.Status.OK)
+                .entity(new ResultForm<>(0, 0, reloadStatus, true))
+                .build();
+    }
+
     /**
      * Shiny Proxy Server Status
      *
@@ -13,8 +13,10 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,11 +38,14 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.apache.commons.io.FilenameUtils;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import opensilex.service.PropertiesFileManager;
 import opensilex.service.configuration.DateFormat;
 import opensilex.service.configuration.DefaultBrapiPaginationValues;
@@ -59,7 +64,9 @@ import opensilex.service.resource.dto.data.FileDescriptionPostDTO;
 import opensilex.service.resource.validation.interfaces.Date;
 import opensilex.service.resource.validation.interfaces.Required;
 import opensilex.service.resource.validation.interfaces.URL;
+import opensilex.service.utils.HashingInputStream;
 import opensilex.service.utils.POSTResultsReturn;
+import opensilex.service.utils.RangedResponseBuilder;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.view.brapi.form.AbstractResultForm;
 import opensilex.service.view.brapi.form.ResponseFormPOST;
@@ -82,6 +89,8 @@ import org.opensilex.sparql.service.SPARQLService;
 @Path("/data")
 public class DataResourceService extends ResourceService {
 
+    final static Logger LOGGER = LoggerFactory.getLogger(DataResourceService.class);
+
     @Inject
     private FileStorageService fs;
 
@@ -290,8 +299,9 @@ public class DataResourceService extends ResourceService {
      * Saves data file with its metadata and use MULTIPART_FORM_DATA for it.
      * fileContentDisposition parameter is automatically created from submitted file.
      * No example could be provided for this kind of MediaType 
+     * The checksum of the file is computed while it is received.
      * @param descriptionDto
-     * @param file
+     * @param fileContent
      * @param fileContentDisposition
      * @return the insertion result.
      */
@@ -308,17 +318,24 @@ public class DataResourceService extends ResourceService {
     @Produces(MediaType.APPLICATION_JSON)
     public Response postDataFile(
             @ApiParam(value = "File description with metadata", required = true, type = "string") @NotNull @Valid @FormDataParam("description") FileDescriptionPostDTO descriptionDto,
-            @ApiParam(value = "Data file", required = true, type = "file") @NotNull @FormDataParam("file") File file,
+            @ApiParam(value = "Data file", required = true, type = "file") @NotNull @FormDataParam("file") InputStream fileContent,
             @FormDataParam("file") FormDataContentDisposition fileContentDisposition
     ) throws Exception {
         FileDescriptionDAO fileDescriptionDao = new FileDescriptionDAO(sparql);
         AbstractResultForm postResponse = null;
+        java.nio.file.Path receivedFile = null;
         try {
             FileDescription description = descriptionDto.createObjectFromDTO();
             description.setFilename(fileContentDisposition.getFileName());
+
+            receivedFile = Files.createTempFile("dataFile", ".upload");
+            try (HashingInputStream hashingContent = new HashingInputStream(fileContent)) {
+                Files.copy(hashingContent, receivedFile, StandardCopyOption.REPLACE_EXISTING);
+                description.setChecksum(hashingContent.getHash());
+            }
             POSTResultsReturn result = fileDescriptionDao.checkAndInsert(
                     description,
-                    file,
+                    receivedFile.toFile(),
                     fs
             );
 
@@ -335,6 +352,14 @@ public class DataResourceService extends ResourceService {
         } catch (ParseException e) {
             postResponse = new ResponseFormPOST(new Status(StatusCodeMsg.REQUEST_ERROR, StatusCodeMsg.ERR, e.getMessage()));
             return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
+        } finally {
+            if (receivedFile != null) {
+                try {
+                    Files.deleteIfExists(receivedFile);
+                } catch (IOException ex) {
+                    LOGGER.warn("Can't delete the temporary data file " + receivedFile, ex);
+                }
+            }
         }
     }
 
@@ -450,8 +475,9 @@ public class DataResourceService extends ResourceService {
      * authentication on this service because image file must be accessible
      * directly.
      *
+     * The Range header is supported to resume or split downloads.
      * @param fileUri
-     * @param response
+     * @param headers
      * @return The file content or null with a 404 status if it doesn't exists
      */
     @GET
@@ -459,15 +485,17 @@ public class DataResourceService extends ResourceService {
     @ApiOperation(value = "Get data file")
     @ApiResponses(value = {
         @ApiResponse(code = 200, message = "Retrieve file"),
+        @ApiResponse(code = 206, message = "Retrieve the requested range of the file"),
         @ApiResponse(code = 400, message = DocumentationAnnotation.BAD_USER_INFORMATION),
         @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
         @ApiResponse(code = 404, message = DocumentationAnnotation.FILE_NOT_FOUND),
+        @ApiResponse(code = 416, message = "Requested range not satisfiable"),
         @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_FETCH_DATA)
     })
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
     public Response getDataFile(
             @ApiParam(value = "Search by fileUri", required = true, example = DocumentationAnnotation.EXAMPLE_EXPERIMENT_URI) @PathParam("fileUri") @URL @Required String fileUri,
-            @Context HttpServletResponse response
+            @Context HttpHeaders headers
     ) throws Exception {
         FileDescriptionDAO dataFileDao = new FileDescriptionDAO(sparql);
 
@@ -477,15 +505,15 @@ public class DataResourceService extends ResourceService {
             return Response.status(404).build();
         }
 
-        try {
-            FileInputStream stream = new FileInputStream(new File(description.getPath()));
-
-            return Response.ok(stream, MediaType.APPLICATION_OCTET_STREAM)
-                    .header("Content-Disposition", "attachment; filename=\"" + description.getFilename() + "\"") //optional
-                    .build();
-        } catch (FileNotFoundException ex) {
+        File file = new File(description.getPath());
+        if (!file.isFile()) {
             return Response.status(404).build();
         }
+
+        return new RangedResponseBuilder(headers, file.length(), description.getFilename())
+                .checksum(description.getChecksum())
+                .lastModified(new java.util.Date(file.lastModified()))
+                .build(RangedResponseBuilder.fileWriter(file.toPath()));
     }
 
     /**
@@ -8,25 +8,20 @@
 //******************************************************************************
 package opensilex.service.resource;
 
-import com.twmacinta.util.MD5;
+import com.mongodb.gridfs.GridFSDBFile;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
-import java.io.File;
-import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
@@ -62,8 +57,9 @@ import opensilex.service.ontology.Contexts;
 import opensilex.service.resource.dto.DocumentMetadataDTO;
 import opensilex.service.resource.validation.interfaces.Date;
 import opensilex.service.resource.validation.interfaces.URL;
-import opensilex.service.utils.DocumentWaitingCheck;
 import opensilex.service.utils.POSTResultsReturn;
+import opensilex.service.utils.PendingUploadRegistry;
+import opensilex.service.utils.RangedResponseBuilder;
 import opensilex.service.utils.ResourcesUtils;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.view.brapi.form.AbstractResultForm;
@@ -72,7 +68,7 @@ import opensilex.service.view.brapi.form.ResponseFormPOST;
 import opensilex.service.model.Document;
 import opensilex.service.resource.validation.interfaces.SortingValue;
 import opensilex.service.result.ResultForm;
-import opensilex.service.shinyProxy.ShinyProxyService;
+import opensilex.service.shinyProxy.ShinyProxyReloadWorker;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.sparql.service.SPARQLService;
 
@@ -104,11 +100,8 @@ public class DocumentResourceService extends ResourceService {
 
     final static Logger LOGGER = LoggerFactory.getLogger(DocumentResourceService.class);
 
-    // Gère les annotations en attene
-    public final static ExecutorService THREAD_POOL = Executors.newCachedThreadPool();
-    // Deux Maps qui contiennent les informations sur les annotations en attentes
-    public final static Map<String, Boolean> WAITING_ANNOT_FILE_CHECK = new HashMap<>();
-    public final static Map<String, DocumentMetadataDTO> WAITING_ANNOT_INFORMATION = new HashMap<>();
+    // Documents metadata waiting for their file
+    public final static PendingUploadRegistry<DocumentMetadataDTO> PENDING_UPLOADS = new PendingUploadRegistry<>();
 
     /**
      * Checks JSON annotations.
@@ -162,10 +155,7 @@ public class DocumentResourceService extends ResourceService {
                             .toString();
                     //Ajout URI en attente
                     uriList.add(uploadLink);
-                    WAITING_ANNOT_FILE_CHECK.put(docsUri, false); // Waiting file
-                    WAITING_ANNOT_INFORMATION.put(docsUri, docsM);
-                    // Run thread for waiting file
-                    THREAD_POOL.submit(new DocumentWaitingCheck(docsUri));
+                    PENDING_UPLOADS.register(docsUri, docsM); // Waiting file
                 }
                 final Status waitingTimeStatus = new Status(
                         "Timeout",
@@ -187,8 +177,10 @@ public class DocumentResourceService extends ResourceService {
 
     /**
      * Address of the file to send.
+     * The file is saved while it is received and its checksum is computed
+     * at the same time. A corrupted file is removed before the response.
      *
-     * @param file File
+     * @param content File content
      * @param docUri Document URI
      * @param headers Request header
      * @param request
@@ -209,79 +201,68 @@ public class DocumentResourceService extends ResourceService {
     @Consumes(MediaType.APPLICATION_OCTET_STREAM)
     @Produces(MediaType.APPLICATION_JSON)
     public Response postDocumentFile(
-            @ApiParam(value = "File to upload") File file,
+            @ApiParam(value = "File to upload") InputStream content,
             @ApiParam(value = "URI given from \"/documents\" path for upload") @QueryParam("uri") @URL String docUri,
             @Context HttpHeaders headers,
             @Context HttpServletRequest request) throws Exception {
         ResponseFormPOST postResponse;
         List<Status> statusList = new ArrayList();
 
-        // Existing annotation
-        if (!WAITING_ANNOT_FILE_CHECK.containsKey(docUri)) {
-            statusList.add(new Status("No waiting file", "Error", "No waiting file for the following uri : " + docUri));
-            postResponse = new ResponseFormPOST(statusList);
-            return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
-        }
-
-        if (headers != null && headers.getLength() <= 0) {
+        if (headers != null && headers.getLength() == 0) {
             statusList.add(new Status("File error", "Error", "File Size : " + headers.getLength() + " octets"));
             postResponse = new ResponseFormPOST(statusList);
             return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
         }
 
-        // Check md5 checksum 
-        String hash = getHash(file);
-        if (hash != null && !WAITING_ANNOT_INFORMATION.get(docUri).getChecksum().equals(hash)) {
-            statusList.add(new Status("MD5 error", "Error", "Checksum MD5 doesn't match. Corrupted File."));
+        // Existing annotation, not already being received
+        DocumentMetadataDTO documentMetadata = PENDING_UPLOADS.startUpload(docUri);
+        if (documentMetadata == null) {
+            statusList.add(new Status("No waiting file", "Error", "No waiting file for the following uri : " + docUri));
             postResponse = new ResponseFormPOST(statusList);
             return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
         }
 
-        String media = WAITING_ANNOT_INFORMATION.get(docUri).getDocumentType();
-        media = media.substring(media.lastIndexOf("#") + 1, media.length());
+        try {
+            String media = documentMetadata.getDocumentType();
+            media = media.substring(media.lastIndexOf("#") + 1, media.length());
 
-        DocumentRdf4jDAO documentsDao = new DocumentRdf4jDAO(sparql);
-        if (request.getRemoteAddr() != null) {
-            documentsDao.remoteUserAdress = request.getRemoteAddr();
-        }
-        documentsDao.user = userSession.getUser();
-        final POSTResultsReturn insertAnnotationJSON
-                = documentsDao.insert(Arrays.asList(WAITING_ANNOT_INFORMATION.get(docUri)), file);
-
-        postResponse = new ResponseFormPOST(insertAnnotationJSON.statusList);
-
-        if (insertAnnotationJSON.getDataState()) { // JSON file state
-            WAITING_ANNOT_FILE_CHECK.remove(docUri);
-            WAITING_ANNOT_INFORMATION.remove(docUri);
-            if (insertAnnotationJSON.getHttpStatus() == Response.Status.CREATED) {
-                postResponse.getMetadata().setDatafiles((ArrayList) insertAnnotationJSON.createdResources);
-                final URI newUri = new URI(uri.getPath());
-                // Need to use event instead of "if" condition
-                if (media.equals("ShinyAppPackage")) {
-                    ShinyProxyService shinyProxyProcess = new ShinyProxyService();
-                    new Thread(() -> shinyProxyProcess.reload()).start();
+            DocumentRdf4jDAO documentsDao = new DocumentRdf4jDAO(sparql);
+            if (request.getRemoteAddr() != null) {
+                documentsDao.remoteUserAdress = request.getRemoteAddr();
+            }
+            documentsDao.user = userSession.getUser();
+            // The checksum is verified while the file is saved
+            final POSTResultsReturn insertAnnotationJSON
+                    = documentsDao.insert(Arrays.asList(documentMetadata), content);
+
+            postResponse = new ResponseFormPOST(insertAnnotationJSON.statusList);
+
+            if (insertAnnotationJSON.getDataState()) { // JSON file state
+                PENDING_UPLOADS.complete(docUri);
+                if (insertAnnotationJSON.getHttpStatus() == Response.Status.CREATED) {
+                    postResponse.getMetadata().setDatafiles((ArrayList) insertAnnotationJSON.createdResources);
+                    final URI newUri = new URI(uri.getPath());
+                    // Need to use event instead of "if" condition
+                    if (media.equals("ShinyAppPackage")) {
+                        ShinyProxyReloadWorker.getInstance().requestReload();
+                    }
+
+                    return Response
+                            .status(insertAnnotationJSON.getHttpStatus())
+                            .location(newUri)
+                            .entity(postResponse)
+                            .build();
+                } else {
+                    return Response.status(insertAnnotationJSON.getHttpStatus()).entity(postResponse).build();
                 }
-
-                return Response
-                        .status(insertAnnotationJSON.getHttpStatus())
-                        .location(newUri)
-                        .entity(postResponse)
-                        .build();
-            } else {
-                return Response.status(insertAnnotationJSON.getHttpStatus()).entity(postResponse).build();
             }
+            // Corrupted file: it can be sent again
+            PENDING_UPLOADS.release(docUri);
+            return Response.status(insertAnnotationJSON.getHttpStatus()).entity(postResponse).build();
+        } catch (Exception ex) {
+            PENDING_UPLOADS.release(docUri);
+            throw ex;
         }
-        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new ResponseFormPOST()).build();
-    }
-
-    private String getHash(File in) {
-        String hash = null;
-        try {
-            hash = MD5.asHex(MD5.getHash(in)); // e.g 106fa487baa1728083747de1c6df73e9
-        } catch (IOException ex) {
-            LOGGER.error(ex.getMessage(), ex);
-        }
-        return hash;
     }
 
     @GET
@@ -408,6 +389,7 @@ public class DocumentResourceService extends ResourceService {
      * Maybe just by changing the response status.
      * \SILEX:todo
      * @param documentURI URI of the document to download
+     * @param headers
      * @return the response with the document if the URI exists
      */
     @GET
@@ -427,8 +409,9 @@ public class DocumentResourceService extends ResourceService {
                     value = DocumentationAnnotation.DOCUMENT_URI_DEFINITION,
                     required = true,
                     example = DocumentationAnnotation.EXAMPLE_DOCUMENT_URI)
-            @PathParam("documentURI") String documentURI) {
-        return getFile(documentURI);
+            @PathParam("documentURI") String documentURI,
+            @Context HttpHeaders headers) {
+        return getFile(documentURI, headers);
     }
 
     /**
@@ -521,18 +504,21 @@ public class DocumentResourceService extends ResourceService {
 
     /**
      * @param documentURI URI of the document to download
+     * @param headers request headers, to handle the Range header
      * @return The response containing the document if existing
      */
-    private Response getFile(String documentURI) {
+    private Response getFile(String documentURI, HttpHeaders headers) {
         DocumentMongoDAO documentMongoDao = new DocumentMongoDAO();
-        File file = documentMongoDao.getDocument(documentURI);
+        GridFSDBFile gridFSFile = documentMongoDao.findDocumentFile(documentURI);
 
-        if (file == null) {
+        if (gridFSFile == null) {
             return Response.noContent().build();
         } else {
-            return Response.ok(file, MediaType.APPLICATION_OCTET_STREAM)
-                    .header("Content-Disposition", "attachement; filename=\"" + file.getName() + "\"")
-                    .build();
+            // Streamed from GridFS, the stored MD5 is used as ETag
+            return new RangedResponseBuilder(headers, gridFSFile.getLength(), gridFSFile.getFilename())
+                    .checksum(gridFSFile.getMD5())
+                    .lastModified(gridFSFile.getUploadDate())
+                    .build(DocumentMongoDAO.gridFSWriter(gridFSFile));
         }
     }
 }
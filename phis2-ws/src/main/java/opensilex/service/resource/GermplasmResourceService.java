@@ -172,10 +172,8 @@ public class GermplasmResourceService extends ResourceService {
             getResponse = new ResultForm<>(0, 0, germplasmToReturn, true);
             return noResultFound(getResponse, statusList);
         } else { //Results
-            //Convert all objects to DTOs
-            germplasmFounded.forEach((germplasm) -> {
-                germplasmToReturn.add(germplasmDAO.getGermplasmDTO(germplasm, language));
-            });
+            //Convert all objects to DTOs, with the lineage labels of the whole page
+            germplasmToReturn.addAll(germplasmDAO.getGermplasmDTOs(germplasmFounded, language));
 
             getResponse = new ResultForm<>(pageSize, page, germplasmToReturn, true, totalCount);
             getResponse.setStatus(statusList);
@@ -7,30 +7,28 @@
 //******************************************************************************
 package opensilex.service.resource;
 
-import com.twmacinta.util.MD5;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Year;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
@@ -57,18 +55,20 @@ import opensilex.service.configuration.DefaultBrapiPaginationValues;
 import opensilex.service.dao.ImageMetadataMongoDAO;
 import opensilex.service.documentation.DocumentationAnnotation;
 import opensilex.service.documentation.StatusCodeMsg;
-import opensilex.service.ontology.Oeso;
 import opensilex.service.resource.dto.ImageMetadataDTO;
 import opensilex.service.resource.validation.interfaces.Required;
 import opensilex.service.resource.validation.interfaces.URL;
-import opensilex.service.utils.ImageWaitingCheck;
+import opensilex.service.utils.HashingInputStream;
 import opensilex.service.utils.POSTResultsReturn;
+import opensilex.service.utils.PendingUploadRegistry;
 import opensilex.service.utils.UriGenerator;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.view.brapi.form.AbstractResultForm;
 import opensilex.service.view.brapi.form.ResponseFormPOST;
 import opensilex.service.result.ResultForm;
 import opensilex.service.model.ImageMetadata;
+import org.glassfish.jersey.media.multipart.FormDataBodyPart;
+import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.opensilex.fs.service.FileStorageService;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.sparql.service.SPARQLService;
@@ -97,14 +97,8 @@ public class ImageResourceService extends ResourceService {
     @Context
     UriInfo uri;
 
-    // For the waiting annotations
-    public final static ExecutorService THREAD_POOL = Executors.newCachedThreadPool();
-
-    // contains the informations abour the waiting annotations
-    public final static Map<String, Boolean> WAITING_METADATA_FILE_CHECK = new HashMap<>();
-
-    // contains the informations abour the waiting annotations
-    public final static Map<String, ImageMetadata> WAITING_METADATA_INFORMATION = new HashMap<>();
+    // Images metadata waiting for their file
+    public final static PendingUploadRegistry<ImageMetadata> PENDING_UPLOADS = new PendingUploadRegistry<>();
 
     /**
      * Checks images metadata.
@@ -157,28 +151,22 @@ public class ImageResourceService extends ResourceService {
                 postResponse = new ResponseFormPOST();
             } else if (checkImageMetadata.getDataState()) {// metadata ok
                 ArrayList<String> imagesUploadLinks = new ArrayList<>();
-                String lastGeneratedUri = null;
+                // generates all the images URIs with a single reservation
+                final Iterator<String> imagesUris = UriGenerator
+                        .generateImageUris(sparql, Year.now().toString(), imagesMetadata.size())
+                        .iterator();
                 for (ImageMetadataDTO imageMetadata : imagesMetadata) {
                     try {
                         final UriBuilder uploadPath = uri.getBaseUriBuilder();
 
-                        // generates the imageUri
-                        final String imageUri = UriGenerator.generateNewInstanceUri(
-                                sparql,
-                                Oeso.CONCEPT_IMAGE.toString(),
-                                Year.now().toString(),
-                                lastGeneratedUri);
-                        lastGeneratedUri = imageUri;
+                        final String imageUri = imagesUris.next();
 
                         final String uploadLink = uploadPath.path("images").path("upload").queryParam("uri", imageUri).toString();
                         imagesUploadLinks.add(uploadLink);
 
-                        WAITING_METADATA_FILE_CHECK.put(imageUri, false); // file waiting
                         ImageMetadata imageMetadataToSave = imageMetadata.createObjectFromDTO();
                         imageMetadataToSave.setUri(imageUri);
-                        WAITING_METADATA_INFORMATION.put(imageUri, imageMetadataToSave);
-                        // Launch the thread for the expected file
-                        THREAD_POOL.submit(new ImageWaitingCheck(imageUri));
+                        PENDING_UPLOADS.register(imageUri, imageMetadataToSave); // file waiting
                     } catch (Exception ex) { // In the images case, no exception should be raised
                         java.util.logging.Logger.getLogger(ImageResourceService.class.getName()).log(Level.SEVERE, null, ex);
                     }
@@ -199,22 +187,6 @@ public class ImageResourceService extends ResourceService {
         }
     }
 
-    /**
-     * Calculates the hash of a file.
-     *
-     * @param file the file we want the hash
-     * @return the hash file
-     */
-    private String getHash(File file) {
-        String hash = null;
-        try {
-            hash = MD5.asHex(MD5.getHash(file)); // e.g: 106fa487baa1728083747de1c6df73e9
-        } catch (IOException ex) {
-            LOGGER.error(ex.getMessage(), ex);
-        }
-        return hash;
-    }
-
     /**
      * Calculates the server image directory for an image.
      *
@@ -251,7 +223,10 @@ public class ImageResourceService extends ResourceService {
     private FileStorageService fs;
 
     /**
-     * @param in File
+     * Uploads the file of an image whose metadata was sent before.
+     * @see #postImageFiles(java.util.List, java.util.List) to upload several
+     * images with a single metadata insert
+     * @param content File content
      * @param imageUri Metadata uri
      * @param headers
      * @param request
@@ -273,74 +248,195 @@ public class ImageResourceService extends ResourceService {
     @Consumes(MediaType.APPLICATION_OCTET_STREAM)
     @Produces(MediaType.APPLICATION_JSON)
     public Response postImageFile(
-            @ApiParam(value = "File to upload") File in,
+            @ApiParam(value = "File to upload") InputStream content,
             @ApiParam(value = "Uri given from \"images\" path for upload") @QueryParam("uri") @URL @Required String imageUri,
             @Context HttpHeaders headers,
             @Context HttpServletRequest request) throws URISyntaxException, ParseException {
         ResponseFormPOST postResponse;
         List<Status> statusList = new ArrayList<>();
 
-        // The file metadata exists
-        if (!WAITING_METADATA_FILE_CHECK.containsKey(imageUri)) {
-            statusList.add(new Status("No waiting image", StatusCodeMsg.ERR, "No waiting file for the following uri : " + imageUri));
+        if (headers != null && headers.getLength() == 0) {
+            statusList.add(new Status(StatusCodeMsg.FILE_ERROR, StatusCodeMsg.ERR, "File Size : " + headers.getLength() + " octets"));
             postResponse = new ResponseFormPOST(statusList);
             return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
         }
 
-        if (headers != null && headers.getLength() <= 0) {
-            statusList.add(new Status(StatusCodeMsg.FILE_ERROR, StatusCodeMsg.ERR, "File Size : " + headers.getLength() + " octets"));
+        // The file metadata exists and the file is not already being received
+        final ImageMetadata imageMetadata = PENDING_UPLOADS.startUpload(imageUri);
+        if (imageMetadata == null) {
+            statusList.add(new Status("No waiting image", StatusCodeMsg.ERR, "No waiting file for the following uri : " + imageUri));
             postResponse = new ResponseFormPOST(statusList);
             return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
         }
 
-        // check the checksum
-        String hash = getHash(in);
-        if (hash != null && !WAITING_METADATA_INFORMATION.get(imageUri).getFileInformations().getChecksum().equals(hash)) {
-            statusList.add(new Status(StatusCodeMsg.MD5_ERROR, StatusCodeMsg.ERR, "Checksum MD5 doesn't match. Corrupted File."));
+        try {
+            statusList.addAll(storeImageFile(content, imageUri, imageMetadata));
+            if (!statusList.isEmpty()) {
+                PENDING_UPLOADS.release(imageUri);
+                postResponse = new ResponseFormPOST(statusList);
+                return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
+            }
+
+            return insertUploadedImagesMetadata(Arrays.asList(imageUri), Arrays.asList(imageMetadata));
+        } catch (Exception ex) {
+            LOGGER.error(ex.getMessage(), ex);
+            PENDING_UPLOADS.release(imageUri);
+            statusList.add(new Status(
+                    "Image upload error",
+                    StatusCodeMsg.ERR,
+                    "An error occurred during file upload. Try to submit it again " + imageUri));
             postResponse = new ResponseFormPOST(statusList);
             return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
         }
+    }
+
+    /**
+     * Uploads the files of several images whose metadata was sent before, e.g.
+     * the images of an acquisition campaign. All the files are checked and
+     * stored, then all the images metadata are inserted with a single bulk
+     * insert: either all the images are saved or none.
+     * @param files the images files, in the same order as the URIs
+     * @param imagesUris URIs given from "images" path for upload
+     * @return the URIs of the saved images
+     */
+    @Deprecated
+    @POST
+    @Path("upload/multiple")
+    @ApiOperation(value = "Post several image files at once", notes = DocumentationAnnotation.USER_ONLY_NOTES
+            + " Not working from this documentation. Implement a client or use Postman application.")
+    @ApiResponses(value = {
+        @ApiResponse(code = 201, message = "Image files and images metadata saved", response = ResponseFormPOST.class),
+        @ApiResponse(code = 400, message = DocumentationAnnotation.BAD_USER_INFORMATION),
+        @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_SEND_DATA)})
+    @ApiProtected
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response postImageFiles(
+            @ApiParam(value = "Files to upload", required = true, type = "file") @FormDataParam("file") List<FormDataBodyPart> files,
+            @ApiParam(value = "Uris given from \"images\" path for upload, one per file", required = true) @QueryParam("uri") List<String> imagesUris) {
+        List<Status> statusList = new ArrayList<>();
+        if (files == null || imagesUris == null || files.isEmpty() || files.size() != imagesUris.size()) {
+            statusList.add(new Status(StatusCodeMsg.FILE_ERROR, StatusCodeMsg.ERR, "One uri is expected for each file"));
+            return Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormPOST(statusList)).build();
+        }
 
-        final String serverFileName = getImageName(imageUri) + "." + WAITING_METADATA_INFORMATION.get(imageUri).getFileInformations().getExtension();
-        final String serverImagesDirectory = getServerImagesDirectory();
-        final String webAccessImagesDirectory = getWebAccessImagesDirectory();
+        // The files metadata exist and the files are not already being received
+        List<String> startedUploads = new ArrayList<>();
+        List<ImageMetadata> imagesMetadata = new ArrayList<>();
+        for (String imageUri : imagesUris) {
+            ImageMetadata imageMetadata = PENDING_UPLOADS.startUpload(imageUri);
+            if (imageMetadata == null) {
+                statusList.add(new Status("No waiting image", StatusCodeMsg.ERR, "No waiting file for the following uri : " + imageUri));
+            } else {
+                startedUploads.add(imageUri);
+                imagesMetadata.add(imageMetadata);
+            }
+        }
+        if (!statusList.isEmpty()) {
+            startedUploads.forEach(PENDING_UPLOADS::release);
+            return Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormPOST(statusList)).build();
+        }
 
         try {
-            WAITING_METADATA_FILE_CHECK.put(imageUri, Boolean.TRUE);
-            fs.createDirectories(Paths.get(serverImagesDirectory));
-            fs.writeFile(Paths.get(serverImagesDirectory, serverFileName), in);
-
-            WAITING_METADATA_INFORMATION.get(imageUri)
-                    .getFileInformations()
-                    .setServerFilePath(webAccessImagesDirectory + URLEncoder.encode(serverFileName, StandardCharsets.UTF_8.toString()));
-
-            ImageMetadataMongoDAO imageMetadataMongoDao = new ImageMetadataMongoDAO(sparql);
-            imageMetadataMongoDao.user = userSession.getUser();
-
-            final POSTResultsReturn insertMetadata = imageMetadataMongoDao.insert(Arrays.asList(WAITING_METADATA_INFORMATION.get(imageUri)));
-            postResponse = new ResponseFormPOST(insertMetadata.statusList);
-
-            if (insertMetadata.getDataState()) {
-                WAITING_METADATA_FILE_CHECK.remove(imageUri);
-                WAITING_METADATA_INFORMATION.remove(imageUri);
-
-                if (insertMetadata.getHttpStatus() == Response.Status.CREATED) {
-                    postResponse.getMetadata().setDatafiles((ArrayList) insertMetadata.createdResources);
-                    final URI newUri = new URI(uri.getPath());
-                    return Response.status(insertMetadata.getHttpStatus()).location(newUri).entity(postResponse).build();
-                } else {
-                    return Response.status(insertMetadata.getHttpStatus()).entity(postResponse).build();
+            for (int i = 0; i < imagesUris.size(); i++) {
+                try (InputStream content = files.get(i).getValueAs(InputStream.class)) {
+                    List<Status> fileErrors = storeImageFile(content, imagesUris.get(i), imagesMetadata.get(i));
+                    if (!fileErrors.isEmpty()) {
+                        statusList.add(new Status("Image file error", StatusCodeMsg.ERR, "Rejected file for the following uri : " + imagesUris.get(i)));
+                        statusList.addAll(fileErrors);
+                    }
                 }
             }
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new ResponseFormPOST()).build();
+            if (!statusList.isEmpty()) {
+                startedUploads.forEach(PENDING_UPLOADS::release);
+                return Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormPOST(statusList)).build();
+            }
+
+            return insertUploadedImagesMetadata(imagesUris, imagesMetadata);
         } catch (Exception ex) {
+            LOGGER.error(ex.getMessage(), ex);
+            startedUploads.forEach(PENDING_UPLOADS::release);
             statusList.add(new Status(
                     "Image upload error",
                     StatusCodeMsg.ERR,
-                    "An error occurred during file upload. Try to submit it again " + imageUri));
-            postResponse = new ResponseFormPOST(statusList);
-            return Response.status(Response.Status.BAD_REQUEST).entity(postResponse).build();
+                    "An error occurred during files upload. Try to submit them again"));
+            return Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormPOST(statusList)).build();
+        }
+    }
+
+    /**
+     * Receives an image file and stores it in the images storage. The size and
+     * the checksum are checked while the file is written to a temporary file,
+     * so a corrupted image never reaches the images storage.
+     * @param content
+     * @param imageUri
+     * @param imageMetadata metadata of the image, its server file path is set
+     * when the file is stored
+     * @return the errors of the file, empty if the file is stored
+     * @throws Exception
+     */
+    private List<Status> storeImageFile(InputStream content, String imageUri, ImageMetadata imageMetadata) throws Exception {
+        List<Status> statusList = new ArrayList<>();
+        final java.nio.file.Path receivedFile = Files.createTempFile(getImageName(imageUri), ".upload");
+        try {
+            try (HashingInputStream hashingContent = new HashingInputStream(content)) {
+                Files.copy(hashingContent, receivedFile, StandardCopyOption.REPLACE_EXISTING);
+                if (hashingContent.getSize() == 0) {
+                    statusList.add(new Status(StatusCodeMsg.FILE_ERROR, StatusCodeMsg.ERR, "File Size : 0 octets"));
+                } else if (!hashingContent.matches(imageMetadata.getFileInformations().getChecksum())) {
+                    statusList.add(new Status(StatusCodeMsg.MD5_ERROR, StatusCodeMsg.ERR, "Checksum MD5 doesn't match. Corrupted File."));
+                }
+            }
+            if (statusList.isEmpty()) {
+                final String serverFileName = getImageName(imageUri) + "." + imageMetadata.getFileInformations().getExtension();
+                final String serverImagesDirectory = getServerImagesDirectory();
+
+                fs.createDirectories(Paths.get(serverImagesDirectory));
+                fs.writeFile(Paths.get(serverImagesDirectory, serverFileName), receivedFile.toFile());
+
+                imageMetadata
+                        .getFileInformations()
+                        .setServerFilePath(getWebAccessImagesDirectory() + URLEncoder.encode(serverFileName, StandardCharsets.UTF_8.toString()));
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(receivedFile);
+            } catch (IOException ex) {
+                LOGGER.warn("Can't delete the temporary image file " + receivedFile, ex);
+            }
+        }
+        return statusList;
+    }
+
+    /**
+     * Inserts the metadata of uploaded images with a single bulk insert and
+     * ends their pending uploads.
+     * @param imagesUris
+     * @param imagesMetadata
+     * @return the response of the upload
+     * @throws Exception
+     */
+    private Response insertUploadedImagesMetadata(List<String> imagesUris, List<ImageMetadata> imagesMetadata) throws Exception {
+        ImageMetadataMongoDAO imageMetadataMongoDao = new ImageMetadataMongoDAO(sparql);
+        imageMetadataMongoDao.user = userSession.getUser();
+
+        final POSTResultsReturn insertMetadata = imageMetadataMongoDao.insert(imagesMetadata);
+        ResponseFormPOST postResponse = new ResponseFormPOST(insertMetadata.statusList);
+
+        if (insertMetadata.getDataState()) {
+            imagesUris.forEach(PENDING_UPLOADS::complete);
+
+            if (insertMetadata.getHttpStatus() == Response.Status.CREATED) {
+                postResponse.getMetadata().setDatafiles((ArrayList) insertMetadata.createdResources);
+                final URI newUri = new URI(uri.getPath());
+                return Response.status(insertMetadata.getHttpStatus()).location(newUri).entity(postResponse).build();
+            } else {
+                return Response.status(insertMetadata.getHttpStatus()).entity(postResponse).build();
+            }
         }
+        imagesUris.forEach(PENDING_UPLOADS::release);
+        return Response.status(insertMetadata.getHttpStatus()).entity(postResponse).build();
     }
 
     /**
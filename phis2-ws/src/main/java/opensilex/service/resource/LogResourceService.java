@@ -12,10 +12,14 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
 import javax.validation.constraints.Min;
 import javax.ws.rs.DefaultValue;
@@ -30,16 +34,22 @@ import opensilex.service.configuration.DefaultBrapiPaginationValues;
 import opensilex.service.configuration.GlobalWebserviceValues;
 import opensilex.service.dao.DataQueryLogDAO;
 import opensilex.service.documentation.DocumentationAnnotation;
+import opensilex.service.documentation.StatusCodeMsg;
 import opensilex.service.model.DataQueryLog;
+import opensilex.service.model.DataQueryLogStatistics;
 import opensilex.service.resource.dto.data.DataLogAccessUserDTO;
 import opensilex.service.resource.dto.data.DataQueryLogSearchDTO;
+import opensilex.service.resource.dto.data.DataQueryLogStatisticsDTO;
 import opensilex.service.resource.validation.interfaces.Date;
 import opensilex.service.resource.validation.interfaces.URL;
 import opensilex.service.result.ResultForm;
 import opensilex.service.view.brapi.Status;
+import opensilex.service.view.brapi.form.ResponseFormGET;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.rest.user.dal.UserModel;
 import org.opensilex.sparql.service.SPARQLService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * LogResourceService ressource service
@@ -50,6 +60,8 @@ import org.opensilex.sparql.service.SPARQLService;
 @Path("/log")
 public class LogResourceService extends ResourceService {
 
+    final static Logger LOGGER = LoggerFactory.getLogger(LogResourceService.class);
+
     @Inject
     public LogResourceService(SPARQLService sparql) {
         this.sparql = sparql;
@@ -66,6 +78,7 @@ public class LogResourceService extends ResourceService {
      * @param userUri
      * @param startDate
      * @param endDate
+     * @param remoteAddress
      * @param dateSortAsc
      * @return The file content or null with a 404 status if it doesn't exists
      */
@@ -86,6 +99,7 @@ public class LogResourceService extends ResourceService {
             @ApiParam(value = "Search by user uri", example = DocumentationAnnotation.EXAMPLE_VARIABLE_URI) @QueryParam("userUri") @URL String userUri,
             @ApiParam(value = "Search by minimal date", example = DocumentationAnnotation.EXAMPLE_XSDDATETIME) @QueryParam("startDate") @Date({DateFormat.YMDTHMSZ, DateFormat.YMD}) String startDate,
             @ApiParam(value = "Search by maximal date", example = DocumentationAnnotation.EXAMPLE_XSDDATETIME) @QueryParam("endDate") @Date({DateFormat.YMDTHMSZ, DateFormat.YMD}) String endDate,
+            @ApiParam(value = "Search by remote address", example = "0:0:0:0:0:0:0:1") @QueryParam("remoteAddress") String remoteAddress,
             @ApiParam(value = "Date search result order ('true' for ascending and 'false' for descending)", example = "true") @QueryParam("dateSortAsc") boolean dateSortAsc
     ) throws Exception {
         ArrayList<DataQueryLogSearchDTO> list = new ArrayList<>();
@@ -93,24 +107,18 @@ public class LogResourceService extends ResourceService {
         ResultForm<DataQueryLogSearchDTO> getResponse;
 
         DataQueryLogDAO dataDAO = new DataQueryLogDAO();
+        dataDAO.dateSortAsc = dateSortAsc;
 
         //1. Get count
-        Integer totalCount = dataDAO.count(userUri, startDate, endDate, null);
+        Integer totalCount = dataDAO.count(userUri, startDate, endDate, remoteAddress);
 
         List<DataQueryLog> dataQueryLogList = new ArrayList<>();
         //2. Get data
         if (totalCount > 0) {
-            dataQueryLogList = dataDAO.find(page, pageSize, userUri, startDate, endDate, null);
-        }
-        List<UserModel> listOfUsers = new ArrayList<>();
-        try {
-            //3. Get User informations
-            listOfUsers = sparql.search(UserModel.class, null);
-        } catch (Exception ex) {
-            Logger.getLogger(LogResourceService.class.getName()).log(Level.SEVERE, null, ex);
+            dataQueryLogList = dataDAO.find(page, pageSize, userUri, startDate, endDate, remoteAddress);
         }
 
-        //4. Return result
+        //3. Return result
         if (dataQueryLogList == null) {
             // Request failure
             getResponse = new ResultForm<>(0, 0, list, true, 0);
@@ -119,12 +127,14 @@ public class LogResourceService extends ResourceService {
             // No results
             getResponse = new ResultForm<>(0, 0, list, true, 0);
         } else {
+            //4. Get informations of the users of the page only
+            Map<String, DataLogAccessUserDTO> pageUsers = getUsers(dataQueryLogList);
+            
             // Convert all data object to DTO's
             for (DataQueryLog queryLog : dataQueryLogList) {
-                DataLogAccessUserDTO foundUser = this.lookupUser(listOfUsers, queryLog.getUserUri());
                 list.add(
                         new DataQueryLogSearchDTO(
-                                foundUser,
+                                pageUsers.get(queryLog.getUserUri()),
                                 queryLog.getQuery(),
                                 queryLog.getDate(),
                                 queryLog.getRemoteAdress()
@@ -139,17 +149,125 @@ public class LogResourceService extends ResourceService {
         return Response.status(Response.Status.OK).entity(getResponse).build();
     }
 
-    private DataLogAccessUserDTO lookupUser(List<UserModel> personList, String userUri) {
-        UserModel foundUser = personList.stream().
-                filter(p -> p.getUri() != null && p.getUri().toString().equals(userUri)).
-                findAny().orElse(null);
-        if (foundUser != null) {
-            DataLogAccessUserDTO returnedUser = new DataLogAccessUserDTO();
-            returnedUser.setUri(foundUser.getUri().toString());
-            returnedUser.setFirstName(foundUser.getLastName());
-            returnedUser.setFamilyName(foundUser.getFirstName());
-            return returnedUser;
+    /**
+     * Returns usage statistics of the data queries: number of queries, total
+     * and largest number of results and average duration, by user, service,
+     * variable or period.
+     *
+     * @param groupBy
+     * @param interval
+     * @param sortBy
+     * @param limit
+     * @param userUri
+     * @param service
+     * @param startDate
+     * @param endDate
+     * @return The statistics of each group
+     * @example
+     * {
+     *   "metadata": {
+     *     "pagination": null,
+     *     "status": [],
+     *     "datafiles": []
+     *   },
+     *   "result": {
+     *     "data": [
+     *       {
+     *         "key": "http://www.opensilex.org/demo/id/variable/v0000001",
+     *         "count": 1542,
+     *         "totalResultSize": 3120400,
+     *         "maxResultSize": 20000,
+     *         "averageDuration": 231.5
+     *       }
+     *     ]
+     *   }
+     * }
+     */
+    @GET
+    @Path("querylog/statistics")
+    @ApiOperation(value = "Get data queries usage statistics",
+            notes = "Queries are grouped by user, service, variable or date. "
+                    + "Result sizes and durations are only known for the queries logged since they are recorded.")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Retrieve statistics"),
+        @ApiResponse(code = 400, message = DocumentationAnnotation.BAD_USER_INFORMATION),
+        @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
+        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_FETCH_DATA)
+    })
+    @ApiProtected
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDataQueryLogStatistics(
+            @ApiParam(value = "Group the queries by user, service, variable or date", allowableValues = "user,service,variable,date") @QueryParam("groupBy") @DefaultValue("service") String groupBy,
+            @ApiParam(value = "Period of the queries grouped by date", allowableValues = "hour,day,month") @QueryParam("interval") @DefaultValue("day") String interval,
+            @ApiParam(value = "Statistics order (descending, except for key)", allowableValues = "key,count,total_result_size,max_result_size") @QueryParam("sortBy") @DefaultValue("count") String sortBy,
+            @ApiParam(value = "Maximum number of statistics", example = "20") @QueryParam("limit") @DefaultValue("20") @Min(1) int limit,
+            @ApiParam(value = "Search by user uri", example = DocumentationAnnotation.EXAMPLE_VARIABLE_URI) @QueryParam("userUri") @URL String userUri,
+            @ApiParam(value = "Search by service", example = "DataResourceService.getDataSearch") @QueryParam("service") String service,
+            @ApiParam(value = "Search by minimal date", example = DocumentationAnnotation.EXAMPLE_XSDDATETIME) @QueryParam("startDate") @Date({DateFormat.YMDTHMSZ, DateFormat.YMD}) String startDate,
+            @ApiParam(value = "Search by maximal date", example = DocumentationAnnotation.EXAMPLE_XSDDATETIME) @QueryParam("endDate") @Date({DateFormat.YMDTHMSZ, DateFormat.YMD}) String endDate
+    ) {
+        DataQueryLogDAO.GroupBy groupByValue;
+        DataQueryLogDAO.Interval intervalValue;
+        DataQueryLogDAO.SortBy sortByValue;
+        try {
+            groupByValue = DataQueryLogDAO.GroupBy.valueOf(groupBy.toUpperCase());
+            intervalValue = DataQueryLogDAO.Interval.valueOf(interval.toUpperCase());
+            sortByValue = DataQueryLogDAO.SortBy.valueOf(sortBy.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            Status parameterError = new Status(StatusCodeMsg.BAD_DATA_FORMAT, StatusCodeMsg.ERR, 
+                    "Unknown groupBy, interval or sortBy value");
+            return Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormGET(parameterError)).build();
+        }
+
+        DataQueryLogDAO dataDAO = new DataQueryLogDAO();
+        List<DataQueryLogStatistics> statisticsList = dataDAO.aggregate(
+                groupByValue, intervalValue, userUri, service, startDate, endDate, sortByValue, limit);
+
+        ArrayList<DataQueryLogStatisticsDTO> list = new ArrayList<>();
+        for (DataQueryLogStatistics statistics : statisticsList) {
+            list.add(new DataQueryLogStatisticsDTO(statistics));
+        }
+        ResultForm<DataQueryLogStatisticsDTO> getResponse = new ResultForm<>(0, 0, list, true);
+        if (list.isEmpty()) {
+            return noResultFound(getResponse, new ArrayList<>());
+        }
+        return Response.status(Response.Status.OK).entity(getResponse).build();
+    }
+
+    /**
+     * Gets the users who made the given queries, in a single request.
+     * @param dataQueryLogList
+     * @return the users by URI. The unknown users are missing.
+     */
+    private Map<String, DataLogAccessUserDTO> getUsers(List<DataQueryLog> dataQueryLogList) {
+        Set<URI> userUris = new HashSet<>();
+        for (DataQueryLog queryLog : dataQueryLogList) {
+            if (queryLog.getUserUri() != null) {
+                try {
+                    userUris.add(new URI(queryLog.getUserUri()));
+                } catch (URISyntaxException ex) {
+                    LOGGER.warn("Invalid user URI in data query log: " + queryLog.getUserUri());
+                }
+            }
+        }
+        
+        Map<String, DataLogAccessUserDTO> users = new HashMap<>();
+        if (userUris.isEmpty()) {
+            return users;
+        }
+        try {
+            for (UserModel user : sparql.getListByURIs(UserModel.class, new ArrayList<>(userUris), null)) {
+                if (user != null && user.getUri() != null) {
+                    DataLogAccessUserDTO userDTO = new DataLogAccessUserDTO();
+                    userDTO.setUri(user.getUri().toString());
+                    userDTO.setFirstName(user.getFirstName());
+                    userDTO.setFamilyName(user.getLastName());
+                    users.put(userDTO.getUri(), userDTO);
+                }
+            }
+        } catch (Exception ex) {
+            LOGGER.error("Data query log users search error : " + ex.getMessage(), ex);
         }
-        return null;
+        return users;
     }
 }
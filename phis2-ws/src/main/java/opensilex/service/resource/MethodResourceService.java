@@ -43,6 +43,9 @@ import opensilex.service.view.brapi.form.ResponseFormGET;
 import opensilex.service.view.brapi.form.ResponseFormPOST;
 import opensilex.service.result.ResultForm;
 import opensilex.service.model.Method;
+import opensilex.service.resource.request.filter.CacheValidated;
+import opensilex.service.resource.request.filter.Compress;
+import opensilex.service.utils.ModificationCounter;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.sparql.service.SPARQLService;
 
@@ -53,6 +56,8 @@ import org.opensilex.sparql.service.SPARQLService;
  */
 @Api("/methods")
 @Path("methods")
+@CacheValidated(ModificationCounter.Scope.VARIABLES)
+@Compress
 public class MethodResourceService extends ResourceService {
 
     @Inject
@@ -49,10 +49,16 @@ public abstract class ResourceService {
     ContainerRequestContext context;
 
     protected Session userSession = new Session() {
+        // The resource services are created for each request: the user is
+        // built once per request
+        private User userPhis;
+
         @Override
         public User getUser() {
-            UserModel user = getOpenSilexUser();
-            opensilex.service.model.User userPhis = new opensilex.service.model.User(user.getEmail().toString());
+            if (userPhis == null) {
+                UserModel user = getOpenSilexUser();
+                userPhis = new opensilex.service.model.User(user.getEmail().toString());
+            }
             return userPhis;
         }
 
@@ -13,7 +13,9 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
@@ -28,6 +30,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -35,15 +38,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import opensilex.service.configuration.DefaultBrapiPaginationValues;
 import opensilex.service.configuration.GlobalWebserviceValues;
+import opensilex.service.dao.ScientificObjectMongoDAO;
 import opensilex.service.dao.ScientificObjectRdf4jDAO;
 import opensilex.service.documentation.DocumentationAnnotation;
 import opensilex.service.documentation.StatusCodeMsg;
 import opensilex.service.resource.validation.interfaces.URL;
+import opensilex.service.utils.BulkCreationProgress;
 import opensilex.service.utils.POSTResultsReturn;
 import opensilex.service.view.brapi.Status;
 import opensilex.service.view.brapi.form.AbstractResultForm;
+import opensilex.service.view.brapi.form.ResponseFormGET;
 import opensilex.service.view.brapi.form.ResponseFormPOST;
 import opensilex.service.result.ResultForm;
+import opensilex.service.model.Property;
 import opensilex.service.model.ScientificObject;
 import opensilex.service.resource.dto.scientificObject.ScientificObjectDTO;
 import opensilex.service.resource.dto.scientificObject.ScientificObjectPostDTO;
@@ -52,6 +59,7 @@ import opensilex.service.resource.validation.interfaces.Required;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.sparql.deserializer.SPARQLDeserializers;
 import org.opensilex.sparql.service.SPARQLService;
+import org.locationtech.jts.io.ParseException;
 
 /**
  * Scientific objects resource service.
@@ -160,6 +168,52 @@ public class ScientificObjectResourceService extends ResourceService {
         }
     }
 
+    /**
+     * Gets the progress of the running scientific objects creations of the
+     * user, or of all the users for an administrator.
+     * @return the running creations
+     * @example
+     * {
+     *      "metadata": {
+     *          "pagination": null,
+     *          "status": [],
+     *          "datafiles": []
+     *      },
+     *      "result": {
+     *          "data": [
+     *              {
+     *                  "id": "0b0a4d7e-4f4c-4a43-9d5b-2d1e30ae3f1c",
+     *                  "resourceType": "scientific objects",
+     *                  "userEmail": "admin@opensilex.org",
+     *                  "total": 20000,
+     *                  "created": 4500,
+     *                  "startTime": 1602770400000
+     *              }
+     *          ]
+     *      }
+     * }
+     */
+    @GET
+    @Path("creations")
+    @ApiOperation(value = "Get the progress of the running scientific objects creations",
+            notes = "Retrieve the running creations of the user, or of all the users for an administrator")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Retrieve the running creations", response = BulkCreationProgress.class, responseContainer = "List"),
+        @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED)
+    })
+    @ApiProtected
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getScientificObjectsCreations() {
+        String userEmail = null;
+        if (!Boolean.TRUE.equals(userSession.getOpenSilexUser().isAdmin())) {
+            userEmail = userSession.getUser().getEmail();
+        }
+        ArrayList<BulkCreationProgress> creations = BulkCreationProgress.getRunningCreations(userEmail);
+
+        ResultForm<BulkCreationProgress> getResponse = new ResultForm<>(creations.size(), 0, creations, true);
+        return Response.status(Response.Status.OK).entity(getResponse).build();
+    }
+
     /**
      * Update the data of a given scientific object in the given context
      * (experiment).
@@ -247,7 +301,8 @@ public class ScientificObjectResourceService extends ResourceService {
         @ApiResponse(code = 200, message = "Retrieve all scientific objects", response = ScientificObjectDTO.class, responseContainer = "List"),
         @ApiResponse(code = 400, message = DocumentationAnnotation.BAD_USER_INFORMATION),
         @ApiResponse(code = 401, message = DocumentationAnnotation.USER_NOT_AUTHORIZED),
-        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_FETCH_DATA)
+        @ApiResponse(code = 500, message = DocumentationAnnotation.ERROR_FETCH_DATA),
+        @ApiResponse(code = 503, message = "Geometries index being created, for the searches by geometry")
     })
     @ApiProtected
     @Produces(MediaType.APPLICATION_JSON)
@@ -258,7 +313,10 @@ public class ScientificObjectResourceService extends ResourceService {
             @ApiParam(value = "Search by experiment URI", example = DocumentationAnnotation.EXAMPLE_EXPERIMENT_URI) @QueryParam("experiment") @URL String experimentURI,
             @ApiParam(value = "Search by alias", example = DocumentationAnnotation.EXAMPLE_EXPERIMENT_ALIAS) @QueryParam("alias") String alias,
             @ApiParam(value = "Search by rdfType", example = DocumentationAnnotation.EXAMPLE_SCIENTIFIC_OBJECT_TYPE) @QueryParam("rdfType") @URL String rdfType,
-            @ApiParam(value = "Retreive detailled properties", example = "true") @DefaultValue("true") @QueryParam("withProperties") Boolean withProperties
+            @ApiParam(value = "Retreive detailled properties", example = "true") @DefaultValue("true") @QueryParam("withProperties") Boolean withProperties,
+            @ApiParam(value = "Search by geometry (WKT, WGS84 coordinates)", example = DocumentationAnnotation.EXAMPLE_SCIENTIFIC_OBJECT_GEOMETRY) @QueryParam("geometry") String geometry,
+            @ApiParam(value = "Spatial relation between the scientific objects and the searched geometry", allowableValues = "INTERSECTS,WITHIN,NEAR") @DefaultValue("INTERSECTS") @QueryParam("spatialRelation") String spatialRelation,
+            @ApiParam(value = "Maximum distance to the searched geometry, in meters, for the NEAR spatial relation", example = "100") @QueryParam("maxDistance") @Min(0) Double maxDistance
     ) throws Exception {
         ArrayList<ScientificObjectDTO> scientificObjectsToReturn = new ArrayList<>();
         ArrayList<ScientificObject> scientificObjects = new ArrayList<>();
@@ -272,6 +330,15 @@ public class ScientificObjectResourceService extends ResourceService {
         scientificObjectDaoSesame.setPageSize(pageSize);
 
         experimentURI = SPARQLDeserializers.getExpandedURI(experimentURI);
+
+        if (geometry != null) {
+            if (uri != null || alias != null) {
+                statusList.add(new Status(StatusCodeMsg.BAD_DATA_FORMAT, StatusCodeMsg.ERR,
+                        "The uri and alias filters can't be used with a geometry"));
+                return Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormGET(statusList)).build();
+            }
+            return getScientificObjectsByGeometry(scientificObjectDaoSesame, page, pageSize, experimentURI, rdfType, withProperties, geometry, spatialRelation, maxDistance);
+        }
         //1. Get count
         Integer totalCount = scientificObjectDaoSesame.count(uri, rdfType, experimentURI, alias);
 
@@ -303,4 +370,87 @@ public class ScientificObjectResourceService extends ResourceService {
             }
         }
     }
+
+    /**
+     * Searches the scientific objects by their geometry, then gets the labels
+     * and properties of the objects of the requested page.
+     * @param scientificObjectDaoSesame
+     * @param page
+     * @param pageSize
+     * @param experimentURI
+     * @param rdfType
+     * @param withProperties
+     * @param geometry WKT geometry
+     * @param spatialRelation
+     * @param maxDistance
+     * @return the response
+     */
+    private Response getScientificObjectsByGeometry(ScientificObjectRdf4jDAO scientificObjectDaoSesame, int page, int pageSize,
+            String experimentURI, String rdfType, Boolean withProperties, String geometry, String spatialRelation, Double maxDistance) {
+        ArrayList<Status> statusList = new ArrayList<>();
+        ScientificObjectMongoDAO.SpatialRelation relation;
+        try {
+            relation = ScientificObjectMongoDAO.SpatialRelation.valueOf(spatialRelation.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            statusList.add(new Status(StatusCodeMsg.BAD_DATA_FORMAT, StatusCodeMsg.ERR,
+                    "Unknown spatial relation " + spatialRelation + ", expected INTERSECTS, WITHIN or NEAR"));
+            return Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormGET(statusList)).build();
+        }
+
+        ScientificObjectMongoDAO scientificObjectMongoDao = new ScientificObjectMongoDAO();
+        if (ScientificObjectMongoDAO.isCollectionBeingPrepared()) {
+            statusList.add(new Status(StatusCodeMsg.ERR, StatusCodeMsg.REQUEST_ERROR,
+                    "The geometries index is being created, try again later"));
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, ScientificObjectMongoDAO.PREPARATION_RETRY_AFTER)
+                    .entity(new ResponseFormGET(statusList))
+                    .build();
+        }
+        long totalCount;
+        ArrayList<ScientificObject> scientificObjects;
+        try {
+            totalCount = scientificObjectMongoDao.countByGeometry(relation, geometry, maxDistance, experimentURI, rdfType);
+            scientificObjects = totalCount > 0
+                    ? scientificObjectMongoDao.searchByGeometry(relation, geometry, maxDistance, experimentURI, rdfType, page, pageSize)
+                    : new ArrayList<>();
+        } catch (ParseException | IllegalArgumentException ex) {
+            statusList.add(new Status(StatusCodeMsg.BAD_DATA_FORMAT, StatusCodeMsg.ERR, "Invalid geometry: " + ex.getMessage()));
+            return Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormGET(statusList)).build();
+        }
+
+        ArrayList<ScientificObjectDTO> scientificObjectsToReturn = new ArrayList<>();
+        ResultForm<ScientificObjectDTO> getResponse;
+        if (scientificObjects.isEmpty()) {
+            getResponse = new ResultForm<>(0, 0, scientificObjectsToReturn, true);
+            return noResultFound(getResponse, statusList);
+        }
+
+        // Labels of the page objects only, in one query
+        List<String> uris = new ArrayList<>();
+        scientificObjects.forEach(scientificObject -> uris.add(scientificObject.getUri()));
+        Map<String, String> labels = scientificObjectDaoSesame.findLabels(uris);
+
+        // Properties of the page objects, in one query by experiment
+        Map<String, ArrayList<Property>> properties = new HashMap<>();
+        if (withProperties) {
+            Map<String, List<String>> urisByExperiment = new HashMap<>();
+            scientificObjects.forEach(scientificObject -> urisByExperiment
+                    .computeIfAbsent(scientificObject.getExperiment(), experiment -> new ArrayList<>())
+                    .add(scientificObject.getUri()));
+            urisByExperiment.forEach((experiment, experimentUris) ->
+                    properties.putAll(scientificObjectDaoSesame.findScientificObjectsProperties(experimentUris, experiment)));
+        }
+
+        for (ScientificObject scientificObject : scientificObjects) {
+            scientificObject.setLabel(labels.get(scientificObject.getUri()));
+            if (withProperties) {
+                scientificObject.setProperties(properties.getOrDefault(scientificObject.getUri(), new ArrayList<>()));
+            }
+            scientificObjectsToReturn.add(new ScientificObjectDTO(scientificObject));
+        }
+
+        getResponse = new ResultForm<>(pageSize, page, scientificObjectsToReturn, true, (int) totalCount);
+        getResponse.setStatus(statusList);
+        return Response.status(Response.Status.OK).entity(getResponse).build();
+    }
 }
@@ -44,6 +44,9 @@ import opensilex.service.view.brapi.form.ResponseFormGET;
 import opensilex.service.view.brapi.form.ResponseFormPOST;
 import opensilex.service.result.ResultForm;
 import opensilex.service.model.Trait;
+import opensilex.service.resource.request.filter.CacheValidated;
+import opensilex.service.resource.request.filter.Compress;
+import opensilex.service.utils.ModificationCounter;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.sparql.service.SPARQLService;
 
@@ -54,6 +57,8 @@ import org.opensilex.sparql.service.SPARQLService;
  */
 @Api("/traits")
 @Path("traits")
+@CacheValidated(ModificationCounter.Scope.VARIABLES)
+@Compress
 public class TraitResourceService extends ResourceService {
 
     @Inject
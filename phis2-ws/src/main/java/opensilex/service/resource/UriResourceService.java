@@ -33,6 +33,9 @@ import opensilex.service.view.brapi.Status;
 import opensilex.service.result.ResultForm;
 import opensilex.service.model.Ask;
 import opensilex.service.model.Uri;
+import opensilex.service.resource.request.filter.CacheValidated;
+import opensilex.service.resource.request.filter.Compress;
+import opensilex.service.utils.ModificationCounter;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.sparql.service.SPARQLService;
 
@@ -258,6 +261,8 @@ public class UriResourceService extends ResourceService {
      */
     @GET
     @Path("{uri}/ancestors")
+    @CacheValidated(ModificationCounter.Scope.ONTOLOGY)
+    @Compress
     @ApiOperation(value = "Get all the ancestor of an uri",
             notes = "Retrieve all Class parents of the uri")
     @ApiResponses(value = {
@@ -317,6 +322,8 @@ public class UriResourceService extends ResourceService {
      */
     @GET
     @Path("{uri}/siblings")
+    @CacheValidated(ModificationCounter.Scope.ONTOLOGY)
+    @Compress
     @ApiOperation(value = "Get all the siblings of an Uri",
             notes = "Retrieve all Class with same parent")
     @ApiResponses(value = {
@@ -376,6 +383,8 @@ public class UriResourceService extends ResourceService {
      */
     @GET
     @Path("{uri}/descendants")
+    @CacheValidated(ModificationCounter.Scope.ONTOLOGY)
+    @Compress
     @ApiOperation(value = "Get all the descendants of an uri",
             notes = "Retrieve all subclass and the subClass of subClass too")
     @ApiResponses(value = {
@@ -35,6 +35,9 @@ import opensilex.service.view.brapi.Status;
 import opensilex.service.result.ResultForm;
 import opensilex.service.model.Namespace;
 import opensilex.service.model.Property;
+import opensilex.service.resource.request.filter.CacheValidated;
+import opensilex.service.resource.request.filter.Compress;
+import opensilex.service.utils.ModificationCounter;
 import static opensilex.service.resource.DocumentResourceService.LOGGER;
 import org.opensilex.rest.authentication.ApiProtected;
 import org.opensilex.sparql.service.SPARQLService;
@@ -46,6 +49,8 @@ import org.opensilex.sparql.service.SPARQLService;
  */
 @Api("/vocabularies")
 @Path("/vocabularies")
+@CacheValidated(ModificationCounter.Scope.ONTOLOGY)
+@Compress
 public class VocabularyResourceService extends ResourceService {
 
     @Inject
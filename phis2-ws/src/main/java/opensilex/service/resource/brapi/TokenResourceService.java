@@ -27,6 +27,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.mail.internet.InternetAddress;
@@ -44,6 +46,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import opensilex.service.PropertiesFileManager;
 import opensilex.service.authentication.TokenResponseStructure;
+import opensilex.service.authentication.VerifiedTokenCache;
 import opensilex.service.documentation.StatusCodeMsg;
 import opensilex.service.resource.dto.LogoutDTO;
 import opensilex.service.resource.dto.TokenDTO;
@@ -71,6 +74,10 @@ public class TokenResourceService implements BrapiCall {
 
     final static Logger LOGGER = LoggerFactory.getLogger(TokenResourceService.class);
     static final Map<String, String> ISSUERS_PUBLICKEY;
+    /**
+     * Parsed public keys, by key file name.
+     */
+    static final ConcurrentHashMap<String, RSAPublicKey> ISSUERS_PUBLICKEY_CACHE = new ConcurrentHashMap<>();
     static final List<String> GRANTTYPE_AUTHORIZED = Collections.unmodifiableList(Arrays.asList("jwt", "password"));
 
     @Inject
@@ -209,6 +216,8 @@ public class TokenResourceService implements BrapiCall {
 
     /**
      * Token DELETE service.
+     * The token is revoked on this instance of the web service only, until its
+     * expiration date or the next restart.
      *
      * @param logout
      * @param ui
@@ -223,9 +232,18 @@ public class TokenResourceService implements BrapiCall {
     @ApiResponses(value = {
         @ApiResponse(code = 201, message = "Access token created by user"),
         @ApiResponse(code = 400, message = "Bad informations send by user"),
+        @ApiResponse(code = 401, message = "Invalid access token"),
         @ApiResponse(code = 200, message = "Access token already exist and send again to user")})
     public Response logOut(@ApiParam(value = "JSON object needed to login") @Valid LogoutDTO logout, @Context UriInfo ui) {
         ArrayList<Status> statusList = new ArrayList<>();
+        try {
+            // The token is rejected from now until its expiration date
+            VerifiedTokenCache.getInstance().revoke(logout.access_token, authentication::decodeTokenUserURI,
+                    TimeUnit.SECONDS.toMillis(authentication.getExpiresInSec()));
+        } catch (Exception ex) {
+            statusList.add(new Status("Invalid token", StatusCodeMsg.ERR, ex.getMessage()));
+            return Response.status(Response.Status.UNAUTHORIZED).entity(new ResponseFormPOST(statusList)).build();
+        }
         statusList.add(new Status("User has been logged out successfully", null));
         return Response.status(Response.Status.CREATED).entity(new ResponseFormPOST(statusList)).build();
     }
@@ -249,8 +267,8 @@ public class TokenResourceService implements BrapiCall {
             if (ISSUERS_PUBLICKEY.containsKey(jwtClaimsSetParsed.getIssuer())) {
 
                 String FilePropertyName = PropertiesFileManager.getConfigFileProperty("service", ISSUERS_PUBLICKEY.get(jwtClaimsSetParsed.getIssuer()));
-                // verify the public key provenance  
-                RSAPublicKey publicKey = PropertiesFileManager.parseBinaryPublicKey(FilePropertyName);
+                // verify the public key provenance, the key file is only read once
+                RSAPublicKey publicKey = ISSUERS_PUBLICKEY_CACHE.computeIfAbsent(FilePropertyName, PropertiesFileManager::parseBinaryPublicKey);
 
                 JWSVerifier verifier = new RSASSAVerifier(publicKey);
                 // verify the payload
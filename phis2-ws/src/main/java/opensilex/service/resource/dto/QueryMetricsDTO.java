@@ -0,0 +1,89 @@
+//******************************************************************************
+//                           QueryMetricsDTO.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.resource.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import opensilex.service.dao.manager.QueryMetrics;
+import opensilex.service.resource.dto.manager.AbstractVerifiedClass;
+
+/**
+ * Durations histogram of the queries of a DAO method.
+ */
+public class QueryMetricsDTO extends AbstractVerifiedClass {
+
+    //Upper bound of the last bucket, which holds all the queries
+    private final static String INFINITE_BOUND = "+Inf";
+
+    //triplestore or mongodb
+    protected String store;
+    //DAO class and method which sent the queries
+    protected String operation;
+    //Number of queries
+    protected long count;
+    //Total duration of the queries, in milliseconds
+    protected long totalDuration;
+    //Longest query duration, in milliseconds
+    protected long maxDuration;
+    //Number of queries shorter than or equal to each bound, in milliseconds
+    protected Map<String, Long> buckets = new LinkedHashMap<>();
+
+    public QueryMetricsDTO(QueryMetrics.Histogram histogram) {
+        this.store = histogram.getStore();
+        this.operation = histogram.getOperation();
+        this.count = histogram.getCount();
+        this.totalDuration = histogram.getTotalDuration();
+        this.maxDuration = histogram.getMaxDuration();
+
+        // Cumulative buckets, like the Prometheus histograms
+        long[] bucketsCounts = histogram.getBucketsCounts();
+        long cumulativeCount = 0;
+        for (int i = 0; i < bucketsCounts.length; i++) {
+            cumulativeCount += bucketsCounts[i];
+            String bound = i < QueryMetrics.BUCKETS_BOUNDS.length
+                    ? Long.toString(QueryMetrics.BUCKETS_BOUNDS[i])
+                    : INFINITE_BOUND;
+            buckets.put(bound, cumulativeCount);
+        }
+    }
+
+    @Override
+    public Object createObjectFromDTO() throws Exception {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @ApiModelProperty(example = "triplestore")
+    public String getStore() {
+        return store;
+    }
+
+    @ApiModelProperty(example = "GermplasmDAO.find")
+    public String getOperation() {
+        return operation;
+    }
+
+    @ApiModelProperty(example = "1542")
+    public long getCount() {
+        return count;
+    }
+
+    @ApiModelProperty(example = "356990")
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    @ApiModelProperty(example = "4210")
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    public Map<String, Long> getBuckets() {
+        return buckets;
+    }
+}
@@ -0,0 +1,67 @@
+//******************************************************************************
+//                        DataQueryLogStatisticsDTO.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.resource.dto.data;
+
+import io.swagger.annotations.ApiModelProperty;
+import opensilex.service.model.DataQueryLogStatistics;
+import opensilex.service.resource.dto.manager.AbstractVerifiedClass;
+
+/**
+ * Data query log statistics DTO.
+ */
+public class DataQueryLogStatisticsDTO extends AbstractVerifiedClass {
+
+    //User URI, service, variable URI or period of the queries
+    protected String key;
+    //Number of queries
+    protected long count;
+    //Total number of results returned by the queries
+    protected long totalResultSize;
+    //Largest number of results returned by a query
+    protected Integer maxResultSize;
+    //Average duration of the queries, in milliseconds
+    protected Double averageDuration;
+
+    public DataQueryLogStatisticsDTO(DataQueryLogStatistics statistics) {
+        this.key = statistics.getKey();
+        this.count = statistics.getCount();
+        this.totalResultSize = statistics.getTotalResultSize();
+        this.maxResultSize = statistics.getMaxResultSize();
+        this.averageDuration = statistics.getAverageDuration();
+    }
+
+    @Override
+    public Object createObjectFromDTO() throws Exception {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @ApiModelProperty(example = "DataResourceService.getDataSearch")
+    public String getKey() {
+        return key;
+    }
+
+    @ApiModelProperty(example = "1542")
+    public long getCount() {
+        return count;
+    }
+
+    @ApiModelProperty(example = "3120400")
+    public long getTotalResultSize() {
+        return totalResultSize;
+    }
+
+    @ApiModelProperty(example = "20000")
+    public Integer getMaxResultSize() {
+        return maxResultSize;
+    }
+
+    @ApiModelProperty(example = "231.5")
+    public Double getAverageDuration() {
+        return averageDuration;
+    }
+}
@@ -0,0 +1,32 @@
+//******************************************************************************
+//                             CacheValidated.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.resource.request.filter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import javax.ws.rs.NameBinding;
+import opensilex.service.utils.ModificationCounter;
+
+/**
+ * Marks a GET service whose result only depends on the data of the given scope.
+ * Its responses get ETag and Last-Modified validators and conditional requests
+ * are answered with 304 Not Modified while the data is unchanged.
+ * @see ConditionalRequestFilter
+ */
+@NameBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheValidated {
+
+    /**
+     * @return the data scope the service result depends on.
+     */
+    ModificationCounter.Scope value();
+}
@@ -0,0 +1,127 @@
+//******************************************************************************
+//                        ConditionalRequestFilter.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.resource.request.filter;
+
+import java.util.Date;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import opensilex.service.utils.ModificationCounter;
+
+/**
+ * Handles HTTP conditional requests (If-None-Match, If-Modified-Since) on the
+ * services annotated with {@link CacheValidated}. The validators are derived
+ * from the modification counter of the data scope of the service, so the
+ * service is not called at all when the client already has the current result.
+ * The counters are kept in memory by each instance of the web service and
+ * only count its own writes: with several instances behind a load balancer,
+ * the clients must be routed to the same instance (sticky sessions), or an
+ * instance may answer 304 for data modified through another one.
+ */
+@Provider
+// Name binding only: the scope is read from the called service annotation
+@CacheValidated(ModificationCounter.Scope.ONTOLOGY)
+public class ConditionalRequestFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    /**
+     * Responses depend on the authenticated user access, they must not be
+     * stored by shared caches and must be revalidated before each use.
+     */
+    private final static String CACHE_CONTROL_VALUE = "private, no-cache";
+
+    // Validators of the data read by the request, given back in the response
+    private final static String ENTITY_TAG_PROPERTY = ConditionalRequestFilter.class.getName() + ".entityTag";
+    private final static String LAST_MODIFIED_PROPERTY = ConditionalRequestFilter.class.getName() + ".lastModified";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    /**
+     * Aborts the request with a 304 response if the client validators match
+     * the current state of the data. Otherwise keeps the validators for the
+     * response: they are read before the service, so a write during the
+     * request makes them outdated rather than labelling old data with the new
+     * version.
+     * @param requestContext
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        ModificationCounter.Scope scope = getScope();
+        if (scope == null || !HttpMethod.GET.equals(requestContext.getMethod())) {
+            return;
+        }
+
+        EntityTag entityTag = ModificationCounter.getEntityTag(scope, getRepresentation(requestContext));
+        Date lastModified = ModificationCounter.getLastModified(scope);
+
+        Response.ResponseBuilder notModified = requestContext.getRequest().evaluatePreconditions(lastModified, entityTag);
+        if (notModified != null) {
+            requestContext.abortWith(notModified
+                    .header(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL_VALUE)
+                    .build());
+        } else {
+            requestContext.setProperty(ENTITY_TAG_PROPERTY, entityTag);
+            requestContext.setProperty(LAST_MODIFIED_PROPERTY, lastModified);
+        }
+    }
+
+    /**
+     * Adds the validators read by the request filter to the successful
+     * responses.
+     * @param requestContext
+     * @param responseContext
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object entityTag = requestContext.getProperty(ENTITY_TAG_PROPERTY);
+        Object lastModified = requestContext.getProperty(LAST_MODIFIED_PROPERTY);
+        if (entityTag == null
+                || lastModified == null
+                || responseContext.getStatus() != Response.Status.OK.getStatusCode()) {
+            return;
+        }
+
+        responseContext.getHeaders().putSingle(HttpHeaders.ETAG, entityTag);
+        responseContext.getHeaders().putSingle(HttpHeaders.LAST_MODIFIED, lastModified);
+        responseContext.getHeaders().putSingle(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL_VALUE);
+    }
+
+    /**
+     * Gets the data scope of the called service, the method annotation
+     * overriding the class one.
+     * @return the scope or null if the service is not annotated.
+     */
+    private ModificationCounter.Scope getScope() {
+        if (resourceInfo == null || resourceInfo.getResourceMethod() == null) {
+            return null;
+        }
+        CacheValidated annotation = resourceInfo.getResourceMethod().getAnnotation(CacheValidated.class);
+        if (annotation == null) {
+            annotation = resourceInfo.getResourceClass().getAnnotation(CacheValidated.class);
+        }
+        return annotation == null ? null : annotation.value();
+    }
+
+    /**
+     * @param requestContext
+     * @return the identifier of the requested representation: path, query
+     * parameters and accepted language.
+     */
+    private String getRepresentation(ContainerRequestContext requestContext) {
+        return requestContext.getUriInfo().getRequestUri().toString()
+                + "|" + requestContext.getHeaderString(HttpHeaders.ACCEPT_LANGUAGE);
+    }
+}
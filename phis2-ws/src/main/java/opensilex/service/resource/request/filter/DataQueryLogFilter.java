@@ -11,14 +11,18 @@ import com.auth0.jwt.exceptions.JWTVerificationException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
 import javax.ws.rs.container.ResourceInfo;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MultivaluedMap;
@@ -26,12 +30,14 @@ import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.Provider;
 import opensilex.service.PropertiesFileManager;
 import opensilex.service.authentication.Session;
+import opensilex.service.authentication.VerifiedTokenCache;
 import opensilex.service.configuration.GlobalWebserviceValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import opensilex.service.dao.DataQueryLogDAO;
 import opensilex.service.resource.DataResourceService;
 import opensilex.service.resource.EnvironmentResourceService;
+import opensilex.service.result.ResultForm;
 import org.opensilex.rest.authentication.AuthenticationService;
 import org.opensilex.rest.user.dal.UserModel;
 import org.opensilex.sparql.service.SPARQLService;
@@ -42,7 +48,7 @@ import org.opensilex.sparql.service.SPARQLService;
  * @author Arnaud Charleroy
  */
 @Provider
-public class DataQueryLogFilter implements ContainerRequestFilter {
+public class DataQueryLogFilter implements ContainerRequestFilter, ContainerResponseFilter {
 
     final static Logger LOGGER = LoggerFactory.getLogger(DataQueryLogFilter.class);
 
@@ -59,8 +65,42 @@ public class DataQueryLogFilter implements ContainerRequestFilter {
     final static String MAP_FIELD_RESSOURCE_PATH = "ressourcePath";
     final static String MAP_FIELD_WS_VERSION = "wsVersion";
 
+    /**
+     * Request property of the log of the request, written with the response.
+     */
+    final static String LOG_REQUEST_PROPERTY = DataQueryLogFilter.class.getName() + ".log";
+
+    /**
+     * Query parameters giving the searched variables.
+     */
+    final static String[] VARIABLE_QUERY_PARAMETERS = {"variable", "variableUri"};
+
+    /**
+     * Log of a data query, waiting for its response.
+     */
+    private static class PendingQueryLog {
+
+        private final String userUri;
+        private final String remoteAddress;
+        private final Date date;
+        private final Map<String, Object> query;
+        private final String service;
+        private final List<String> variables;
+
+        PendingQueryLog(String userUri, String remoteAddress, Date date, Map<String, Object> query, String service, List<String> variables) {
+            this.userUri = userUri;
+            this.remoteAddress = remoteAddress;
+            this.date = date;
+            this.query = query;
+            this.service = service;
+            this.variables = variables;
+        }
+    }
+
     /**
      * Filters the session token.
+     * The log is prepared here and written with the response, to record the
+     * response status, the result size and the query duration.
      *
      * @param requestContext
      * @throws IOException
@@ -74,9 +114,7 @@ public class DataQueryLogFilter implements ContainerRequestFilter {
         String httpMethod = servletRequest.getMethod();
 
         //2 . check access log configuration
-        String logDataQuery = PropertiesFileManager.getConfigFileProperty("mongodb_nosql_config", "logDataQuery");
-
-        if (Boolean.valueOf(logDataQuery)) {
+        if (PropertiesFileManager.getConfig().isLogDataQuery()) {
             //3 . check if the path equals to data service and sub services
             if (resourcePath != null
                     && httpMethod.equals("GET")
@@ -89,20 +127,35 @@ public class DataQueryLogFilter implements ContainerRequestFilter {
 
                 // 4. retreive user informations
                 String authorization = requestContext.getHeaderString(GlobalWebserviceValues.AUTHORIZATION_PROPERTY);
+                if (authorization == null) {
+                    return;
+                }
                 String userToken = authorization.replace(GlobalWebserviceValues.AUTHENTICATION_SCHEME + " ", "");
 
                 URI userURI;
                 try {
-                    userURI = authentication.decodeTokenUserURI(userToken);
-                    // 6. save data search query
-                    DataQueryLogDAO dataAccessLogDao = new DataQueryLogDAO();
-                    dataAccessLogDao.remoteUserAdress = servletRequest.getRemoteAddr();
+                    userURI = VerifiedTokenCache.getInstance().getUserURI(userToken, authentication::decodeTokenUserURI);
+                    // 5. prepare data search query log
                     Map<String, Object> queryParmeters = new HashMap<>();
                     queryParmeters.put(MAP_FIELD_QUERY_PARAMETERS, queryPathParameters);
                     queryParmeters.put(MAP_FIELD_RESSOURCE_PATH, resourcePath);
                     queryParmeters.put(MAP_FIELD_WS_VERSION, getClass().getPackage().getImplementationVersion());
-                    Date currentDate = new Date();
-                    dataAccessLogDao.insert(userURI.toString(), servletRequest.getRemoteAddr(), currentDate, queryParmeters);
+
+                    List<String> variables = new ArrayList<>();
+                    for (String variableParameter : VARIABLE_QUERY_PARAMETERS) {
+                        List<String> variableValues = queryPathParameters.get(variableParameter);
+                        if (variableValues != null) {
+                            variables.addAll(variableValues);
+                        }
+                    }
+
+                    String service = null;
+                    if (resourceInfo.getResourceMethod() != null) {
+                        service = resourceInfo.getResourceClass().getSimpleName() + "." + resourceInfo.getResourceMethod().getName();
+                    }
+
+                    requestContext.setProperty(LOG_REQUEST_PROPERTY, new PendingQueryLog(
+                            userURI.toString(), servletRequest.getRemoteAddr(), new Date(), queryParmeters, service, variables));
                 } catch (JWTVerificationException ex) {
                     java.util.logging.Logger.getLogger(DataQueryLogFilter.class.getName()).log(Level.SEVERE, null, ex);
                 } catch (URISyntaxException ex) {
@@ -114,6 +167,35 @@ public class DataQueryLogFilter implements ContainerRequestFilter {
             }
         }
     }
-    
-    
+
+    /**
+     * Saves the log of the data query, with the response status, the number
+     * of results returned and the query duration.
+     *
+     * @param requestContext
+     * @param responseContext
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        PendingQueryLog queryLog = (PendingQueryLog) requestContext.getProperty(LOG_REQUEST_PROPERTY);
+        if (queryLog == null) {
+            return;
+        }
+
+        Integer resultSize = null;
+        if (responseContext.getEntity() instanceof ResultForm) {
+            resultSize = ((ResultForm) responseContext.getEntity()).resultSize();
+        }
+        long duration = System.currentTimeMillis() - queryLog.date.getTime();
+
+        try {
+            // 6. save data search query
+            DataQueryLogDAO dataAccessLogDao = new DataQueryLogDAO();
+            dataAccessLogDao.remoteUserAdress = queryLog.remoteAddress;
+            dataAccessLogDao.insert(queryLog.userUri, queryLog.remoteAddress, queryLog.date, queryLog.query,
+                    queryLog.service, queryLog.variables, responseContext.getStatus(), resultSize, duration);
+        } catch (Exception ex) {
+            LOGGER.error("Data query log error : " + ex.getMessage(), ex);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+//******************************************************************************
+//                          GZIPWriterInterceptor.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.resource.request.filter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Compresses the responses of the services annotated with {@link Compress}
+ * when the client sends an Accept-Encoding header allowing gzip.
+ */
+@Provider
+@Compress
+public class GZIPWriterInterceptor implements WriterInterceptor {
+
+    private final static String GZIP = "gzip";
+
+    @Context
+    private HttpHeaders httpHeaders;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        // The response varies on the accepted encodings, even when not compressed
+        context.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        String acceptEncoding = httpHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null
+                || !acceptEncoding.toLowerCase().contains(GZIP)
+                || context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+
+        context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, GZIP);
+        // The length of the compressed entity is not known
+        context.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+
+        final OutputStream outputStream = context.getOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        context.setOutputStream(gzipOutputStream);
+        try {
+            context.proceed();
+        } finally {
+            gzipOutputStream.finish();
+            context.setOutputStream(outputStream);
+        }
+    }
+}
@@ -28,44 +28,27 @@ import opensilex.service.view.brapi.form.ResponseFormGET;
 @Provider
 public class PageSizeMaxRequestFilter implements ContainerRequestFilter {
     
-    /**
-     * To set the page size max constant only once during the first use of the 
-     * filter, a boolean is used.
-     */
-    public static boolean PAGE_SIZE_MAX_HAS_BEEN_SET_UP = false;
-    public static int PAGE_SIZE_MAX;
-    
     /**
      * Filters the pageSize parameter.
      * @param requestContext
      */
     @Override
     public void filter(ContainerRequestContext requestContext) {
-        if (!PAGE_SIZE_MAX_HAS_BEEN_SET_UP) {
-            setPageSizeMaxFromConfigFile();
-        }
         UriInfo uriInfo = requestContext.getUriInfo();
         MultivaluedMap<String, String> queryParameters = uriInfo.getQueryParameters();
         
         if (queryParameters.containsKey("pageSize")) {
+            final int pageSizeMax = PropertiesFileManager.getConfig().getPageSizeMax();
             try {
                 final int currentPageSize = Integer.valueOf(queryParameters.getFirst("pageSize"));
-                if (currentPageSize > PAGE_SIZE_MAX) {
-                    final Status pageSizeError = new Status( "You are trying to retrieve to much result at one time.",StatusCodeMsg.ERR, "The current pageSize limit is : " + PAGE_SIZE_MAX + " items");
+                if (currentPageSize > pageSizeMax) {
+                    final Status pageSizeError = new Status( "You are trying to retrieve to much result at one time.",StatusCodeMsg.ERR, "The current pageSize limit is : " + pageSizeMax + " items");
                     requestContext.abortWith(Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormGET(pageSizeError)).type(MediaType.APPLICATION_JSON).build());
                 }
             } catch (java.lang.NumberFormatException ex) {
-                final Status pageSizeError = new Status("Wrong page size format.",StatusCodeMsg.ERR, "It might be because you gave a page size higher than the current page size limit (" + PAGE_SIZE_MAX + ")");
+                final Status pageSizeError = new Status("Wrong page size format.",StatusCodeMsg.ERR, "It might be because you gave a page size higher than the current page size limit (" + pageSizeMax + ")");
                 requestContext.abortWith(Response.status(Response.Status.BAD_REQUEST).entity(new ResponseFormGET(pageSizeError)).type(MediaType.APPLICATION_JSON).build());
             }
         }
     }
-    
-    /**
-     * Sets the page size max value from the configuration file.
-     */
-    private void setPageSizeMaxFromConfigFile() {        
-        PAGE_SIZE_MAX = Integer.parseInt(PropertiesFileManager.getConfigFileProperty("service", "pageSizeMax"));
-        PAGE_SIZE_MAX_HAS_BEEN_SET_UP = true;
-    }
 }
@@ -0,0 +1,376 @@
+//******************************************************************************
+//                           RequestLimitFilter.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.resource.request.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import opensilex.service.ConfigSnapshot;
+import opensilex.service.PropertiesFileManager;
+import opensilex.service.authentication.VerifiedTokenCache;
+import opensilex.service.configuration.GlobalWebserviceValues;
+import opensilex.service.documentation.StatusCodeMsg;
+import opensilex.service.view.brapi.Status;
+import opensilex.service.view.brapi.form.ResponseFormGET;
+import org.glassfish.jersey.server.CloseableService;
+import org.opensilex.rest.authentication.AuthenticationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the request rate and the number of simultaneous requests of each
+ * client (the authenticated user, or the remote address) on each service.
+ * The requests received from the trusted reverse proxies are limited by the
+ * client address they give in the X-Forwarded-For header.
+ * Requests over the limits are rejected with a 429 (Too Many Requests) status
+ * and a Retry-After header.
+ * The limits are read from the service configuration, again after each
+ * configuration reload. They are disabled by default:
+ * - requestRateLimit: requests per minute on a service, 0 for no limit,
+ * - concurrentRequestLimit: simultaneous requests on a service, 0 for no limit,
+ * - requestLimitServices: limits of given services or services classes,
+ * overriding the default ones. The classes are given by their simple name,
+ * - requestLimitTrustedProxies: addresses of the trusted reverse proxies.
+ * @example requestLimitServices=DataResourceService.getDataSearch=60/2,StudiesResourceService=600/4
+ */
+@Provider
+@Priority(Priorities.AUTHORIZATION + 1)
+public class RequestLimitFilter implements ContainerRequestFilter {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(RequestLimitFilter.class);
+
+    /**
+     * Status code 429, not defined by JAX-RS 2.0.
+     */
+    public final static int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Delay before a retry, in seconds, when the simultaneous requests limit
+     * is reached.
+     */
+    private final static long CONCURRENT_REQUESTS_RETRY_AFTER = 1;
+
+    /**
+     * Time after which an unused client limiter is removed, in milliseconds.
+     */
+    private final static long IDLE_LIMITER_TIME = TimeUnit.MINUTES.toMillis(5);
+
+    private final static String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    /**
+     * Limits of a service.
+     */
+    static class Limits {
+
+        private final int requestsPerMinute;
+        private final int concurrentRequests;
+
+        Limits(int requestsPerMinute, int concurrentRequests) {
+            this.requestsPerMinute = requestsPerMinute;
+            this.concurrentRequests = concurrentRequests;
+        }
+
+        boolean isUnlimited() {
+            return requestsPerMinute <= 0 && concurrentRequests <= 0;
+        }
+
+        /**
+         * @param limits
+         * @return the limits read from "requestsPerMinute/concurrentRequests"
+         * @throws NumberFormatException if the limits are malformed
+         */
+        static Limits parse(String limits) {
+            String[] values = limits.trim().split("/");
+            if (values.length != 2) {
+                throw new NumberFormatException("Limits must be requestsPerMinute/concurrentRequests: " + limits);
+            }
+            return new Limits(Integer.parseInt(values[0].trim()), Integer.parseInt(values[1].trim()));
+        }
+    }
+
+    /**
+     * Limiter of a client on a service. The rate is limited by a token
+     * bucket: the bucket contains up to a minute of requests and is refilled
+     * continuously.
+     */
+    static class ClientLimiter {
+
+        private final Limits limits;
+        private final AtomicInteger runningRequests = new AtomicInteger();
+        private final AtomicLong lastUseTime = new AtomicLong();
+        private double tokens;
+        private long lastRefillTime;
+
+        ClientLimiter(Limits limits, long now) {
+            this.limits = limits;
+            this.tokens = limits.requestsPerMinute;
+            this.lastRefillTime = now;
+            this.lastUseTime.set(now);
+        }
+
+        /**
+         * Takes a token for a new request.
+         * @param now current time, in milliseconds
+         * @return 0 if the request can be run, the time to wait before the
+         * next token otherwise, in milliseconds
+         */
+        synchronized long takeToken(long now) {
+            lastUseTime.set(now);
+            if (limits.requestsPerMinute <= 0) {
+                return 0;
+            }
+            double tokensPerMillisecond = limits.requestsPerMinute / (double) TimeUnit.MINUTES.toMillis(1);
+            tokens = Math.min(limits.requestsPerMinute, tokens + (now - lastRefillTime) * tokensPerMillisecond);
+            lastRefillTime = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerMillisecond);
+        }
+
+        /**
+         * Starts a request, if the simultaneous requests limit is not reached.
+         * @return true if the request can be run
+         */
+        boolean startRequest() {
+            if (limits.concurrentRequests <= 0) {
+                return true;
+            }
+            if (runningRequests.incrementAndGet() > limits.concurrentRequests) {
+                runningRequests.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Ends a request started by {@link #startRequest()}.
+         */
+        void endRequest() {
+            if (limits.concurrentRequests > 0) {
+                runningRequests.decrementAndGet();
+            }
+        }
+
+        boolean isIdle(long now) {
+            return runningRequests.get() == 0 && now - lastUseTime.get() > IDLE_LIMITER_TIME;
+        }
+    }
+
+    private final static ConcurrentHashMap<String, ClientLimiter> LIMITERS = new ConcurrentHashMap<>();
+    private final static AtomicLong LAST_CLEANING_TIME = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Limits read from a configuration snapshot.
+     */
+    private static class ConfiguredLimits {
+
+        private final long configVersion;
+        private final Limits defaultLimits;
+        private final Map<String, Limits> servicesLimits;
+
+        ConfiguredLimits(long configVersion, Limits defaultLimits, Map<String, Limits> servicesLimits) {
+            this.configVersion = configVersion;
+            this.defaultLimits = defaultLimits;
+            this.servicesLimits = servicesLimits;
+        }
+    }
+
+    private static volatile ConfiguredLimits configuredLimits;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Context
+    private HttpServletRequest servletRequest;
+
+    @Context
+    private CloseableService closeableService;
+
+    @Inject
+    AuthenticationService authentication;
+
+    /**
+     * Rejects the request if its client is over the limits of the called
+     * service.
+     * @param requestContext
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (resourceInfo == null || resourceInfo.getResourceMethod() == null) {
+            return;
+        }
+        String serviceClass = resourceInfo.getResourceClass().getSimpleName();
+        String service = serviceClass + "." + resourceInfo.getResourceMethod().getName();
+        Limits limits = getLimits(serviceClass, service);
+        if (limits.isUnlimited()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        removeIdleLimiters(now);
+        String client = getClient(requestContext);
+        // The limiters created before a configuration reload are replaced
+        ClientLimiter limiter = LIMITERS.compute(client + " " + service, (key, existingLimiter) ->
+                existingLimiter == null || existingLimiter.limits != limits ? new ClientLimiter(limits, now) : existingLimiter);
+
+        // The rate token is only taken by the requests which can be run now
+        if (!limiter.startRequest()) {
+            LOGGER.debug("Simultaneous requests limit reached by " + client + " on " + service);
+            abortWithTooManyRequests(requestContext, CONCURRENT_REQUESTS_RETRY_AFTER,
+                    "The current limit is " + limits.concurrentRequests + " simultaneous requests");
+            return;
+        }
+
+        long waitingTime = limiter.takeToken(now);
+        if (waitingTime > 0) {
+            limiter.endRequest();
+            LOGGER.debug("Requests rate limit reached by " + client + " on " + service);
+            abortWithTooManyRequests(requestContext, TimeUnit.MILLISECONDS.toSeconds(waitingTime) + 1,
+                    "The current limit is " + limits.requestsPerMinute + " requests per minute");
+            return;
+        }
+        // Closed at the end of the request, whatever its result
+        closeableService.add(limiter::endRequest);
+    }
+
+    /**
+     * Gets the client of the request: its user if the request is
+     * authenticated, its address otherwise.
+     * @param requestContext
+     * @return the client
+     */
+    private String getClient(ContainerRequestContext requestContext) {
+        String authorization = requestContext.getHeaderString(GlobalWebserviceValues.AUTHORIZATION_PROPERTY);
+        if (authorization != null) {
+            String userToken = authorization.replace(GlobalWebserviceValues.AUTHENTICATION_SCHEME + " ", "");
+            try {
+                return VerifiedTokenCache.getInstance().getUserURI(userToken, authentication::decodeTokenUserURI).toString();
+            } catch (Exception ex) {
+                LOGGER.debug("Invalid token, request limited by remote address");
+            }
+        }
+        return getClientAddress(servletRequest.getRemoteAddr(),
+                requestContext.getHeaderString(FORWARDED_FOR_HEADER),
+                PropertiesFileManager.getConfig().getRequestLimitTrustedProxies());
+    }
+
+    /**
+     * Gets the address of the client of a request. If the request is received
+     * from a trusted proxy, the address is the last one of the X-Forwarded-For
+     * header which is not a trusted proxy: the previous ones are given by the
+     * client and can't be trusted.
+     * @param remoteAddress address of the connection
+     * @param forwardedFor X-Forwarded-For header, may be null
+     * @param trustedProxies addresses of the trusted proxies
+     * @return the client address
+     */
+    static String getClientAddress(String remoteAddress, String forwardedFor, Set<String> trustedProxies) {
+        if (forwardedFor == null || !trustedProxies.contains(remoteAddress)) {
+            return remoteAddress;
+        }
+        String clientAddress = remoteAddress;
+        String[] forwardedAddresses = forwardedFor.split(",");
+        for (int i = forwardedAddresses.length - 1; i >= 0; i--) {
+            String forwardedAddress = forwardedAddresses[i].trim();
+            if (forwardedAddress.isEmpty()) {
+                continue;
+            }
+            clientAddress = forwardedAddress;
+            if (!trustedProxies.contains(forwardedAddress)) {
+                break;
+            }
+        }
+        return clientAddress;
+    }
+
+    private static void abortWithTooManyRequests(ContainerRequestContext requestContext, long retryAfter, String message) {
+        Status limitError = new Status("Too many requests", StatusCodeMsg.ERR, message);
+        requestContext.abortWith(Response.status(TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                .entity(new ResponseFormGET(limitError))
+                .type(MediaType.APPLICATION_JSON)
+                .build());
+    }
+
+    /**
+     * Removes the limiters of the clients without request for a while, at
+     * most once per idle time.
+     * @param now
+     */
+    private static void removeIdleLimiters(long now) {
+        long lastCleaningTime = LAST_CLEANING_TIME.get();
+        if (now - lastCleaningTime > IDLE_LIMITER_TIME && LAST_CLEANING_TIME.compareAndSet(lastCleaningTime, now)) {
+            LIMITERS.values().removeIf(limiter -> limiter.isIdle(now));
+        }
+    }
+
+    /**
+     * Gets the limits of a service: the limits of the service if defined,
+     * else the limits of its class if defined, else the default limits.
+     * @param serviceClass
+     * @param service
+     * @return the limits
+     */
+    private static Limits getLimits(String serviceClass, String service) {
+        ConfigSnapshot config = PropertiesFileManager.getConfig();
+        ConfiguredLimits limits = configuredLimits;
+        if (limits == null || limits.configVersion != config.getVersion()) {
+            limits = loadLimits(config);
+            configuredLimits = limits;
+        }
+        Limits serviceLimits = limits.servicesLimits.get(service);
+        if (serviceLimits == null) {
+            serviceLimits = limits.servicesLimits.get(serviceClass);
+        }
+        return serviceLimits == null ? limits.defaultLimits : serviceLimits;
+    }
+
+    /**
+     * Reads the limits from the configuration.
+     * @param config
+     * @return the limits
+     */
+    private static ConfiguredLimits loadLimits(ConfigSnapshot config) {
+        Map<String, Limits> limits = new HashMap<>();
+        String servicesLimitsProperty = config.getRequestLimitServices();
+        if (servicesLimitsProperty != null && !servicesLimitsProperty.trim().isEmpty()) {
+            for (String serviceLimits : servicesLimitsProperty.split(",")) {
+                String[] serviceAndLimits = serviceLimits.split("=");
+                try {
+                    if (serviceAndLimits.length != 2) {
+                        throw new NumberFormatException("Service limits must be service=requestsPerMinute/concurrentRequests");
+                    }
+                    limits.put(serviceAndLimits[0].trim(), Limits.parse(serviceAndLimits[1]));
+                } catch (NumberFormatException ex) {
+                    LOGGER.warn("Ignored requestLimitServices value " + serviceLimits + " : " + ex.getMessage());
+                }
+            }
+        }
+        return new ConfiguredLimits(config.getVersion(),
+                new Limits(config.getRequestRateLimit(), config.getConcurrentRequestLimit()),
+                limits);
+    }
+}
@@ -0,0 +1,47 @@
+//******************************************************************************
+//                           RevokedTokenFilter.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.resource.request.filter;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import opensilex.service.authentication.VerifiedTokenCache;
+import opensilex.service.configuration.GlobalWebserviceValues;
+import opensilex.service.documentation.StatusCodeMsg;
+import opensilex.service.view.brapi.Status;
+import opensilex.service.view.brapi.form.ResponseFormGET;
+
+/**
+ * Rejects the requests sent with a token revoked by a log out, with a 401
+ * (Unauthorized) status. Only the log outs made on this instance are known.
+ * @see VerifiedTokenCache
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class RevokedTokenFilter implements ContainerRequestFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String authorization = requestContext.getHeaderString(GlobalWebserviceValues.AUTHORIZATION_PROPERTY);
+        if (authorization == null) {
+            return;
+        }
+        String userToken = authorization.replace(GlobalWebserviceValues.AUTHENTICATION_SCHEME + " ", "");
+        if (VerifiedTokenCache.getInstance().isRevoked(userToken)) {
+            Status revokedError = new Status("Revoked token", StatusCodeMsg.ERR, "The session has been closed, log in again");
+            requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED)
+                    .entity(new ResponseFormGET(revokedError))
+                    .type(MediaType.APPLICATION_JSON)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+//******************************************************************************
+//                                ProcessRunner.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.shinyProxy;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs the external commands (docker) used to manage ShinyProxy.
+ * @see SystemProcessRunner
+ */
+@FunctionalInterface
+public interface ProcessRunner {
+
+    /**
+     * Runs a command and waits for its end.
+     * @param processArgs the command and its arguments
+     * @param directory the working directory of the command
+     * @return the exit value of the command, 0 if it succeeded
+     * @throws IOException if the command can't be started
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    int execute(String[] processArgs, File directory) throws IOException, InterruptedException;
+}
@@ -0,0 +1,237 @@
+//******************************************************************************
+//                           ShinyProxyReloadWorker.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.shinyProxy;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the ShinyProxy reloads (applications images update, ShinyProxy stop
+ * and run) in a single worker thread, so reloads never overlap.
+ * The reload requests received while a reload is waiting to start are
+ * coalesced: whatever the number of uploaded applications during a reload,
+ * only one more reload is run after it.
+ */
+public class ShinyProxyReloadWorker {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(ShinyProxyReloadWorker.class);
+
+    /**
+     * Reload steps.
+     */
+    public enum State {
+        IDLE,
+        UPDATING_APPLICATIONS,
+        STOPPING,
+        STARTING
+    }
+
+    /**
+     * Snapshot of the worker status.
+     */
+    public static class ReloadStatus {
+
+        private final State state;
+        private final boolean running;
+        private final boolean reloadPending;
+        private final long reloadRequests;
+        private final long reloads;
+        private final Date lastReloadStart;
+        private final Date lastReloadEnd;
+        private final String lastError;
+
+        ReloadStatus(ShinyProxyReloadWorker worker) {
+            this.state = worker.state;
+            this.running = worker.running;
+            this.reloadPending = worker.reloadPending.get();
+            this.reloadRequests = worker.reloadRequests.get();
+            this.reloads = worker.reloads.get();
+            this.lastReloadStart = worker.lastReloadStart;
+            this.lastReloadEnd = worker.lastReloadEnd;
+            this.lastError = worker.lastError;
+        }
+
+        /**
+         * @return the current reload step
+         */
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return true if ShinyProxy has been started by the last reload
+         */
+        public boolean isRunning() {
+            return running;
+        }
+
+        /**
+         * @return true if a reload is waiting to start
+         */
+        public boolean isReloadPending() {
+            return reloadPending;
+        }
+
+        /**
+         * @return the number of reload requests since the web service start
+         */
+        public long getReloadRequests() {
+            return reloadRequests;
+        }
+
+        /**
+         * @return the number of reloads run since the web service start
+         */
+        public long getReloads() {
+            return reloads;
+        }
+
+        public Date getLastReloadStart() {
+            return lastReloadStart;
+        }
+
+        public Date getLastReloadEnd() {
+            return lastReloadEnd;
+        }
+
+        /**
+         * @return the error of the last reload, null if it succeeded
+         */
+        public String getLastError() {
+            return lastError;
+        }
+    }
+
+    private static class InstanceHolder {
+
+        private final static ShinyProxyReloadWorker INSTANCE = new ShinyProxyReloadWorker(ShinyProxyService::new);
+    }
+
+    /**
+     * @return the worker of the web service
+     */
+    public static ShinyProxyReloadWorker getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    private final Supplier<ShinyProxyService> serviceSupplier;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shinyproxy-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean reloadPending = new AtomicBoolean(false);
+    private final AtomicLong reloadRequests = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private volatile State state = State.IDLE;
+    private volatile boolean running = false;
+    private volatile Date lastReloadStart;
+    private volatile Date lastReloadEnd;
+    private volatile String lastError;
+
+    /**
+     * @param serviceSupplier gives the service used for each reload
+     */
+    public ShinyProxyReloadWorker(Supplier<ShinyProxyService> serviceSupplier) {
+        this.serviceSupplier = serviceSupplier;
+    }
+
+    /**
+     * Requests a ShinyProxy reload. The reload is run after the running one,
+     * if any.
+     * @return true if a new reload has been scheduled, false if the request
+     * has been merged with the already waiting reload
+     */
+    public boolean requestReload() {
+        reloadRequests.incrementAndGet();
+        if (!reloadPending.compareAndSet(false, true)) {
+            LOGGER.debug("ShinyProxy reload already waiting");
+            return false;
+        }
+        try {
+            executor.execute(this::reload);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            reloadPending.set(false);
+            LOGGER.warn("ShinyProxy reload worker stopped, reload ignored");
+            return false;
+        }
+    }
+
+    /**
+     * Runs a reload.
+     */
+    private void reload() {
+        // The next requests need a new reload, to take into account the
+        // applications uploaded from now
+        reloadPending.set(false);
+        lastReloadStart = new Date();
+        LOGGER.info("ShinyProxy reload started");
+        try {
+            ShinyProxyService shinyProxyService = serviceSupplier.get();
+
+            state = State.UPDATING_APPLICATIONS;
+            shinyProxyService.updateApplicationsListAndImages();
+
+            state = State.STOPPING;
+            shinyProxyService.stop();
+            running = false;
+
+            state = State.STARTING;
+            running = shinyProxyService.run();
+
+            lastError = running ? null : "ShinyProxy not started";
+        } catch (RuntimeException ex) {
+            LOGGER.error("ShinyProxy reload failed", ex);
+            lastError = ex.getMessage() == null ? ex.getClass().getName() : ex.getMessage();
+        } finally {
+            state = State.IDLE;
+            lastReloadEnd = new Date();
+            reloads.incrementAndGet();
+            LOGGER.info("ShinyProxy reload ended");
+        }
+    }
+
+    /**
+     * @return the status of the worker
+     */
+    public ReloadStatus getStatus() {
+        return new ReloadStatus(this);
+    }
+
+    /**
+     * Stops the worker, waiting for the running reload, and stops ShinyProxy
+     * if it is running.
+     * @param timeout maximum time to wait for the running reload, in seconds
+     */
+    public void shutdown(long timeout) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (running) {
+            serviceSupplier.get().stop();
+            running = false;
+        }
+    }
+}
@@ -10,11 +10,9 @@ package opensilex.service.shinyProxy;
 import opensilex.service.model.ScientificAppDescription;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -24,11 +22,10 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.slf4j.Logger;
@@ -43,14 +40,14 @@ import org.slf4j.LoggerFactory;
 /**
  * ShinyProxyService
  * Manage the link with ShinyProxy Service
+ * The reloads are run by the {@link ShinyProxyReloadWorker}, which also keeps
+ * the ShinyProxy state.
  * @author Arnaud Charleroy <arnaud.charleroy@inra.fr>
  */
 public class ShinyProxyService {
 
     final static Logger LOGGER = LoggerFactory.getLogger(ShinyProxyService.class);
 
-    public static Boolean SHINYPROXY_UPDATE_APP_STATE = false;
-    public static Boolean SHINYPROX_RUN_STATE = false;
     public static Path SHINYPROXY_CONFIG_DIRECTORY;
     public static Path SHINYPROXY_CONFIG_FILE;
     final private static String SHINYPROXY_INTERNAL_DOCKERFILE_IMAGE = "shinyProxy/Dockerfile";
@@ -65,32 +62,47 @@ public class ShinyProxyService {
     public final static String SHINYPROXY_APP_DOCTYPE = "http://www.opensilex.org/vocabulary/oeso#ShinyAppPackage";
     public static ArrayList<ScientificAppDescription> SHINYPROXY_APPS_LIST;
 
+    private final ProcessRunner processRunner;
+
     /**
-     *
+     * Uses the configured ShinyProxy directory and runs the docker commands
+     * as system processes.
      */
     public ShinyProxyService() {
+        this(new SystemProcessRunner(), 
+                Paths.get(PropertiesFileManager.getConfigFileProperty("data_analysis_config", "shinyproxy.configFilePath")));
+    }
+
+    /**
+     * @param processRunner runner of the docker commands
+     * @param configDirectory ShinyProxy configuration directory
+     */
+    public ShinyProxyService(ProcessRunner processRunner, Path configDirectory) {
+        this.processRunner = processRunner;
         // Initialize directory variables
-        setConstantsVariables();
+        setConstantsVariables(configDirectory);
     }
 
     public void updateApplicationsListAndImages() {
         SPARQLServiceFactory factory = OpenSilex.getInstance().getServiceInstance(SPARQLService.DEFAULT_SPARQL_SERVICE, SPARQLServiceFactory.class);
         SPARQLService sparql = factory.provide();
-        SHINYPROXY_UPDATE_APP_STATE = true;
-        LOGGER.info("Listing shiny apps ... ");
-        ScientificAppDAO scientificAppDAO = new ScientificAppDAO();
-        SHINYPROXY_APPS_LIST = scientificAppDAO.find(sparql, null, null);
-        LOGGER.info("Build images ...");
-        createDockerDirAndFiles(SHINYPROXY_APPS_LIST);
-        createWebApplicationsBuildImageProcess(SHINYPROXY_APPS_LIST);
-        SHINYPROXY_UPDATE_APP_STATE = false;
-        factory.dispose(sparql);
+        try {
+            LOGGER.info("Listing shiny apps ... ");
+            ScientificAppDAO scientificAppDAO = new ScientificAppDAO();
+            SHINYPROXY_APPS_LIST = scientificAppDAO.find(sparql, null, null);
+            LOGGER.info("Build images ...");
+            createDockerDirAndFiles(SHINYPROXY_APPS_LIST);
+            createWebApplicationsBuildImageProcess(SHINYPROXY_APPS_LIST);
+        } finally {
+            factory.dispose(sparql);
+        }
     }
 
     /**
-     *
+     * Builds and runs the ShinyProxy container.
+     * @return true if ShinyProxy is running
      */
-    public void run() {
+    public boolean run() {
         boolean validShinyProxyInstallation = false;
         boolean isConfigFileWritten = false;
 
@@ -111,25 +123,26 @@ public class ShinyProxyService {
         }
         if (isConfigFileWritten && validShinyProxyInstallation) {
             boolean runningShinyProxy = runProxyDockerImage();
-            SHINYPROX_RUN_STATE = true;
             if (runningShinyProxy) {
                 LOGGER.info("Shinyproxy is running");
             }
-
+            return runningShinyProxy;
         }
+        return false;
     }
 
+    /**
+     * Stops and removes the ShinyProxy container.
+     */
     public void stop() {
-        List<Callable<Process>> callables = new ArrayList();
+        List<Callable<Integer>> callables = new ArrayList();
         callables.add(stopShinyProxyContainerServiceProcess());
         callables.add(removeShinyProxyContainerServiceProcess());
         runListTask(callables, false);
-        SHINYPROX_RUN_STATE = false;
     }
 
-    private void setConstantsVariables() {
-        final String configFilePath = PropertiesFileManager.getConfigFileProperty("data_analysis_config", "shinyproxy.configFilePath");
-        SHINYPROXY_CONFIG_DIRECTORY = Paths.get(configFilePath);
+    private void setConstantsVariables(Path configDirectory) {
+        SHINYPROXY_CONFIG_DIRECTORY = configDirectory;
         SHINYPROXY_DOCKERFILE_IMAGE = Paths.get(SHINYPROXY_CONFIG_DIRECTORY.toString(), File.separator + "Dockerfile");
         SHINYPROXY_CONFIG_FILE = Paths.get(SHINYPROXY_CONFIG_DIRECTORY.toString(), File.separator + "application.yml");
         SHINYPROXY_DOCKER_FILES = Paths.get(SHINYPROXY_CONFIG_DIRECTORY.toString(), File.separator + "docker");
@@ -138,18 +151,11 @@ public class ShinyProxyService {
 
    /**
     * Reload ShinyProxy Service
+    * The reload is run by the reload worker, after the running one if any.
+    * @see ShinyProxyReloadWorker#requestReload()
     */
     public void reload() {
-        CompletableFuture<String> completableFuture
-                = new CompletableFuture<>();
-        Executors.newCachedThreadPool().submit(() -> {
-            updateApplicationsListAndImages();
-            stop();
-            run();
-            completableFuture.complete("Shiny Proxy Reload Complete");
-            return null;
-        });
-
+        ShinyProxyReloadWorker.getInstance().requestReload();
     }
 
     private Map<String, Object> createConfigMapFromConfigFile() {
@@ -201,13 +207,13 @@ public class ShinyProxyService {
             LOGGER.error(ex.getMessage(), ex);
         }
 
-        List<Callable<Process>> callables = new ArrayList();
+        List<Callable<Integer>> callables = new ArrayList();
         callables.add(buildShinyNetworkServiceProcess());
         callables.add(buildShinyProxyContainerServiceProcess());
         return runListTask(callables, false);
     }
     
-     private Callable<Process> buildShinyNetworkServiceProcess(){
+     private Callable<Integer> buildShinyNetworkServiceProcess(){
         return () -> {
             String[] networkProccessArgs = {
                 "docker",
@@ -218,7 +224,7 @@ public class ShinyProxyService {
         };
     }
     
-    private Callable<Process> buildShinyProxyContainerServiceProcess(){
+    private Callable<Integer> buildShinyProxyContainerServiceProcess(){
         return () -> {
             String[] proccessArgs = {
                 "docker",
@@ -231,7 +237,7 @@ public class ShinyProxyService {
     }
     
     
-    private Callable<Process> stopShinyProxyContainerServiceProcess(){
+    private Callable<Integer> stopShinyProxyContainerServiceProcess(){
         return () -> {
             String[] proccessArgs = {
                 "docker",
@@ -242,7 +248,7 @@ public class ShinyProxyService {
     }
     
     
-    private  Callable<Process> removeShinyProxyContainerServiceProcess(){
+    private  Callable<Integer> removeShinyProxyContainerServiceProcess(){
         return () -> {
             String[] proccessArgs = {
                 "docker",
@@ -257,39 +263,12 @@ public class ShinyProxyService {
      *
      * @param proccessArgs
      * @param directoryPath
-     * @return
+     * @return the exit value of the process
+     * @throws IOException if the process can't be started
+     * @throws InterruptedException
      */
-    private Process executeProcess(String[] proccessArgs, File directoryPath) {
-        ProcessBuilder processBuilder;
-        Process process;
-        try {
-            processBuilder = new ProcessBuilder(proccessArgs);
-            processBuilder.directory(directoryPath);
-            processBuilder.inheritIO();
-
-            process = processBuilder.start();
-            BufferedReader stdoutReader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = stdoutReader.readLine()) != null) {
-                LOGGER.info(line);
-            }
-
-            BufferedReader stderrReader = new BufferedReader(
-                    new InputStreamReader(process.getErrorStream()));
-            while ((line = stderrReader.readLine()) != null) {
-                LOGGER.error(line);
-            }
-            try {
-                process.waitFor();
-            } catch (InterruptedException ex) {
-                LOGGER.error(ex.getMessage(), ex);
-            }
-            return process;
-        } catch (IOException ex) {
-            LOGGER.error(ex.getMessage(), ex);
-        }
-        return null;
+    private int executeProcess(String[] proccessArgs, File directoryPath) throws IOException, InterruptedException {
+        return processRunner.execute(proccessArgs, directoryPath);
     }
 
     /**
@@ -299,7 +278,7 @@ public class ShinyProxyService {
      *                    if false run synchronous tasks
      * @return 
      */
-    private boolean runListTask(List<Callable<Process>> callables, boolean parralelism) {
+    private boolean runListTask(List<Callable<Integer>> callables, boolean parralelism) {
         ExecutorService executor;
         if (parralelism) {
             executor = Executors.newWorkStealingPool();
@@ -308,25 +287,18 @@ public class ShinyProxyService {
         }
 
         try {
-            executor.invokeAll(callables)
-                    .stream()
-                    .map(future -> {
-                        try {
-                            return future.get();
-                        } catch (InterruptedException | ExecutionException e) {
-                            throw new IllegalStateException(e);
-                        }
-                    })
-                    .forEach(System.out::println);
-        } catch (InterruptedException ex) {
+            for (Future<Integer> future : executor.invokeAll(callables)) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
             LOGGER.error(ex.getMessage(), ex);
             return false;
-        }
-        executor.shutdown();
-        try {
-            executor.awaitTermination(1, TimeUnit.MINUTES);
         } catch (InterruptedException ex) {
             LOGGER.error(ex.getMessage(), ex);
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            executor.shutdown();
         }
         return true;
     }
@@ -416,10 +388,10 @@ public class ShinyProxyService {
      * @param shinyProxyAppList Application definition
      */
     private void createWebApplicationsBuildImageProcess(ArrayList<ScientificAppDescription> shinyProxyAppList) {
-        List<Callable<Process>> callables = new ArrayList();
+        List<Callable<Integer>> callables = new ArrayList();
         for (ScientificAppDescription shinyAppDescription : shinyProxyAppList) {
             if (shinyAppDescription.getExtractDockerFilesState()) {
-                Callable<Process> callableObj = () -> {
+                Callable<Integer> callableObj = () -> {
                     File shinyDockerPath = Paths.get(
                             SHINYPROXY_DOCKER_FILES.toString(),
                             File.separator, shinyAppDescription.getId()
@@ -440,27 +412,31 @@ public class ShinyProxyService {
 
     /**
      * Run shiny Proxy Service 
-     * @return 
+     * @return true if the ShinyProxy container has been started
      */
     private boolean runProxyDockerImage() {
         final String shinyproxyPort = PropertiesFileManager.getConfigFileProperty("data_analysis_config", "shinyproxy.port");
-        List<Callable<Process>> callables = new ArrayList();
-        Callable<Process> runCallableObject = () -> {
-            String[] proccessArgs = {
-                "docker",
-                "run",
-                "-d",
-                "-v",
-                "/var/run/docker.sock:/var/run/docker.sock",
-                "--net", SHINYPROXY_NETWORK_ID,
-                "--name", "shiny_proxy",
-                "-p",
-                shinyproxyPort + ":8080",
-                SHINYPROXY_DOCKER_IMAGE
-            };
-            return executeProcess(proccessArgs, SHINYPROXY_CONFIG_DIRECTORY.toFile());
+        String[] proccessArgs = {
+            "docker",
+            "run",
+            "-d",
+            "-v",
+            "/var/run/docker.sock:/var/run/docker.sock",
+            "--net", SHINYPROXY_NETWORK_ID,
+            "--name", "shiny_proxy",
+            "-p",
+            shinyproxyPort + ":8080",
+            SHINYPROXY_DOCKER_IMAGE
         };
-        callables.add(runCallableObject);
-        return runListTask(callables, false);
+        try {
+            return executeProcess(proccessArgs, SHINYPROXY_CONFIG_DIRECTORY.toFile()) == 0;
+        } catch (IOException ex) {
+            LOGGER.error(ex.getMessage(), ex);
+            return false;
+        } catch (InterruptedException ex) {
+            LOGGER.error(ex.getMessage(), ex);
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 }
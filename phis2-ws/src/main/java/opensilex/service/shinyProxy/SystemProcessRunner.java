@@ -0,0 +1,46 @@
+//******************************************************************************
+//                             SystemProcessRunner.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.shinyProxy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the commands as system processes. The output of the commands is logged.
+ */
+public class SystemProcessRunner implements ProcessRunner {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(SystemProcessRunner.class);
+
+    @Override
+    public int execute(String[] processArgs, File directory) throws IOException, InterruptedException {
+        ProcessBuilder processBuilder = new ProcessBuilder(processArgs);
+        processBuilder.directory(directory);
+        processBuilder.redirectErrorStream(true);
+
+        LOGGER.debug("Run " + Arrays.toString(processArgs));
+        Process process = processBuilder.start();
+        try (BufferedReader outputReader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = outputReader.readLine()) != null) {
+                LOGGER.info(line);
+            }
+        }
+
+        int exitValue = process.waitFor();
+        if (exitValue != 0) {
+            LOGGER.warn(Arrays.toString(processArgs) + " exited with " + exitValue);
+        }
+        return exitValue;
+    }
+}
@@ -0,0 +1,120 @@
+//******************************************************************************
+//                           BulkCreationProgress.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of a running bulk creation, e.g. the import of all the plots of a
+ * field trial. The running creations are registered so their progress can be
+ * requested while the creation request is still running.
+ * @example
+ * BulkCreationProgress progress = BulkCreationProgress.start("scientific objects", user.getEmail(), 20000);
+ * try {
+ *     ...
+ *     progress.created(500);
+ * } finally {
+ *     progress.end();
+ * }
+ */
+public class BulkCreationProgress {
+
+    private final static ConcurrentHashMap<String, BulkCreationProgress> RUNNING_CREATIONS = new ConcurrentHashMap<>();
+
+    private final String id;
+    private final String resourceType;
+    private final String userEmail;
+    private final int total;
+    private final long startTime;
+    private final AtomicInteger created = new AtomicInteger();
+
+    private BulkCreationProgress(String resourceType, String userEmail, int total) {
+        this.id = UUID.randomUUID().toString();
+        this.resourceType = resourceType;
+        this.userEmail = userEmail;
+        this.total = total;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Registers a new running creation.
+     * @param resourceType type of the created resources, e.g. "scientific objects"
+     * @param userEmail email of the user who sent the creation request, may be null
+     * @param total number of resources to create
+     * @return the progress of the creation
+     */
+    public static BulkCreationProgress start(String resourceType, String userEmail, int total) {
+        BulkCreationProgress progress = new BulkCreationProgress(resourceType, userEmail, total);
+        RUNNING_CREATIONS.put(progress.id, progress);
+        return progress;
+    }
+
+    /**
+     * @param userEmail
+     * @return the running creations of the given user, all the running
+     * creations if null
+     */
+    public static ArrayList<BulkCreationProgress> getRunningCreations(String userEmail) {
+        Collection<BulkCreationProgress> runningCreations = RUNNING_CREATIONS.values();
+        ArrayList<BulkCreationProgress> userCreations = new ArrayList<>();
+        for (BulkCreationProgress progress : runningCreations) {
+            if (userEmail == null || Objects.equals(userEmail, progress.userEmail)) {
+                userCreations.add(progress);
+            }
+        }
+        return userCreations;
+    }
+
+    /**
+     * Adds resources to the created ones.
+     * @param count number of resources created
+     * @return the number of resources created since the start
+     */
+    public int created(int count) {
+        return created.addAndGet(count);
+    }
+
+    /**
+     * Unregisters the creation, successful or not.
+     */
+    public void end() {
+        RUNNING_CREATIONS.remove(id);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCreated() {
+        return created.get();
+    }
+
+    /**
+     * @return the start date of the creation, in milliseconds since epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+}
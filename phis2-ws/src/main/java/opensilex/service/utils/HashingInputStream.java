@@ -0,0 +1,92 @@
+//******************************************************************************
+//                            HashingInputStream.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Input stream computing the MD5 checksum and the size of the bytes read, so
+ * an uploaded file can be checked while it is written to its storage, without
+ * reading it twice.
+ * @example
+ * try (HashingInputStream content = new HashingInputStream(uploadedStream)) {
+ *     Files.copy(content, path);
+ *     if (!content.matches(expectedChecksum)) {
+ *         Files.delete(path);
+ *     }
+ * }
+ */
+public class HashingInputStream extends DigestInputStream {
+
+    private long size = 0;
+    private String hash;
+
+    public HashingInputStream(InputStream stream) {
+        super(stream, newMD5Digest());
+    }
+
+    private static MessageDigest newMD5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            // MD5 is available in every Java platform
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = super.read();
+        if (read != -1) {
+            size++;
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            size += read;
+        }
+        return read;
+    }
+
+    /**
+     * @return the number of bytes read
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the MD5 checksum of the bytes read. Must be called once the whole
+     * stream has been read.
+     * @return the checksum as a hexadecimal string
+     * @example 106fa487baa1728083747de1c6df73e9
+     */
+    public String getHash() {
+        if (hash == null) {
+            hash = Hex.encodeHexString(getMessageDigest().digest());
+        }
+        return hash;
+    }
+
+    /**
+     * @param expectedChecksum the checksum given by the client
+     * @return true if the checksum of the bytes read is the expected one
+     */
+    public boolean matches(String expectedChecksum) {
+        return expectedChecksum != null && expectedChecksum.equalsIgnoreCase(getHash());
+    }
+}
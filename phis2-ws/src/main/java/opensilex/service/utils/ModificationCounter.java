@@ -0,0 +1,110 @@
+//******************************************************************************
+//                           ModificationCounter.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.EntityTag;
+
+/**
+ * Modification counters of rarely changing data (ontology, variables catalogue,
+ * devices).
+ * Each counter is bumped by the DAOs when they write the underlying data and
+ * is used to derive the HTTP validators (ETag and Last-Modified) of the
+ * responses built from this data.
+ * The counters are not shared: each instance of the web service only counts
+ * the writes it made itself, and the writes made by other instances or tools
+ * directly in the stores are not seen until a configuration reload, which
+ * increments all the counters.
+ * @see opensilex.service.resource.request.filter.ConditionalRequestFilter
+ */
+public class ModificationCounter {
+
+    /**
+     * Data scopes tracked by a counter.
+     */
+    public enum Scope {
+        /**
+         * Ontology concepts hierarchy, vocabulary and namespaces.
+         */
+        ONTOLOGY,
+        /**
+         * Variables, traits, methods and units.
+         */
+        VARIABLES,
+        /**
+         * Sensors, vectors and radiometric targets.
+         */
+        DEVICES
+    }
+
+    /**
+     * Startup timestamp, used to invalidate the validators given before a
+     * restart of the web service (counters are kept in memory).
+     */
+    private final static long STARTUP_TIME = System.currentTimeMillis();
+
+    private final static Map<Scope, AtomicLong> VERSIONS = new EnumMap<>(Scope.class);
+    private final static Map<Scope, AtomicLong> LAST_MODIFICATIONS = new EnumMap<>(Scope.class);
+
+    static {
+        for (Scope scope : Scope.values()) {
+            VERSIONS.put(scope, new AtomicLong());
+            LAST_MODIFICATIONS.put(scope, new AtomicLong(STARTUP_TIME));
+        }
+    }
+
+    private ModificationCounter() {
+    }
+
+    /**
+     * Registers a write on the data of the given scopes.
+     * @param scopes
+     */
+    public static void increment(Scope... scopes) {
+        long now = System.currentTimeMillis();
+        for (Scope scope : scopes) {
+            VERSIONS.get(scope).incrementAndGet();
+            LAST_MODIFICATIONS.get(scope).accumulateAndGet(now, Math::max);
+        }
+    }
+
+    /**
+     * @param scope
+     * @return the current version of the scope data.
+     */
+    public static long getVersion(Scope scope) {
+        return VERSIONS.get(scope).get();
+    }
+
+    /**
+     * @param scope
+     * @return the last modification date of the scope data, truncated to
+     * the second as HTTP dates have no millisecond precision.
+     */
+    public static Date getLastModified(Scope scope) {
+        long lastModification = LAST_MODIFICATIONS.get(scope).get();
+        return new Date(lastModification - lastModification % 1000);
+    }
+
+    /**
+     * Gets the entity tag of a representation built from the scope data.
+     * @param scope
+     * @param representation identifier of the representation (e.g. the
+     * request URI with its query parameters)
+     * @return the weak entity tag.
+     */
+    public static EntityTag getEntityTag(Scope scope, String representation) {
+        String tag = Long.toHexString(STARTUP_TIME)
+                + "-" + Long.toHexString(getVersion(scope))
+                + "-" + Integer.toHexString(representation.hashCode());
+        return new EntityTag(tag, true);
+    }
+}
@@ -0,0 +1,125 @@
+//******************************************************************************
+//                           PendingUploadRegistry.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import opensilex.service.PropertiesFileManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread safe registry of the files waiting to be uploaded.
+ * Files are sent in two stages:
+ * 1. the metadata is sent and registered here,
+ * 2. the file is sent, within the waiting file time.
+ * A pending upload can only be received by one request at a time. If the file
+ * is not received in time, the pending upload expires. Expirations are handled
+ * by a single scheduler thread shared by all the registries.
+ * @param <T> the type of the metadata waiting for its file
+ */
+public class PendingUploadRegistry<T> {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(PendingUploadRegistry.class);
+
+    private final static ScheduledExecutorService EXPIRATION_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pending-upload-expiration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A pending upload.
+     * @param <T>
+     */
+    private static class PendingUpload<T> {
+
+        private final T information;
+        private final long expirationTime;
+        private final AtomicBoolean receiving = new AtomicBoolean(false);
+
+        PendingUpload(T information, long expirationTime) {
+            this.information = information;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expirationTime;
+        }
+    }
+
+    private final ConcurrentHashMap<String, PendingUpload<T>> pendingUploads = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the metadata of a file waiting to be uploaded.
+     * @param uri the URI given to upload the file
+     * @param information the metadata of the file
+     */
+    public void register(String uri, T information) {
+        int waitingFileTime = getWaitingFileTime();
+        PendingUpload<T> pendingUpload = new PendingUpload<>(information,
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitingFileTime));
+        pendingUploads.put(uri, pendingUpload);
+
+        // If the file is being received when the time is over, the upload is
+        // removed at the end of the reception
+        EXPIRATION_SCHEDULER.schedule(() -> {
+            pendingUploads.computeIfPresent(uri, (key, upload) ->
+                    upload == pendingUpload && !upload.receiving.get() ? null : upload);
+        }, waitingFileTime, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts the reception of a pending upload file.
+     * @param uri
+     * @return the metadata of the file or null if there is no pending upload
+     * for the URI or if its file is already being received
+     */
+    public T startUpload(String uri) {
+        PendingUpload<T> pendingUpload = pendingUploads.get(uri);
+        if (pendingUpload == null 
+                || pendingUpload.isExpired()
+                || !pendingUpload.receiving.compareAndSet(false, true)) {
+            return null;
+        }
+        return pendingUpload.information;
+    }
+
+    /**
+     * Ends a successful upload: the metadata is no longer waiting.
+     * @param uri
+     */
+    public void complete(String uri) {
+        pendingUploads.remove(uri);
+    }
+
+    /**
+     * Ends a failed upload: the file can be sent again until the upload
+     * expires.
+     * @param uri
+     */
+    public void release(String uri) {
+        pendingUploads.computeIfPresent(uri, (key, upload) -> {
+            if (upload.isExpired()) {
+                return null;
+            }
+            upload.receiving.set(false);
+            return upload;
+        });
+    }
+
+    /**
+     * @return the waiting file time, in seconds
+     */
+    public static int getWaitingFileTime() {
+        return PropertiesFileManager.getConfig().getWaitingFileTime();
+    }
+}
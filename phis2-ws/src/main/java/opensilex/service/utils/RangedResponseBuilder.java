@@ -0,0 +1,253 @@
+//******************************************************************************
+//                           RangedResponseBuilder.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.RuntimeDelegate;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Builds file download responses supporting single byte ranges (HTTP Range and
+ * If-Range headers), with Content-Length, ETag, Last-Modified and, when the
+ * file MD5 is known, Content-MD5 headers. The content is written by a
+ * {@link ContentWriter} which only reads the requested part of the file.
+ * @example
+ * return new RangedResponseBuilder(httpHeaders, file.length(), file.getName())
+ *      .checksum(md5)
+ *      .lastModified(new Date(file.lastModified()))
+ *      .build(RangedResponseBuilder.fileWriter(file.toPath()));
+ */
+public class RangedResponseBuilder {
+
+    public final static String ACCEPT_RANGES = "Accept-Ranges";
+    public final static String CONTENT_RANGE = "Content-Range";
+    public final static String CONTENT_MD5 = "Content-MD5";
+    public final static String IF_RANGE = "If-Range";
+    public final static String RANGE = "Range";
+    public final static String BYTES_UNIT = "bytes";
+
+    /**
+     * Single range pattern: "bytes=first-last", "bytes=first-" or "bytes=-suffixLength".
+     */
+    private final static Pattern SINGLE_RANGE_PATTERN = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    /**
+     * Writes a part of a file content.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+
+        /**
+         * Writes count bytes of the content starting at the given offset.
+         * @param offset
+         * @param count
+         * @param output
+         * @throws IOException
+         */
+        void write(long offset, long count, OutputStream output) throws IOException;
+    }
+
+    private final HttpHeaders requestHeaders;
+    private final long length;
+    private final String filename;
+    private String mediaType = "application/octet-stream";
+    private String checksum;
+    private Date lastModified;
+
+    /**
+     * @param requestHeaders headers of the download request
+     * @param length file length in bytes
+     * @param filename name given to the client in the Content-Disposition header
+     */
+    public RangedResponseBuilder(HttpHeaders requestHeaders, long length, String filename) {
+        this.requestHeaders = requestHeaders;
+        this.length = length;
+        this.filename = filename;
+    }
+
+    public RangedResponseBuilder mediaType(String mediaType) {
+        this.mediaType = mediaType;
+        return this;
+    }
+
+    /**
+     * @param checksum MD5 of the file as a hexadecimal string (may be null)
+     * @return the builder
+     */
+    public RangedResponseBuilder checksum(String checksum) {
+        this.checksum = checksum;
+        return this;
+    }
+
+    public RangedResponseBuilder lastModified(Date lastModified) {
+        this.lastModified = lastModified;
+        return this;
+    }
+
+    /**
+     * Gets the entity tag of the file: its MD5 if known, otherwise a weak tag
+     * built from its length and modification date.
+     * @return the entity tag
+     */
+    public EntityTag getEntityTag() {
+        if (checksum != null) {
+            return new EntityTag(checksum);
+        }
+        long modification = lastModified == null ? 0 : lastModified.getTime();
+        return new EntityTag(Long.toHexString(length) + "-" + Long.toHexString(modification), true);
+    }
+
+    /**
+     * Builds the response: 200 with the whole content, 206 with the requested
+     * range or 416 if the range can't be satisfied.
+     * @param writer
+     * @return the response
+     */
+    public Response build(ContentWriter writer) {
+        EntityTag entityTag = getEntityTag();
+        long first = 0;
+        long last = length - 1;
+        boolean partial = false;
+
+        String range = requestHeaders == null ? null : requestHeaders.getHeaderString(RANGE);
+        if (range != null && isIfRangeSatisfied(entityTag)) {
+            Matcher matcher = SINGLE_RANGE_PATTERN.matcher(range.trim());
+            // Multiple ranges are not supported: the whole content is sent
+            if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                try {
+                    if (matcher.group(1).isEmpty()) { // suffix range
+                        first = Math.max(0, length - Long.parseLong(matcher.group(2)));
+                    } else {
+                        first = Long.parseLong(matcher.group(1));
+                        if (!matcher.group(2).isEmpty()) {
+                            last = Math.min(last, Long.parseLong(matcher.group(2)));
+                        }
+                    }
+                } catch (NumberFormatException ex) {
+                    // Out of range values can't be satisfied
+                    first = length;
+                }
+
+                if (first >= length || first > last) {
+                    return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(CONTENT_RANGE, BYTES_UNIT + " */" + length)
+                            .header(ACCEPT_RANGES, BYTES_UNIT)
+                            .build();
+                }
+                partial = true;
+            }
+        }
+
+        final long offset = first;
+        final long count = last - first + 1;
+        StreamingOutput content = (OutputStream output) -> {
+            if (count > 0) {
+                writer.write(offset, count, output);
+            }
+            output.flush();
+        };
+
+        Response.ResponseBuilder builder = Response
+                .status(partial ? Response.Status.PARTIAL_CONTENT : Response.Status.OK)
+                .entity(content)
+                .type(mediaType)
+                .header(ACCEPT_RANGES, BYTES_UNIT)
+                .header(HttpHeaders.CONTENT_LENGTH, count)
+                .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
+                .tag(entityTag);
+
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        if (partial) {
+            builder.header(CONTENT_RANGE, BYTES_UNIT + " " + first + "-" + last + "/" + length);
+        } else if (checksum != null) {
+            try {
+                builder.header(CONTENT_MD5, Base64.getEncoder().encodeToString(Hex.decodeHex(checksum.toCharArray())));
+            } catch (DecoderException ex) {
+                // Not a MD5 hexadecimal value, the ETag is enough
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Checks the If-Range precondition: the range is only sent if the client
+     * copy is still the current one.
+     * @param entityTag current entity tag
+     * @return true if there is no If-Range header or if it matches, false if
+     * it doesn't match or is invalid
+     */
+    private boolean isIfRangeSatisfied(EntityTag entityTag) {
+        String ifRange = requestHeaders.getHeaderString(IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            // Only strong validators can be used with If-Range
+            return !entityTag.isWeak()
+                    && ifRange.equals(RuntimeDelegate.getInstance()
+                            .createHeaderDelegate(EntityTag.class).toString(entityTag));
+        }
+        if (ifRange.startsWith("W/") || lastModified == null) {
+            return false;
+        }
+        Date ifRangeDate;
+        try {
+            ifRangeDate = RuntimeDelegate.getInstance().createHeaderDelegate(Date.class).fromString(ifRange);
+        } catch (IllegalArgumentException ex) {
+            // Invalid date: the range is ignored and the whole content sent (RFC 7233)
+            return false;
+        }
+        return ifRangeDate != null && lastModified.getTime() / 1000 <= ifRangeDate.getTime() / 1000;
+    }
+
+    /**
+     * Gets a content writer for a local file. The requested part is
+     * transferred from the file channel to the output channel without being
+     * copied into a buffer of the service (zero-copy when the output is a
+     * socket channel).
+     * @param path
+     * @return the writer
+     */
+    public static ContentWriter fileWriter(Path path) {
+        return (long offset, long count, OutputStream output) -> {
+            try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                WritableByteChannel outputChannel = Channels.newChannel(output);
+                long position = offset;
+                long remaining = count;
+                while (remaining > 0) {
+                    long transferred = fileChannel.transferTo(position, remaining, outputChannel);
+                    if (transferred <= 0) {
+                        // End of file reached before the expected length
+                        break;
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
+        };
+    }
+}
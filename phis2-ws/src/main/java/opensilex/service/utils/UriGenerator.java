@@ -13,10 +13,9 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.function.IntSupplier;
 import org.apache.commons.codec.binary.Base32;
 import org.apache.jena.sparql.AlreadyExists;
 import opensilex.service.PropertiesFileManager;
@@ -29,6 +28,7 @@ import opensilex.service.dao.FactorDAO;
 import opensilex.service.dao.MethodDAO;
 import opensilex.service.dao.RadiometricTargetDAO;
 import opensilex.service.dao.SensorDAO;
+import opensilex.service.dao.SequenceMongoDAO;
 import opensilex.service.dao.UriDAO;
 import opensilex.service.dao.TraitDAO;
 import opensilex.service.dao.UnitDAO;
@@ -96,6 +96,16 @@ public class UriGenerator {
     private static final String PLATFORM_URI_ID_GENUS = PLATFORM_URI_ID + "genus/";
     public static final String PLATFORM_URI_ID_FACTORS = PLATFORM_URI_ID + "factors/" + URI_CODE_FACTOR;
     private static final String EXPERIMENT_URI_SEPARATOR = "-";
+    // Names of the identifiers sequences, followed by the year for the yearly ones
+    private static final String VECTORS_SEQUENCE_PREFIX = "vectors-";
+    private static final String SENSORS_SEQUENCE_PREFIX = "sensors-";
+    private static final String ACTUATORS_SEQUENCE_PREFIX = "actuators-";
+    private static final String VARIABLES_SEQUENCE = "variables";
+    private static final String TRAITS_SEQUENCE = "traits";
+    private static final String METHODS_SEQUENCE = "methods";
+    private static final String UNITS_SEQUENCE = "units";
+    private static final String FACTORS_SEQUENCE = "factors";
+    private static final String RADIOMETRIC_TARGETS_SEQUENCE = "radiometricTargets";
     private final SPARQLService sparql;
 
     /**
@@ -104,6 +114,19 @@ public class UriGenerator {
     private UriGenerator(SPARQLService sparql) {
         this.sparql = sparql;
     }
+
+    /**
+     * Reserves the next identifier of a sequence. The sequence is initialized
+     * from the existing data the first time it is used, then the identifiers
+     * are reserved atomically without reading the existing instances again.
+     * @param sequenceName
+     * @param lastId gives the highest identifier used in the existing data
+     * @return the reserved identifier
+     * @see SequenceMongoDAO
+     */
+    private static int nextId(String sequenceName, IntSupplier lastId) {
+        return Math.toIntExact(new SequenceMongoDAO().next(sequenceName, lastId::getAsInt));
+    }
     
     /**
      * Generates a new vector URI. a vector URI has the following pattern:
@@ -129,24 +152,11 @@ public class UriGenerator {
     }
     
     /**
-     * Internal variable to store the last vector ID by year
-     */
-    private Map<String, Integer> vectorLastIDByYear = new HashMap<>();
-    
-    /**
-     * Return the next vector ID by incrementing vectorLastIDByYear variable and initializing it before if needed
+     * Return the next vector ID of the year, reserved in the vectors sequence of the year
      * @return next vector ID
      */
     private int getNextVectorID(String year) {
-        if (!vectorLastIDByYear.containsKey(year)) {
-            VectorDAO vectorDAO = new VectorDAO(sparql);
-            vectorLastIDByYear.put(year, vectorDAO.getLastIdFromYear(year));
-        }
-        
-        int vectorLastID = vectorLastIDByYear.get(year);
-        vectorLastID++;
-        vectorLastIDByYear.put(year, vectorLastID);
-        return vectorLastID;
+        return nextId(VECTORS_SEQUENCE_PREFIX + year, () -> new VectorDAO(sparql).getLastIdFromYear(year));
     }
 
     /**
@@ -187,24 +197,11 @@ public class UriGenerator {
     }
     
     /**
-     * Internal variable to store the last sensor ID by year
-     */
-    private Map<String, Integer> sensorLastIDByYear = new HashMap<>();
-    
-    /**
-     * Return the next sensor ID by incrementing sensorLastIDByYear variable and initializing it before if needed
+     * Return the next sensor ID of the year, reserved in the sensors sequence of the year
      * @return next sensor ID
      */
     private int getNextSensorID(String year) {
-        if (!sensorLastIDByYear.containsKey(year)) {
-            SensorDAO sensorDAO = new SensorDAO(sparql);
-            sensorLastIDByYear.put(year, sensorDAO.getLastIdFromYear(year));
-        }
-        
-        int sensorLastID = sensorLastIDByYear.get(year);
-        sensorLastID++;
-        sensorLastIDByYear.put(year, sensorLastID);
-        return sensorLastID;
+        return nextId(SENSORS_SEQUENCE_PREFIX + year, () -> new SensorDAO(sparql).getLastIdFromYear(year));
     }
     
     /**
@@ -245,24 +242,11 @@ public class UriGenerator {
     }
 
     /**
-     * Internal variable to store the last actuator ID by year
-     */
-    private Map<String, Integer> actuatorLastIDByYear = new HashMap<>();
-    
-    /**
-     * Return the next actuator ID by incrementing actuatorLastIDByYear variable and initializing it before if needed
+     * Return the next actuator ID of the year, reserved in the actuators sequence of the year
      * @return next actuator ID
      */
     private int getNextActuatorID(String year) {
-        if (!actuatorLastIDByYear.containsKey(year)) {
-            ActuatorDAO actuatorDAO = new ActuatorDAO(sparql);
-            actuatorLastIDByYear.put(year, actuatorDAO.getLastIdFromYear(year));
-        }
-        
-        int actuatorLastID = actuatorLastIDByYear.get(year);
-        actuatorLastID++;
-        actuatorLastIDByYear.put(year, actuatorLastID);
-        return actuatorLastID;
+        return nextId(ACTUATORS_SEQUENCE_PREFIX + year, () -> new ActuatorDAO(sparql).getLastIdFromYear(year));
     }
     
     /**
@@ -285,34 +269,18 @@ public class UriGenerator {
      * @return the new agronomical object URI
      */
     private String generateScientificObjectUri(String year) {
-        String agronomicalObjectId = Integer.toString(getNextScientificObjectID(year));
-
-        while (agronomicalObjectId.length() < 6) {
-            agronomicalObjectId = "0" + agronomicalObjectId;
-        }
-        
-        return getScientificObjectUriPatternByYear(year) + agronomicalObjectId;        
+        ScientificObjectRdf4jDAO scientificObjectDAO = new ScientificObjectRdf4jDAO(sparql);
+        return formatScientificObjectUri(year, scientificObjectDAO.reserveScientificObjectIds(year, 1));
     }
 
     /**
-     * Internal variable to store the last scientifc object ID by year
-     */
-    private Map<String, Integer> scientificObjectLastIDByYear = new HashMap<>();
-    
-    /**
-     * Return the next scientifc object ID by incrementing scientificObjectLastIDByYear variable and initializing it before if needed
-     * @return next scientific object ID
+     * @param year
+     * @param scientificObjectId
+     * @return the scientific object URI of the given id
+     * @example http://www.phenome-fppn.fr/diaphen/2017/o17000001
      */
-    private int getNextScientificObjectID(String year) {
-        if (!scientificObjectLastIDByYear.containsKey(year)) {
-            ScientificObjectRdf4jDAO scientificObjectDAO = new ScientificObjectRdf4jDAO(sparql);
-            scientificObjectLastIDByYear.put(year, scientificObjectDAO.getLastScientificObjectIdFromYear(year));
-        }
-        
-        int scientificObjectLastID = scientificObjectLastIDByYear.get(year);
-        scientificObjectLastID++;
-        scientificObjectLastIDByYear.put(year, scientificObjectLastID);
-        return scientificObjectLastID;
+    private static String formatScientificObjectUri(String year, long scientificObjectId) {
+        return getScientificObjectUriPatternByYear(year) + String.format("%06d", scientificObjectId);
     }
     
     /**
@@ -343,23 +311,11 @@ public class UriGenerator {
     }
     
     /**
-     * Internal variable to store the last variable ID
-     */
-    private Integer variableLastID;
-    
-    /**
-     * Return the next variable ID by incrementing variableLastID variable and initializing it before if needed
+     * Return the next variable ID, reserved in the variables sequence
      * @return next variable ID
      */
     private int getNextVariableID() {
-        if (variableLastID == null) {
-            VariableDAO variableDAO = new VariableDAO(sparql);
-            variableLastID = variableDAO.getLastId();
-        }
-        
-        variableLastID++;
-        
-        return variableLastID;
+        return nextId(VARIABLES_SEQUENCE, () -> new VariableDAO(sparql).getLastId());
     }
 
     /**
@@ -381,23 +337,11 @@ public class UriGenerator {
     }
     
     /**
-     * Internal variable to store the last trait ID
-     */
-    private Integer traitLastID;
-
-    /**
-     * Return the next trait ID by incrementing traitLastID variable and initializing it before if needed
+     * Return the next trait ID, reserved in the traits sequence
      * @return next trait ID
      */
     private int getNextTraitID() {
-        if (traitLastID == null) {
-            TraitDAO traitDAO = new TraitDAO(sparql);
-            traitLastID = traitDAO.getLastId();
-        }
-        
-        traitLastID++;
-        
-        return traitLastID;
+        return nextId(TRAITS_SEQUENCE, () -> new TraitDAO(sparql).getLastId());
     }
 
     /**
@@ -419,23 +363,11 @@ public class UriGenerator {
     }
     
     /**
-     * Internal variable to store the last method ID
-     */
-    private Integer methodLastID;
-
-    /**
-     * Return the next method ID by incrementing methodLastID variable and initializing it before if needed
+     * Return the next method ID, reserved in the methods sequence
      * @return next method ID
      */
     private int getNextMethodID() {
-        if (methodLastID == null) {
-            MethodDAO methodDAO = new MethodDAO(sparql);
-            methodLastID = methodDAO.getLastId();
-        }
-        
-        methodLastID++;
-        
-        return methodLastID;
+        return nextId(METHODS_SEQUENCE, () -> new MethodDAO(sparql).getLastId());
     }
 
     /**
@@ -457,23 +389,11 @@ public class UriGenerator {
     }
 
     /**
-     * Internal variable to store the last unit ID
-     */
-    private Integer unitLastID;
-    
-    /**
-     * Return the next unit ID by incrementing unitLastID variable and initializing it before if needed
+     * Return the next unit ID, reserved in the units sequence
      * @return next unit ID
      */
     private int getNextUnitID() {
-        if (unitLastID == null) {
-            UnitDAO unitDAO = new UnitDAO(sparql);
-            unitLastID = unitDAO.getLastId();
-        }
-        
-        unitLastID++;
-        
-        return unitLastID;
+        return nextId(UNITS_SEQUENCE, () -> new UnitDAO(sparql).getLastId());
     }
     
     /**
@@ -484,14 +404,9 @@ public class UriGenerator {
      * @return The new radiometric target URI
      */
     private String generateRadiometricTargetUri() {
-        //1. Get the highest radiometric target id (i.e. the last inserted
-        //radiometric target)
-        RadiometricTargetDAO radiometricTargetDAO = new RadiometricTargetDAO(sparql);
-        int lastID = radiometricTargetDAO.getLastId();
-        
-        //2. Generate radiometric target URI
-        int newRadiometricTargetID = lastID + 1;
-        String radiometricTargetID = Integer.toString(newRadiometricTargetID);
+        // Generate radiometric target URI based on next id
+        String radiometricTargetID = Integer.toString(
+                nextId(RADIOMETRIC_TARGETS_SEQUENCE, () -> new RadiometricTargetDAO(sparql).getLastId()));
         
         while (radiometricTargetID.length() < 3) {
             radiometricTargetID = "0" + radiometricTargetID;
@@ -507,7 +422,7 @@ public class UriGenerator {
      * @param variety the variety name
      * @return the new variety uri
      */
-    private String generateVarietyUri(String variety) {
+    public static String generateVarietyUri(String variety) {
         return PLATFORM_URI_ID_VARIETY + variety;
     }
     
@@ -516,22 +431,47 @@ public class UriGenerator {
      * @param accessionNumber
      * @return 
      */
-    private String generateAccessionUri(String accessionNumber) {
+    private static String generateAccessionUri(String accessionNumber) {
         return PLATFORM_URI_ID_ACCESSION + accessionNumber;
     }
     
-    private String generateLotUri(String seedlot) {
+    private static String generateLotUri(String seedlot) {
         return PLATFORM_URI_ID_PLANT_MATERIAL_LOT + seedlot;
     }
     
-    private String generateSpeciesUri(String species) {
+    private static String generateSpeciesUri(String species) {
         return PLATFORM_URI_ID_SPECIES + species;
     }
     
-    private String generateGenusUri(String genus) {
+    private static String generateGenusUri(String genus) {
         return PLATFORM_URI_ID_GENUS + genus;
     }
 
+    /**
+     * Generates the URI of a new germplasm, from its label. This method does
+     * not query the triplestore.
+     * @param germplasmConcept genus, species, variety, accession or plant 
+     * material lot concept
+     * @param label the germplasm label
+     * @return the new germplasm URI
+     * @throws IllegalArgumentException if the concept is not one of the
+     * expected germplasm concepts
+     */
+    public static String generateGermplasmUri(String germplasmConcept, String label) {
+        if (Oeso.CONCEPT_GENUS.toString().equals(germplasmConcept)) {
+            return generateGenusUri(label);
+        } else if (Oeso.CONCEPT_SPECIES.toString().equals(germplasmConcept)) {
+            return generateSpeciesUri(label);
+        } else if (Oeso.CONCEPT_VARIETY.toString().equals(germplasmConcept)) {
+            return generateVarietyUri(label);
+        } else if (Oeso.CONCEPT_ACCESSION.toString().equals(germplasmConcept)) {
+            return generateAccessionUri(label);
+        } else if (Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString().equals(germplasmConcept)) {
+            return generateLotUri(label);
+        }
+        throw new IllegalArgumentException("No URI pattern for the germplasm concept " + germplasmConcept);
+    }
+
     /**
      * Generates a new agent URI. A agent URI follows the pattern:
      * <prefix>:id/agent/<unic_code>
@@ -604,37 +544,47 @@ public class UriGenerator {
      * <prefix>:yyyy/<unic_code>
      * <unic_code> = 1 letter type (i) + 2 digits year + auto increment with 10
      * digit
+     * The image number is reserved on the images sequence of the year, so
+     * concurrent calls never get the same URI.
      * @example http://www.phenome-fppn.fr/diaphen/2018/i180000000001
      * @param year the year of insertion of the image
-     * @param lastGeneratedUri if a few URI has been generated but not inserted,
-     * corresponds to the last generated URI
      * @return the new URI
      */
-    private String generateImageUri(String year, String lastGeneratedUri) {
-        if (lastGeneratedUri == null) {
+    private String generateImageUri(String year) {
+        ImageMetadataMongoDAO imageMongoDao = new ImageMetadataMongoDAO(sparql);
+        return formatImageUri(year, imageMongoDao.reserveImageNumbers(year, 1));
+    }
+    
+    /**
+     * Generates the URIs of several new images. The images numbers are reserved
+     * in a single atomic operation on the images sequence of the year, so this
+     * method doesn't need to be synchronized.
+     * @see #generateImageUri(java.lang.String)
+     * @param sparql
+     * @param year the year of insertion of the images
+     * @param count the number of URIs to generate
+     * @return the new URIs
+     */
+    public static List<String> generateImageUris(SPARQLService sparql, String year, int count) {
+        List<String> imagesUris = new ArrayList<>();
+        if (count > 0) {
             ImageMetadataMongoDAO imageMongoDao = new ImageMetadataMongoDAO(sparql);
-            long imagesNumber = imageMongoDao.getImagesCountOfCurrentYear();
-            imagesNumber++;
-
-            //calculate the number of 0 to add before the number of the image
-            String nbImagesByYear = Long.toString(imagesNumber);
-            while (nbImagesByYear.length() < 10) {
-                nbImagesByYear = "0" + nbImagesByYear;
+            long firstNumber = imageMongoDao.reserveImageNumbers(year, count);
+            for (long imageNumber = firstNumber; imageNumber < firstNumber + count; imageNumber++) {
+                imagesUris.add(formatImageUri(year, imageNumber));
             }
-
-            String uniqueId = URI_CODE_IMAGE + year.substring(2, 4) + nbImagesByYear;
-            return PLATFORM_URI + year + "/" + uniqueId;
-        } else {
-            int uniqueId = Integer.parseInt(lastGeneratedUri.split("/" + URI_CODE_IMAGE + year.substring(2, 4))[1]);
-            uniqueId++;
-
-            String nbImagesByYear = Long.toString(uniqueId);
-            while (nbImagesByYear.length() < 10) {
-                nbImagesByYear = "0" + nbImagesByYear;
-            }
-
-            return PLATFORM_URI + year + nbImagesByYear;
         }
+        return imagesUris;
+    }
+    
+    /**
+     * @param year
+     * @param imageNumber
+     * @return the image URI of the given number
+     * @example http://www.phenome-fppn.fr/diaphen/2018/i180000000001
+     */
+    private static String formatImageUri(String year, long imageNumber) {
+        return PLATFORM_URI + year + "/" + URI_CODE_IMAGE + year.substring(2, 4) + String.format("%010d", imageNumber);
     }
     
     /**
@@ -701,27 +651,15 @@ public class UriGenerator {
     }
     
     /**
-     * Internal variable to store the last factor ID
-     */
-    private Integer factorLastID;
-    
-    /**
-     * Return the next factor ID by incrementing variableLastID variable and initializing it before if needed
+     * Return the next factor ID, reserved in the factors sequence
      * @return next factor ID
      */
     private int getNextFactorID() {
-        if (factorLastID == null) {
-            FactorDAO factorDAO = new FactorDAO(sparql);
-            factorLastID = factorDAO.getLastId();
-        }
-        
-        factorLastID++;
-        
-        return factorLastID;
+        return nextId(FACTORS_SEQUENCE, () -> new FactorDAO(sparql).getLastId());
     }
     
     
-    private static String getUniqueHash(String key) throws NoSuchAlgorithmException {
+    static String getUniqueHash(String key) throws NoSuchAlgorithmException {
         // Generate SHA-256 hash
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] encodedhash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
@@ -738,20 +676,25 @@ public class UriGenerator {
     
     /**
      * Generates scientific objects uris for a year. The number depends on the given numberOfUrisToGenerate.
+     * The ids are reserved in a single atomic operation on the scientific
+     * objects sequence of the year, so this method doesn't need to be
+     * synchronized.
      * @param year
      * @param numberOfUrisToGenerate
      * @return the list of uri generated
      */
-    public synchronized static List<String> generateScientificObjectUris(SPARQLService sparql, String year, Integer numberOfUrisToGenerate) {
+    public static List<String> generateScientificObjectUris(SPARQLService sparql, String year, Integer numberOfUrisToGenerate) {
         if (year == null) {
             year = Integer.toString(Calendar.getInstance().get(Calendar.YEAR));
         }
-        UriGenerator instance = new UriGenerator(sparql);
 
         List<String> scientificObjectUris = new ArrayList<>();
-               
-        for (int i = 0; i < numberOfUrisToGenerate; i++) {
-            scientificObjectUris.add(instance.generateScientificObjectUri(year));            
+        if (numberOfUrisToGenerate > 0) {
+            ScientificObjectRdf4jDAO scientificObjectDAO = new ScientificObjectRdf4jDAO(sparql);
+            long firstId = scientificObjectDAO.reserveScientificObjectIds(year, numberOfUrisToGenerate);
+            for (long id = firstId; id < firstId + numberOfUrisToGenerate; id++) {
+                scientificObjectUris.add(formatScientificObjectUri(year, id));
+            }
         }
         
         return scientificObjectUris;
@@ -764,8 +707,7 @@ public class UriGenerator {
      * @param year year of the creation of the element. If it is null, it will
      * be the current year
      * @param additionalInformation some additional information used for some
-     * URI generators. (e.g. the variety name, or the last generated URI for the
-     * images)
+     * URI generators. (e.g. the variety name)
      * @return the generated URI
      * @throws java.lang.Exception
      */
@@ -795,18 +737,18 @@ public class UriGenerator {
         } else if (uriDao.isSubClassOf(instanceType, Oeso.CONCEPT_SCIENTIFIC_OBJECT.toString())) {
             return instance.generateScientificObjectUri(year);
         } else if (Oeso.CONCEPT_GENUS.toString().equals(instanceType)) {
-            return instance.generateGenusUri(additionalInformation);
+            return generateGenusUri(additionalInformation);
         } else if (Oeso.CONCEPT_SPECIES.toString().equals(instanceType)) {
-            return instance.generateSpeciesUri(additionalInformation);
+            return generateSpeciesUri(additionalInformation);
         } else if (Oeso.CONCEPT_VARIETY.toString().equals(instanceType)) {
-            return instance.generateVarietyUri(additionalInformation);
+            return generateVarietyUri(additionalInformation);
         } else if (Oeso.CONCEPT_ACCESSION.toString().equals(instanceType)) {
-            return instance.generateAccessionUri(additionalInformation);
+            return generateAccessionUri(additionalInformation);
         } else if (Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString().equals(instanceType)
                 || uriDao.isSubClassOf(instanceType, Oeso.CONCEPT_PLANT_MATERIAL_LOT.toString())) {
-            return instance.generateLotUri(additionalInformation);            
+            return generateLotUri(additionalInformation);            
         } else if (uriDao.isSubClassOf(instanceType, Oeso.CONCEPT_IMAGE.toString())) {
-            return instance.generateImageUri(year, additionalInformation);
+            return instance.generateImageUri(year);
         } else if (instanceType.equals(Foaf.CONCEPT_AGENT.toString()) 
                 || uriDao.isSubClassOf(instanceType, Foaf.CONCEPT_AGENT.toString())) {
             return instance.generateAgentUri(additionalInformation);
@@ -0,0 +1,111 @@
+//******************************************************************************
+//                           SPARQLQueryTemplate.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils.sparql;
+
+import java.util.Collection;
+import java.util.regex.Pattern;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+
+/**
+ * Prepared SPARQL query: a constant query text whose parameters are variables,
+ * bound on the prepared query instead of concatenated in the text.
+ * The text is parsed once, when the template is created (i.e. when the DAO
+ * class is loaded), so a syntax error can not wait for a request to show up.
+ * The bound values are RDF terms: they never need escaping and can not change
+ * the structure of the query.
+ * @example
+ * private final static SPARQLQueryTemplate IS_INSTANCE_OF = new SPARQLQueryTemplate(
+ *      "ASK { ?instance <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> ?rdfType }");
+ *
+ * BooleanQuery query = prepareRDF4JBooleanQuery(IS_INSTANCE_OF);
+ * query.setBinding("instance", SPARQLQueryTemplate.uri(instanceUri));
+ * query.setBinding("rdfType", SPARQLQueryTemplate.uri(rdfType));
+ * query.evaluate();
+ */
+public class SPARQLQueryTemplate {
+
+    private final static ValueFactory VALUE_FACTORY = SimpleValueFactory.getInstance();
+
+    // Characters allowed in an IRI of a SPARQL query
+    private final static Pattern IRI_PATTERN = Pattern.compile("[^<>\"{}|^`\\\\\\x00-\\x20]+");
+
+    private final String query;
+
+    /**
+     * @param query the query text, with the parameters as variables
+     * @throws MalformedQueryException if the query text is not a valid SPARQL
+     * query
+     */
+    public SPARQLQueryTemplate(String query) throws MalformedQueryException {
+        new SPARQLParser().parseQuery(query, null);
+        this.query = query;
+    }
+
+    /**
+     * Gets the query text with a page of the results. The limit and the offset
+     * are the only parts of a query which can not be bound.
+     * @param limit
+     * @param offset
+     * @return the query text
+     */
+    public String page(int limit, int offset) {
+        return query + "\nLIMIT " + limit + "\nOFFSET " + offset;
+    }
+
+    /**
+     * Gets the query text with the values of a parameter with several values,
+     * as a VALUES clause: a set of values can not be bound.
+     * @param variable the parameter variable name
+     * @param uris the values of the parameter
+     * @example
+     * SELECT ?uri ?bodyValue WHERE { ?uri oa:bodyValue ?bodyValue } 
+     * VALUES ?uri { <http://www.phenome-fppn.fr/test/id/annotation/1> <http://www.phenome-fppn.fr/test/id/annotation/2> }
+     * @return the query text
+     * @throws IllegalArgumentException if one of the URIs is not valid
+     */
+    public String values(String variable, Collection<String> uris) throws IllegalArgumentException {
+        StringBuilder values = new StringBuilder(query).append("\nVALUES ?").append(variable).append(" {");
+        for (String value : uris) {
+            values.append(" <").append(uri(value).stringValue()).append(">");
+        }
+        return values.append(" }").toString();
+    }
+
+    /**
+     * Creates the value of a URI parameter.
+     * @param uri
+     * @return the value to bind
+     * @throws IllegalArgumentException if the URI is not absolute or contains
+     * a character which is not allowed in a SPARQL IRI
+     */
+    public static IRI uri(String uri) throws IllegalArgumentException {
+        if (uri == null || !IRI_PATTERN.matcher(uri).matches()) {
+            throw new IllegalArgumentException("Not a valid IRI: " + uri);
+        }
+        return VALUE_FACTORY.createIRI(uri);
+    }
+
+    /**
+     * Creates the value of a string parameter.
+     * @param value
+     * @return the value to bind
+     */
+    public static Literal literal(String value) {
+        return VALUE_FACTORY.createLiteral(value);
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+}
@@ -0,0 +1,147 @@
+//******************************************************************************
+//                           VerifiedTokenCacheTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.authentication;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import java.net.URI;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+import org.junit.Test;
+
+/**
+ * Tests of the verified tokens cache.
+ */
+public class VerifiedTokenCacheTest {
+
+    private final static URI USER_URI = URI.create("http://www.opensilex.org/demo/id/agent/admin_phis");
+
+    private final AtomicInteger verificationsCount = new AtomicInteger();
+
+    private final VerifiedTokenCache.TokenVerifier verifier = token -> {
+        verificationsCount.incrementAndGet();
+        return USER_URI;
+    };
+
+    private static String createToken(long expirationTime) throws Exception {
+        return JWT.create()
+                .withSubject(USER_URI.toString())
+                .withExpiresAt(new Date(expirationTime))
+                .sign(Algorithm.HMAC256("secret"));
+    }
+
+    /**
+     * Test if a token is only verified once until its expiration
+     */
+    @Test
+    public void testTokenVerifiedOnceUntilExpiration() throws Exception {
+        long now = System.currentTimeMillis();
+        String token = createToken(now + TimeUnit.MINUTES.toMillis(1));
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        assertEquals(USER_URI, cache.getUserURI(token, verifier, now));
+        assertEquals(USER_URI, cache.getUserURI(token, verifier, now + 1000));
+        assertEquals(1, verificationsCount.get());
+
+        cache.getUserURI(token, verifier, now + TimeUnit.MINUTES.toMillis(2));
+        assertEquals(2, verificationsCount.get());
+    }
+
+    /**
+     * Test if the least recently used tokens are removed when the cache is full
+     */
+    @Test
+    public void testBoundedCache() throws Exception {
+        long now = System.currentTimeMillis();
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        String firstToken = createToken(now + 60000);
+        cache.getUserURI(firstToken, verifier, now);
+        cache.getUserURI(createToken(now + 61000), verifier, now);
+        cache.getUserURI(createToken(now + 62000), verifier, now);
+        assertEquals(2, cache.size());
+
+        cache.getUserURI(firstToken, verifier, now);
+        assertEquals(4, verificationsCount.get());
+    }
+
+    /**
+     * Test if a revoked token is rejected
+     */
+    @Test
+    public void testRevokedToken() throws Exception {
+        String token = createToken(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.getUserURI(token, verifier);
+
+        cache.revoke(token, verifier, TimeUnit.HOURS.toMillis(1));
+        assertTrue(cache.isRevoked(token));
+        assertEquals(0, cache.size());
+        try {
+            cache.getUserURI(token, verifier);
+            fail("A revoked token must be rejected");
+        } catch (VerifiedTokenCache.RevokedTokenException ex) {
+            assertEquals(2, verificationsCount.get());
+        }
+    }
+
+    /**
+     * Test if an invalid token is not revoked
+     */
+    @Test
+    public void testInvalidTokenNotRevoked() throws Exception {
+        String token = createToken(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        try {
+            cache.revoke(token, invalidToken -> {
+                throw new Exception("Invalid signature");
+            }, TimeUnit.HOURS.toMillis(1));
+            fail("An invalid token must not be revoked");
+        } catch (Exception ex) {
+            assertFalse(cache.isRevoked(token));
+            assertEquals(0, cache.revokedSize());
+        }
+    }
+
+    /**
+     * Test if a revoked token is kept at most the lifetime of the tokens,
+     * whatever its expiration date
+     */
+    @Test
+    public void testRevocationLifetime() throws Exception {
+        long now = System.currentTimeMillis();
+        String token = createToken(now + TimeUnit.DAYS.toMillis(3650));
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.revoke(token, verifier, TimeUnit.HOURS.toMillis(1), now);
+        assertTrue(cache.isRevoked(token));
+
+        // The expired revocations are removed at the next revocation
+        cache.revoke(createToken(now + TimeUnit.DAYS.toMillis(1)), verifier, TimeUnit.HOURS.toMillis(1),
+                now + TimeUnit.HOURS.toMillis(2));
+        assertFalse(cache.isRevoked(token));
+        assertEquals(1, cache.revokedSize());
+    }
+
+    /**
+     * Test if the number of revoked tokens is bounded
+     */
+    @Test
+    public void testBoundedRevocations() throws Exception {
+        long now = System.currentTimeMillis();
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        for (int i = 0; i <= VerifiedTokenCache.MAX_REVOKED_TOKENS; i++) {
+            cache.revoke(createToken(now + TimeUnit.MINUTES.toMillis(1) + i * 1000L), verifier,
+                    TimeUnit.DAYS.toMillis(1), now);
+        }
+        assertEquals(VerifiedTokenCache.MAX_REVOKED_TOKENS, cache.revokedSize());
+    }
+}
@@ -0,0 +1,153 @@
+//******************************************************************************
+//                           AcquisitionSessionDAOTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.dao;
+
+import java.util.List;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import opensilex.service.ontology.Oeso;
+import opensilex.service.performance.PerformanceTestEnvironment;
+import opensilex.service.resource.dto.acquisitionSession.MetadataFileDTO;
+import opensilex.service.resource.dto.acquisitionSession.MetadataFilePhenomobileDTO;
+import opensilex.service.resource.dto.acquisitionSession.MetadataFileUAVDTO;
+import opensilex.service.utils.ModificationCounter;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opensilex.sparql.service.SPARQLService;
+
+/**
+ * Tests of the acquisition session metadata files, on the in-memory
+ * triplestore of the performance tests.
+ */
+public class AcquisitionSessionDAOTest {
+
+    private final static String GRAPH = PerformanceTestEnvironment.EXPERIMENT_URI;
+    private final static String DEVICES_URI = PerformanceTestEnvironment.EXPERIMENT_URI + "/acquisitionSession/";
+    private final static int UAVS_COUNT = 5;
+    private final static int RADIOMETRIC_TARGETS_COUNT = 2;
+
+    private static SPARQLService sparql;
+
+    @BeforeClass
+    public static void createDevices() throws Exception {
+        sparql = PerformanceTestEnvironment.getInstance().getSparql();
+        for (int i = 1; i <= UAVS_COUNT; i++) {
+            insert(DEVICES_URI + "uav" + i, Oeso.CONCEPT_UAV.toString(), "UAV " + i);
+        }
+        for (int i = 1; i <= RADIOMETRIC_TARGETS_COUNT; i++) {
+            insert(DEVICES_URI + "target" + i, Oeso.CONCEPT_RADIOMETRIC_TARGET.toString(), "Target " + i);
+        }
+        insert(DEVICES_URI + "camera", Oeso.CONCEPT_CAMERA.toString(), "Camera");
+        insert(DEVICES_URI + "robot", Oeso.CONCEPT_FIELD_ROBOT.toString(), "Robot");
+    }
+
+    private static void insert(String uri, String rdfType, String label) {
+        sparql.getRepositoryConnection().prepareUpdate(QueryLanguage.SPARQL, "INSERT DATA { GRAPH <" + GRAPH + "> { "
+                + "<" + uri + "> a <" + rdfType + "> ; "
+                + "<http://www.w3.org/2000/01/rdf-schema#label> \"" + label + "\" } }").execute();
+    }
+
+    @Before
+    public void clearCache() {
+        AcquisitionSessionDAO.clearMetadataFilesCache();
+    }
+
+    private static AcquisitionSessionDAO getDAO(String vectorRdfType, int page, int pageSize) {
+        AcquisitionSessionDAO acquisitionSessionDAO = new AcquisitionSessionDAO(sparql);
+        acquisitionSessionDAO.vectorRdfType = vectorRdfType;
+        acquisitionSessionDAO.setPage(page);
+        acquisitionSessionDAO.setPageSize(pageSize);
+        return acquisitionSessionDAO;
+    }
+
+    /**
+     * Test the pages of the UAV metadata file: the platform on the first row,
+     * and the n-th vector and radiometric target, by descending label, on the
+     * n-th row
+     * @throws Exception
+     */
+    @Test
+    public void testUAVPages() throws Exception {
+        AcquisitionSessionDAO firstPageDAO = getDAO(Oeso.CONCEPT_UAV.toString(), 0, 2);
+        // The other tests may have added cameras, never more than the vectors
+        assertEquals(UAVS_COUNT, (int) firstPageDAO.countFileMetadataRows());
+
+        List<MetadataFileDTO> rows = firstPageDAO.allPaginateFileMetadata();
+        assertEquals(2, rows.size());
+        MetadataFileUAVDTO row = (MetadataFileUAVDTO) rows.get(0);
+        assertEquals(Oeso.PLATFORM_URI.toString(), row.getInstallation());
+        assertEquals(DEVICES_URI + "uav5", row.getVectorUri());
+        assertEquals("UAV 5", row.getVectorAlias());
+        assertEquals(Oeso.CONCEPT_UAV.toString(), row.getVectorType());
+        assertEquals(DEVICES_URI + "target2", row.getRadiometricTargetUri());
+        assertNotNull(row.getCameraUri());
+        row = (MetadataFileUAVDTO) rows.get(1);
+        assertNull(row.getInstallation());
+        assertEquals(DEVICES_URI + "uav4", row.getVectorUri());
+        assertEquals(DEVICES_URI + "target1", row.getRadiometricTargetUri());
+
+        rows = getDAO(Oeso.CONCEPT_UAV.toString(), 1, 2).allPaginateFileMetadata();
+        assertEquals(2, rows.size());
+        row = (MetadataFileUAVDTO) rows.get(0);
+        assertNull(row.getInstallation());
+        assertEquals(DEVICES_URI + "uav3", row.getVectorUri());
+        assertNull(row.getRadiometricTargetUri());
+
+        rows = getDAO(Oeso.CONCEPT_UAV.toString(), 2, 2).allPaginateFileMetadata();
+        assertEquals(1, rows.size());
+        assertEquals(DEVICES_URI + "uav1", ((MetadataFileUAVDTO) rows.get(0)).getVectorUri());
+    }
+
+    /**
+     * Test the metadata file of the field robots, with the platform as only
+     * row
+     * @throws Exception
+     */
+    @Test
+    public void testFieldRobotPages() throws Exception {
+        AcquisitionSessionDAO firstPageDAO = getDAO(Oeso.CONCEPT_FIELD_ROBOT.toString(), 0, 2);
+        assertEquals(1, (int) firstPageDAO.countFileMetadataRows());
+        List<MetadataFileDTO> rows = firstPageDAO.allPaginateFileMetadata();
+        assertEquals(1, rows.size());
+        assertEquals(Oeso.PLATFORM_URI.toString(), ((MetadataFilePhenomobileDTO) rows.get(0)).getInstallation());
+
+        assertTrue(getDAO(Oeso.CONCEPT_FIELD_ROBOT.toString(), 1, 2).allPaginateFileMetadata().isEmpty());
+    }
+
+    /**
+     * Test if there is no metadata file for a type which is not a vector type
+     * @throws Exception
+     */
+    @Test
+    public void testNotVectorType() throws Exception {
+        AcquisitionSessionDAO acquisitionSessionDAO = getDAO(Oeso.CONCEPT_CAMERA.toString(), 0, 2);
+        assertEquals(0, (int) acquisitionSessionDAO.countFileMetadataRows());
+        assertNull(acquisitionSessionDAO.allPaginateFileMetadata());
+    }
+
+    /**
+     * Test if the cached pages are generated again when the devices counter
+     * is incremented, as on a configuration reload
+     * @throws Exception
+     */
+    @Test
+    public void testDevicesModification() throws Exception {
+        String vectorType = Oeso.CONCEPT_FIELD_ROBOT.toString();
+        MetadataFileDTO row = getDAO(vectorType, 0, 2).allPaginateFileMetadata().get(0);
+        assertSame(row, getDAO(vectorType, 0, 2).allPaginateFileMetadata().get(0));
+
+        ModificationCounter.increment(ModificationCounter.Scope.DEVICES);
+        assertNotSame(row, getDAO(vectorType, 0, 2).allPaginateFileMetadata().get(0));
+    }
+}
@@ -0,0 +1,174 @@
+//******************************************************************************
+//                                RDAOTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.dao;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the OpenCPU calls, against a local stub of the OpenCPU server.
+ */
+public class RDAOTest {
+
+    private HttpServer opencpuStub;
+    private final AtomicInteger callsCount = new AtomicInteger();
+    // Released to answer the calls, the calls are answered at once by default
+    private volatile CountDownLatch answerLatch = new CountDownLatch(0);
+
+    @Before
+    public void startOpencpuStub() throws Exception {
+        opencpuStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        opencpuStub.createContext("/ocpu/library/", exchange -> {
+            callsCount.incrementAndGet();
+            try {
+                answerLatch.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] result = "[2]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(201, result.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(result);
+            }
+        });
+        opencpuStub.start();
+    }
+
+    @After
+    public void stopOpencpuStub() {
+        answerLatch.countDown();
+        opencpuStub.stop(0);
+    }
+
+    private String getStubHost() {
+        return "http://localhost:" + opencpuStub.getAddress().getPort();
+    }
+
+    /**
+     * Test if identical calls are only sent once when the cache is enabled,
+     * whatever the order of the parameters
+     */
+    @Test
+    public void testCachedCalls() throws Exception {
+        RDAO rDao = new RDAO(getStubHost(), 5, 2, 10, 60);
+        try {
+            RDAO.RFunctionResult result = rDao.opencpuRFunctionCall("stats", "median", "{\"x\": [1, 2, 3], \"na.rm\": true}").get();
+            assertTrue(result.isSuccessful());
+            assertEquals("[2]", result.getBody());
+
+            result = rDao.opencpuRFunctionCall("stats", "median", "{\"na.rm\":true,\"x\":[1,2,3]}").get();
+            assertEquals("[2]", result.getBody());
+            assertEquals(1, callsCount.get());
+
+            rDao.opencpuRFunctionCall("stats", "median", "{\"x\": [1, 2]}").get();
+            assertEquals(2, callsCount.get());
+        } finally {
+            rDao.close();
+        }
+    }
+
+    /**
+     * Test if each call is sent when the cache is disabled
+     */
+    @Test
+    public void testNotCachedCalls() throws Exception {
+        RDAO rDao = new RDAO(getStubHost(), 5, 2, 0, 60);
+        try {
+            rDao.opencpuRFunctionCall("stats", "rnorm", "{\"n\": 1}").get();
+            rDao.opencpuRFunctionCall("stats", "rnorm", "{\"n\": 1}").get();
+            assertEquals(2, callsCount.get());
+        } finally {
+            rDao.close();
+        }
+    }
+
+    /**
+     * Test if the calls beyond the running and waiting calls are rejected
+     */
+    @Test
+    public void testRejectedCall() throws Exception {
+        answerLatch = new CountDownLatch(1);
+        RDAO rDao = new RDAO(getStubHost(), 5, 1, 0, 60);
+        try {
+            // One running call and the full waiting queue
+            List<CompletableFuture<RDAO.RFunctionResult>> calls = new ArrayList<>();
+            for (int i = 0; i <= RDAO.MAX_WAITING_CALLS; i++) {
+                calls.add(rDao.opencpuRFunctionCall("stats", "rnorm", "{\"n\": " + i + "}"));
+            }
+
+            CompletableFuture<RDAO.RFunctionResult> rejectedCall = rDao.opencpuRFunctionCall("stats", "rnorm", "{\"n\": 1}");
+            assertTrue(rejectedCall.isCompletedExceptionally());
+            try {
+                rejectedCall.get();
+                fail("The call must be rejected");
+            } catch (ExecutionException ex) {
+                assertTrue(RDAO.isRejected(ex));
+            }
+            // As seen by the dependent stages of the call
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            rejectedCall.thenApply(result -> result).whenComplete((result, ex) -> error.set(ex));
+            assertTrue(RDAO.isRejected(error.get()));
+
+            answerLatch.countDown();
+            for (CompletableFuture<RDAO.RFunctionResult> call : calls) {
+                assertFalse(RDAO.isRejected(call.handle((result, ex) -> ex).get()));
+            }
+        } finally {
+            answerLatch.countDown();
+            rDao.close();
+        }
+    }
+
+    /**
+     * Test if the calls not ended after the timeout fail and are withdrawn
+     * from the pool
+     */
+    @Test
+    public void testTimedOutCalls() throws Exception {
+        answerLatch = new CountDownLatch(1);
+        RDAO rDao = new RDAO(getStubHost(), 1, 1, 0, 60);
+        try {
+            // One running call and one waiting call
+            CompletableFuture<RDAO.RFunctionResult> runningCall = rDao.opencpuRFunctionCall("stats", "rnorm", "{\"n\": 1}");
+            CompletableFuture<RDAO.RFunctionResult> waitingCall = rDao.opencpuRFunctionCall("stats", "rnorm", "{\"n\": 2}");
+            try {
+                waitingCall.get();
+                fail("The call must time out");
+            } catch (ExecutionException ex) {
+                assertTrue(RDAO.isTimedOut(ex));
+            }
+            assertTrue(RDAO.isTimedOut(runningCall.handle((result, ex) -> ex).get()));
+
+            answerLatch.countDown();
+            RDAO.RFunctionResult result = rDao.opencpuRFunctionCall("stats", "rnorm", "{\"n\": 3}").get();
+            assertTrue(result.isSuccessful());
+            // The waiting call has never been sent
+            assertEquals(2, callsCount.get());
+        } finally {
+            answerLatch.countDown();
+            rDao.close();
+        }
+    }
+}
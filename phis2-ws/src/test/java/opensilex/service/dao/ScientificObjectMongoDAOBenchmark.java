@@ -0,0 +1,64 @@
+//******************************************************************************
+//                           ScientificObjectMongoDAOBenchmark.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.dao;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.locationtech.jts.io.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the conversion of the scientific objects WKT geometries to
+ * GeoJSON, done for each created or updated scientific object.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScientificObjectMongoDAOBenchmark {
+
+    /**
+     * Number of points of the polygon: a plot (5) or a field contour (500)
+     */
+    @Param({"5", "500"})
+    public int points;
+
+    private String wkt;
+
+    @Setup
+    public void createPolygon() {
+        StringBuilder polygon = new StringBuilder("POLYGON ((");
+        for (int i = 0; i < points - 1; i++) {
+            double angle = 2 * Math.PI * i / (points - 1);
+            polygon.append(String.format(Locale.ROOT, "%.7f %.7f, ",
+                    3.8765 + 0.001 * Math.cos(angle),
+                    43.6123 + 0.001 * Math.sin(angle)));
+        }
+        // Closed ring
+        polygon.append(String.format(Locale.ROOT, "%.7f %.7f))", 3.8765 + 0.001, 43.6123));
+        wkt = polygon.toString();
+    }
+
+    @Benchmark
+    public Document convertWktToGeoJson() throws ParseException {
+        return ScientificObjectMongoDAO.convertWktToGeoJson(wkt);
+    }
+}
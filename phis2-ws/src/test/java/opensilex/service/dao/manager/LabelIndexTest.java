@@ -0,0 +1,152 @@
+//******************************************************************************
+//                           LabelIndexTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.dao.manager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import opensilex.service.ontology.Oeso;
+import opensilex.service.performance.PerformanceTestEnvironment;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opensilex.sparql.service.SPARQLService;
+
+/**
+ * Tests of the label index, on the in-memory triplestore of the performance
+ * tests.
+ */
+public class LabelIndexTest {
+
+    private final static String GRAPH = PerformanceTestEnvironment.EXPERIMENT_URI;
+    private final static String PLOT_URI = PerformanceTestEnvironment.EXPERIMENT_URI + "/labelIndex/plot";
+    private final static String CAMERA_URI = PerformanceTestEnvironment.EXPERIMENT_URI + "/labelIndex/camera";
+    private final static String SCIENTIFIC_OBJECT = Oeso.CONCEPT_SCIENTIFIC_OBJECT.toString();
+    private final static String SENSING_DEVICE = Oeso.CONCEPT_SENSING_DEVICE.toString();
+
+    private static SPARQLService sparql;
+    private static LabelIndex labelIndex;
+
+    @BeforeClass
+    public static void createIndex() throws Exception {
+        sparql = PerformanceTestEnvironment.getInstance().getSparql();
+        insert(PLOT_URI, PerformanceTestEnvironment.CONCEPT_PLOT, "Plot A12 north");
+        insert(CAMERA_URI, Oeso.NAMESPACE.toString() + "Camera", "North camera");
+
+        labelIndex = new LabelIndex(new ByteBuffersDirectory());
+        labelIndex.update(sparql, Arrays.asList(PLOT_URI, CAMERA_URI));
+    }
+
+    private static void insert(String uri, String rdfType, String label) {
+        sparql.getRepositoryConnection().prepareUpdate(QueryLanguage.SPARQL, "INSERT DATA { GRAPH <" + GRAPH + "> { "
+                + "<" + uri + "> a <" + rdfType + "> ; "
+                + "<http://www.w3.org/2000/01/rdf-schema#label> \"" + label + "\" } }").execute();
+    }
+
+    /**
+     * Test the search by prefix, case insensitive
+     * @throws Exception
+     */
+    @Test
+    public void testPrefix() throws Exception {
+        assertEquals(Collections.singletonList(PLOT_URI), labelIndex.search("PLO", Collections.emptyList()));
+        assertEquals(Collections.singletonList(CAMERA_URI), labelIndex.search("north cam", Collections.emptyList()));
+    }
+
+    /**
+     * Test the search of a part of the label
+     * @throws Exception
+     */
+    @Test
+    public void testSubstring() throws Exception {
+        assertEquals(Collections.singletonList(PLOT_URI), labelIndex.search("a1", Collections.emptyList()));
+    }
+
+    /**
+     * Test the search with a typing error, restricted to the resources of a
+     * type
+     * @throws Exception
+     */
+    @Test
+    public void testFuzzyByType() throws Exception {
+        List<String> uris = labelIndex.search("nrth", Collections.emptyList());
+        assertEquals(2, uris.size());
+        assertEquals(Collections.singletonList(PLOT_URI), labelIndex.search("nrth", Collections.singletonList(SCIENTIFIC_OBJECT)));
+        assertEquals(Collections.singletonList(CAMERA_URI), labelIndex.search("nrth", Collections.singletonList(SENSING_DEVICE)));
+    }
+
+    /**
+     * Test the search without typing errors, by prefix or substring only
+     * @throws Exception
+     */
+    @Test
+    public void testNotFuzzy() throws Exception {
+        assertTrue(labelIndex.search("nrth", Collections.emptyList(), false).isEmpty());
+        assertEquals(Collections.singletonList(PLOT_URI), labelIndex.search("A12 nor", Collections.emptyList(), false));
+    }
+
+    /**
+     * Test if a resource without label is removed from the index
+     * @throws Exception
+     */
+    @Test
+    public void testRemoved() throws Exception {
+        String uri = PerformanceTestEnvironment.EXPERIMENT_URI + "/labelIndex/removed";
+        insert(uri, PerformanceTestEnvironment.CONCEPT_PLOT, "Removed plot");
+        labelIndex.update(sparql, Collections.singletonList(uri));
+        assertEquals(Collections.singletonList(uri), labelIndex.search("removed", Collections.emptyList()));
+
+        sparql.getRepositoryConnection().prepareUpdate(QueryLanguage.SPARQL,
+                "DELETE WHERE { GRAPH <" + GRAPH + "> { <" + uri + "> ?p ?o } }").execute();
+        labelIndex.update(sparql, Collections.singletonList(uri));
+        assertTrue(labelIndex.search("removed", Collections.emptyList()).isEmpty());
+    }
+
+    /**
+     * Test the rebuild of an index from all the labels of the triplestore
+     * @throws Exception
+     */
+    @Test
+    public void testRebuild() throws Exception {
+        LabelIndex rebuiltIndex = new LabelIndex(new ByteBuffersDirectory());
+        assertFalse(rebuiltIndex.isReady());
+
+        rebuiltIndex.rebuild(sparql);
+        assertTrue(rebuiltIndex.isReady());
+        assertEquals(Collections.singletonList(PLOT_URI), rebuiltIndex.search("plot a12", Collections.singletonList(SCIENTIFIC_OBJECT)));
+        rebuiltIndex.close();
+    }
+
+    /**
+     * Test if a refresh indexes the labels written directly in the
+     * triplestore and removes the resources deleted without the index
+     * @throws Exception
+     */
+    @Test
+    public void testRefresh() throws Exception {
+        LabelIndex refreshedIndex = new LabelIndex(new ByteBuffersDirectory());
+        String deletedUri = PerformanceTestEnvironment.EXPERIMENT_URI + "/labelIndex/deleted";
+        insert(deletedUri, PerformanceTestEnvironment.CONCEPT_PLOT, "Deleted plot");
+        refreshedIndex.rebuild(sparql);
+        assertEquals(Collections.singletonList(deletedUri), refreshedIndex.search("deleted", Collections.emptyList()));
+
+        sparql.getRepositoryConnection().prepareUpdate(QueryLanguage.SPARQL,
+                "DELETE WHERE { GRAPH <" + GRAPH + "> { <" + deletedUri + "> ?p ?o } }").execute();
+        String addedUri = PerformanceTestEnvironment.EXPERIMENT_URI + "/labelIndex/added";
+        insert(addedUri, PerformanceTestEnvironment.CONCEPT_PLOT, "Added plot");
+        refreshedIndex.rebuild(sparql);
+        assertTrue(refreshedIndex.search("deleted", Collections.emptyList()).isEmpty());
+        assertEquals(Collections.singletonList(addedUri), refreshedIndex.search("added", Collections.emptyList()));
+        assertEquals(Collections.singletonList(PLOT_URI), refreshedIndex.search("plot a12", Collections.singletonList(SCIENTIFIC_OBJECT)));
+        refreshedIndex.close();
+    }
+}
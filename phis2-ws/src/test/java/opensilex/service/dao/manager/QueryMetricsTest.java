@@ -0,0 +1,38 @@
+//******************************************************************************
+//                           QueryMetricsTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.dao.manager;
+
+import static junit.framework.TestCase.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests of the queries durations histograms.
+ */
+public class QueryMetricsTest {
+
+    /**
+     * Test if the durations are counted in the right buckets
+     */
+    @Test
+    public void testHistogramBuckets() {
+        QueryMetrics.Histogram histogram = new QueryMetrics.Histogram(QueryMetrics.TRIPLESTORE, "GermplasmDAO.find");
+        histogram.add(0);
+        histogram.add(5);
+        histogram.add(6);
+        histogram.add(20000);
+
+        long[] bucketsCounts = histogram.getBucketsCounts();
+        assertEquals(QueryMetrics.BUCKETS_BOUNDS.length + 1, bucketsCounts.length);
+        assertEquals(2, bucketsCounts[0]);
+        assertEquals(1, bucketsCounts[1]);
+        assertEquals(1, bucketsCounts[bucketsCounts.length - 1]);
+        assertEquals(4, histogram.getCount());
+        assertEquals(20011, histogram.getTotalDuration());
+        assertEquals(20000, histogram.getMaxDuration());
+    }
+}
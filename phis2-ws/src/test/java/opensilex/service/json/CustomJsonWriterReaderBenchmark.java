@@ -0,0 +1,108 @@
+//******************************************************************************
+//                           CustomJsonWriterReaderBenchmark.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.json;
+
+import com.google.gson.reflect.TypeToken;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.MediaType;
+import opensilex.service.resource.dto.data.DataPostDTO;
+import opensilex.service.resource.dto.provenance.ProvenancePostDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the JSON serialization and deserialization of the requests
+ * and responses entities, with and without validation schema.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomJsonWriterReaderBenchmark {
+
+    private final static Type DATA_LIST_TYPE = new TypeToken<ArrayList<DataPostDTO>>() {}.getType();
+    // Validated with the ProvenancePostDTO.json schema
+    private final static Type PROVENANCE_LIST_TYPE = new TypeToken<ArrayList<ProvenancePostDTO>>() {}.getType();
+    private final static Annotation[] ANNOTATIONS = new Annotation[0];
+
+    /**
+     * Number of entities, e.g. the data sent in a single request
+     */
+    @Param({"1", "1000"})
+    public int entities;
+
+    private final CustomJsonWriterReader<Object> jsonWriterReader = new CustomJsonWriterReader<>();
+    private ArrayList<DataPostDTO> dataList;
+    private byte[] dataJson;
+    private byte[] provenancesJson;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void createEntities() throws IOException {
+        StringBuilder data = new StringBuilder("[");
+        StringBuilder provenances = new StringBuilder("[");
+        for (int i = 0; i < entities; i++) {
+            if (i > 0) {
+                data.append(",");
+                provenances.append(",");
+            }
+            data.append("{\"provenanceUri\":\"http://www.opensilex.org/demo/id/provenance/1552405256945\",")
+                    .append("\"objectUri\":\"http://www.opensilex.org/demo/2018/o18000076\",")
+                    .append("\"variableUri\":\"http://www.opensilex.org/demo/id/variables/v001\",")
+                    .append("\"date\":\"2017-06-15T10:51:00+0200\",")
+                    .append("\"value\":").append(i).append(".5,")
+                    .append("\"metadata\":{\"position\":\"top\"}}");
+            provenances.append("{\"label\":\"PROV-SUA3-LEAF-").append(i).append("\",")
+                    .append("\"comment\":\"Leaves counted on each plant\",")
+                    .append("\"metadata\":{\"prov:Agent\":{\"oeso:SensingDevice\":[\"http://www.opensilex.org/demo/2018/s18001\"]}}}");
+        }
+        dataJson = data.append("]").toString().getBytes(StandardCharsets.UTF_8);
+        provenancesJson = provenances.append("]").toString().getBytes(StandardCharsets.UTF_8);
+        dataList = (ArrayList<DataPostDTO>) readData();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object readData() throws IOException {
+        return jsonWriterReader.readFrom((Class) ArrayList.class, DATA_LIST_TYPE, ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream(dataJson));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object readValidatedProvenances() throws IOException {
+        return jsonWriterReader.readFrom((Class) ArrayList.class, PROVENANCE_LIST_TYPE, ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream(provenancesJson));
+    }
+
+    @Benchmark
+    public byte[] writeData() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        jsonWriterReader.writeTo(dataList, ArrayList.class, DATA_LIST_TYPE, ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, null, output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+//******************************************************************************
+//                           DataPerformanceTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.performance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static junit.framework.TestCase.assertEquals;
+import opensilex.service.dao.DataDAO;
+import opensilex.service.utils.UriGenerator;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Load scenarios of the data search services, on the synthetic data of a
+ * variable.
+ */
+public class DataPerformanceTest {
+
+    private final static int CLIENTS = PerformanceTestEnvironment.getIntProperty("performance.clients", 8);
+    private final static int ITERATIONS = PerformanceTestEnvironment.getIntProperty("performance.iterations", 200);
+    private final static int PAGE_SIZE = 100;
+    private final static int OBJECTS_COUNT = 100;
+
+    private static PerformanceTestEnvironment environment;
+    private static String variableUri;
+    private static String provenanceUri;
+    private static List<String> objectsUris;
+
+    /**
+     * Inserts the synthetic data, measured on each of the test objects.
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void insertData() throws Exception {
+        environment = PerformanceTestEnvironment.getInstance();
+        variableUri = UriGenerator.PLATFORM_URI_ID_VARIABLES + "perf";
+        provenanceUri = PerformanceTestEnvironment.BASE_URI + PerformanceTestEnvironment.INFRASTRUCTURE + "/id/provenance/perf";
+        objectsUris = new ArrayList<>();
+        for (int i = 0; i < OBJECTS_COUNT; i++) {
+            objectsUris.add(PerformanceTestEnvironment.EXPERIMENT_URI + "/o" + i);
+        }
+        environment.insertData(variableUri, objectsUris, provenanceUri,
+                PerformanceTestEnvironment.getIntProperty("performance.data", 50000));
+    }
+
+    /**
+     * Test the search of the data of a variable
+     * @throws Exception
+     */
+    @Test
+    public void testSearchByVariable() throws Exception {
+        LoadScenario.Result result = new LoadScenario("GET /data?variable",
+                () -> {
+                    DataDAO dataDAO = new DataDAO(environment.getSparql());
+                    dataDAO.count(variableUri, null, null, null, null);
+                    dataDAO.find(0, PAGE_SIZE, variableUri, null, null, null, null);
+                })
+                .run(CLIENTS, ITERATIONS);
+        assertEquals(0, result.getErrors());
+    }
+
+    /**
+     * Test the search of the data of a variable on an object and a period
+     * @throws Exception
+     */
+    @Test
+    public void testSearchByObjectAndDate() throws Exception {
+        List<String> objectUri = Collections.singletonList(objectsUris.get(OBJECTS_COUNT / 2));
+        LoadScenario.Result result = new LoadScenario("GET /data?variable&object&startDate&endDate",
+                () -> new DataDAO(environment.getSparql())
+                        .find(0, PAGE_SIZE, variableUri, "2020-02-01", "2020-03-01", objectUri, null))
+                .run(CLIENTS, ITERATIONS);
+        assertEquals(0, result.getErrors());
+    }
+}
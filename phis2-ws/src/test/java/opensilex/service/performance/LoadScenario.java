@@ -0,0 +1,179 @@
+//******************************************************************************
+//                           LoadScenario.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.performance;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Load scenario of an endpoint: the endpoint operation is called by
+ * concurrent clients, each one a fixed number of times after a warm up. The
+ * throughput and the latencies percentiles are logged and appended to the
+ * report file given by the performance.report system property.
+ * @example
+ * LoadScenario.Result result = new LoadScenario("GET /scientificObjects", () -> dao.find(...))
+ *     .run(8, 200);
+ */
+public class LoadScenario {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(LoadScenario.class);
+
+    private final static String REPORT_HEADER = "endpoint;clients;calls;errors;throughput (calls/s);p50 (ms);p95 (ms);p99 (ms);max (ms)";
+
+    /**
+     * Operation called by the clients.
+     */
+    @FunctionalInterface
+    public interface EndpointCall {
+
+        void call() throws Exception;
+    }
+
+    private final String endpoint;
+    private final EndpointCall call;
+
+    /**
+     * @param endpoint name of the endpoint in the report, e.g. "GET /data"
+     * @param call operation of the endpoint
+     */
+    public LoadScenario(String endpoint, EndpointCall call) {
+        this.endpoint = endpoint;
+        this.call = call;
+    }
+
+    /**
+     * Runs the scenario.
+     * @param clients number of concurrent clients
+     * @param iterations number of calls of each client, after as many warm up
+     * calls
+     * @return the scenario result
+     * @throws Exception
+     */
+    public Result run(int clients, int iterations) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            call.call();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long[][] latencies = new long[clients][iterations];
+        int[] errors = new int[clients];
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int client = 0; client < clients; client++) {
+            int clientIndex = client;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    long callStart = System.nanoTime();
+                    try {
+                        call.call();
+                    } catch (Exception ex) {
+                        errors[clientIndex]++;
+                        LOGGER.debug(endpoint + " call error", ex);
+                    }
+                    latencies[clientIndex][i] = System.nanoTime() - callStart;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long duration = System.nanoTime() - start;
+        executor.shutdown();
+
+        long[] allLatencies = new long[clients * iterations];
+        int errorsCount = 0;
+        for (int client = 0; client < clients; client++) {
+            System.arraycopy(latencies[client], 0, allLatencies, client * iterations, iterations);
+            errorsCount += errors[client];
+        }
+
+        Result result = new Result(endpoint, clients, allLatencies, errorsCount, duration);
+        result.report();
+        return result;
+    }
+
+    /**
+     * Throughput and latencies of a scenario.
+     */
+    public static class Result {
+
+        private final String endpoint;
+        private final int clients;
+        private final long[] sortedLatencies;
+        private final int errors;
+        private final long durationNanos;
+
+        Result(String endpoint, int clients, long[] latencies, int errors, long durationNanos) {
+            this.endpoint = endpoint;
+            this.clients = clients;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(this.sortedLatencies);
+            this.errors = errors;
+            this.durationNanos = durationNanos;
+        }
+
+        public int getCalls() {
+            return sortedLatencies.length;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the number of calls per second
+         */
+        public double getThroughput() {
+            return getCalls() / (durationNanos / 1e9);
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the latency of the percentile, in milliseconds
+         */
+        public double getLatency(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            index = Math.max(0, Math.min(sortedLatencies.length - 1, index));
+            return sortedLatencies[index] / 1e6;
+        }
+
+        private void report() throws IOException {
+            String line = String.format(Locale.ROOT, "%s;%d;%d;%d;%.1f;%.2f;%.2f;%.2f;%.2f",
+                    endpoint, clients, getCalls(), errors, getThroughput(),
+                    getLatency(50), getLatency(95), getLatency(99), getLatency(100));
+            LOGGER.info(REPORT_HEADER);
+            LOGGER.info(line);
+
+            String reportFile = System.getProperty("performance.report");
+            if (reportFile != null) {
+                Path reportPath = Paths.get(reportFile);
+                List<String> lines = new ArrayList<>();
+                if (!Files.exists(reportPath)) {
+                    lines.add(REPORT_HEADER);
+                }
+                lines.add(line);
+                Files.write(reportPath, lines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+    }
+}
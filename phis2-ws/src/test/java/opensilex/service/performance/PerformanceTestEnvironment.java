@@ -0,0 +1,260 @@
+//******************************************************************************
+//                           PerformanceTestEnvironment.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.performance;
+
+import com.mongodb.client.MongoCollection;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import opensilex.service.PhisWsConfig;
+import opensilex.service.PropertiesFileManager;
+import opensilex.service.dao.ScientificObjectRdf4jDAO;
+import opensilex.service.dao.manager.MongoDAO;
+import opensilex.service.model.Property;
+import opensilex.service.model.ScientificObject;
+import opensilex.service.ontology.Oeso;
+import opensilex.service.ontology.Rdf;
+import opensilex.service.ontology.Rdfs;
+import org.bson.Document;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.opensilex.config.ConfigDescription;
+import org.opensilex.nosql.mongodb.MongoDBConfig;
+import org.opensilex.sparql.SPARQLConfig;
+import org.opensilex.sparql.rdf4j.RDF4JConfig;
+import org.opensilex.sparql.rdf4j.RDF4JConnection;
+import org.opensilex.sparql.service.SPARQLService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Environment of the performance tests: an in-memory RDF4J repository and an
+ * in-process MongoDB server, with the web service configuration pointing to
+ * them. The environment is started once for all the performance tests and
+ * stopped with the JVM.
+ * The in-process MongoDB server does not support the transactions and the
+ * geospatial queries, so the scenarios using them are not covered.
+ */
+public class PerformanceTestEnvironment {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(PerformanceTestEnvironment.class);
+
+    public final static String BASE_URI = "http://www.opensilex.org/";
+    public final static String INFRASTRUCTURE = "performance";
+    public final static String VOCABULARY_CONTEXT = "http://www.opensilex.org/vocabulary/oeso";
+    public final static String EXPERIMENT_URI = BASE_URI + INFRASTRUCTURE + "/PERF-2020-1";
+    public final static String CONCEPT_PLOT = Oeso.NAMESPACE.toString() + "Plot";
+
+    private final static String ONTOLOGY_FILE = "/performance/ontology.ttl";
+
+    private static PerformanceTestEnvironment instance;
+
+    private final MongoServer mongoServer;
+    private final Repository repository;
+    //Each client thread uses its own connection, like each web service request
+    private final ThreadLocal<SPARQLService> sparql;
+
+    private PerformanceTestEnvironment() throws Exception {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress mongoAddress = mongoServer.bind();
+
+        // The configuration must be set before the first DAO is loaded
+        Map<String, Object> mongoConfig = new HashMap<>();
+        mongoConfig.put("host", mongoAddress.getHostString());
+        mongoConfig.put("port", mongoAddress.getPort());
+        mongoConfig.put("database", "phis-performance");
+        mongoConfig.put("username", "");
+        mongoConfig.put("password", "");
+        mongoConfig.put("authDB", "");
+
+        Map<String, Object> phisConfig = new HashMap<>();
+        phisConfig.put("infrastructure", INFRASTRUCTURE);
+        phisConfig.put("vocabulary", VOCABULARY_CONTEXT);
+
+        Map<String, Object> rdf4jConfig = new HashMap<>();
+        rdf4jConfig.put("serverURI", "memory");
+        rdf4jConfig.put("repository", INFRASTRUCTURE);
+
+        Map<String, Object> sparqlConfig = new HashMap<>();
+        sparqlConfig.put("baseURI", BASE_URI);
+
+        PropertiesFileManager.setOpensilexConfigs(
+                createConfig(PhisWsConfig.class, phisConfig),
+                createConfig(RDF4JConfig.class, rdf4jConfig),
+                createConfig(SPARQLConfig.class, sparqlConfig),
+                createConfig(MongoDBConfig.class, mongoConfig),
+                Files.createTempDirectory("phis-performance").toString(),
+                "http://localhost:8666/");
+
+        repository = new SailRepository(new MemoryStore());
+        repository.init();
+        sparql = ThreadLocal.withInitial(() -> new SPARQLService(new RDF4JConnection(repository.getConnection())));
+
+        loadOntology();
+        LOGGER.info("Performance tests environment started, MongoDB on port " + mongoAddress.getPort());
+    }
+
+    /**
+     * @return the environment, started by the first call
+     * @throws Exception
+     */
+    public static synchronized PerformanceTestEnvironment getInstance() throws Exception {
+        if (instance == null) {
+            instance = new PerformanceTestEnvironment();
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::stop));
+        }
+        return instance;
+    }
+
+    private void stop() {
+        repository.shutDown();
+        mongoServer.shutdownNow();
+    }
+
+    /**
+     * @return the triplestore service of the current thread
+     */
+    public SPARQLService getSparql() {
+        return sparql.get();
+    }
+
+    /**
+     * Creates a configuration which returns the given values, or the default
+     * values of the configuration descriptions.
+     * @param <T>
+     * @param configClass
+     * @param values configuration values by method name
+     * @return the configuration
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T createConfig(Class<T> configClass, Map<String, Object> values) {
+        return (T) Proxy.newProxyInstance(configClass.getClassLoader(), new Class<?>[]{configClass}, (proxy, method, args) -> {
+            if (method.getDeclaringClass().equals(Object.class)) {
+                return method.getName().equals("toString") ? configClass.getSimpleName() : method.invoke(values, args);
+            } else if (values.containsKey(method.getName())) {
+                return values.get(method.getName());
+            } else if (method.getReturnType().isInterface()) {
+                return createConfig(method.getReturnType(), new HashMap<>());
+            }
+            return getDefaultValue(method);
+        });
+    }
+
+    private static Object getDefaultValue(Method method) {
+        ConfigDescription description = method.getAnnotation(ConfigDescription.class);
+        String defaultValue = description == null ? "" : description.defaultString();
+        Class<?> type = method.getReturnType();
+        if (type.equals(boolean.class) || type.equals(Boolean.class)) {
+            return Boolean.parseBoolean(defaultValue);
+        } else if (type.equals(int.class) || type.equals(Integer.class)) {
+            return defaultValue.isEmpty() ? 0 : Integer.parseInt(defaultValue);
+        } else if (type.equals(long.class) || type.equals(Long.class)) {
+            return defaultValue.isEmpty() ? 0L : Long.parseLong(defaultValue);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Loads the subset of the ontology used by the tests in the vocabulary
+     * graph.
+     * @throws Exception
+     */
+    private void loadOntology() throws Exception {
+        ValueFactory factory = SimpleValueFactory.getInstance();
+        IRI vocabularyGraph = factory.createIRI(VOCABULARY_CONTEXT);
+        try (RepositoryConnection connection = repository.getConnection();
+                InputStream ontology = getClass().getResourceAsStream(ONTOLOGY_FILE)) {
+            connection.add(ontology, VOCABULARY_CONTEXT, RDFFormat.TURTLE, vocabularyGraph);
+
+            IRI experiment = factory.createIRI(EXPERIMENT_URI);
+            connection.add(experiment, factory.createIRI(Rdf.RELATION_TYPE.toString()),
+                    factory.createIRI(Oeso.CONCEPT_EXPERIMENT.toString()), experiment);
+        }
+    }
+
+    /**
+     * Creates plots in the test experiment with the scientific objects DAO.
+     * @param count number of plots
+     * @return the created plots
+     * @throws Exception
+     */
+    public List<ScientificObject> createPlots(int count) throws Exception {
+        List<ScientificObject> plots = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ScientificObject plot = new ScientificObject();
+            plot.setRdfType(CONCEPT_PLOT);
+            plot.setUriExperiment(EXPERIMENT_URI);
+            plot.setYear("2020");
+
+            Property label = new Property();
+            label.setRelation(Rdfs.RELATION_LABEL.toString());
+            label.setValue("plot " + i);
+            ArrayList<Property> properties = new ArrayList<>();
+            properties.add(label);
+            plot.setProperties(properties);
+            plots.add(plot);
+        }
+        return new ScientificObjectRdf4jDAO(getSparql()).create(plots);
+    }
+
+    /**
+     * Inserts synthetic data of a variable directly in its collection, one
+     * value per day and per object, in the order of the objects.
+     * @param variableUri
+     * @param objectsUris
+     * @param provenanceUri
+     * @param count number of data
+     */
+    public void insertData(String variableUri, List<String> objectsUris, String provenanceUri, int count) {
+        String collectionName = variableUri.substring(variableUri.lastIndexOf('/') + 1);
+        MongoCollection<Document> collection = MongoDAO.getStaticDataBase().getCollection(collectionName);
+
+        long firstDate = 1577836800000L; // 2020-01-01
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new Document()
+                    .append("uri", variableUri + "/data/" + i)
+                    .append("object", objectsUris.get(i % objectsUris.size()))
+                    .append("variable", variableUri)
+                    .append("provenance", provenanceUri)
+                    .append("date", new Date(firstDate + (i / objectsUris.size()) * 86400000L))
+                    .append("value", (double) (i % 1000)));
+            if (documents.size() == 1000) {
+                collection.insertMany(documents);
+                documents = new ArrayList<>();
+            }
+        }
+        if (!documents.isEmpty()) {
+            collection.insertMany(documents);
+        }
+    }
+
+    /**
+     * @param name system property set by the performance profile
+     * @param defaultValue
+     * @return the property value
+     */
+    public static int getIntProperty(String name, int defaultValue) {
+        return Integer.getInteger(name, defaultValue);
+    }
+}
@@ -0,0 +1,85 @@
+//******************************************************************************
+//                           ScientificObjectPerformanceTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.performance;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static junit.framework.TestCase.assertEquals;
+import opensilex.service.dao.ScientificObjectRdf4jDAO;
+import opensilex.service.model.ScientificObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Load scenarios of the scientific objects services.
+ */
+public class ScientificObjectPerformanceTest {
+
+    private final static int CLIENTS = PerformanceTestEnvironment.getIntProperty("performance.clients", 8);
+    private final static int ITERATIONS = PerformanceTestEnvironment.getIntProperty("performance.iterations", 200);
+    private final static int PAGE_SIZE = 100;
+
+    private static PerformanceTestEnvironment environment;
+
+    /**
+     * Creates the synthetic plots of the test experiment.
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void createPlots() throws Exception {
+        environment = PerformanceTestEnvironment.getInstance();
+        int plotsCount = PerformanceTestEnvironment.getIntProperty("performance.scientificObjects", 2000);
+        List<ScientificObject> plots = environment.createPlots(plotsCount);
+
+        Set<String> uris = new HashSet<>();
+        plots.forEach(plot -> uris.add(plot.getUri()));
+        assertEquals(plotsCount, uris.size());
+    }
+
+    /**
+     * Test the bulk creation of plots by concurrent clients
+     * @throws Exception
+     */
+    @Test
+    public void testCreate() throws Exception {
+        LoadScenario.Result result = new LoadScenario("POST /scientificObjects (100 plots)",
+                () -> environment.createPlots(100))
+                .run(CLIENTS, Math.max(1, ITERATIONS / 20));
+        assertEquals(0, result.getErrors());
+    }
+
+    /**
+     * Test the search of the plots of an experiment
+     * @throws Exception
+     */
+    @Test
+    public void testSearchByExperiment() throws Exception {
+        LoadScenario.Result result = new LoadScenario("GET /scientificObjects?experiment",
+                () -> new ScientificObjectRdf4jDAO(environment.getSparql())
+                        .find(0, PAGE_SIZE, null, null, PerformanceTestEnvironment.EXPERIMENT_URI, null, false))
+                .run(CLIENTS, ITERATIONS);
+        assertEquals(0, result.getErrors());
+    }
+
+    /**
+     * Test the search and the count of the scientific objects of a type
+     * @throws Exception
+     */
+    @Test
+    public void testSearchByType() throws Exception {
+        LoadScenario.Result result = new LoadScenario("GET /scientificObjects?rdfType",
+                () -> {
+                    ScientificObjectRdf4jDAO scientificObjectDAO = new ScientificObjectRdf4jDAO(environment.getSparql());
+                    scientificObjectDAO.count(null, PerformanceTestEnvironment.CONCEPT_PLOT, null, null);
+                    scientificObjectDAO.find(0, PAGE_SIZE, null, PerformanceTestEnvironment.CONCEPT_PLOT, null, null, false);
+                })
+                .run(CLIENTS, ITERATIONS);
+        assertEquals(0, result.getErrors());
+    }
+}
@@ -0,0 +1,65 @@
+//******************************************************************************
+//                           UriGeneratorPerformanceTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.performance;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import static junit.framework.TestCase.assertEquals;
+import opensilex.service.ontology.Oeso;
+import opensilex.service.utils.UriGenerator;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Load scenarios of the URIs generation. The generated URIs must stay unique
+ * with concurrent clients.
+ */
+public class UriGeneratorPerformanceTest {
+
+    private final static int CLIENTS = PerformanceTestEnvironment.getIntProperty("performance.clients", 8);
+    private final static int ITERATIONS = PerformanceTestEnvironment.getIntProperty("performance.iterations", 200);
+
+    private static PerformanceTestEnvironment environment;
+
+    @BeforeClass
+    public static void startEnvironment() throws Exception {
+        environment = PerformanceTestEnvironment.getInstance();
+    }
+
+    /**
+     * Test the generation of sensors URIs
+     * @throws Exception
+     */
+    @Test
+    public void testSensorUris() throws Exception {
+        Set<String> uris = ConcurrentHashMap.newKeySet();
+        String cameraType = Oeso.NAMESPACE.toString() + "Camera";
+        LoadScenario.Result result = new LoadScenario("URI generation (sensor)",
+                () -> uris.add(UriGenerator.generateNewInstanceUri(environment.getSparql(), cameraType, "2020", null)))
+                .run(CLIENTS, ITERATIONS);
+
+        assertEquals(0, result.getErrors());
+        // Warm up calls included
+        assertEquals((CLIENTS + 1) * ITERATIONS, uris.size());
+    }
+
+    /**
+     * Test the generation of scientific objects URIs by blocks
+     * @throws Exception
+     */
+    @Test
+    public void testScientificObjectUris() throws Exception {
+        Set<String> uris = ConcurrentHashMap.newKeySet();
+        LoadScenario.Result result = new LoadScenario("URI generation (10 scientific objects)",
+                () -> uris.addAll(UriGenerator.generateScientificObjectUris(environment.getSparql(), "2021", 10)))
+                .run(CLIENTS, ITERATIONS);
+
+        assertEquals(0, result.getErrors());
+        assertEquals((CLIENTS + 1) * ITERATIONS * 10, uris.size());
+    }
+}
@@ -0,0 +1,70 @@
+//******************************************************************************
+//                         RequestLimitFilterTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.resource.request.filter;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Tests of the clients requests limits.
+ */
+public class RequestLimitFilterTest {
+
+    /**
+     * Test if a client can send a minute of requests at once, then has to
+     * wait for the bucket refill
+     */
+    @Test
+    public void testRequestRateLimit() {
+        RequestLimitFilter.ClientLimiter limiter = new RequestLimitFilter.ClientLimiter(RequestLimitFilter.Limits.parse("60/0"), 0);
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, limiter.takeToken(0));
+        }
+        // One request per second
+        assertEquals(1000, limiter.takeToken(0));
+        assertEquals(500, limiter.takeToken(500));
+        assertEquals(0, limiter.takeToken(1000));
+        assertEquals(1000, limiter.takeToken(1000));
+    }
+
+    /**
+     * Test if the simultaneous requests are limited until a request ends
+     */
+    @Test
+    public void testConcurrentRequestsLimit() {
+        RequestLimitFilter.ClientLimiter limiter = new RequestLimitFilter.ClientLimiter(RequestLimitFilter.Limits.parse("0/2"), 0);
+        assertTrue(limiter.startRequest());
+        assertTrue(limiter.startRequest());
+        assertFalse(limiter.startRequest());
+        limiter.endRequest();
+        assertTrue(limiter.startRequest());
+        assertFalse(limiter.isIdle(Long.MAX_VALUE));
+    }
+
+    /**
+     * Test if the forwarded client address is only used behind the trusted
+     * proxies, and can't be chosen by the client
+     */
+    @Test
+    public void testClientAddress() {
+        Set<String> trustedProxies = new HashSet<>(Arrays.asList("10.0.0.1", "10.0.0.2"));
+        assertEquals("192.168.1.5", RequestLimitFilter.getClientAddress("192.168.1.5", "1.2.3.4", trustedProxies));
+        assertEquals("192.168.1.5", RequestLimitFilter.getClientAddress("192.168.1.5", "1.2.3.4", Collections.emptySet()));
+        assertEquals("10.0.0.1", RequestLimitFilter.getClientAddress("10.0.0.1", null, trustedProxies));
+        assertEquals("1.2.3.4", RequestLimitFilter.getClientAddress("10.0.0.1", "1.2.3.4", trustedProxies));
+        // Chained proxies, the first address is given by the client
+        assertEquals("1.2.3.4", RequestLimitFilter.getClientAddress("10.0.0.1", "5.6.7.8, 1.2.3.4, 10.0.0.2", trustedProxies));
+        assertEquals("10.0.0.2", RequestLimitFilter.getClientAddress("10.0.0.1", "10.0.0.2", trustedProxies));
+    }
+}
@@ -0,0 +1,102 @@
+//******************************************************************************
+//                         ShinyProxyReloadWorkerTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.shinyProxy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of the ShinyProxy reloads, with a fake process runner instead of
+ * Docker.
+ */
+public class ShinyProxyReloadWorkerTest {
+
+    private final List<String> commands = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger updatesCount = new AtomicInteger();
+    private final CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+    private final CountDownLatch firstUpdateReleased = new CountDownLatch(1);
+    private final CountDownLatch reloadsEnded = new CountDownLatch(2);
+
+    /**
+     * ShinyProxy service without triplestore and docker.
+     */
+    private class FakeShinyProxyService extends ShinyProxyService {
+
+        FakeShinyProxyService(Path configDirectory) {
+            super((processArgs, directory) -> {
+                commands.add(String.join(" ", processArgs));
+                return 0;
+            }, configDirectory);
+        }
+
+        @Override
+        public void updateApplicationsListAndImages() {
+            if (updatesCount.incrementAndGet() == 1) {
+                firstUpdateStarted.countDown();
+                try {
+                    firstUpdateReleased.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public boolean run() {
+            reloadsEnded.countDown();
+            return true;
+        }
+    }
+
+    /**
+     * Test if the reload requests received during a reload are coalesced in
+     * a single reload
+     */
+    @Test
+    public void testReloadRequestsCoalesced() throws Exception {
+        Path configDirectory = Files.createTempDirectory("shinyproxy");
+        ShinyProxyReloadWorker worker = new ShinyProxyReloadWorker(() -> new FakeShinyProxyService(configDirectory));
+        try {
+            assertTrue(worker.requestReload());
+            assertTrue(firstUpdateStarted.await(10, TimeUnit.SECONDS));
+            assertEquals(ShinyProxyReloadWorker.State.UPDATING_APPLICATIONS, worker.getStatus().getState());
+
+            // Uploads during the reload: only one more reload
+            assertTrue(worker.requestReload());
+            assertFalse(worker.requestReload());
+            assertFalse(worker.requestReload());
+            assertTrue(worker.getStatus().isReloadPending());
+
+            firstUpdateReleased.countDown();
+            assertTrue(reloadsEnded.await(10, TimeUnit.SECONDS));
+        } finally {
+            worker.shutdown(10);
+        }
+
+        ShinyProxyReloadWorker.ReloadStatus status = worker.getStatus();
+        assertEquals(2, updatesCount.get());
+        assertEquals(2, status.getReloads());
+        assertEquals(4, status.getReloadRequests());
+        assertEquals(ShinyProxyReloadWorker.State.IDLE, status.getState());
+        assertFalse(status.isReloadPending());
+        // Each reload stops the container, then the shutdown stops it again
+        assertEquals(6, commands.size());
+        assertEquals("docker stop shiny_proxy", commands.get(0));
+        assertEquals("docker rm shiny_proxy", commands.get(1));
+    }
+}
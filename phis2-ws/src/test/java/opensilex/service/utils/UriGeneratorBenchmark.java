@@ -0,0 +1,67 @@
+//******************************************************************************
+//                           UriGeneratorBenchmark.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import opensilex.service.ontology.Oeso;
+import opensilex.service.performance.PerformanceTestEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensilex.sparql.service.SPARQLService;
+
+/**
+ * Benchmark of the URIs generation: the hash of the data URIs and the
+ * generation of the sensors URIs, which reads the type hierarchy and the
+ * sequence. The triplestore and MongoDB are the in-memory ones of the
+ * performance tests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UriGeneratorBenchmark {
+
+    private final static String DATA_KEY = "http://www.opensilex.org/demo/id/variables/v001"
+            + "http://www.opensilex.org/demo/2018/o18000076"
+            + "2017-06-15T10:51:00+0200"
+            + "http://www.opensilex.org/demo/id/provenance/1552405256945";
+    private final static String CAMERA_TYPE = Oeso.NAMESPACE.toString() + "Camera";
+
+    private SPARQLService sparql;
+
+    @Setup
+    public void startEnvironment() throws Exception {
+        sparql = PerformanceTestEnvironment.getInstance().getSparql();
+    }
+
+    @Benchmark
+    public String uniqueHash() throws NoSuchAlgorithmException {
+        return UriGenerator.getUniqueHash(DATA_KEY);
+    }
+
+    @Benchmark
+    public String dataUri() throws Exception {
+        return UriGenerator.generateNewInstanceUri(sparql, Oeso.CONCEPT_DATA.toString(), null, DATA_KEY);
+    }
+
+    @Benchmark
+    public String sensorUri() throws Exception {
+        return UriGenerator.generateNewInstanceUri(sparql, CAMERA_TYPE, "2020", null);
+    }
+}
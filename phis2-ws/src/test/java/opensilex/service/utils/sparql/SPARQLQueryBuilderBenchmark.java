@@ -0,0 +1,125 @@
+//******************************************************************************
+//                           SPARQLQueryBuilderBenchmark.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils.sparql;
+
+import java.util.concurrent.TimeUnit;
+import opensilex.service.ontology.Oeso;
+import opensilex.service.ontology.Rdf;
+import opensilex.service.ontology.Rdfs;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the SPARQL queries building with SPARQLQueryBuilder and
+ * SPARQLStringBuilder, compared to the parameters binding of a
+ * SPARQLQueryTemplate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SPARQLQueryBuilderBenchmark {
+
+    private final static String EXPERIMENT_URI = "http://www.opensilex.org/demo/DMO2018-1";
+    private final static String SCIENTIFIC_OBJECT_URI = "http://www.opensilex.org/demo/2018/o18000076";
+
+    /**
+     * Parameters of the {@link #manyTriplets(TripletsState)} benchmark only,
+     * so that the other benchmarks are run once.
+     */
+    @State(Scope.Benchmark)
+    public static class TripletsState {
+
+        /**
+         * Number of triplets of the query body, e.g. the properties of the
+         * inserted or searched objects
+         */
+        @Param({"10", "100", "1000"})
+        public int triplets;
+    }
+
+    /**
+     * Builds the scientific objects search query.
+     * @return the query
+     */
+    @Benchmark
+    public String searchQuery() {
+        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
+        query.appendDistinct(true);
+        query.appendSelect("?uri");
+        query.appendAndFilter("REGEX ( str(?uri),\".*o18.*\",\"i\")");
+        query.appendTriplet("?uri", Rdf.RELATION_TYPE.toString(), "?rdfType", null);
+        query.appendTriplet("?rdfType", "<" + Rdfs.RELATION_SUBCLASS_OF.toString() + ">*",
+                Oeso.CONCEPT_SCIENTIFIC_OBJECT.toString(), null);
+        query.appendSelect(" ?rdfType ?alias");
+        query.beginBodyOptional();
+        query.appendToBody("?uri <" + Rdfs.RELATION_LABEL.toString() + "> ?alias . ");
+        query.endBodyOptional();
+        query.appendSelect("?experiment");
+        query.appendOptional("?uri <" + Oeso.RELATION_PARTICIPATES_IN.toString() + "> ?experiment . ");
+        query.appendLimit(20);
+        query.appendOffset(40);
+        return query.toString();
+    }
+
+    /**
+     * Builds a query with many triplets, the body being built by string
+     * concatenations.
+     * @param state number of triplets
+     * @return the query
+     */
+    @Benchmark
+    public String manyTriplets(TripletsState state) {
+        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
+        query.appendSelect("?property ?value");
+        query.appendGraph(EXPERIMENT_URI);
+        for (int i = 0; i < state.triplets; i++) {
+            query.appendTriplet(SCIENTIFIC_OBJECT_URI + i, "?property", "?value", null);
+        }
+        return query.toString();
+    }
+
+    /**
+     * Builds the query checking the type of an instance.
+     * @return the query
+     */
+    @Benchmark
+    public String isInstanceOfQuery() {
+        SPARQLQueryBuilder query = new SPARQLQueryBuilder();
+        query.appendDistinct(Boolean.TRUE);
+        query.appendSelect("?uri");
+        query.appendTriplet("<" + SCIENTIFIC_OBJECT_URI + ">", Rdf.RELATION_TYPE.toString(),
+                "<" + Oeso.CONCEPT_SCIENTIFIC_OBJECT.toString() + ">", null);
+        query.appendAsk("");
+        return query.toString();
+    }
+
+    /**
+     * Creates the parameters of the query template checking the type of an
+     * instance, the template text being constant.
+     * @return the bindings of the query
+     */
+    @Benchmark
+    public BindingSet isInstanceOfTemplate() {
+        MapBindingSet bindings = new MapBindingSet();
+        bindings.addBinding("instance", SPARQLQueryTemplate.uri(SCIENTIFIC_OBJECT_URI));
+        bindings.addBinding("type", SPARQLQueryTemplate.uri(Oeso.CONCEPT_SCIENTIFIC_OBJECT.toString()));
+        return bindings;
+    }
+}
@@ -0,0 +1,121 @@
+//******************************************************************************
+//                           SPARQLQueryTemplateTest.java
+// SILEX-PHIS
+// Copyright © INRAE 2020
+// Creation date: October 2020
+// Contact: vincent.migot@inra.fr, anne.tireau@inra.fr, pascal.neveu@inra.fr
+//******************************************************************************
+package opensilex.service.utils.sparql;
+
+import java.util.Arrays;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import org.eclipse.rdf4j.query.BooleanQuery;
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests of the query templates, on an in-memory triplestore.
+ */
+public class SPARQLQueryTemplateTest {
+
+    private final static String NAMESPACE = "http://www.opensilex.org/test/";
+
+    private static SailRepository repository;
+    private static RepositoryConnection connection;
+
+    @BeforeClass
+    public static void createRepository() {
+        repository = new SailRepository(new MemoryStore());
+        repository.init();
+        connection = repository.getConnection();
+        connection.prepareUpdate(QueryLanguage.SPARQL, "INSERT DATA { "
+                + "<" + NAMESPACE + "a1> <" + NAMESPACE + "comment> \"Leaf rolling\" . "
+                + "<" + NAMESPACE + "a2> <" + NAMESPACE + "comment> \"Lodging\" . "
+                + "<" + NAMESPACE + "a3> <" + NAMESPACE + "comment> \"Rust\" }").execute();
+    }
+
+    @AfterClass
+    public static void closeRepository() {
+        connection.close();
+        repository.shutDown();
+    }
+
+    /**
+     * Test if a malformed query is rejected when the template is created
+     */
+    @Test(expected = MalformedQueryException.class)
+    public void testMalformedQuery() {
+        new SPARQLQueryTemplate("SELECT ?uri WHERE { ?uri ?p }");
+    }
+
+    /**
+     * Test if the values which can not be written in a query are rejected
+     */
+    @Test
+    public void testInvalidUri() {
+        for (String uri : Arrays.asList("o18000076", "http://a> } DELETE WHERE { ?s ?p ?o", "http://a b", null)) {
+            try {
+                SPARQLQueryTemplate.uri(uri);
+                throw new AssertionError("Accepted URI: " + uri);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Test a bound URI parameter
+     */
+    @Test
+    public void testBoundUri() {
+        SPARQLQueryTemplate template = new SPARQLQueryTemplate("ASK { ?uri ?p ?o }");
+        BooleanQuery query = connection.prepareBooleanQuery(QueryLanguage.SPARQL, template.toString());
+        query.setBinding("uri", SPARQLQueryTemplate.uri(NAMESPACE + "a1"));
+        assertTrue(query.evaluate());
+        query.setBinding("uri", SPARQLQueryTemplate.uri(NAMESPACE + "unknown"));
+        assertFalse(query.evaluate());
+    }
+
+    /**
+     * Test an optional parameter, either bound or left unbound
+     */
+    @Test
+    public void testOptionalParameter() {
+        SPARQLQueryTemplate template = new SPARQLQueryTemplate("SELECT ?uri WHERE { "
+                + "?uri <" + NAMESPACE + "comment> ?comment "
+                + "FILTER (!BOUND(?pattern) || REGEX(STR(?comment), ?pattern, \"i\")) }");
+
+        TupleQuery query = connection.prepareTupleQuery(QueryLanguage.SPARQL, template.toString());
+        assertEquals(3, QueryResults.asList(query.evaluate()).size());
+
+        // The quote is part of the value and not of the query
+        query.setBinding("pattern", SPARQLQueryTemplate.literal("^l'?o"));
+        assertEquals(1, QueryResults.asList(query.evaluate()).size());
+    }
+
+    /**
+     * Test the values of a parameter with several values, with a page of the
+     * results
+     */
+    @Test
+    public void testValuesAndPage() {
+        SPARQLQueryTemplate template = new SPARQLQueryTemplate("SELECT ?uri ?comment WHERE { "
+                + "?uri <" + NAMESPACE + "comment> ?comment }");
+
+        String values = template.values("uri", Arrays.asList(NAMESPACE + "a1", NAMESPACE + "a3"));
+        assertEquals(2, QueryResults.asList(connection.prepareTupleQuery(QueryLanguage.SPARQL, values).evaluate()).size());
+
+        String page = template.page(2, 2);
+        assertEquals(1, QueryResults.asList(connection.prepareTupleQuery(QueryLanguage.SPARQL, page).evaluate()).size());
+    }
+}